@@ -0,0 +1,113 @@
+package glenncai.kafka.demo.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import glenncai.kafka.demo.client.PartitionStockCache;
+import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.service.DispatchDedupStore;
+import glenncai.kafka.demo.service.DispatchLogSampler;
+import glenncai.kafka.demo.service.DispatchOutbox;
+import glenncai.kafka.demo.service.DispatchService;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DispatchService benchmark with a stub template and stub stock client
+ * <p>
+ * Measures the in-process cost of building and handing off the dispatch events, with every
+ * send completing immediately and logging above INFO so console output does not dominate.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchServiceBenchmark {
+
+  private DispatchService dispatchService;
+
+  private OrderCreated orderCreated;
+
+  private String key;
+
+  @Setup
+  public void setUp() {
+    ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    dispatchService = new DispatchService(new StubKafkaTemplate(), new StubStockServiceClient(),
+                                          DispatchLogSampler.disabled(),
+                                          DispatchDedupStore.disabled(),
+                                          DispatchMetrics.disabled(),
+                                          PartitionStockCache.disabled(),
+                                          DispatchOutbox.disabled());
+    orderCreated = OrderCreated.builder().orderId(UUID.randomUUID()).item("item-200").build();
+    key = UUID.randomUUID().toString();
+  }
+
+  @Benchmark
+  public void process() throws Exception {
+    dispatchService.process(key, orderCreated);
+  }
+
+  @Benchmark
+  public CompletableFuture<Void> processAsync() {
+    return dispatchService.processAsync(key, orderCreated);
+  }
+
+  /**
+   * Template whose sends complete immediately without a producer
+   */
+  static class StubKafkaTemplate extends KafkaTemplate<String, Object> {
+
+    private static final CompletableFuture<SendResult<String, Object>> SENT =
+        CompletableFuture.completedFuture(null);
+
+    StubKafkaTemplate() {
+      super(new DefaultKafkaProducerFactory<>(Map.of()));
+    }
+
+    @Override
+    public CompletableFuture<SendResult<String, Object>> send(
+        ProducerRecord<String, Object> record) {
+      return SENT;
+    }
+  }
+
+  /**
+   * Stock client that reports every item as available without an HTTP call
+   */
+  static class StubStockServiceClient extends StockServiceClient {
+
+    StubStockServiceClient() {
+      super(null, "http://localhost/api/stock");
+    }
+
+    @Override
+    public String checkAvailability(String item) {
+      return "true";
+    }
+  }
+}
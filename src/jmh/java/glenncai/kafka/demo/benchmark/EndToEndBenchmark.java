@@ -0,0 +1,215 @@
+package glenncai.kafka.demo.benchmark;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import ch.qos.logback.classic.Logger;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import glenncai.kafka.demo.config.KafkaConfig;
+import glenncai.kafka.demo.handler.OrderCreatedReactiveHandler;
+import glenncai.kafka.demo.message.OrderCreated;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End to end dispatch throughput against an in-JVM broker and a WireMock stock service
+ * <p>
+ * Each invocation publishes a burst of orders to order.created and waits until every one of
+ * them has been dispatched to order.dispatched, so the score is orders per second through the
+ * selected engine.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(EndToEndBenchmark.ORDERS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class EndToEndBenchmark {
+
+  static final int ORDERS = 1000;
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+  private static final String ORDER_CREATED_TOPIC = "order.created";
+
+  private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+
+  private static final String STREAMS_ENGINE = "streams";
+
+  private static final String REACTIVE_ENGINE = "reactive";
+
+  @Param({"record", "batch", "async", "parallel", "keyed", "transactional", "streams",
+      "reactive"})
+  private String engine;
+
+  @Param({"3"})
+  private int partitions;
+
+  private EmbeddedKafkaBroker broker;
+
+  private WireMockServer wireMockServer;
+
+  private ConfigurableApplicationContext context;
+
+  private Path stateDir;
+
+  private KafkaTemplate<String, Object> kafkaTemplate;
+
+  private final AtomicLong dispatched = new AtomicLong();
+
+  private volatile boolean counting;
+
+  private Thread counter;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(
+        ch.qos.logback.classic.Level.WARN);
+    broker = new EmbeddedKafkaBroker(1, true, partitions, ORDER_CREATED_TOPIC,
+                                     ORDER_DISPATCHED_TOPIC, "dispatch.tracking",
+                                     "stock.availability")
+        .brokerProperties(Map.of("transaction.state.log.replication.factor", "1",
+                                 "transaction.state.log.min.isr", "1"));
+    broker.afterPropertiesSet();
+
+    stateDir = Files.createTempDirectory("dispatch-streams");
+    wireMockServer = new WireMockServer(options().dynamicPort().disableRequestJournal());
+    wireMockServer.start();
+    wireMockServer.stubFor(get(urlPathEqualTo("/api/stock"))
+                               .willReturn(aResponse().withStatus(200).withBody("true")));
+
+    context = new SpringApplicationBuilder(KafkaConfig.class)
+        .web(WebApplicationType.NONE)
+        .run("--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+             "--spring.kafka.consumer.auto-offset-reset=earliest",
+             "--dispatch.stockServiceEndpoint=http://localhost:" + wireMockServer.port()
+             + "/api/stock",
+             "--dispatch.engine=" + engine,
+             "--dispatch.streams.state-dir=" + stateDir,
+             "--logging.level.root=WARN");
+    if (STREAMS_ENGINE.equals(engine)) {
+      awaitRunning(context.getBean(StreamsBuilderFactoryBean.class).getKafkaStreams());
+    } else if (REACTIVE_ENGINE.equals(engine)) {
+      awaitAssignment(context.getBean(OrderCreatedReactiveHandler.class));
+    } else {
+      ContainerTestUtils.waitForAssignment(
+          context.getBean(KafkaListenerEndpointRegistry.class)
+                 .getListenerContainer("orderConsumerClient"), partitions);
+    }
+    kafkaTemplate = context.getBean("kafkaTemplate", KafkaTemplate.class);
+
+    counting = true;
+    counter = new Thread(this::countDispatched, "dispatched-counter");
+    counter.setDaemon(true);
+    counter.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException, IOException {
+    counting = false;
+    counter.join();
+    context.close();
+    wireMockServer.stop();
+    broker.destroy();
+    FileSystemUtils.deleteRecursively(stateDir);
+  }
+
+  @Benchmark
+  public long dispatch() {
+    long target = dispatched.get() + ORDERS;
+    for (int index = 0; index < ORDERS; index++) {
+      OrderCreated orderCreated =
+          OrderCreated.builder().orderId(UUID.randomUUID()).item("item-" + index % 50).build();
+      kafkaTemplate.send(ORDER_CREATED_TOPIC, UUID.randomUUID().toString(), orderCreated);
+    }
+    kafkaTemplate.flush();
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (dispatched.get() < target) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Timed out with " + (target - dispatched.get())
+                                        + " orders not dispatched");
+      }
+      LockSupport.parkNanos(100_000L);
+    }
+    return dispatched.get();
+  }
+
+  private static void awaitRunning(KafkaStreams kafkaStreams) {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (kafkaStreams.state() != KafkaStreams.State.RUNNING) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Streams not running after " + TIMEOUT + ", state "
+                                        + kafkaStreams.state());
+      }
+      LockSupport.parkNanos(10_000_000L);
+    }
+  }
+
+  private void awaitAssignment(OrderCreatedReactiveHandler handler) {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (handler.assignedPartitions().size() < partitions) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Receiver not assigned after " + TIMEOUT + ", partitions "
+                                        + handler.assignedPartitions());
+      }
+      LockSupport.parkNanos(10_000_000L);
+    }
+  }
+
+  private void countDispatched() {
+    try (KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(Map.of(
+        ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+        ConsumerConfig.GROUP_ID_CONFIG, "benchmark-" + UUID.randomUUID(),
+        ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+        ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed",
+        ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class,
+        ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class))) {
+      consumer.subscribe(List.of(ORDER_DISPATCHED_TOPIC));
+      while (counting) {
+        dispatched.addAndGet(consumer.poll(Duration.ofMillis(100)).count());
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package glenncai.kafka.demo.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import glenncai.kafka.demo.config.KafkaConfig;
+import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.service.InFlightSendTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send throughput and latency of each producer profile against an in-JVM broker
+ * <p>
+ * throughput sends a burst of dispatch events and flushes, so the score is events per second
+ * with batching and compression at work. sendLatency sends one event at a time and waits for its
+ * ack, so the score is the latency a lone send pays for the profile's linger.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ProducerProfileBenchmark {
+
+  static final int BURST = 1000;
+
+  private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+
+  @Param({"low-latency", "balanced", "high-throughput"})
+  private String profile;
+
+  private EmbeddedKafkaBroker broker;
+
+  private DefaultKafkaProducerFactory<String, Object> producerFactory;
+
+  private KafkaTemplate<String, Object> kafkaTemplate;
+
+  private OrderDispatched orderDispatched;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(
+        ch.qos.logback.classic.Level.WARN);
+    broker = new EmbeddedKafkaBroker(1, true, 3, ORDER_DISPATCHED_TOPIC);
+    broker.afterPropertiesSet();
+
+    producerFactory = (DefaultKafkaProducerFactory<String, Object>) new KafkaConfig()
+        .producerFactory(broker.getBrokersAsString(), "record", "dispatch-tx-", new String[0],
+                         profile, new String[0], new InFlightSendTracker());
+    kafkaTemplate = new KafkaTemplate<>(producerFactory);
+    orderDispatched = OrderDispatched.builder().orderId(UUID.randomUUID())
+                                     .processById(UUID.randomUUID())
+                                     .notes("Dispatched: item-200").build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    producerFactory.destroy();
+    broker.destroy();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(BURST)
+  public void throughput() {
+    for (int index = 0; index < BURST; index++) {
+      kafkaTemplate.send(ORDER_DISPATCHED_TOPIC, String.valueOf(index), orderDispatched);
+    }
+    kafkaTemplate.flush();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public SendResult<String, Object> sendLatency() throws Exception {
+    return kafkaTemplate.send(ORDER_DISPATCHED_TOPIC, "key", orderDispatched).get();
+  }
+}
@@ -0,0 +1,139 @@
+package glenncai.kafka.demo.benchmark;
+
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.serde.BinaryMessageSerializer;
+import glenncai.kafka.demo.serde.DualFormatDeserializer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message serde benchmark comparing JSON with the compact binary format
+ * <p>
+ * OrderCreated is read with the default type like the order.created consumer, OrderDispatched
+ * is written and read with type headers like the outbound topics. Binary payloads are read
+ * through the dual format deserializer the consumer uses.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerdeBenchmark {
+
+  private static final String TOPIC = "benchmark";
+
+  private JsonSerializer<Object> serializer;
+
+  private JsonDeserializer<Object> orderCreatedDeserializer;
+
+  private JsonDeserializer<Object> typedDeserializer;
+
+  private OrderCreated orderCreated;
+
+  private OrderDispatched orderDispatched;
+
+  private byte[] orderCreatedBytes;
+
+  private byte[] orderDispatchedBytes;
+
+  private Headers orderDispatchedHeaders;
+
+  private BinaryMessageSerializer binarySerializer;
+
+  private DualFormatDeserializer dualFormatDeserializer;
+
+  private byte[] orderCreatedBinary;
+
+  private byte[] orderDispatchedBinary;
+
+  @Setup
+  public void setUp() {
+    serializer = new JsonSerializer<>();
+    orderCreatedDeserializer = new JsonDeserializer<>();
+    orderCreatedDeserializer.configure(
+        Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class.getCanonicalName(),
+               JsonDeserializer.USE_TYPE_INFO_HEADERS, false), false);
+    typedDeserializer = new JsonDeserializer<>();
+    typedDeserializer.addTrustedPackages(OrderDispatched.class.getPackageName());
+    // The same headers are read on every invocation
+    typedDeserializer.setRemoveTypeHeaders(false);
+
+    orderCreated = OrderCreated.builder().orderId(UUID.randomUUID()).item("item-200").build();
+    orderDispatched = OrderDispatched.builder()
+                                     .orderId(UUID.randomUUID())
+                                     .processById(UUID.randomUUID())
+                                     .notes("Dispatched: item-200")
+                                     .build();
+    orderCreatedBytes = serializer.serialize(TOPIC, new RecordHeaders(), orderCreated);
+    orderDispatchedHeaders = new RecordHeaders();
+    orderDispatchedBytes = serializer.serialize(TOPIC, orderDispatchedHeaders, orderDispatched);
+
+    binarySerializer = new BinaryMessageSerializer();
+    dualFormatDeserializer = new DualFormatDeserializer();
+    dualFormatDeserializer.configure(
+        Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class.getCanonicalName()), false);
+    orderCreatedBinary = binarySerializer.serialize(TOPIC, orderCreated);
+    orderDispatchedBinary = binarySerializer.serialize(TOPIC, orderDispatched);
+  }
+
+  @Benchmark
+  public byte[] serializeOrderCreated() {
+    return serializer.serialize(TOPIC, new RecordHeaders(), orderCreated);
+  }
+
+  @Benchmark
+  public Object deserializeOrderCreated() {
+    return orderCreatedDeserializer.deserialize(TOPIC, new RecordHeaders(), orderCreatedBytes);
+  }
+
+  @Benchmark
+  public byte[] serializeOrderDispatched() {
+    return serializer.serialize(TOPIC, new RecordHeaders(), orderDispatched);
+  }
+
+  @Benchmark
+  public Object deserializeOrderDispatched() {
+    return typedDeserializer.deserialize(TOPIC, orderDispatchedHeaders, orderDispatchedBytes);
+  }
+
+  @Benchmark
+  public byte[] serializeOrderCreatedBinary() {
+    return binarySerializer.serialize(TOPIC, orderCreated);
+  }
+
+  @Benchmark
+  public Object deserializeOrderCreatedBinary() {
+    return dualFormatDeserializer.deserialize(TOPIC, new RecordHeaders(), orderCreatedBinary);
+  }
+
+  @Benchmark
+  public byte[] serializeOrderDispatchedBinary() {
+    return binarySerializer.serialize(TOPIC, orderDispatched);
+  }
+
+  @Benchmark
+  public Object deserializeOrderDispatchedBinary() {
+    return dualFormatDeserializer.deserialize(TOPIC, new RecordHeaders(), orderDispatchedBinary);
+  }
+}
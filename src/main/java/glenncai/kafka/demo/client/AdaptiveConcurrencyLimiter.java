@@ -0,0 +1,159 @@
+package glenncai.kafka.demo.client;
+
+import glenncai.kafka.demo.exception.RetryableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit on the number of concurrent stock service calls
+ * <p>
+ * The limit follows additive increase, multiplicative decrease: every limit calls that succeed
+ * within latencyThreshold while at least half the limit is in use raise the limit by one, and a
+ * call that fails or runs slower cuts it by backoffRatio, bounded by minLimit and maxLimit, so
+ * the limit grows by one per round trip of calls whatever its size. A caller over the limit
+ * waits up to acquireTimeout for a slot, so a slowing stock service pushes back on the listener
+ * threads instead of piling more requests onto it.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+  private final boolean enabled;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private final long latencyThresholdNanos;
+
+  private final double backoffRatio;
+
+  private final long acquireTimeoutNanos;
+
+  private double limit;
+
+  private int inFlight;
+
+  private int waiting;
+
+  private int successes;
+
+  public AdaptiveConcurrencyLimiter(@Value("${dispatch.stock.concurrency-limit.enabled:false}")
+                                    boolean enabled,
+                                    @Value("${dispatch.stock.concurrency-limit.initial-limit:20}")
+                                    int initialLimit,
+                                    @Value("${dispatch.stock.concurrency-limit.min-limit:1}")
+                                    int minLimit,
+                                    @Value("${dispatch.stock.concurrency-limit.max-limit:200}")
+                                    int maxLimit,
+                                    @Value("${dispatch.stock.concurrency-limit"
+                                           + ".latency-threshold:500ms}")
+                                    Duration latencyThreshold,
+                                    @Value("${dispatch.stock.concurrency-limit.backoff-ratio:0.9}")
+                                    double backoffRatio,
+                                    @Value("${dispatch.stock.concurrency-limit"
+                                           + ".acquire-timeout:1s}")
+                                    Duration acquireTimeout) {
+    this.enabled = enabled;
+    this.minLimit = Math.max(minLimit, 1);
+    this.maxLimit = Math.max(maxLimit, this.minLimit);
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+    this.backoffRatio = backoffRatio;
+    this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+  }
+
+  /**
+   * Limiter that is switched off and never waits
+   */
+  public static AdaptiveConcurrencyLimiter disabled() {
+    return new AdaptiveConcurrencyLimiter(false, 1, 1, 1, Duration.ZERO, 1.0, Duration.ZERO);
+  }
+
+  public synchronized int limit() {
+    return (int) limit;
+  }
+
+  public synchronized int inFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Number of callers waiting for a slot
+   */
+  public synchronized int waiting() {
+    return waiting;
+  }
+
+  /**
+   * Take a slot, each slot must be given back with release
+   *
+   * @throws RetryableException when no slot frees up within acquireTimeout
+   */
+  public synchronized void acquire() {
+    if (!enabled) {
+      return;
+    }
+    long deadline = System.nanoTime() + acquireTimeoutNanos;
+    waiting++;
+    try {
+      while (inFlight >= (int) limit) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new RetryableException("Stock service concurrency limit of " + (int) limit
+                                       + " reached");
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RetryableException(e);
+    } finally {
+      waiting--;
+    }
+    inFlight++;
+  }
+
+  /**
+   * Give back a slot and adjust the limit from the outcome of the call
+   *
+   * @param latencyNanos how long the call took
+   * @param failed       true when the call failed with a retryable error
+   */
+  public synchronized void release(long latencyNanos, boolean failed) {
+    if (!enabled) {
+      return;
+    }
+    if (failed || latencyNanos > latencyThresholdNanos) {
+      double previous = limit;
+      limit = Math.max(minLimit, limit * backoffRatio);
+      successes = 0;
+      if ((int) limit < (int) previous) {
+        log.debug("Stock service concurrency limit decreased to {}", (int) limit);
+      }
+    } else if (inFlight * 2 >= limit && ++successes >= (int) limit) {
+      limit = Math.min(maxLimit, limit + 1);
+      successes = 0;
+    }
+    inFlight--;
+    notifyAll();
+  }
+
+  /**
+   * Give back a slot without adjusting the limit, for a call that was never made
+   */
+  public synchronized void release() {
+    if (!enabled) {
+      return;
+    }
+    inFlight--;
+    notifyAll();
+  }
+}
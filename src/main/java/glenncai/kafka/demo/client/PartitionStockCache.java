@@ -0,0 +1,268 @@
+package glenncai.kafka.demo.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Stock availability caches local to the order.created partitions assigned to this instance
+ * <p>
+ * Each assigned partition gets its own bounded cache, created on the consumer thread that was
+ * assigned the partition and only used by that thread, so lookups take no lock and contend with
+ * no other listener thread. Lookups from any other thread, such as the workers of the parallel
+ * and keyed engines, or of a partition not assigned through this listener, go straight to the
+ * loader. With order.created keyed by item, each instance then caches only the items of the
+ * partitions it owns.
+ * <p>
+ * A revoked or lost partition drops its cache but remembers its most recently used items, and
+ * when the partition is assigned again the new cache is warmed with one bulk lookup of them. The
+ * lookup runs on a warm thread, so the assignment never waits on the stock service, and its items
+ * are put in the cache by the owning thread at its first lookup once the bulk lookup is done.
+ * Partitions of other topics, such as the retry and dead letter topics of the same listener
+ * factory, get no cache.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class PartitionStockCache implements ConsumerAwareRebalanceListener, DisposableBean {
+
+  private static final String ORDER_CREATED_TOPIC = "order.created";
+
+  private final boolean enabled;
+
+  private final int maximumSize;
+
+  private final long availableTtlNanos;
+
+  private final long unavailableTtlNanos;
+
+  private final int warmSize;
+
+  private final StockServiceClient stockServiceClient;
+
+  private final LongSupplier nanoClock;
+
+  private final Executor warmExecutor;
+
+  private final Map<TopicPartition, Shard> shards = new ConcurrentHashMap<>();
+
+  private final Map<TopicPartition, List<String>> warmItems = new ConcurrentHashMap<>();
+
+  @Autowired
+  public PartitionStockCache(
+      @Value("${dispatch.stock.partition-cache.enabled:false}") boolean enabled,
+      @Value("${dispatch.stock.partition-cache.maximum-size:1000}") int maximumSize,
+      @Value("${dispatch.stock.partition-cache.available-ttl:30s}") Duration availableTtl,
+      @Value("${dispatch.stock.partition-cache.unavailable-ttl:5s}") Duration unavailableTtl,
+      @Value("${dispatch.stock.partition-cache.warm-size:100}") int warmSize,
+      StockServiceClient stockServiceClient) {
+    this(enabled, maximumSize, availableTtl, unavailableTtl, warmSize, stockServiceClient,
+         System::nanoTime, enabled ? Executors.newSingleThreadExecutor(runnable -> {
+           Thread thread = new Thread(runnable, "partition-stock-cache-warm");
+           thread.setDaemon(true);
+           return thread;
+         }) : null);
+  }
+
+  PartitionStockCache(boolean enabled, int maximumSize, Duration availableTtl,
+                      Duration unavailableTtl, int warmSize,
+                      StockServiceClient stockServiceClient, LongSupplier nanoClock,
+                      Executor warmExecutor) {
+    this.enabled = enabled;
+    this.maximumSize = maximumSize;
+    this.availableTtlNanos = availableTtl.toNanos();
+    this.unavailableTtlNanos = unavailableTtl.toNanos();
+    this.warmSize = warmSize;
+    this.stockServiceClient = stockServiceClient;
+    this.nanoClock = nanoClock;
+    this.warmExecutor = warmExecutor;
+  }
+
+  /**
+   * Cache that always delegates to the loader
+   */
+  public static PartitionStockCache disabled() {
+    return new PartitionStockCache(false, 0, Duration.ZERO, Duration.ZERO, 0, null,
+                                   System::nanoTime, null);
+  }
+
+  /**
+   * Get the availability of the item from the cache of the partition, loading it on a miss
+   *
+   * @param partition order.created partition the item was read from, -1 when not known
+   * @param item      item
+   * @param loader    stock lookup, called on a miss and whenever the cache of the partition is
+   *                  not owned by the calling thread
+   * @return "true" or "false"
+   */
+  public String get(int partition, String item, Function<String, String> loader) {
+    Shard shard = enabled ? shards.get(new TopicPartition(ORDER_CREATED_TOPIC, partition)) : null;
+    if (shard == null || shard.owner != Thread.currentThread()) {
+      return loader.apply(item);
+    }
+    shard.putWarmedIfDone();
+    long now = nanoClock.getAsLong();
+    Entry entry = shard.entries.get(item);
+    if (entry != null && entry.expiresAt - now > 0) {
+      return entry.available;
+    }
+    String available = loader.apply(item);
+    shard.put(item, available, now);
+    return available;
+  }
+
+  /**
+   * Items cached for the partition, 0 when it has no cache. Only exact on the owning thread.
+   */
+  int size(int partition) {
+    Shard shard = shards.get(new TopicPartition(ORDER_CREATED_TOPIC, partition));
+    return shard == null ? 0 : shard.entries.size();
+  }
+
+  @Override
+  public void onPartitionsAssigned(Consumer<?, ?> consumer,
+                                   Collection<TopicPartition> partitions) {
+    if (!enabled) {
+      return;
+    }
+    for (TopicPartition partition : partitions) {
+      if (ORDER_CREATED_TOPIC.equals(partition.topic())) {
+        Shard shard = new Shard(Thread.currentThread());
+        warm(partition, shard);
+        shards.put(partition, shard);
+      }
+    }
+  }
+
+  @Override
+  public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                              Collection<TopicPartition> partitions) {
+    drop(partitions);
+  }
+
+  @Override
+  public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    drop(partitions);
+  }
+
+  @Override
+  public void destroy() {
+    if (warmExecutor instanceof ExecutorService executorService) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Look up the remembered items of the partition on the warm thread, to be put in the shard
+   * by its owner
+   */
+  private void warm(TopicPartition partition, Shard shard) {
+    List<String> items = warmItems.remove(partition);
+    if (items == null || items.isEmpty()) {
+      return;
+    }
+    shard.warmStartedAt = nanoClock.getAsLong();
+    shard.warming = CompletableFuture.supplyAsync(() -> {
+      try {
+        Map<String, String> warmed = stockServiceClient.checkAvailability(items);
+        log.info("Warmed stock cache of partition: partition={}, items={}", partition,
+                 warmed.size());
+        return warmed;
+      } catch (RuntimeException e) {
+        // A cold cache only costs lookups
+        log.warn("Failed to warm stock cache of partition: partition={}, {}", partition,
+                 e.getMessage());
+        return Map.of();
+      }
+    }, warmExecutor);
+  }
+
+  private void drop(Collection<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      // Left alone when another consumer of this instance was already assigned the partition
+      Shard shard = shards.get(partition);
+      if (shard != null && shard.owner == Thread.currentThread()
+          && shards.remove(partition, shard)) {
+        warmItems.put(partition, shard.recentItems(warmSize));
+      }
+    }
+  }
+
+  private record Entry(String available, long expiresAt) {
+  }
+
+  /**
+   * Cache of one partition, evicting the least recently used item beyond maximumSize
+   */
+  private final class Shard {
+
+    private final Thread owner;
+
+    /**
+     * Bulk lookup warming the shard, null once its items are put or when there is none
+     */
+    private CompletableFuture<Map<String, String>> warming;
+
+    private long warmStartedAt;
+
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maximumSize;
+          }
+        };
+
+    private Shard(Thread owner) {
+      this.owner = owner;
+    }
+
+    /**
+     * Put the items of the warming lookup once it is done, those looked up since kept as they are
+     */
+    private void putWarmedIfDone() {
+      if (warming != null && warming.isDone()) {
+        warming.getNow(Map.of()).forEach((item, available) -> {
+          if (!entries.containsKey(item)) {
+            put(item, available, warmStartedAt);
+          }
+        });
+        warming = null;
+      }
+    }
+
+    private void put(String item, String available, long now) {
+      long ttl = Boolean.parseBoolean(available) ? availableTtlNanos : unavailableTtlNanos;
+      entries.put(item, new Entry(available, now + ttl));
+    }
+
+    /**
+     * Up to count of the most recently used items
+     */
+    private List<String> recentItems(int count) {
+      List<String> items = new ArrayList<>(entries.keySet());
+      return List.copyOf(items.subList(Math.max(items.size() - count, 0), items.size()));
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package glenncai.kafka.demo.client;
+
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.DispatchMetrics.StockOutcome;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking stock service client of the reactive engine
+ * <p>
+ * Looks up the local stock view and the cache like StockServiceClient, then calls the stock
+ * service over WebClient without holding a thread while the request is in flight. Calls go
+ * through the circuit breaker. The number of calls in flight is bounded by the caller's flatMap
+ * concurrency rather than the adaptive limiter, which blocks, and concurrent misses of the same
+ * item are not coalesced.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "reactive")
+public class ReactiveStockServiceClient {
+
+  private final WebClient stockWebClient;
+
+  private final String stockServiceEndpoint;
+
+  private final StockAvailabilityCache stockAvailabilityCache;
+
+  private final StockServiceCircuitBreaker stockServiceCircuitBreaker;
+
+  private final StockAvailabilityView stockAvailabilityView;
+
+  private final DispatchMetrics dispatchMetrics;
+
+  public ReactiveStockServiceClient(WebClient stockWebClient,
+                                    @Value("${dispatch.stockServiceEndpoint}")
+                                    String stockServiceEndpoint,
+                                    StockAvailabilityCache stockAvailabilityCache,
+                                    StockServiceCircuitBreaker stockServiceCircuitBreaker,
+                                    StockAvailabilityView stockAvailabilityView,
+                                    DispatchMetrics dispatchMetrics) {
+    this.stockWebClient = stockWebClient;
+    this.stockServiceEndpoint = stockServiceEndpoint;
+    this.stockAvailabilityCache = stockAvailabilityCache;
+    this.stockServiceCircuitBreaker = stockServiceCircuitBreaker;
+    this.stockAvailabilityView = stockAvailabilityView;
+    this.dispatchMetrics = dispatchMetrics;
+  }
+
+  /**
+   * Check if the item is available, timing the check by its outcome
+   *
+   * @param item item
+   * @return "true" or "false", empty when the stock service answered without a body, or an
+   *     error with a RetryableException when the stock service is unavailable, slow or the
+   *     circuit breaker is open
+   */
+  public Mono<String> checkAvailability(String item) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      String available = stockAvailabilityView.get(item);
+      if (available == null) {
+        available = stockAvailabilityCache.getIfPresent(item);
+      }
+      Mono<String> lookup = available != null ? Mono.just(available) : fetchAvailability(item);
+      return lookup.doOnSuccess(result -> dispatchMetrics.recordStockCheck(
+                       "true".equals(result) ? StockOutcome.AVAILABLE : StockOutcome.UNAVAILABLE,
+                       System.nanoTime() - start))
+                   .doOnError(e -> dispatchMetrics.recordStockCheck(
+                       e instanceof RetryableException ? StockOutcome.RETRYABLE
+                                                       : StockOutcome.FATAL,
+                       System.nanoTime() - start));
+    });
+  }
+
+  private Mono<String> fetchAvailability(String item) {
+    if (!stockServiceCircuitBreaker.tryAcquire()) {
+      return Mono.error(new CircuitBreakerOpenException("Stock service circuit breaker is open"));
+    }
+    return stockWebClient.get()
+                         .uri(stockServiceEndpoint + "?item=" + item)
+                         .retrieve()
+                         .bodyToMono(String.class)
+                         .onErrorMap(ReactiveStockServiceClient::isRetryable, e -> {
+                           log.warn("Failure calling stock service", e);
+                           return new RetryableException((Exception) e);
+                         })
+                         .doOnSuccess(available -> {
+                           stockServiceCircuitBreaker.onSuccess();
+                           if (available != null) {
+                             stockAvailabilityCache.put(item, available);
+                           }
+                         })
+                         .doOnError(e -> {
+                           // Only retryable failures count against the stock service
+                           if (e instanceof RetryableException) {
+                             stockServiceCircuitBreaker.onFailure();
+                           } else {
+                             log.error("Exception thrown: {}", e.getClass().getName(), e);
+                             stockServiceCircuitBreaker.onSuccess();
+                           }
+                         })
+                         // A cancelled lookup says nothing of the stock service, but must not
+                         // hold a half-open probe
+                         .doOnCancel(stockServiceCircuitBreaker::release);
+  }
+
+  private static boolean isRetryable(Throwable exception) {
+    return exception instanceof WebClientRequestException
+           || exception instanceof WebClientResponseException response
+              && response.getStatusCode().is5xxServerError();
+  }
+}
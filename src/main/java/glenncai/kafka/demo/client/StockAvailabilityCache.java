@@ -0,0 +1,122 @@
+package glenncai.kafka.demo.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded stock availability cache in front of the stock service
+ * <p>
+ * Available and unavailable results expire after their own TTL. Concurrent misses for the same
+ * item wait for a single load, and failed loads are not cached, so the caller sees the original
+ * exception. Its hit, miss and eviction counts are published through DispatchMetrics.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Component
+public class StockAvailabilityCache {
+
+  private final Cache<String, String> cache;
+
+  @Autowired
+  public StockAvailabilityCache(@Value("${dispatch.stock.cache.enabled:false}") boolean enabled,
+                                @Value("${dispatch.stock.cache.maximum-size:10000}")
+                                long maximumSize,
+                                @Value("${dispatch.stock.cache.available-ttl:30s}")
+                                Duration availableTtl,
+                                @Value("${dispatch.stock.cache.unavailable-ttl:5s}")
+                                Duration unavailableTtl,
+                                DispatchMetrics dispatchMetrics) {
+    this(enabled, maximumSize, availableTtl, unavailableTtl, Ticker.systemTicker());
+    if (cache != null) {
+      dispatchMetrics.registerStockCache(cache);
+    }
+  }
+
+  StockAvailabilityCache(boolean enabled, long maximumSize, Duration availableTtl,
+                         Duration unavailableTtl, Ticker ticker) {
+    this.cache = enabled ? Caffeine.newBuilder()
+                                   .maximumSize(maximumSize)
+                                   .expireAfter(new AvailabilityExpiry(availableTtl.toNanos(),
+                                                                       unavailableTtl.toNanos()))
+                                   .ticker(ticker)
+                                   .recordStats()
+                                   .build()
+                         : null;
+  }
+
+  /**
+   * Cache that always delegates to the loader
+   */
+  public static StockAvailabilityCache disabled() {
+    return new StockAvailabilityCache(false, 0L, Duration.ZERO, Duration.ZERO,
+                                      Ticker.systemTicker());
+  }
+
+  /**
+   * Get the cached availability of the item, loading it on a miss
+   *
+   * @param item   item
+   * @param loader stock service lookup, only called once for concurrent misses of the same item
+   * @return "true" or "false"
+   */
+  public String get(String item, Function<String, String> loader) {
+    return cache == null ? loader.apply(item) : cache.get(item, loader);
+  }
+
+  /**
+   * Cached availability of the item, for callers loading it asynchronously
+   *
+   * @return "true" or "false", or null on a miss or when the cache is disabled
+   */
+  public String getIfPresent(String item) {
+    return cache == null ? null : cache.getIfPresent(item);
+  }
+
+  /**
+   * Cache the availability of the item loaded asynchronously, no-op when the cache is disabled
+   */
+  public void put(String item, String available) {
+    if (cache != null) {
+      cache.put(item, available);
+    }
+  }
+
+  /**
+   * Hit, miss and eviction counters, empty when the cache is disabled
+   */
+  CacheStats stats() {
+    return cache == null ? CacheStats.empty() : cache.stats();
+  }
+
+  private record AvailabilityExpiry(long availableTtlNanos, long unavailableTtlNanos)
+      implements Expiry<String, String> {
+
+    @Override
+    public long expireAfterCreate(String item, String available, long currentTime) {
+      return Boolean.parseBoolean(available) ? availableTtlNanos : unavailableTtlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(String item, String available, long currentTime,
+                                  long currentDuration) {
+      return expireAfterCreate(item, available, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String item, String available, long currentTime,
+                                long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
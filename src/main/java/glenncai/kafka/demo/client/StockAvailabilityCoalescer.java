@@ -0,0 +1,174 @@
+package glenncai.kafka.demo.client;
+
+import glenncai.kafka.demo.exception.RetryableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Micro-batching coalescer for single item stock lookups
+ * <p>
+ * Lookups from all listener threads are gathered for up to maxWait or maxBatchSize distinct
+ * items, sent as one bulk request, and the results are fanned back out to the waiting callers.
+ * A full batch is flushed by the caller that filled it, otherwise a timer thread flushes it.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class StockAvailabilityCoalescer implements DisposableBean {
+
+  private final boolean enabled;
+
+  private final int maxBatchSize;
+
+  private final long maxWaitNanos;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Object lock = new Object();
+
+  private Map<String, CompletableFuture<String>> pending = new HashMap<>();
+
+  private ScheduledFuture<?> scheduledFlush;
+
+  public StockAvailabilityCoalescer(@Value("${dispatch.stock.coalescer.enabled:false}")
+                                    boolean enabled,
+                                    @Value("${dispatch.stock.coalescer.max-batch-size:100}")
+                                    int maxBatchSize,
+                                    @Value("${dispatch.stock.coalescer.max-wait:5ms}")
+                                    Duration maxWait) {
+    this.enabled = enabled;
+    this.maxBatchSize = maxBatchSize;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.scheduler = enabled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "stock-coalescer");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+  }
+
+  /**
+   * Coalescer that is switched off
+   */
+  public static StockAvailabilityCoalescer disabled() {
+    return new StockAvailabilityCoalescer(false, 1, Duration.ZERO);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Number of distinct items waiting for the next bulk request
+   */
+  public int pendingCount() {
+    synchronized (lock) {
+      return pending.size();
+    }
+  }
+
+  /**
+   * Look up the item as part of the next bulk request, blocking until its result is known
+   *
+   * @param item       item
+   * @param bulkLookup bulk stock lookup, returning "true" or "false" per item
+   * @return "true" or "false"
+   */
+  public String get(String item, Function<Collection<String>, Map<String, String>> bulkLookup) {
+    CompletableFuture<String> result;
+    Map<String, CompletableFuture<String>> batch = null;
+    synchronized (lock) {
+      result = pending.get(item);
+      if (result == null) {
+        result = new CompletableFuture<>();
+        pending.put(item, result);
+        if (pending.size() >= maxBatchSize) {
+          batch = takePending();
+        } else if (pending.size() == 1) {
+          scheduledFlush = scheduler.schedule(() -> flushPending(bulkLookup), maxWaitNanos,
+                                              TimeUnit.NANOSECONDS);
+        }
+      }
+    }
+    if (batch != null) {
+      flush(batch, bulkLookup);
+    }
+    return await(result);
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  private Map<String, CompletableFuture<String>> takePending() {
+    Map<String, CompletableFuture<String>> batch = pending;
+    pending = new HashMap<>();
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    return batch;
+  }
+
+  private void flushPending(Function<Collection<String>, Map<String, String>> bulkLookup) {
+    Map<String, CompletableFuture<String>> batch;
+    synchronized (lock) {
+      batch = takePending();
+    }
+    if (!batch.isEmpty()) {
+      flush(batch, bulkLookup);
+    }
+  }
+
+  private void flush(Map<String, CompletableFuture<String>> batch,
+                     Function<Collection<String>, Map<String, String>> bulkLookup) {
+    log.debug("Flushing stock lookups: items={}", batch.size());
+    try {
+      Map<String, String> availability = bulkLookup.apply(batch.keySet());
+      batch.forEach((item, result) -> {
+        String available = availability.get(item);
+        if (available == null) {
+          // Likely a partial answer of an overloaded service, so the order is retried
+          result.completeExceptionally(
+              new RetryableException("No availability returned for item " + item));
+        } else {
+          result.complete(available);
+        }
+      });
+    } catch (RuntimeException e) {
+      batch.values().forEach(result -> result.completeExceptionally(e));
+    }
+  }
+
+  private String await(CompletableFuture<String> result) {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new RetryableException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RetryableException(e);
+    }
+  }
+}
@@ -0,0 +1,377 @@
+package glenncai.kafka.demo.client;
+
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Local view of stock availability built from a compacted topic, used when
+ * dispatch.stock.view.enabled is true
+ * <p>
+ * Each record of the topic is keyed by item with "true" or "false" as value, and a tombstone
+ * removes the item. A dedicated consumer, outside any group, reads every partition from the
+ * beginning on startup and then follows the topic, so lookups are local map reads. Items the
+ * view does not know, lookups before the first restore has caught up and lookups while the view
+ * lags further than maxStaleness behind the topic all return null, to be answered over HTTP.
+ * <p>
+ * When checkpointFile is set the view and its offsets are written to it every
+ * checkpointInterval and on shutdown, so a restart only replays the records after them.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class StockAvailabilityView implements DisposableBean {
+
+  private static final int CHECKPOINT_MAGIC = 0x53544b56;
+
+  private static final int CHECKPOINT_VERSION = 1;
+
+  private final String topic;
+
+  private final Consumer<String, String> consumer;
+
+  private final Duration pollTimeout;
+
+  private final long maxStalenessNanos;
+
+  private final Path checkpointFile;
+
+  private final long checkpointIntervalNanos;
+
+  private final LongSupplier nanoClock;
+
+  private final Map<String, Boolean> items = new ConcurrentHashMap<>();
+
+  private final Thread pollThread;
+
+  private List<TopicPartition> partitions;
+
+  private Map<TopicPartition, Long> restoreOffsets;
+
+  private long restoreStartNanos;
+
+  private long lastCheckpointNanos;
+
+  private volatile boolean running = true;
+
+  private volatile boolean ready;
+
+  private volatile long lag = -1L;
+
+  private volatile long lastCaughtUpNanos;
+
+  @Autowired
+  public StockAvailabilityView(@Value("${dispatch.stock.view.enabled:false}") boolean enabled,
+                               @Value("${dispatch.stock.view.topic:stock.availability}")
+                               String topic,
+                               @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
+                               String bootstrapServers,
+                               @Value("${dispatch.stock.view.poll-timeout:500ms}")
+                               Duration pollTimeout,
+                               @Value("${dispatch.stock.view.max-staleness:30s}")
+                               Duration maxStaleness,
+                               @Value("${dispatch.stock.view.checkpoint-file:}")
+                               String checkpointFile,
+                               @Value("${dispatch.stock.view.checkpoint-interval:1m}")
+                               Duration checkpointInterval,
+                               DispatchMetrics dispatchMetrics) {
+    this(enabled, topic, enabled ? consumer(bootstrapServers) : null, pollTimeout, maxStaleness,
+         checkpointFile.isBlank() ? null : Path.of(checkpointFile), checkpointInterval,
+         System::nanoTime, dispatchMetrics);
+    if (pollThread != null) {
+      pollThread.start();
+    }
+  }
+
+  StockAvailabilityView(boolean enabled, String topic, Consumer<String, String> consumer,
+                        Duration pollTimeout, Duration maxStaleness, Path checkpointFile,
+                        Duration checkpointInterval, LongSupplier nanoClock,
+                        DispatchMetrics dispatchMetrics) {
+    this.topic = topic;
+    this.consumer = consumer;
+    this.pollTimeout = pollTimeout;
+    this.maxStalenessNanos = maxStaleness.toNanos();
+    this.checkpointFile = checkpointFile;
+    this.checkpointIntervalNanos = checkpointInterval.toNanos();
+    this.nanoClock = nanoClock;
+    this.lastCaughtUpNanos = nanoClock.getAsLong();
+    this.lastCheckpointNanos = lastCaughtUpNanos;
+    if (enabled) {
+      this.pollThread = new Thread(this::run, "stock-availability-view");
+      this.pollThread.setDaemon(true);
+      dispatchMetrics.registerStockView(() -> lag, () -> stalenessNanos() / 1e9, items::size);
+    } else {
+      this.pollThread = null;
+    }
+  }
+
+  /**
+   * View that is switched off and leaves every lookup to HTTP
+   */
+  public static StockAvailabilityView disabled() {
+    return new StockAvailabilityView(false, "", null, Duration.ZERO, Duration.ZERO, null,
+                                     Duration.ZERO, System::nanoTime, DispatchMetrics.disabled());
+  }
+
+  /**
+   * Availability of the item from the view
+   *
+   * @param item item
+   * @return "true" or "false", or null when the view cannot answer for the item
+   */
+  public String get(String item) {
+    if (!ready || stalenessNanos() > maxStalenessNanos) {
+      return null;
+    }
+    Boolean available = items.get(item);
+    return available == null ? null : available.toString();
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    if (pollThread != null) {
+      running = false;
+      consumer.wakeup();
+      pollThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        pollOnce();
+      }
+    } catch (WakeupException e) {
+      // Woken up by destroy
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      log.error("Stock availability view stopped, lookups fall back to HTTP: topic={}", topic, e);
+      ready = false;
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Poll the topic once, assigning its partitions and restoring the view first when needed
+   */
+  void pollOnce() throws InterruptedException {
+    if (partitions == null && !assign()) {
+      Thread.sleep(pollTimeout.toMillis());
+      return;
+    }
+    for (ConsumerRecord<String, String> record : consumer.poll(pollTimeout)) {
+      apply(record);
+    }
+    long now = nanoClock.getAsLong();
+    if (!ready && restored()) {
+      ready = true;
+      lastCaughtUpNanos = now;
+      log.info("Restored stock availability view: topic={}, items={}, tookMs={}", topic,
+               items.size(), TimeUnit.NANOSECONDS.toMillis(now - restoreStartNanos));
+    }
+    updateLag(now);
+    if (ready && checkpointFile != null && now - lastCheckpointNanos >= checkpointIntervalNanos) {
+      writeCheckpointQuietly();
+      lastCheckpointNanos = now;
+    }
+  }
+
+  /**
+   * Write the checkpoint and close the consumer, on the poll thread
+   */
+  void close() {
+    if (ready && checkpointFile != null) {
+      writeCheckpointQuietly();
+    }
+    consumer.close();
+  }
+
+  private boolean assign() {
+    List<TopicPartition> topicPartitions =
+        consumer.partitionsFor(topic).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+    if (topicPartitions.isEmpty()) {
+      log.debug("Waiting for stock availability topic: topic={}", topic);
+      return false;
+    }
+    restoreStartNanos = nanoClock.getAsLong();
+    consumer.assign(topicPartitions);
+    restoreOffsets = consumer.endOffsets(topicPartitions);
+    Map<TopicPartition, Long> checkpoint = readCheckpoint();
+    boolean resumable = checkpoint.keySet().equals(restoreOffsets.keySet())
+                        && checkpoint.entrySet().stream().allMatch(
+        entry -> entry.getValue() <= restoreOffsets.get(entry.getKey()));
+    if (resumable) {
+      checkpoint.forEach(consumer::seek);
+    } else {
+      items.clear();
+      consumer.seekToBeginning(topicPartitions);
+    }
+    partitions = topicPartitions;
+    log.info("Restoring stock availability view: topic={}, partitions={}, fromCheckpoint={}, "
+             + "items={}", topic, topicPartitions.size(), resumable, items.size());
+    return true;
+  }
+
+  private void apply(ConsumerRecord<String, String> record) {
+    if (record.key() == null) {
+      return;
+    }
+    if (record.value() == null) {
+      items.remove(record.key());
+    } else if ("true".equalsIgnoreCase(record.value().trim())
+               || "false".equalsIgnoreCase(record.value().trim())) {
+      items.put(record.key(), Boolean.parseBoolean(record.value().trim()));
+    } else {
+      log.warn("Ignoring stock availability record: partition={}, offset={}, key={}, value={}",
+               record.partition(), record.offset(), record.key(), record.value());
+    }
+  }
+
+  private boolean restored() {
+    return partitions.stream()
+                     .allMatch(partition -> consumer.position(partition)
+                                            >= restoreOffsets.get(partition));
+  }
+
+  /**
+   * Records the view is behind the topic, known once every partition has been fetched
+   */
+  private void updateLag(long now) {
+    long total = 0L;
+    for (TopicPartition partition : partitions) {
+      OptionalLong partitionLag = consumer.currentLag(partition);
+      if (partitionLag.isEmpty()) {
+        return;
+      }
+      total += partitionLag.getAsLong();
+    }
+    lag = total;
+    if (ready && total == 0L) {
+      lastCaughtUpNanos = now;
+    }
+  }
+
+  private long stalenessNanos() {
+    return nanoClock.getAsLong() - lastCaughtUpNanos;
+  }
+
+  private void writeCheckpointQuietly() {
+    try {
+      Path parent = checkpointFile.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      Path temporary = Files.createTempFile(parent, checkpointFile.getFileName().toString(),
+                                            ".tmp");
+      try {
+        try (DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+          output.writeInt(CHECKPOINT_MAGIC);
+          output.writeInt(CHECKPOINT_VERSION);
+          output.writeUTF(topic);
+          output.writeInt(partitions.size());
+          for (TopicPartition partition : partitions) {
+            output.writeInt(partition.partition());
+            output.writeLong(consumer.position(partition));
+          }
+          // Only the poll thread changes the items, so they match the positions
+          output.writeInt(items.size());
+          for (Map.Entry<String, Boolean> entry : items.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeBoolean(entry.getValue());
+          }
+        }
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to write stock availability checkpoint: file={}", checkpointFile, e);
+    }
+  }
+
+  /**
+   * Load the items of the checkpoint
+   *
+   * @return offsets the items were read up to, empty when there is no usable checkpoint
+   */
+  private Map<TopicPartition, Long> readCheckpoint() {
+    if (checkpointFile == null || !Files.exists(checkpointFile)) {
+      return Map.of();
+    }
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+      if (input.readInt() != CHECKPOINT_MAGIC || input.readInt() != CHECKPOINT_VERSION
+          || !topic.equals(input.readUTF())) {
+        log.warn("Ignoring stock availability checkpoint of another format or topic: file={}",
+                 checkpointFile);
+        return Map.of();
+      }
+      Map<TopicPartition, Long> offsets = new HashMap<>();
+      int partitionCount = input.readInt();
+      for (int index = 0; index < partitionCount; index++) {
+        offsets.put(new TopicPartition(topic, input.readInt()), input.readLong());
+      }
+      int itemCount = input.readInt();
+      for (int index = 0; index < itemCount; index++) {
+        items.put(input.readUTF(), input.readBoolean());
+      }
+      return offsets;
+    } catch (IOException | RuntimeException e) {
+      items.clear();
+      log.warn("Ignoring unreadable stock availability checkpoint: file={}", checkpointFile, e);
+      return Map.of();
+    }
+  }
+
+  private static Consumer<String, String> consumer(String bootstrapServers) {
+    Map<String, Object> config = new HashMap<>();
+    config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    config.put(ConsumerConfig.CLIENT_ID_CONFIG, "dispatch-stock-view");
+    config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+    config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+    // Partitions are assigned, not subscribed, and the view keeps its own offsets
+    config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+    // The topic has to be created compacted, never auto created by a metadata lookup
+    config.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+    config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+    return new KafkaConsumer<>(config);
+  }
+}
@@ -0,0 +1,284 @@
+package glenncai.kafka.demo.client;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker in front of the stock service
+ * <p>
+ * While closed, the outcomes of the last windowSize calls are kept, and once at least
+ * minimumCalls of them have been made with failureRateThreshold percent or more failing, the
+ * breaker opens. An open breaker rejects calls for openDuration, then half opens to let
+ * halfOpenCalls trial calls through: the breaker closes when they all succeed and opens again
+ * on the first failure. Only retryable failures count, a rejected request still proves the
+ * service is up.
+ * <p>
+ * The half open transition is made lazily by the next call or state read, and state listeners
+ * are told of every transition in order, after the breaker's lock is released. Callers rejected
+ * by an open breaker wait {@link #OPEN_RETRY_INTERVAL} before asking again.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class StockServiceCircuitBreaker {
+
+  /**
+   * How long a caller rejected by an open breaker waits before trying again
+   */
+  public static final Duration OPEN_RETRY_INTERVAL = Duration.ofSeconds(1);
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final boolean enabled;
+
+  private final int minimumCalls;
+
+  private final int failureRateThreshold;
+
+  private final long openDurationNanos;
+
+  private final int halfOpenCalls;
+
+  private final Ticker ticker;
+
+  private final boolean[] window;
+
+  private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Transitions not yet told to the listeners, appended holding the lock so they stay in order
+   */
+  private final Queue<State> pendingTransitions = new ConcurrentLinkedQueue<>();
+
+  private final AtomicBoolean notifying = new AtomicBoolean();
+
+  private State state = State.CLOSED;
+
+  private int windowIndex;
+
+  private int windowCount;
+
+  private int windowFailures;
+
+  private long openUntilNanos;
+
+  private int halfOpenPermits;
+
+  private int halfOpenSuccesses;
+
+  @Autowired
+  public StockServiceCircuitBreaker(@Value("${dispatch.stock.circuit-breaker.enabled:false}")
+                                    boolean enabled,
+                                    @Value("${dispatch.stock.circuit-breaker.window-size:20}")
+                                    int windowSize,
+                                    @Value("${dispatch.stock.circuit-breaker.minimum-calls:10}")
+                                    int minimumCalls,
+                                    @Value("${dispatch.stock.circuit-breaker"
+                                           + ".failure-rate-threshold:50}")
+                                    int failureRateThreshold,
+                                    @Value("${dispatch.stock.circuit-breaker.open-duration:10s}")
+                                    Duration openDuration,
+                                    @Value("${dispatch.stock.circuit-breaker.half-open-calls:3}")
+                                    int halfOpenCalls) {
+    this(enabled, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls,
+         Ticker.systemTicker());
+  }
+
+  StockServiceCircuitBreaker(boolean enabled, int windowSize, int minimumCalls,
+                             int failureRateThreshold, Duration openDuration, int halfOpenCalls,
+                             Ticker ticker) {
+    this.enabled = enabled;
+    this.window = new boolean[Math.max(windowSize, 1)];
+    this.minimumCalls = Math.min(Math.max(minimumCalls, 1), window.length);
+    this.failureRateThreshold = failureRateThreshold;
+    this.openDurationNanos = openDuration.toNanos();
+    this.halfOpenCalls = Math.max(halfOpenCalls, 1);
+    this.ticker = ticker;
+  }
+
+  /**
+   * Circuit breaker that is switched off and permits every call
+   */
+  public static StockServiceCircuitBreaker disabled() {
+    return new StockServiceCircuitBreaker(false, 1, 1, 100, Duration.ZERO, 1,
+                                          Ticker.systemTicker());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public Duration openDuration() {
+    return Duration.ofNanos(openDurationNanos);
+  }
+
+  /**
+   * Listen to state transitions, called on the thread that caused the transition
+   */
+  public void addListener(Consumer<State> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Current state, half opening the breaker once its open duration has passed
+   */
+  public State state() {
+    State current;
+    synchronized (this) {
+      halfOpenIfDue();
+      current = state;
+    }
+    notifyListeners();
+    return current;
+  }
+
+  /**
+   * Ask to make a call, each permitted call must be followed by onSuccess, onFailure or release
+   *
+   * @return false when the call is rejected
+   */
+  public boolean tryAcquire() {
+    if (!enabled) {
+      return true;
+    }
+    boolean permitted = acquire();
+    notifyListeners();
+    return permitted;
+  }
+
+  private synchronized boolean acquire() {
+    halfOpenIfDue();
+    return switch (state) {
+      case CLOSED -> true;
+      case OPEN -> false;
+      case HALF_OPEN -> {
+        if (halfOpenPermits == 0) {
+          yield false;
+        }
+        halfOpenPermits--;
+        yield true;
+      }
+    };
+  }
+
+  public void onSuccess() {
+    record(false);
+    notifyListeners();
+  }
+
+  public void onFailure() {
+    record(true);
+    notifyListeners();
+  }
+
+  /**
+   * Give back the permit of a call cancelled before its outcome was known, counting it neither as
+   * a success nor a failure, so a half open breaker lets another trial call through
+   */
+  public synchronized void release() {
+    if (enabled && state == State.HALF_OPEN
+        && halfOpenPermits + halfOpenSuccesses < halfOpenCalls) {
+      halfOpenPermits++;
+    }
+  }
+
+  private synchronized void record(boolean failure) {
+    if (!enabled) {
+      return;
+    }
+    switch (state) {
+      case CLOSED -> {
+        recordInWindow(failure);
+        if (windowCount >= minimumCalls
+            && windowFailures * 100 >= failureRateThreshold * windowCount) {
+          open();
+        }
+      }
+      case HALF_OPEN -> {
+        if (failure) {
+          open();
+        } else if (++halfOpenSuccesses >= halfOpenCalls) {
+          close();
+        }
+      }
+      case OPEN -> {
+        // Outcome of a call permitted before the breaker opened
+      }
+    }
+  }
+
+  private void recordInWindow(boolean failure) {
+    if (windowCount == window.length) {
+      if (window[windowIndex]) {
+        windowFailures--;
+      }
+    } else {
+      windowCount++;
+    }
+    window[windowIndex] = failure;
+    if (failure) {
+      windowFailures++;
+    }
+    windowIndex = (windowIndex + 1) % window.length;
+  }
+
+  private void halfOpenIfDue() {
+    if (state == State.OPEN && ticker.read() - openUntilNanos >= 0) {
+      halfOpenPermits = halfOpenCalls;
+      halfOpenSuccesses = 0;
+      transition(State.HALF_OPEN);
+    }
+  }
+
+  private void open() {
+    openUntilNanos = ticker.read() + openDurationNanos;
+    transition(State.OPEN);
+  }
+
+  private void close() {
+    windowIndex = 0;
+    windowCount = 0;
+    windowFailures = 0;
+    transition(State.CLOSED);
+  }
+
+  private void transition(State next) {
+    log.warn("Stock service circuit breaker: {} -> {}", state, next);
+    state = next;
+    pendingTransitions.add(next);
+  }
+
+  /**
+   * Tell the listeners of the pending transitions outside the lock, one thread at a time so they
+   * see the transitions in order, and rechecking once done for transitions queued meanwhile
+   */
+  private void notifyListeners() {
+    while (!pendingTransitions.isEmpty() && notifying.compareAndSet(false, true)) {
+      try {
+        State next;
+        while ((next = pendingTransitions.poll()) != null) {
+          for (Consumer<State> listener : listeners) {
+            listener.accept(next);
+          }
+        }
+      } finally {
+        notifying.set(false);
+      }
+    }
+  }
+}
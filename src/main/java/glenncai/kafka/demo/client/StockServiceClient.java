@@ -1,15 +1,26 @@
 package glenncai.kafka.demo.client;
 
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
 import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.DispatchMetrics.StockOutcome;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * Mock stock service client
  *
@@ -20,24 +31,123 @@ import org.springframework.web.client.RestTemplate;
 @Component
 public class StockServiceClient {
 
+  private static final ParameterizedTypeReference<Map<String, Boolean>> BULK_RESPONSE_TYPE =
+      new ParameterizedTypeReference<>() {
+      };
+
   private final RestTemplate restTemplate;
 
   private final String stockServiceEndpoint;
 
-  public StockServiceClient(@Autowired RestTemplate restTemplate,
+  private final String stockServiceBulkEndpoint;
+
+  private final StockAvailabilityCache stockAvailabilityCache;
+
+  private final StockAvailabilityCoalescer stockAvailabilityCoalescer;
+
+  private final StockServiceCircuitBreaker stockServiceCircuitBreaker;
+
+  private final AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter;
+
+  private final StockAvailabilityView stockAvailabilityView;
+
+  private final DispatchMetrics dispatchMetrics;
+
+  public StockServiceClient(RestTemplate restTemplate, String stockServiceEndpoint) {
+    this(restTemplate, stockServiceEndpoint, stockServiceEndpoint + "/bulk",
+         StockAvailabilityCache.disabled(), StockAvailabilityCoalescer.disabled(),
+         StockServiceCircuitBreaker.disabled(), AdaptiveConcurrencyLimiter.disabled(),
+         StockAvailabilityView.disabled(), DispatchMetrics.disabled());
+  }
+
+  @Autowired
+  public StockServiceClient(RestTemplate restTemplate,
                             @Value("${dispatch.stockServiceEndpoint}")
-                            String stockServiceEndpoint) {
+                            String stockServiceEndpoint,
+                            @Value("${dispatch.stockServiceBulkEndpoint:"
+                                   + "${dispatch.stockServiceEndpoint}/bulk}")
+                            String stockServiceBulkEndpoint,
+                            StockAvailabilityCache stockAvailabilityCache,
+                            StockAvailabilityCoalescer stockAvailabilityCoalescer,
+                            StockServiceCircuitBreaker stockServiceCircuitBreaker,
+                            AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter,
+                            StockAvailabilityView stockAvailabilityView,
+                            DispatchMetrics dispatchMetrics) {
     this.restTemplate = restTemplate;
     this.stockServiceEndpoint = stockServiceEndpoint;
+    this.stockServiceBulkEndpoint = stockServiceBulkEndpoint;
+    this.stockAvailabilityCache = stockAvailabilityCache;
+    this.stockAvailabilityCoalescer = stockAvailabilityCoalescer;
+    this.stockServiceCircuitBreaker = stockServiceCircuitBreaker;
+    this.adaptiveConcurrencyLimiter = adaptiveConcurrencyLimiter;
+    this.stockAvailabilityView = stockAvailabilityView;
+    this.dispatchMetrics = dispatchMetrics;
   }
 
   /**
-   * Check if the item is available in stock service
+   * Check if the item is available, from the local stock view when it knows the item and from the
+   * stock service otherwise, timing the check by its outcome
    *
    * @param item item
    * @return Boolean true if available
    */
   public String checkAvailability(String item) {
+    long start = System.nanoTime();
+    StockOutcome outcome = StockOutcome.FATAL;
+    try {
+      String available = stockAvailabilityView.get(item);
+      if (available == null) {
+        available = stockAvailabilityCache.get(item, this::lookupAvailability);
+      }
+      outcome = "true".equals(available) ? StockOutcome.AVAILABLE : StockOutcome.UNAVAILABLE;
+      return available;
+    } catch (RetryableException e) {
+      outcome = StockOutcome.RETRYABLE;
+      throw e;
+    } finally {
+      dispatchMetrics.recordStockCheck(outcome, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Check if the items are available in stock service with one bulk request
+   *
+   * @param items items
+   * @return "true" or "false" per item
+   */
+  public Map<String, String> checkAvailability(Collection<String> items) {
+    return guarded(() -> fetchAvailability(items));
+  }
+
+  private Map<String, String> fetchAvailability(Collection<String> items) {
+    try {
+      ResponseEntity<Map<String, Boolean>> response =
+          restTemplate.exchange(stockServiceBulkEndpoint, HttpMethod.POST,
+                                new HttpEntity<>(items), BULK_RESPONSE_TYPE);
+      if (response.getStatusCode().value() != 200 || response.getBody() == null) {
+        throw new RuntimeException("Error " + response.getStatusCode().value());
+      }
+      Map<String, String> availability = new HashMap<>(response.getBody().size());
+      response.getBody().forEach((item, available) -> availability.put(item,
+                                                                       String.valueOf(available)));
+      return availability;
+    } catch (HttpServerErrorException | ResourceAccessException e) {
+      log.warn("Failure calling stock service", e);
+      throw new RetryableException(e);
+    } catch (Exception e) {
+      log.error("Exception thrown: {}", e.getClass().getName(), e);
+      throw e;
+    }
+  }
+
+  private String lookupAvailability(String item) {
+    if (stockAvailabilityCoalescer.isEnabled()) {
+      return stockAvailabilityCoalescer.get(item, this::checkAvailability);
+    }
+    return guarded(() -> fetchAvailability(item));
+  }
+
+  private String fetchAvailability(String item) {
     try {
       ResponseEntity<String> response =
           restTemplate.getForEntity(stockServiceEndpoint + "?item=" + item, String.class);
@@ -49,8 +159,35 @@ public class StockServiceClient {
       log.warn("Failure calling stock service", e);
       throw new RetryableException(e);
     } catch (Exception e) {
-      log.error("Exception thrown: " + e.getClass().getName(), e);
+      log.error("Exception thrown: {}", e.getClass().getName(), e);
       throw e;
     }
   }
+
+  /**
+   * Make the call through the concurrency limiter and circuit breaker, feeding both with its
+   * outcome. Only retryable failures count against the stock service.
+   */
+  private <T> T guarded(Supplier<T> call) {
+    adaptiveConcurrencyLimiter.acquire();
+    if (!stockServiceCircuitBreaker.tryAcquire()) {
+      adaptiveConcurrencyLimiter.release();
+      throw new CircuitBreakerOpenException("Stock service circuit breaker is open");
+    }
+    long start = System.nanoTime();
+    boolean failed = false;
+    try {
+      return call.get();
+    } catch (RetryableException e) {
+      failed = true;
+      throw e;
+    } finally {
+      adaptiveConcurrencyLimiter.release(System.nanoTime() - start, failed);
+      if (failed) {
+        stockServiceCircuitBreaker.onFailure();
+      } else {
+        stockServiceCircuitBreaker.onSuccess();
+      }
+    }
+  }
 }
@@ -0,0 +1,76 @@
+package glenncai.kafka.demo.config;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lookup, overrides and validation shared by the consumer and producer profiles
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+final class ClientProfiles {
+
+  private ClientProfiles() {
+  }
+
+  /**
+   * Profile of the given name
+   *
+   * @param client      consumer or producer, naming the profiles in the error
+   * @param profiles    every profile of the client
+   * @param name        name of a profile
+   * @param profileName name of the profile to look up
+   * @throws IllegalArgumentException naming the known profiles when there is none of that name
+   */
+  static <P extends Enum<P>> P of(String client, P[] profiles, Function<P, String> name,
+                                  String profileName) {
+    return Arrays.stream(profiles)
+                 .filter(profile -> name.apply(profile).equals(profileName.trim()))
+                 .findFirst()
+                 .orElseThrow(() -> new IllegalArgumentException(
+                     "Unknown " + client + " profile '" + profileName + "', expected one of "
+                     + Arrays.stream(profiles).map(name).collect(Collectors.joining(", "))));
+  }
+
+  /**
+   * Apply the overrides given as key=value on top of the config
+   *
+   * @throws IllegalArgumentException when an override is not of the form key=value
+   */
+  static void applyOverrides(String client, Map<String, Object> config, String... overrides) {
+    for (String override : overrides) {
+      String[] entry = override.split("=", 2);
+      if (entry.length != 2 || entry[0].isBlank()) {
+        throw new IllegalArgumentException(capitalize(client) + " override '" + override
+                                           + "' is not of the form key=value");
+      }
+      config.put(entry[0].trim(), entry[1].trim());
+    }
+  }
+
+  /**
+   * Numeric value of the config entry
+   *
+   * @throws IllegalArgumentException when the value is not a number
+   */
+  static long number(String client, String profileName, Map<String, Object> config, String key) {
+    try {
+      return Long.parseLong(String.valueOf(config.get(key)));
+    } catch (NumberFormatException e) {
+      throw invalid(client, profileName, config, key + " must be a number");
+    }
+  }
+
+  static IllegalArgumentException invalid(String client, String profileName,
+                                          Map<String, Object> config, String reason) {
+    return new IllegalArgumentException("Invalid " + client + " config for profile " + profileName
+                                        + ": " + reason + ", was " + config);
+  }
+
+  private static String capitalize(String client) {
+    return Character.toUpperCase(client.charAt(0)) + client.substring(1);
+  }
+}
@@ -0,0 +1,120 @@
+package glenncai.kafka.demo.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Named consumer fetch tunings, selected with dispatch.consumer.profile
+ * <p>
+ * Every profile prefers the CooperativeStickyAssignor, so a rebalance only revokes the partitions
+ * that move instead of pausing the whole group. The RangeAssignor stays listed after it, so
+ * instances can join a group whose members still only support eager range assignment, which
+ * keeps using it until every member lists the cooperative one. They differ in how much data a
+ * fetch waits for and how many records a poll hands to the listener:
+ * <ul>
+ *   <li>low-latency: returns a fetch as soon as any data is there, 100 records a poll</li>
+ *   <li>balanced: waits up to 100ms for 16KB, 500 records a poll</li>
+ *   <li>high-throughput: waits up to 500ms for 256KB, 2000 records a poll and 4MB per
+ *   partition</li>
+ * </ul>
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public enum ConsumerProfile {
+
+  LOW_LATENCY("low-latency", 1, 500, 100, 1024 * 1024),
+  BALANCED("balanced", 16 * 1024, 100, 500, 1024 * 1024),
+  HIGH_THROUGHPUT("high-throughput", 256 * 1024, 500, 2000, 4 * 1024 * 1024);
+
+  private static final String CLIENT = "consumer";
+
+  private static final long DEFAULT_REQUEST_TIMEOUT_MS = 30_000L;
+
+  private final String profileName;
+
+  private final int fetchMinBytes;
+
+  private final int fetchMaxWaitMs;
+
+  private final int maxPollRecords;
+
+  private final int maxPartitionFetchBytes;
+
+  ConsumerProfile(String profileName, int fetchMinBytes, int fetchMaxWaitMs, int maxPollRecords,
+                  int maxPartitionFetchBytes) {
+    this.profileName = profileName;
+    this.fetchMinBytes = fetchMinBytes;
+    this.fetchMaxWaitMs = fetchMaxWaitMs;
+    this.maxPollRecords = maxPollRecords;
+    this.maxPartitionFetchBytes = maxPartitionFetchBytes;
+  }
+
+  /**
+   * Profile of the given name
+   *
+   * @throws IllegalArgumentException naming the known profiles when there is none of that name
+   */
+  public static ConsumerProfile of(String profileName) {
+    return ClientProfiles.of(CLIENT, values(), ConsumerProfile::profileName, profileName);
+  }
+
+  public String profileName() {
+    return profileName;
+  }
+
+  /**
+   * Consumer config of the profile, with overrides given as key=value applied on top, validated
+   *
+   * @param overrides consumer config entries replacing those of the profile
+   * @throws IllegalArgumentException when an override is malformed or the result inconsistent
+   */
+  public Map<String, Object> consumerConfig(String... overrides) {
+    Map<String, Object> config = new HashMap<>();
+    config.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG,
+               CooperativeStickyAssignor.class.getName() + "," + RangeAssignor.class.getName());
+    config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(fetchMinBytes));
+    config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, String.valueOf(fetchMaxWaitMs));
+    config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+    config.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+               String.valueOf(maxPartitionFetchBytes));
+    ClientProfiles.applyOverrides(CLIENT, config, overrides);
+    validate(config);
+    return config;
+  }
+
+  /**
+   * Check the settings the profiles tune are consistent, before the first poll would fail
+   */
+  private void validate(Map<String, Object> config) {
+    long fetchMinBytes = number(config, ConsumerConfig.FETCH_MIN_BYTES_CONFIG);
+    long fetchMaxWaitMs = number(config, ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG);
+    long maxPollRecords = number(config, ConsumerConfig.MAX_POLL_RECORDS_CONFIG);
+    long maxPartitionFetchBytes = number(config, ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG);
+    if (fetchMinBytes < 0 || fetchMaxWaitMs < 0) {
+      throw invalid(config, "fetch.min.bytes and fetch.max.wait.ms must not be negative");
+    }
+    if (maxPollRecords < 1 || maxPartitionFetchBytes < 1) {
+      throw invalid(config, "max.poll.records and max.partition.fetch.bytes must be positive");
+    }
+    long requestTimeoutMs = config.containsKey(ConsumerConfig.REQUEST_TIMEOUT_MS_CONFIG)
+                            ? number(config, ConsumerConfig.REQUEST_TIMEOUT_MS_CONFIG)
+                            : DEFAULT_REQUEST_TIMEOUT_MS;
+    if (fetchMaxWaitMs >= requestTimeoutMs) {
+      throw invalid(config, "fetch.max.wait.ms must be below request.timeout.ms, or every fetch "
+                            + "waiting for fetch.min.bytes times out");
+    }
+  }
+
+  private long number(Map<String, Object> config, String key) {
+    return ClientProfiles.number(CLIENT, profileName, config, key);
+  }
+
+  private IllegalArgumentException invalid(Map<String, Object> config, String reason) {
+    return ClientProfiles.invalid(CLIENT, profileName, config, reason);
+  }
+}
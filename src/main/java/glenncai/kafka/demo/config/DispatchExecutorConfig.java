@@ -0,0 +1,80 @@
+package glenncai.kafka.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor configuration for the parallel and async dispatch engines
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Configuration
+public class DispatchExecutorConfig {
+
+  /**
+   * Thread per task executor for record processing, used when dispatch.engine is parallel
+   * <p>
+   * Runs on virtual threads when the JVM supports them, so blocking stock lookups and sends
+   * do not tie up platform threads, and falls back to platform threads on older JVMs. Once
+   * maxConcurrency tasks are running, submitting blocks the listener thread until one finishes,
+   * so tasks must never submit to it themselves or they can wait on each other for good.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "dispatch.engine", havingValue = "parallel")
+  public SimpleAsyncTaskExecutor dispatchExecutor(
+      @Value("${dispatch.parallel.virtual-threads:true}") boolean virtualThreads,
+      @Value("${dispatch.parallel.max-concurrency:200}") int maxConcurrency) {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("dispatch-");
+    executor.setConcurrencyLimit(maxConcurrency);
+    Optional<ThreadFactory> virtualThreadFactory =
+        virtualThreads ? virtualThreadFactory("dispatch-virtual-") : Optional.empty();
+    virtualThreadFactory.ifPresent(executor::setThreadFactory);
+    log.info("Parallel dispatch executor: virtualThreads={}, maxConcurrency={}",
+             virtualThreadFactory.isPresent(), maxConcurrency);
+    return executor;
+  }
+
+  /**
+   * Thread per task executor dead lettering the records whose sends failed, used when
+   * dispatch.engine is async
+   * <p>
+   * Submitted to from the producer network thread, so it has no concurrency limit that could
+   * block the producer, and the recoverer's blocking send never ties up the common pool.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "dispatch.engine", havingValue = "async")
+  public SimpleAsyncTaskExecutor deadLetterExecutor(
+      @Value("${dispatch.parallel.virtual-threads:true}") boolean virtualThreads) {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("dispatch-dead-letter-");
+    if (virtualThreads) {
+      virtualThreadFactory("dispatch-dead-letter-virtual-").ifPresent(executor::setThreadFactory);
+    }
+    return executor;
+  }
+
+  /**
+   * Virtual thread factory, looked up reflectively so the build still targets Java 17
+   */
+  private static Optional<ThreadFactory> virtualThreadFactory(String prefix) {
+    try {
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderType.getMethod("name", String.class, long.class)
+                           .invoke(builder, prefix, 0L);
+      return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+    } catch (ReflectiveOperationException e) {
+      log.warn("Virtual threads are not available on Java {}, using platform threads",
+               Runtime.version().feature());
+      return Optional.empty();
+    }
+  }
+}
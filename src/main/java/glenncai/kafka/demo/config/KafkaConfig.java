@@ -1,33 +1,62 @@
 package glenncai.kafka.demo.config;
 
+import static glenncai.kafka.demo.client.StockServiceCircuitBreaker.OPEN_RETRY_INTERVAL;
+import glenncai.kafka.demo.client.PartitionStockCache;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
 import glenncai.kafka.demo.exception.NotRetryableException;
 import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.handler.OrderCreatedAsyncHandler;
 import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.serde.BinaryMessageSerializer;
+import glenncai.kafka.demo.serde.DualFormatDeserializer;
+import glenncai.kafka.demo.service.InFlightSendTracker;
+import glenncai.kafka.demo.service.KeyOrderedDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.CommonLoggingErrorHandler;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.kafka.support.CompositeProducerListener;
+import org.springframework.kafka.support.LoggingProducerListener;
+import org.springframework.kafka.support.serializer.DelegatingByTopicSerialization;
+import org.springframework.kafka.support.serializer.DelegatingByTopicSerializer;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.util.backoff.FixedBackOff;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Kafka configuration
@@ -35,34 +64,217 @@ import java.util.Map;
  * @author Glenn Cai
  * @version 1.0 21/10/2023
  */
+@Slf4j
 @Configuration
 @ComponentScan(basePackages = "glenncai.kafka.demo")
 @PropertySource(value = "classpath:application.yml")
 public class KafkaConfig {
 
+  private static final String TRANSACTIONAL_ENGINE = "transactional";
+
+  /**
+   * Logs each record the error handler dead letters in full, however the per record logs are
+   * sampled
+   */
+  private static final RetryListener DEAD_LETTER_LOGGER = new RetryListener() {
+    @Override
+    public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+    }
+
+    @Override
+    public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+      log.error("Dead lettered record: topic={}, partition={}, offset={}, key={}, payload={}",
+                record.topic(), record.partition(), record.offset(), record.key(), record.value(),
+                ex);
+    }
+  };
+
   @Bean
   public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
       ConsumerFactory<String, Object> consumerFactory,
-      KafkaTemplate<String, Object> kafkaTemplate) {
+      DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+      DispatchMetrics dispatchMetrics, PartitionStockCache partitionStockCache) {
     ConcurrentKafkaListenerContainerFactory<String, Object> factory =
         new ConcurrentKafkaListenerContainerFactory<>();
     factory.setConsumerFactory(consumerFactory);
-    DefaultErrorHandler defaultErrorHandler =
-        new DefaultErrorHandler(new DeadLetterPublishingRecoverer(kafkaTemplate),
-                                new FixedBackOff(100L, 3L));
-    defaultErrorHandler.addRetryableExceptions(RetryableException.class);
-    defaultErrorHandler.addNotRetryableExceptions(NotRetryableException.class);
-    factory.setCommonErrorHandler(defaultErrorHandler);
+    factory.getContainerProperties().setConsumerRebalanceListener(partitionStockCache);
+    factory.setRecordInterceptor(dispatchMetrics.recordInterceptor());
+    factory.setCommonErrorHandler(defaultErrorHandler(deadLetterPublishingRecoverer,
+                                                      dispatchMetrics));
+    return factory;
+  }
+
+  /**
+   * Batch listener container factory, used when dispatch.engine is batch
+   * <p>
+   * The listener throws BatchListenerFailedException to name the failing record, so the
+   * DefaultErrorHandler commits the records before it and retries or dead letters that record
+   * exactly as it would in record mode.
+   */
+  @Bean
+  public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+      ConsumerFactory<String, Object> consumerFactory,
+      DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+      DispatchMetrics dispatchMetrics, PartitionStockCache partitionStockCache) {
+    ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+        new ConcurrentKafkaListenerContainerFactory<>();
+    factory.setConsumerFactory(consumerFactory);
+    factory.getContainerProperties().setConsumerRebalanceListener(partitionStockCache);
+    factory.setBatchListener(true);
+    factory.setBatchInterceptor(dispatchMetrics.batchInterceptor());
+    factory.setCommonErrorHandler(defaultErrorHandler(deadLetterPublishingRecoverer,
+                                                      dispatchMetrics));
+    return factory;
+  }
+
+  /**
+   * Async listener container factory, used when dispatch.engine is async
+   * <p>
+   * The listener acknowledges each record once both of its sends, and those of every earlier
+   * record of the partition, are acked, so commits never overtake a record still in flight. The
+   * handler is the rebalance listener, so a revoked partition's records in flight are awaited
+   * before its offsets are committed.
+   */
+  @Bean
+  public ConcurrentKafkaListenerContainerFactory<String, Object> asyncKafkaListenerContainerFactory(
+      ConsumerFactory<String, Object> consumerFactory,
+      DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+      DispatchMetrics dispatchMetrics, PartitionStockCache partitionStockCache,
+      ObjectProvider<OrderCreatedAsyncHandler> orderCreatedAsyncHandler) {
+    ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+        new ConcurrentKafkaListenerContainerFactory<>();
+    factory.setConsumerFactory(consumerFactory);
+    // Looked up as each container is created, the handler itself needing this factory first
+    factory.setContainerCustomizer(container -> {
+      OrderCreatedAsyncHandler handler = orderCreatedAsyncHandler.getIfAvailable();
+      container.getContainerProperties().setConsumerRebalanceListener(
+          handler != null ? handler : partitionStockCache);
+    });
+    factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+    factory.setRecordInterceptor(dispatchMetrics.recordInterceptor());
+    factory.setCommonErrorHandler(defaultErrorHandler(deadLetterPublishingRecoverer,
+                                                      dispatchMetrics));
     return factory;
   }
 
+  /**
+   * Key ordered listener container factory, used when dispatch.engine is keyed
+   * <p>
+   * The workers retry and dead letter records themselves and the listener commits the offset
+   * watermarks directly, so the container neither commits nor retries. The container publishes
+   * an idle event every commitInterval without records, so watermarks still get committed once
+   * traffic stops.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "dispatch.engine", havingValue = "keyed")
+  public ConcurrentKafkaListenerContainerFactory<String, Object> keyedKafkaListenerContainerFactory(
+      ConsumerFactory<String, Object> consumerFactory, KeyOrderedDispatcher keyOrderedDispatcher,
+      DispatchMetrics dispatchMetrics,
+      @Value("${dispatch.keyed.commit-interval:1s}") Duration commitInterval) {
+    ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+        new ConcurrentKafkaListenerContainerFactory<>();
+    factory.setConsumerFactory(consumerFactory);
+    factory.setBatchListener(true);
+    factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+    factory.getContainerProperties().setConsumerRebalanceListener(keyOrderedDispatcher);
+    factory.getContainerProperties().setIdleEventInterval(commitInterval.toMillis());
+    factory.setBatchInterceptor(dispatchMetrics.batchInterceptor());
+    factory.setCommonErrorHandler(new CommonLoggingErrorHandler());
+    return factory;
+  }
+
+  /**
+   * Transactional listener container factory, used when dispatch.engine is transactional
+   * <p>
+   * Each poll batch runs in one producer transaction that also carries the consumer offsets, so
+   * a batch is either fully dispatched and committed or not at all. The batch size is bounded by
+   * maxRecords, and each poll waits up to maxWait for minBytes to accumulate, so transactions
+   * are amortized over many records even at low traffic. After a rollback the batch is
+   * redelivered from its first record.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "dispatch.engine", havingValue = TRANSACTIONAL_ENGINE)
+  public ConcurrentKafkaListenerContainerFactory<String, Object>
+  transactionalKafkaListenerContainerFactory(
+      ConsumerFactory<String, Object> consumerFactory,
+      KafkaTransactionManager<String, Object> kafkaTransactionManager,
+      DispatchMetrics dispatchMetrics, PartitionStockCache partitionStockCache,
+      @Value("${dispatch.transactional.max-records:500}") int maxRecords,
+      @Value("${dispatch.transactional.max-wait:100ms}") Duration maxWait,
+      @Value("${dispatch.transactional.min-bytes:65536}") int minBytes) {
+    ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+        new ConcurrentKafkaListenerContainerFactory<>();
+    factory.setConsumerFactory(consumerFactory);
+    factory.setBatchListener(true);
+    factory.getContainerProperties().setTransactionManager(kafkaTransactionManager);
+    factory.getContainerProperties().setConsumerRebalanceListener(partitionStockCache);
+    factory.setBatchInterceptor(dispatchMetrics.batchInterceptor());
+    Properties consumerProperties = new Properties();
+    consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxRecords));
+    consumerProperties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG,
+                           String.valueOf(maxWait.toMillis()));
+    consumerProperties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(minBytes));
+    // Skip records of aborted transactions, so a rolled back batch is never read as input
+    consumerProperties.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+    factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+    // Only waits between redeliveries, the container never recovering records of a rolled back
+    // batch, so the handler dead letters a record once its sends fail maxSendAttempts times
+    factory.setAfterRollbackProcessor(new DefaultAfterRollbackProcessor<>(
+        new FixedBackOff(100L, FixedBackOff.UNLIMITED_ATTEMPTS)));
+    return factory;
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "dispatch.engine", havingValue = TRANSACTIONAL_ENGINE)
+  public KafkaTransactionManager<String, Object> kafkaTransactionManager(
+      ProducerFactory<String, Object> producerFactory) {
+    return new KafkaTransactionManager<>(producerFactory);
+  }
+
+  /**
+   * Compacted stock availability topic, used when dispatch.stock.view.enabled is true or
+   * dispatch.engine is streams
+   * <p>
+   * Compaction keeps the latest availability of every item, so the local view and the global
+   * table of the streams engine restore from it.
+   */
+  @Bean
+  @ConditionalOnExpression("${dispatch.stock.view.enabled:false} "
+                           + "or '${dispatch.engine:record}' == 'streams'")
+  public NewTopic stockAvailabilityTopic(
+      @Value("${dispatch.stock.view.topic:stock.availability}") String topic) {
+    return TopicBuilder.name(topic).compact().build();
+  }
+
+  @Bean
+  public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(
+      KafkaTemplate<String, Object> kafkaTemplate, DispatchMetrics dispatchMetrics) {
+    return dispatchMetrics.deadLetterPublishingRecoverer(kafkaTemplate);
+  }
+
   @Bean
   public ConsumerFactory<String, Object> consumerFactory(
-      @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
-    Map<String, Object> config = new HashMap<>();
+      @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+      @Value("${spring.kafka.consumer.auto-offset-reset:latest}") String autoOffsetReset,
+      @Value("${dispatch.consumer.profile:balanced}") String consumerProfile,
+      @Value("${dispatch.consumer.overrides:}") String[] consumerOverrides,
+      @Value("${dispatch.consumer.group-instance-id:}") String groupInstanceId,
+      @Value("${dispatch.consumer.session-timeout:45s}") Duration sessionTimeout) {
+    // Fetch sizes and the cooperative sticky assignor come from the profile
+    Map<String, Object> config =
+        new HashMap<>(ConsumerProfile.of(consumerProfile).consumerConfig(consumerOverrides));
+    if (!groupInstanceId.isBlank()) {
+      // Static membership: a restart that rejoins within the session timeout keeps its
+      // partitions without a rebalance. Containers with concurrency suffix the id per consumer.
+      config.put(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupInstanceId.trim());
+      config.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG,
+                 String.valueOf(sessionTimeout.toMillis()));
+    }
     config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-    config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+    // Reads both JSON and compact binary values, so topics can switch format without downtime
+    config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, DualFormatDeserializer.class);
     config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class.getCanonicalName());
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
 
@@ -71,23 +283,93 @@ public class KafkaConfig {
 
   @Bean
   public KafkaTemplate<String, Object> kafkaTemplate(
-      ProducerFactory<String, Object> producerFactory) {
-    return new KafkaTemplate<>(producerFactory);
+      ProducerFactory<String, Object> producerFactory, DispatchMetrics dispatchMetrics) {
+    KafkaTemplate<String, Object> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+    kafkaTemplate.setProducerListener(new CompositeProducerListener<>(
+        new LoggingProducerListener<>(), dispatchMetrics.producerListener()));
+    // Sends outside a listener transaction use a non-transactional producer
+    kafkaTemplate.setAllowNonTransactional(true);
+    return kafkaTemplate;
   }
 
   @Bean
   public ProducerFactory<String, Object> producerFactory(
-      @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
-    Map<String, Object> config = new HashMap<>();
+      @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+      @Value("${dispatch.engine:record}") String engine,
+      @Value("${dispatch.transactional.transaction-id-prefix:dispatch-tx-}")
+      String transactionIdPrefix,
+      @Value("${dispatch.serde.binary-topics:}") String[] binaryTopics,
+      @Value("${dispatch.producer.profile:balanced}") String producerProfile,
+      @Value("${dispatch.producer.overrides:}") String[] producerOverrides,
+      InFlightSendTracker inFlightSendTracker) {
+    // Batching, compression and delivery settings come from the profile
+    Map<String, Object> config =
+        new HashMap<>(ProducerProfile.of(producerProfile).producerConfig(producerOverrides));
+    boolean idempotent =
+        Boolean.parseBoolean(String.valueOf(config.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG)));
+    if (TRANSACTIONAL_ENGINE.equals(engine) && !idempotent) {
+      throw new IllegalArgumentException("The transactional engine needs an idempotent producer");
+    }
     config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
     config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-    config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+    config.putAll(valueSerializerConfig(binaryTopics));
+    // Counts the sends of every producer the factory creates, for the backpressure controller
+    config.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, InFlightSendTracker.class.getName());
+    config.put(InFlightSendTracker.IN_FLIGHT_SEND_TRACKER_CONFIG, inFlightSendTracker);
 
-    return new DefaultKafkaProducerFactory<>(config);
+    DefaultKafkaProducerFactory<String, Object> producerFactory =
+        new DefaultKafkaProducerFactory<>(config);
+    if (TRANSACTIONAL_ENGINE.equals(engine)) {
+      producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+    }
+    return producerFactory;
   }
 
-  @Bean
-  public RestTemplate restTemplate() {
-    return new RestTemplate();
+  /**
+   * Value serializer config writing the listed topics in the compact binary format and all
+   * others as JSON
+   */
+  static Map<String, Object> valueSerializerConfig(String[] binaryTopics) {
+    Map<String, Object> config = new HashMap<>();
+    if (binaryTopics.length == 0) {
+      config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+    } else {
+      config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, DelegatingByTopicSerializer.class);
+      config.put(DelegatingByTopicSerialization.VALUE_SERIALIZATION_TOPIC_CONFIG,
+                 Arrays.stream(binaryTopics)
+                       .map(topic -> Pattern.quote(topic.trim()) + ":"
+                                     + BinaryMessageSerializer.class.getName())
+                       .collect(Collectors.joining(",")));
+      config.put(DelegatingByTopicSerialization.VALUE_SERIALIZATION_TOPIC_DEFAULT,
+                 JsonSerializer.class);
+    }
+    return config;
+  }
+
+  private DefaultErrorHandler defaultErrorHandler(
+      DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+      DispatchMetrics dispatchMetrics) {
+    DefaultErrorHandler defaultErrorHandler =
+        new DefaultErrorHandler(deadLetterPublishingRecoverer, new FixedBackOff(100L, 3L));
+    defaultErrorHandler.setRetryListeners(dispatchMetrics.retryListener(), DEAD_LETTER_LOGGER);
+    defaultErrorHandler.addRetryableExceptions(RetryableException.class);
+    defaultErrorHandler.addNotRetryableExceptions(NotRetryableException.class);
+    // The containers are paused while the breaker is open, so keep the record until it closes
+    // rather than using up its attempts
+    defaultErrorHandler.setBackOffFunction(
+        (record, exception) -> isCircuitBreakerOpen(exception)
+                               ? new FixedBackOff(OPEN_RETRY_INTERVAL.toMillis(),
+                                                  FixedBackOff.UNLIMITED_ATTEMPTS)
+                               : null);
+    return defaultErrorHandler;
+  }
+
+  private static boolean isCircuitBreakerOpen(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof CircuitBreakerOpenException) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -0,0 +1,229 @@
+package glenncai.kafka.demo.config;
+
+import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.handler.OrderCreatedProcessor;
+import glenncai.kafka.demo.message.DispatchPreparing;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.SendLatencyInterceptor;
+import glenncai.kafka.demo.serde.DualFormatDeserializer;
+import glenncai.kafka.demo.service.DispatchLogSampler;
+import glenncai.kafka.demo.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.StreamsUncaughtExceptionHandler.StreamThreadExceptionResponse;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.processor.TopicNameExtractor;
+import org.apache.kafka.streams.state.Stores;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.config.StreamsBuilderFactoryBeanConfigurer;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.streams.RecoveringDeserializationExceptionHandler;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka Streams configuration, used when dispatch.engine is streams
+ * <p>
+ * The order flow runs as a topology instead of on a listener container: order.created is read,
+ * enriched with the stock availability of a global table and written to dispatch.tracking and
+ * order.dispatched, or to order.created.DLT. Processing is exactly once (v2), so the outputs of
+ * every commit interval are written in one transaction with the input offsets. Standby replicas
+ * keep warm copies of the task state on other instances, so a failover does not replay its
+ * changelog.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "streams")
+public class KafkaStreamsConfig {
+
+  public static final String STOCK_STORE = "stock-availability-store";
+
+  public static final String DISPATCHED_STORE = "dispatched-order-store";
+
+  private static final String ORDER_CREATED_TOPIC = "order.created";
+
+  private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+
+  private static final String DISPATCH_TRACKING_TOPIC = "dispatch.tracking";
+
+  @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+  public KafkaStreamsConfiguration defaultKafkaStreamsConfig(
+      @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+      @Value("${dispatch.streams.application-id:dispatch.order.streams}") String applicationId,
+      @Value("${dispatch.streams.threads:1}") int threads,
+      @Value("${dispatch.streams.standby-replicas:1}") int standbyReplicas,
+      @Value("${dispatch.streams.commit-interval:100ms}") Duration commitInterval,
+      @Value("${dispatch.streams.state-dir:}") String stateDir,
+      @Value("${dispatch.producer.profile:balanced}") String producerProfile,
+      @Value("${dispatch.producer.overrides:}") String[] producerOverrides,
+      ProducerFactory<byte[], byte[]> streamsDeadLetterProducerFactory,
+      DispatchMetrics dispatchMetrics) {
+    Map<String, Object> config = new HashMap<>();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    config.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+    config.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, threads);
+    config.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, standbyReplicas);
+    config.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, commitInterval.toMillis());
+    if (!stateDir.isBlank()) {
+      config.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.trim());
+    }
+    // Batching and compression come from the producer profile, like the template sends.
+    // Exactly once turns on idempotence itself.
+    Map<String, Object> producerConfig =
+        new HashMap<>(ProducerProfile.of(producerProfile).producerConfig(producerOverrides));
+    producerConfig.remove(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG);
+    producerConfig.forEach((key, value) -> config.put(StreamsConfig.producerPrefix(key), value));
+    config.put(StreamsConfig.producerPrefix(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG),
+               SendLatencyInterceptor.class.getName());
+    config.put(StreamsConfig.producerPrefix(SendLatencyInterceptor.DISPATCH_METRICS_CONFIG),
+               dispatchMetrics);
+    // Records that cannot be deserialized are published to the DLT as they are, then skipped
+    config.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
+               RecoveringDeserializationExceptionHandler.class);
+    config.put(RecoveringDeserializationExceptionHandler.KSTREAM_DESERIALIZATION_RECOVERER,
+               dispatchMetrics.deadLetterPublishingRecoverer(
+                   new KafkaTemplate<>(streamsDeadLetterProducerFactory)));
+    return new KafkaStreamsConfiguration(config);
+  }
+
+  /**
+   * Producer of the records that failed to deserialize, which the handler gets as raw bytes
+   */
+  @Bean
+  public ProducerFactory<byte[], byte[]> streamsDeadLetterProducerFactory(
+      @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
+    return new DefaultKafkaProducerFactory<>(Map.of(
+        ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+        ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class,
+        ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class));
+  }
+
+  /**
+   * A stream thread that dies on an unexpected exception is replaced, its tasks aborting their
+   * open transactions and resuming from the last commit
+   */
+  @Bean
+  public StreamsBuilderFactoryBeanConfigurer streamsUncaughtExceptionConfigurer() {
+    return factoryBean -> factoryBean.setStreamsUncaughtExceptionHandler(exception -> {
+      log.error("Replacing stream thread after uncaught exception", exception);
+      return StreamThreadExceptionResponse.REPLACE_THREAD;
+    });
+  }
+
+  /**
+   * Source topic of the topology, which Kafka Streams does not create itself
+   */
+  @Bean
+  public NewTopic orderCreatedTopic() {
+    return TopicBuilder.name(ORDER_CREATED_TOPIC).build();
+  }
+
+  @Bean
+  public KStream<String, Object> orderCreatedStream(
+      StreamsBuilder streamsBuilder, DispatchService dispatchService,
+      StockServiceClient stockServiceClient, DispatchLogSampler dispatchLogSampler,
+      DispatchMetrics dispatchMetrics,
+      @Value("${dispatch.stock.view.topic:stock.availability}") String stockTopic,
+      @Value("${dispatch.streams.retry-interval:100ms}") Duration retryInterval,
+      @Value("${dispatch.streams.max-retries:3}") long maxRetries,
+      @Value("${dispatch.streams.max-circuit-open-wait:5s}") Duration maxCircuitOpenWait,
+      @Value("${dispatch.dedup.enabled:false}") boolean dedupEnabled,
+      @Value("${dispatch.dedup.ttl:1h}") Duration dedupTtl,
+      @Value("${dispatch.serde.binary-topics:}") String[] binaryTopics) {
+    streamsBuilder.globalTable(stockTopic, Consumed.with(Serdes.String(), Serdes.String()),
+                               Materialized.as(STOCK_STORE));
+    String[] stores = {};
+    if (dedupEnabled) {
+      // Orders of the same key land on the same task, so each task keeps the ids it dispatched
+      streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+          Stores.persistentKeyValueStore(DISPATCHED_STORE), Serdes.String(), Serdes.Long()));
+      stores = new String[] {DISPATCHED_STORE};
+    }
+
+    FixedBackOff backOff = new FixedBackOff(retryInterval.toMillis(), maxRetries);
+    KStream<String, Object> orderCreatedStream =
+        streamsBuilder.stream(ORDER_CREATED_TOPIC,
+                              Consumed.with(Serdes.String(), orderCreatedSerde()));
+    orderCreatedStream.process(() -> new OrderCreatedProcessor(
+                          dispatchService, stockServiceClient, dispatchLogSampler,
+                          dispatchMetrics, backOff, STOCK_STORE,
+                          dedupEnabled ? DISPATCHED_STORE : null, dedupTtl,
+                          maxCircuitOpenWait), stores)
+                      .to(destination(), Produced.with(Serdes.String(),
+                                                       eventSerde(binaryTopics)));
+    return orderCreatedStream;
+  }
+
+  /**
+   * Output topic of each event, records the processor gave up on going to the DLT of their
+   * source topic
+   */
+  private static TopicNameExtractor<String, Object> destination() {
+    return (key, value, recordContext) -> {
+      if (value instanceof DispatchPreparing) {
+        return DISPATCH_TRACKING_TOPIC;
+      }
+      if (value instanceof OrderDispatched) {
+        return ORDER_DISPATCHED_TOPIC;
+      }
+      return recordContext.topic() + ".DLT";
+    };
+  }
+
+  /**
+   * Reads both JSON and compact binary order created events, like the listener engines
+   */
+  private static Serde<Object> orderCreatedSerde() {
+    DualFormatDeserializer deserializer = new DualFormatDeserializer();
+    deserializer.configure(Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE,
+                                  OrderCreated.class.getCanonicalName()), false);
+    return Serdes.serdeFrom(eventSerializer(new String[0]), deserializer);
+  }
+
+  private static Serde<Object> eventSerde(String[] binaryTopics) {
+    return Serdes.serdeFrom(eventSerializer(binaryTopics), new DualFormatDeserializer());
+  }
+
+  /**
+   * Serializer writing the events in the same format as the template sends
+   */
+  @SuppressWarnings("unchecked")
+  private static Serializer<Object> eventSerializer(String[] binaryTopics) {
+    Map<String, Object> config = KafkaConfig.valueSerializerConfig(binaryTopics);
+    Serializer<Object> serializer = BeanUtils.instantiateClass(
+        (Class<Serializer<Object>>) config.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+    serializer.configure(config, false);
+    return serializer;
+  }
+}
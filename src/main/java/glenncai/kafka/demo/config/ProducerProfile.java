@@ -0,0 +1,121 @@
+package glenncai.kafka.demo.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Named producer tunings, selected with dispatch.producer.profile
+ * <p>
+ * Every profile is idempotent with acks=all and at most 5 requests in flight, so retries never
+ * duplicate or reorder records. They differ in how long a batch may wait to fill, how large it
+ * may grow and how it is compressed:
+ * <ul>
+ *   <li>low-latency: sends as soon as possible, uncompressed</li>
+ *   <li>balanced: waits up to 5ms for 64KB batches, compressed with lz4</li>
+ *   <li>high-throughput: waits up to 20ms for 256KB batches, compressed with zstd</li>
+ * </ul>
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public enum ProducerProfile {
+
+  LOW_LATENCY("low-latency", 0, 16 * 1024, "none"),
+  BALANCED("balanced", 5, 64 * 1024, "lz4"),
+  HIGH_THROUGHPUT("high-throughput", 20, 256 * 1024, "zstd");
+
+  private static final String CLIENT = "producer";
+
+  private static final int MAX_IDEMPOTENT_IN_FLIGHT = 5;
+
+  private static final Set<String> COMPRESSION_TYPES =
+      Set.of("none", "gzip", "snappy", "lz4", "zstd");
+
+  private final String profileName;
+
+  private final int lingerMs;
+
+  private final int batchSize;
+
+  private final String compressionType;
+
+  ProducerProfile(String profileName, int lingerMs, int batchSize, String compressionType) {
+    this.profileName = profileName;
+    this.lingerMs = lingerMs;
+    this.batchSize = batchSize;
+    this.compressionType = compressionType;
+  }
+
+  /**
+   * Profile of the given name
+   *
+   * @throws IllegalArgumentException naming the known profiles when there is none of that name
+   */
+  public static ProducerProfile of(String profileName) {
+    return ClientProfiles.of(CLIENT, values(), ProducerProfile::profileName, profileName);
+  }
+
+  public String profileName() {
+    return profileName;
+  }
+
+  /**
+   * Producer config of the profile, with overrides given as key=value applied on top, validated
+   *
+   * @param overrides producer config entries replacing those of the profile
+   * @throws IllegalArgumentException when an override is malformed or the result inconsistent
+   */
+  public Map<String, Object> producerConfig(String... overrides) {
+    Map<String, Object> config = new HashMap<>();
+    config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+    config.put(ProducerConfig.ACKS_CONFIG, "all");
+    config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION,
+               String.valueOf(MAX_IDEMPOTENT_IN_FLIGHT));
+    config.put(ProducerConfig.LINGER_MS_CONFIG, String.valueOf(lingerMs));
+    config.put(ProducerConfig.BATCH_SIZE_CONFIG, String.valueOf(batchSize));
+    config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+    ClientProfiles.applyOverrides(CLIENT, config, overrides);
+    validate(config);
+    return config;
+  }
+
+  /**
+   * Check the settings the profiles tune are consistent, before the first send would fail
+   */
+  private void validate(Map<String, Object> config) {
+    long lingerMs = number(config, ProducerConfig.LINGER_MS_CONFIG);
+    long batchSize = number(config, ProducerConfig.BATCH_SIZE_CONFIG);
+    long maxInFlight = number(config, ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION);
+    if (lingerMs < 0 || batchSize < 0 || maxInFlight < 1) {
+      throw invalid(config, "linger.ms and batch.size must not be negative, and "
+                            + "max.in.flight.requests.per.connection must be at least 1");
+    }
+    String compression = String.valueOf(config.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    if (!COMPRESSION_TYPES.contains(compression)) {
+      throw invalid(config, "compression.type must be one of " + COMPRESSION_TYPES);
+    }
+    boolean idempotent =
+        Boolean.parseBoolean(String.valueOf(config.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG)));
+    if (idempotent) {
+      String acks = String.valueOf(config.get(ProducerConfig.ACKS_CONFIG));
+      if (!"all".equals(acks) && !"-1".equals(acks)) {
+        throw invalid(config, "an idempotent producer needs acks=all");
+      }
+      if (maxInFlight > MAX_IDEMPOTENT_IN_FLIGHT) {
+        throw invalid(config, "an idempotent producer allows at most " + MAX_IDEMPOTENT_IN_FLIGHT
+                              + " requests in flight");
+      }
+    }
+  }
+
+  private long number(Map<String, Object> config, String key) {
+    return ClientProfiles.number(CLIENT, profileName, config, key);
+  }
+
+  private IllegalArgumentException invalid(Map<String, Object> config, String reason) {
+    return ClientProfiles.invalid(CLIENT, profileName, config, reason);
+  }
+}
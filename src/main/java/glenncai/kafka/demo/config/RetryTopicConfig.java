@@ -0,0 +1,102 @@
+package glenncai.kafka.demo.config;
+
+import glenncai.kafka.demo.exception.RetryableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+import org.springframework.kafka.retrytopic.RetryTopicSchedulerWrapper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking retry topic configuration, used when dispatch.retry-topics.enabled is true
+ * <p>
+ * A record failing with a RetryableException is republished to the next retry topic, named
+ * order.created.retry-{delay in ms}, so its partition keeps flowing instead of sleeping and
+ * seeking back to it. The delays grow exponentially from initialInterval by multiplier up to
+ * maxInterval, with per record jitter on top, and a record that fails maxAttempts times, or
+ * fails with any other exception, goes straight to order.created.DLT. Each retry topic consumer
+ * pauses its partition until the next record is due rather than polling it repeatedly.
+ * <p>
+ * Non-blocking retries only apply to record listeners, so they take effect with the record
+ * engine and the other engines keep their own retry handling.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "dispatch.retry-topics.enabled", havingValue = "true")
+public class RetryTopicConfig extends RetryTopicConfigurationSupport {
+
+  private final Duration initialInterval;
+
+  private final double multiplier;
+
+  private final Duration maxInterval;
+
+  private final int maxAttempts;
+
+  private final RetryTopicJitter retryTopicJitter;
+
+  public RetryTopicConfig(
+      @Value("${dispatch.retry-topics.initial-interval:1s}") Duration initialInterval,
+      @Value("${dispatch.retry-topics.multiplier:10}") double multiplier,
+      @Value("${dispatch.retry-topics.max-interval:60s}") Duration maxInterval,
+      @Value("${dispatch.retry-topics.max-attempts:4}") int maxAttempts,
+      @Value("${dispatch.retry-topics.jitter:0.5}") double jitter) {
+    this.initialInterval = initialInterval;
+    this.multiplier = multiplier;
+    this.maxInterval = maxInterval;
+    this.maxAttempts = maxAttempts;
+    this.retryTopicJitter = new RetryTopicJitter(initialInterval, multiplier, maxInterval,
+                                                 maxAttempts, jitter, Clock.systemUTC());
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "dispatch.engine", havingValue = "record", matchIfMissing = true)
+  public RetryTopicConfiguration orderCreatedRetryTopicConfiguration(
+      KafkaTemplate<String, Object> kafkaTemplate,
+      @Value("${dispatch.retry-topics.partitions:-1}") int partitions,
+      @Value("${dispatch.retry-topics.replication-factor:-1}") short replicationFactor) {
+    log.info("Retry topics: delays={}ms, partitions={}", retryTopicJitter.delays(), partitions);
+    return RetryTopicConfigurationBuilder.newInstance()
+                                         .includeTopic("order.created")
+                                         .listenerFactory("kafkaListenerContainerFactory")
+                                         .exponentialBackoff(initialInterval.toMillis(),
+                                                             multiplier, maxInterval.toMillis())
+                                         .maxAttempts(maxAttempts)
+                                         .retryTopicSuffix(".retry")
+                                         .dltSuffix(".DLT")
+                                         .retryOn(RetryableException.class)
+                                         .traversingCauses()
+                                         .autoCreateTopicsWith(partitions, replicationFactor)
+                                         .create(kafkaTemplate);
+  }
+
+  /**
+   * Scheduler resuming the paused retry topic partitions once their next record is due
+   */
+  @Bean
+  public RetryTopicSchedulerWrapper retryTopicSchedulerWrapper() {
+    ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+    taskScheduler.setThreadNamePrefix("retry-topic-");
+    return new RetryTopicSchedulerWrapper(taskScheduler);
+  }
+
+  @Override
+  protected Consumer<DeadLetterPublishingRecovererFactory>
+  configureDeadLetterPublishingContainerFactory() {
+    return factory -> factory.setHeadersFunction(retryTopicJitter);
+  }
+}
@@ -0,0 +1,91 @@
+package glenncai.kafka.demo.config;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+
+/**
+ * Headers function spreading the due time of records sent to a retry topic
+ * <p>
+ * A retry topic consumer pauses its partition until the backoff timestamp of the next record
+ * comes due. Spring computes that timestamp as the failure time plus the fixed delay of the
+ * topic, so a burst of failures comes due all at once and hits the stock service together as
+ * soon as it recovers. This function adds a later backoff timestamp, up to jitter times the
+ * delay past the fixed one, and the consumer honours the last timestamp header of a record.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class RetryTopicJitter implements BiFunction<ConsumerRecord<?, ?>, Exception, Headers> {
+
+  private final List<Long> delays;
+
+  private final double jitter;
+
+  private final Clock clock;
+
+  public RetryTopicJitter(Duration initialInterval, double multiplier, Duration maxInterval,
+                          int maxAttempts, double jitter, Clock clock) {
+    this.delays = delays(initialInterval.toMillis(), multiplier, maxInterval.toMillis(),
+                         maxAttempts);
+    this.jitter = jitter;
+    this.clock = clock;
+  }
+
+  /**
+   * Delays of the retry topics in order, as the exponential backoff of the retry topic
+   * configuration generates them
+   */
+  public List<Long> delays() {
+    return delays;
+  }
+
+  @Override
+  public Headers apply(ConsumerRecord<?, ?> record, Exception exception) {
+    Headers headers = new RecordHeaders();
+    int attempts = attempts(record);
+    // The record has used up its retries and goes to the dead letter topic
+    if (attempts > delays.size() || jitter <= 0) {
+      return headers;
+    }
+    long delay = delays.get(attempts - 1);
+    long spread = (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+    headers.add(RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP,
+                BigInteger.valueOf(clock.millis() + delay + spread).toByteArray());
+    return headers;
+  }
+
+  /**
+   * Attempts made so far, the record on the main topic having made one
+   */
+  private static int attempts(ConsumerRecord<?, ?> record) {
+    Header header = record.headers().lastHeader(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS);
+    if (header == null || header.value().length != Integer.BYTES) {
+      return 1;
+    }
+    return ByteBuffer.wrap(header.value()).getInt();
+  }
+
+  private static List<Long> delays(long initialInterval, double multiplier, long maxInterval,
+                                   int maxAttempts) {
+    List<Long> delays = new ArrayList<>(Math.max(maxAttempts - 1, 0));
+    double delay = initialInterval;
+    for (int attempt = 1; attempt < maxAttempts; attempt++) {
+      delays.add(Math.min((long) delay, maxInterval));
+      delay *= multiplier;
+    }
+    return Collections.unmodifiableList(delays);
+  }
+}
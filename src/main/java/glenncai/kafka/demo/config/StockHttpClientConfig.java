@@ -0,0 +1,121 @@
+package glenncai.kafka.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.netty.channel.ChannelOption;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Stock service HTTP client configuration
+ * <p>
+ * Pooled keep-alive connections with connect, read and response timeouts, so a slow stock
+ * service fails the lookup with a RetryableException instead of pinning the listener thread.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Configuration
+public class StockHttpClientConfig {
+
+  @Bean
+  public PoolingHttpClientConnectionManager stockHttpConnectionManager(
+      @Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+      @Value("${dispatch.stock.http.max-connections-per-route:50}") int maxConnectionsPerRoute,
+      @Value("${dispatch.stock.http.connect-timeout:1s}") Duration connectTimeout,
+      @Value("${dispatch.stock.http.read-timeout:2s}") Duration readTimeout,
+      @Value("${dispatch.stock.http.time-to-live:5m}") Duration timeToLive,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    PoolingHttpClientConnectionManager connectionManager =
+        PoolingHttpClientConnectionManagerBuilder
+            .create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnectionsPerRoute)
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(connectTimeout))
+                                .setSocketTimeout(Timeout.of(readTimeout))
+                                .setTimeToLive(TimeValue.of(timeToLive))
+                                .build())
+            .build();
+    meterRegistry.ifAvailable(
+        registry -> new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager,
+                                                                        "stock-service")
+            .bindTo(registry));
+    return connectionManager;
+  }
+
+  @Bean
+  public CloseableHttpClient stockHttpClient(
+      PoolingHttpClientConnectionManager stockHttpConnectionManager,
+      @Value("${dispatch.stock.http.response-timeout:2s}") Duration responseTimeout,
+      @Value("${dispatch.stock.http.connection-request-timeout:500ms}")
+      Duration connectionRequestTimeout,
+      @Value("${dispatch.stock.http.idle-timeout:30s}") Duration idleTimeout) {
+    return HttpClients.custom()
+                      .setConnectionManager(stockHttpConnectionManager)
+                      .setDefaultRequestConfig(
+                          RequestConfig.custom()
+                                       .setResponseTimeout(Timeout.of(responseTimeout))
+                                       .setConnectionRequestTimeout(
+                                           Timeout.of(connectionRequestTimeout))
+                                       .build())
+                      // Retries belong to the Kafka error handler, not the HTTP client
+                      .disableAutomaticRetries()
+                      .evictExpiredConnections()
+                      .evictIdleConnections(TimeValue.of(idleTimeout))
+                      .build();
+  }
+
+  @Bean
+  public RestTemplate restTemplate(CloseableHttpClient stockHttpClient) {
+    return new RestTemplate(new HttpComponentsClientHttpRequestFactory(stockHttpClient));
+  }
+
+  /**
+   * Non-blocking stock service client of the reactive engine, with the same pool size and
+   * timeouts as the blocking one. Requests run on the shared Reactor Netty event loops.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "dispatch.engine", havingValue = "reactive")
+  public WebClient stockWebClient(
+      @Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+      @Value("${dispatch.stock.http.connect-timeout:1s}") Duration connectTimeout,
+      @Value("${dispatch.stock.http.response-timeout:2s}") Duration responseTimeout,
+      @Value("${dispatch.stock.http.connection-request-timeout:500ms}")
+      Duration connectionRequestTimeout,
+      @Value("${dispatch.stock.http.idle-timeout:30s}") Duration idleTimeout,
+      @Value("${dispatch.stock.http.time-to-live:5m}") Duration timeToLive) {
+    ConnectionProvider connectionProvider =
+        ConnectionProvider.builder("stock-service")
+                          .maxConnections(maxConnections)
+                          .pendingAcquireTimeout(connectionRequestTimeout)
+                          .maxIdleTime(idleTimeout)
+                          .maxLifeTime(timeToLive)
+                          .build();
+    HttpClient httpClient =
+        HttpClient.create(connectionProvider)
+                  .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                  .responseTimeout(responseTimeout);
+    return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+  }
+}
@@ -0,0 +1,14 @@
+package glenncai.kafka.demo.exception;
+
+/**
+ * Retryable exception thrown without calling a downstream service whose circuit breaker is open
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class CircuitBreakerOpenException extends RetryableException {
+
+  public CircuitBreakerOpenException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,41 @@
+package glenncai.kafka.demo.handler;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Headers of a dead lettered record, for the engines that publish to the DLT without the
+ * DeadLetterPublishingRecoverer
+ * <p>
+ * The original headers are kept and the origin and exception are added under the same names
+ * and in the same encoding as the recoverer uses.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+final class DeadLetterHeaders {
+
+  private DeadLetterHeaders() {
+  }
+
+  static Headers of(Headers original, String topic, int partition, long offset,
+                    Exception exception) {
+    Headers headers = new RecordHeaders(original.toArray());
+    headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, topic.getBytes(StandardCharsets.UTF_8));
+    headers.add(KafkaHeaders.DLT_ORIGINAL_PARTITION,
+                ByteBuffer.allocate(Integer.BYTES).putInt(partition).array());
+    headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET,
+                ByteBuffer.allocate(Long.BYTES).putLong(offset).array());
+    headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN,
+                exception.getClass().getName().getBytes(StandardCharsets.UTF_8));
+    if (exception.getMessage() != null) {
+      headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE,
+                  exception.getMessage().getBytes(StandardCharsets.UTF_8));
+    }
+    return headers;
+  }
+}
@@ -0,0 +1,279 @@
+package glenncai.kafka.demo.handler;
+
+import glenncai.kafka.demo.client.PartitionStockCache;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import glenncai.kafka.demo.service.DispatchLogSampler;
+import glenncai.kafka.demo.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Order created handler that pipelines the outbound sends
+ * <p>
+ * Each record is acknowledged once both of its sends are acked, so the listener thread can keep
+ * polling while the broker round-trips are in flight. Acks are chained in offset order per
+ * partition, and at most maxInFlightPerPartition records of a partition are awaiting acks at any
+ * time. A record whose sends failed is dead lettered on the deadLetterExecutor. When that fails
+ * too, neither it nor any later record of the partition is acknowledged, and once the listener
+ * sees the failure it seeks the partition back to the record, skipping the rest of the poll, so
+ * the record is delivered again. The container's error handler cannot do this, as it only seeks
+ * back to the record being listened to.
+ * <p>
+ * As the rebalance listener of its container, the handler waits for the records in flight of a
+ * revoked partition before the offsets are committed, and forgets those of a lost partition.
+ * Rebalances are passed on to the partition stock cache.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "async")
+public class OrderCreatedAsyncHandler implements ConsumerAwareRebalanceListener {
+
+  private final DispatchService dispatchService;
+
+  private final DispatchLogSampler dispatchLogSampler;
+
+  private final ConsumerRecordRecoverer deadLetterPublishingRecoverer;
+
+  private final PartitionStockCache partitionStockCache;
+
+  private final Executor deadLetterExecutor;
+
+  private final int maxInFlightPerPartition;
+
+  /**
+   * In-flight records per partition, only touched by the consumer thread owning the partition
+   */
+  private final Map<TopicPartition, Deque<InFlight>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Partitions seeked back to a failed record, with the offset of the record they were seeked
+   * back from
+   */
+  private final Map<TopicPartition, Long> rewound = new ConcurrentHashMap<>();
+
+  public OrderCreatedAsyncHandler(DispatchService dispatchService,
+                                  DispatchLogSampler dispatchLogSampler,
+                                  ConsumerRecordRecoverer deadLetterPublishingRecoverer,
+                                  PartitionStockCache partitionStockCache,
+                                  @Qualifier("deadLetterExecutor") Executor deadLetterExecutor,
+                                  @Value("${dispatch.async.max-in-flight-per-partition:100}")
+                                  int maxInFlightPerPartition) {
+    this.dispatchService = dispatchService;
+    this.dispatchLogSampler = dispatchLogSampler;
+    this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+    this.partitionStockCache = partitionStockCache;
+    this.deadLetterExecutor = deadLetterExecutor;
+    this.maxInFlightPerPartition = maxInFlightPerPartition;
+  }
+
+  @KafkaListener(
+      id = "orderConsumerClient",
+      topics = "order.created",
+      groupId = "dispatch.order.created.consumer",
+      containerFactory = "asyncKafkaListenerContainerFactory"
+  )
+  public void listen(ConsumerRecord<String, OrderCreated> record, Acknowledgment acknowledgment,
+                     Consumer<?, ?> consumer) {
+    if (dispatchLogSampler.sample()) {
+      log.info("Received message: partition={}, key={}, payload={}", record.partition(),
+               record.key(), record.value());
+    }
+    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+    Long rewoundFrom = rewound.get(partition);
+    if (rewoundFrom != null) {
+      if (record.offset() > rewoundFrom) {
+        // Rest of the poll the partition was seeked back from, delivered again later
+        return;
+      }
+      rewound.remove(partition);
+    }
+    Deque<InFlight> window = inFlight.computeIfAbsent(partition, key -> new ArrayDeque<>());
+    long failed = awaitCapacity(window);
+    if (failed >= 0) {
+      rewind(consumer, partition, failed, record.offset());
+      return;
+    }
+    try {
+      CompletableFuture<Void> completion =
+          dispatchService.processAsync(record.key(), record.value(),
+                                       DispatchTrace.of(record))
+                         .exceptionallyCompose(e -> CompletableFuture.runAsync(
+                             () -> recover(record, e), deadLetterExecutor));
+      InFlight previous = window.peekLast();
+      if (previous != null) {
+        completion = CompletableFuture.allOf(previous.completion(), completion);
+      }
+      window.addLast(new InFlight(record.offset(),
+                                  completion.thenRun(acknowledgment::acknowledge)));
+    } catch (RetryableException e) {
+      log.warn("Retryable exception: partition={}, offset={}, key={}, payload={}, {}",
+               record.partition(), record.offset(), record.key(), record.value(), e.getMessage());
+      rewindOrThrow(consumer, partition, window, record.offset(), e);
+    } catch (Exception e) {
+      log.error("NotRetryable exception: partition={}, offset={}, key={}, payload={}, {}",
+                record.partition(), record.offset(), record.key(), record.value(),
+                e.getMessage());
+      rewindOrThrow(consumer, partition, window, record.offset(), new NotRetryableException(e));
+    }
+  }
+
+  @Override
+  public void onPartitionsAssigned(Consumer<?, ?> consumer,
+                                   Collection<TopicPartition> partitions) {
+    partitionStockCache.onPartitionsAssigned(consumer, partitions);
+  }
+
+  /**
+   * Wait for the records in flight of the revoked partitions, so their acks are committed before
+   * the partitions are given up
+   */
+  @Override
+  public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                              Collection<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      rewound.remove(partition);
+      Deque<InFlight> window = inFlight.remove(partition);
+      if (window != null) {
+        // A failed record is left uncommitted, for the next owner to receive again
+        drain(window);
+      }
+    }
+    partitionStockCache.onPartitionsRevokedBeforeCommit(consumer, partitions);
+  }
+
+  /**
+   * Forget the records in flight of the lost partitions, whose offsets can no longer be committed
+   */
+  @Override
+  public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    partitions.forEach(partition -> {
+      inFlight.remove(partition);
+      rewound.remove(partition);
+    });
+    partitionStockCache.onPartitionsLost(consumer, partitions);
+  }
+
+  /**
+   * Forget the records done, then wait for the oldest until the window has room
+   *
+   * @return offset of the first record that was neither dispatched nor dead lettered, -1 when
+   *     there is none
+   */
+  private long awaitCapacity(Deque<InFlight> window) {
+    while (!window.isEmpty() && (window.peekFirst().completion().isDone()
+                                 || window.size() >= maxInFlightPerPartition)) {
+      long failed = await(window);
+      if (failed >= 0) {
+        return failed;
+      }
+    }
+    return -1L;
+  }
+
+  /**
+   * Wait for the earlier records of the partition before the error handler takes over, so it
+   * never commits past a record whose sends are still in flight
+   *
+   * @return offset of the first record that was neither dispatched nor dead lettered, -1 when
+   *     there is none
+   */
+  private long drain(Deque<InFlight> window) {
+    while (!window.isEmpty()) {
+      long failed = await(window);
+      if (failed >= 0) {
+        return failed;
+      }
+    }
+    return -1L;
+  }
+
+  /**
+   * Wait for the oldest record of the window. Completions are chained in offset order, so the
+   * first one to fail is that of the failed record, and the later ones fail with it.
+   */
+  private static long await(Deque<InFlight> window) {
+    InFlight oldest = window.pollFirst();
+    try {
+      oldest.completion().join();
+      return -1L;
+    } catch (CompletionException | CancellationException e) {
+      window.clear();
+      return oldest.offset();
+    }
+  }
+
+  /**
+   * Rewind the partition to a record in flight that failed before the error handler takes over,
+   * as it would seek past it
+   */
+  private void rewindOrThrow(Consumer<?, ?> consumer, TopicPartition partition,
+                             Deque<InFlight> window, long offset, RuntimeException exception) {
+    long failed = drain(window);
+    if (failed < 0) {
+      throw exception;
+    }
+    rewind(consumer, partition, failed, offset);
+  }
+
+  private void rewind(Consumer<?, ?> consumer, TopicPartition partition, long failed,
+                      long offset) {
+    log.warn("Seeking back to undelivered record: partition={}, offset={}", partition, failed);
+    consumer.seek(partition, failed);
+    rewound.put(partition, offset);
+  }
+
+  /**
+   * Dead letter a record whose sends failed, running off the producer network thread because
+   * the recoverer blocks on its own send
+   *
+   * @throws RuntimeException when the record cannot be dead lettered either, failing its
+   *                          completion so it is not acknowledged
+   */
+  private void recover(ConsumerRecord<String, OrderCreated> record, Throwable failure) {
+    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                      ? failure.getCause() : failure;
+    log.error("Failed to send dispatch events: partition={}, offset={}, key={}, payload={}",
+              record.partition(), record.offset(), record.key(), record.value(), cause);
+    try {
+      deadLetterPublishingRecoverer.accept(record, new NotRetryableException(
+          cause instanceof Exception exception ? exception : new RuntimeException(cause)));
+    } catch (RuntimeException e) {
+      log.error("Failed to dead letter record: partition={}, offset={}, key={}, payload={}",
+                record.partition(), record.offset(), record.key(), record.value(), e);
+      throw e;
+    }
+  }
+
+  /**
+   * Record of a partition awaiting its acks, completed once it and every earlier record of the
+   * partition is acknowledged
+   */
+  private record InFlight(long offset, CompletableFuture<Void> completion) {
+  }
+}
@@ -0,0 +1,43 @@
+package glenncai.kafka.demo.handler;
+
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.service.DispatchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Order created batch handler for Kafka consumer
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "batch")
+public class OrderCreatedBatchHandler {
+
+  private final DispatchService dispatchService;
+
+  @KafkaListener(
+      id = "orderConsumerClient",
+      topics = "order.created",
+      groupId = "dispatch.order.created.consumer",
+      containerFactory = "batchKafkaListenerContainerFactory"
+  )
+  public void listen(List<ConsumerRecord<String, OrderCreated>> records) {
+    log.info("Received batch: size={}", records.size());
+    try {
+      dispatchService.processBatch(records);
+    } catch (BatchListenerFailedException e) {
+      throw DispatchService.batchFailure(e);
+    }
+  }
+}
@@ -3,9 +3,12 @@ package glenncai.kafka.demo.handler;
 import glenncai.kafka.demo.exception.NotRetryableException;
 import glenncai.kafka.demo.exception.RetryableException;
 import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import glenncai.kafka.demo.service.DispatchLogSampler;
 import glenncai.kafka.demo.service.DispatchService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
@@ -21,10 +24,13 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "record", matchIfMissing = true)
 public class OrderCreatedHandler {
 
   private final DispatchService dispatchService;
 
+  private final DispatchLogSampler dispatchLogSampler;
+
   @KafkaListener(
       id = "orderConsumerClient",
       topics = "order.created",
@@ -33,15 +39,20 @@ public class OrderCreatedHandler {
   )
   public void listen(@Header(KafkaHeaders.RECEIVED_PARTITION) Integer partition,
                      @Header(KafkaHeaders.RECEIVED_KEY) String key,
+                     @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp,
                      @Payload OrderCreated payload) {
-    log.info("Received message: partition={}, key={}, payload={}", partition, key, payload);
+    if (dispatchLogSampler.sample()) {
+      log.info("Received message: partition={}, key={}, payload={}", partition, key, payload);
+    }
     try {
-      dispatchService.process(key, payload);
+      dispatchService.process(key, payload, DispatchTrace.received(partition, timestamp));
     } catch (RetryableException e) {
-      log.warn("Retryable exception: " + e.getMessage());
+      log.warn("Retryable exception: partition={}, key={}, payload={}, {}", partition, key,
+               payload, e.getMessage());
       throw e;
     } catch (Exception e) {
-      log.error("NotRetryable exception: " + e.getMessage());
+      log.error("NotRetryable exception: partition={}, key={}, payload={}, {}", partition, key,
+                payload, e.getMessage());
       throw new NotRetryableException(e);
     }
   }
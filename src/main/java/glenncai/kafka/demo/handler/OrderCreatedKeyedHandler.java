@@ -0,0 +1,77 @@
+package glenncai.kafka.demo.handler;
+
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.service.KeyOrderedDispatcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order created handler that hands records to the key ordered workers
+ * <p>
+ * The listener only queues records and commits the watermarks reached so far, so offsets are
+ * committed on the poll after their records complete, and on revocation. While no records
+ * arrive, the container publishes an idle event every dispatch.keyed.commit-interval, on which
+ * the watermarks reached since the last poll are committed.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "keyed")
+public class OrderCreatedKeyedHandler {
+
+  private final KeyOrderedDispatcher keyOrderedDispatcher;
+
+  @KafkaListener(
+      id = "orderConsumerClient",
+      topics = "order.created",
+      groupId = "dispatch.order.created.consumer",
+      containerFactory = "keyedKafkaListenerContainerFactory"
+  )
+  public void listen(List<ConsumerRecord<String, OrderCreated>> records, Consumer<?, ?> consumer)
+      throws InterruptedException {
+    log.info("Received batch: size={}", records.size());
+    for (ConsumerRecord<String, OrderCreated> record : records) {
+      keyOrderedDispatcher.submit(record);
+    }
+    commitWatermarks(consumer);
+  }
+
+  /**
+   * Commit the watermarks of records completed after the last poll, on the consumer thread
+   */
+  @EventListener(condition = "event.listenerId.startsWith('orderConsumerClient-')")
+  public void onIdle(ListenerContainerIdleEvent event) {
+    commitWatermarks(event.getConsumer());
+  }
+
+  /**
+   * Commit the watermarks of the partitions assigned to the consumer, other consumers of the
+   * container committing their own
+   */
+  private void commitWatermarks(Consumer<?, ?> consumer) {
+    Map<TopicPartition, OffsetAndMetadata> offsets =
+        keyOrderedDispatcher.committableOffsets(consumer.assignment());
+    if (!offsets.isEmpty()) {
+      consumer.commitAsync(offsets, (committed, e) -> {
+        if (e != null) {
+          log.warn("Failed to commit watermarks: {}", committed, e);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package glenncai.kafka.demo.handler;
+
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Order created handler that processes each poll batch in parallel by key
+ * <p>
+ * Records of a batch are spread over the dispatch executor with ordering kept per key, so a
+ * small number of partitions can still keep many blocking stock lookups in flight.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "parallel")
+public class OrderCreatedParallelHandler {
+
+  private final DispatchService dispatchService;
+
+  private final Executor dispatchExecutor;
+
+  public OrderCreatedParallelHandler(DispatchService dispatchService,
+                                     @Qualifier("dispatchExecutor") Executor dispatchExecutor) {
+    this.dispatchService = dispatchService;
+    this.dispatchExecutor = dispatchExecutor;
+  }
+
+  @KafkaListener(
+      id = "orderConsumerClient",
+      topics = "order.created",
+      groupId = "dispatch.order.created.consumer",
+      containerFactory = "batchKafkaListenerContainerFactory"
+  )
+  public void listen(List<ConsumerRecord<String, OrderCreated>> records) {
+    log.info("Received batch: size={}", records.size());
+    try {
+      dispatchService.processParallel(records, dispatchExecutor);
+    } catch (BatchListenerFailedException e) {
+      throw DispatchService.batchFailure(e);
+    }
+  }
+}
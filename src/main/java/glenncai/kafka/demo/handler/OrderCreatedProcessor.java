@@ -0,0 +1,260 @@
+package glenncai.kafka.demo.handler;
+
+import static glenncai.kafka.demo.client.StockServiceCircuitBreaker.OPEN_RETRY_INTERVAL;
+import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.DispatchMetrics.StockOutcome;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import glenncai.kafka.demo.service.DispatchLogSampler;
+import glenncai.kafka.demo.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.processor.api.RecordMetadata;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order created processor of the streams engine, one instance per stream task
+ * <p>
+ * Stock is read from the global stock table, falling back to the stock service for items the
+ * table does not hold. A stock lookup failure is retried in place, and an order that keeps
+ * failing is forwarded to the dead letter topic with the headers the DeadLetterPublishingRecoverer
+ * adds. Everything forwarded is written in the task's transaction together with its offsets, so a
+ * failure after the first forward never leaves a partial dispatch visible. With a dispatched store
+ * the order ids of the task are kept for the dedup TTL, and orders sent again are skipped.
+ * <p>
+ * An open circuit breaker is waited out for at most maxCircuitOpenWait, which must stay below the
+ * poll interval and the transaction timeout. Past it the {@link CircuitBreakerOpenException} fails
+ * the stream thread, so the transaction is aborted and the replaced thread retries the task from
+ * its last commit.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+public class OrderCreatedProcessor implements Processor<String, Object, String, Object> {
+
+  private final DispatchService dispatchService;
+
+  private final StockServiceClient stockServiceClient;
+
+  private final DispatchLogSampler dispatchLogSampler;
+
+  private final DispatchMetrics dispatchMetrics;
+
+  private final BackOff backOff;
+
+  private final String stockStoreName;
+
+  private final String dispatchedStoreName;
+
+  private final Duration dispatchedTtl;
+
+  private final Duration maxCircuitOpenWait;
+
+  private ProcessorContext<String, Object> context;
+
+  private KeyValueStore<String, ValueAndTimestamp<String>> stockStore;
+
+  private KeyValueStore<String, Long> dispatchedStore;
+
+  /**
+   * @param stockStoreName      global store of the stock availability table
+   * @param dispatchedStoreName store of the dispatched order ids, null to dispatch every order
+   * @param dispatchedTtl       how long order ids are kept in the dispatched store
+   * @param maxCircuitOpenWait  how long a record waits for an open circuit breaker to close
+   */
+  public OrderCreatedProcessor(DispatchService dispatchService,
+                               StockServiceClient stockServiceClient,
+                               DispatchLogSampler dispatchLogSampler,
+                               DispatchMetrics dispatchMetrics, BackOff backOff,
+                               String stockStoreName, String dispatchedStoreName,
+                               Duration dispatchedTtl, Duration maxCircuitOpenWait) {
+    this.dispatchService = dispatchService;
+    this.stockServiceClient = stockServiceClient;
+    this.dispatchLogSampler = dispatchLogSampler;
+    this.dispatchMetrics = dispatchMetrics;
+    this.backOff = backOff;
+    this.stockStoreName = stockStoreName;
+    this.dispatchedStoreName = dispatchedStoreName;
+    this.dispatchedTtl = dispatchedTtl;
+    this.maxCircuitOpenWait = maxCircuitOpenWait;
+  }
+
+  @Override
+  public void init(ProcessorContext<String, Object> context) {
+    this.context = context;
+    this.stockStore = context.getStateStore(stockStoreName);
+    if (dispatchedStoreName != null) {
+      this.dispatchedStore = context.getStateStore(dispatchedStoreName);
+      // Expire in slices of a tenth of the TTL, so no order id outlives it by more than that
+      context.schedule(dispatchedTtl.dividedBy(10), PunctuationType.WALL_CLOCK_TIME,
+                       this::expireDispatched);
+    }
+  }
+
+  @Override
+  public void process(Record<String, Object> record) {
+    RecordMetadata metadata = context.recordMetadata().orElseThrow();
+    if (!(record.value() instanceof OrderCreated orderCreated)) {
+      deadLetter(record, metadata, new NotRetryableException(
+          "Unexpected payload at offset " + metadata.offset()));
+      return;
+    }
+    if (dispatchedStore != null && dispatchedStore.get(orderId(orderCreated)) != null) {
+      dispatchMetrics.recordDuplicate();
+      log.info("Skipping already dispatched order: key: {}, orderId: {}", record.key(),
+               orderCreated.getOrderId());
+      return;
+    }
+
+    DispatchTrace trace = DispatchTrace.received(metadata.partition(), record.timestamp());
+    String stockAvailable;
+    try {
+      long lookupStart = System.nanoTime();
+      stockAvailable = checkAvailability(metadata, orderCreated);
+      trace = trace.withStockLookup(System.nanoTime() - lookupStart);
+      dispatchMetrics.recordLookupStages(trace, DispatchService.APPLICATION_ID);
+    } catch (InterruptException e) {
+      throw e;
+    } catch (CircuitBreakerOpenException e) {
+      log.warn("Circuit breaker still open, retrying the task: partition={}, offset={}",
+               metadata.partition(), metadata.offset());
+      throw e;
+    } catch (NotRetryableException e) {
+      deadLetter(record, metadata, e);
+      return;
+    } catch (RuntimeException e) {
+      deadLetter(record, metadata, new NotRetryableException(e));
+      return;
+    }
+
+    if (Boolean.parseBoolean(stockAvailable)) {
+      // Fresh headers, so the type headers of the order created event are not carried over. The
+      // sends are acked with the task's commit, so the send stages are not recorded per order.
+      long sentTimestamp = System.currentTimeMillis();
+      context.forward(record.withValue((Object) dispatchService.dispatchPreparing(orderCreated))
+                            .withHeaders(trace.headers(DispatchService.APPLICATION_ID,
+                                                       sentTimestamp)));
+      OrderDispatched orderDispatched = dispatchService.orderDispatched(orderCreated);
+      context.forward(record.withValue((Object) orderDispatched)
+                            .withHeaders(trace.headers(DispatchService.APPLICATION_ID,
+                                                       sentTimestamp)));
+      if (dispatchedStore != null) {
+        dispatchedStore.put(orderId(orderCreated), context.currentSystemTimeMs());
+      }
+      dispatchLogSampler.dispatched();
+      if (!dispatchLogSampler.isSampled()) {
+        log.info("Sent message: key: {}, orderId: {}, processById: {}, notes: {}", record.key(),
+                 orderDispatched.getOrderId(), orderDispatched.getProcessById(),
+                 orderDispatched.getNotes());
+      }
+    } else {
+      dispatchLogSampler.unavailable();
+      if (!dispatchLogSampler.isSampled()) {
+        log.info("Stock not available for item: {}", orderCreated.getItem());
+      }
+    }
+    dispatchMetrics.recordListenerLatency(metadata.topic(), record.timestamp());
+  }
+
+  /**
+   * Stock availability of the item, from the global table when it holds the item, otherwise
+   * from the stock service retried until the back off is used up
+   *
+   * @throws RetryableException          when the retries are used up
+   * @throws CircuitBreakerOpenException when the breaker stays open for maxCircuitOpenWait
+   */
+  private String checkAvailability(RecordMetadata metadata, OrderCreated orderCreated) {
+    long start = System.nanoTime();
+    ValueAndTimestamp<String> stock = stockStore.get(orderCreated.getItem());
+    if (stock != null && ("true".equals(stock.value()) || "false".equals(stock.value()))) {
+      dispatchMetrics.recordStockCheck("true".equals(stock.value()) ? StockOutcome.AVAILABLE
+                                                                    : StockOutcome.UNAVAILABLE,
+                                       System.nanoTime() - start);
+      return stock.value();
+    }
+
+    BackOffExecution backOffExecution = backOff.start();
+    long circuitOpenDeadline = System.nanoTime() + maxCircuitOpenWait.toNanos();
+    while (true) {
+      try {
+        return stockServiceClient.checkAvailability(orderCreated.getItem());
+      } catch (RetryableException e) {
+        // Waiting out an open circuit breaker does not use up the record's retries
+        long interval;
+        if (e instanceof CircuitBreakerOpenException) {
+          long remaining = circuitOpenDeadline - System.nanoTime();
+          if (remaining <= 0) {
+            throw e;
+          }
+          interval = Math.min(OPEN_RETRY_INTERVAL.toMillis(),
+                              TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+        } else {
+          interval = backOffExecution.nextBackOff();
+        }
+        if (interval == BackOffExecution.STOP) {
+          throw e;
+        }
+        log.warn("Retryable exception: partition={}, offset={}, {}", metadata.partition(),
+                 metadata.offset(), e.getMessage());
+        sleep(interval);
+      }
+    }
+  }
+
+  /**
+   * Forward the record to the dead letter topic, in the same transaction as the offsets
+   */
+  private void deadLetter(Record<String, Object> record, RecordMetadata metadata,
+                          Exception exception) {
+    log.error("Dead lettering record: partition={}, offset={}, key={}, payload={}",
+              metadata.partition(), metadata.offset(), record.key(), record.value(), exception);
+    Headers headers = DeadLetterHeaders.of(record.headers(), metadata.topic(),
+                                           metadata.partition(), metadata.offset(), exception);
+    dispatchMetrics.recordDeadLetter(metadata.topic(), exception);
+    context.forward(record.withHeaders(headers));
+  }
+
+  private void expireDispatched(long now) {
+    long expiredBefore = now - dispatchedTtl.toMillis();
+    try (KeyValueIterator<String, Long> iterator = dispatchedStore.all()) {
+      while (iterator.hasNext()) {
+        KeyValue<String, Long> entry = iterator.next();
+        if (entry.value < expiredBefore) {
+          dispatchedStore.delete(entry.key);
+        }
+      }
+    }
+  }
+
+  private static String orderId(OrderCreated orderCreated) {
+    return String.valueOf(orderCreated.getOrderId());
+  }
+
+  private static void sleep(long interval) {
+    try {
+      Thread.sleep(interval);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptException(e);
+    }
+  }
+}
@@ -0,0 +1,367 @@
+package glenncai.kafka.demo.handler;
+
+import static glenncai.kafka.demo.client.StockServiceCircuitBreaker.OPEN_RETRY_INTERVAL;
+import glenncai.kafka.demo.client.ReactiveStockServiceClient;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import glenncai.kafka.demo.metrics.SendLatencyInterceptor;
+import glenncai.kafka.demo.service.DispatchDedupStore;
+import glenncai.kafka.demo.service.DispatchLogSampler;
+import glenncai.kafka.demo.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.GroupedFlux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverPartition;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.SenderRecord;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Order created handler of the reactive engine
+ * <p>
+ * Records are received from a KafkaReceiver and grouped by partition. Within a partition up to
+ * lookupConcurrency stock lookups are in flight on the event loops, and their outcomes are
+ * sent through a KafkaSender in offset order. A record is acknowledged once its sends are
+ * acked, and acknowledged offsets are committed every commit interval, so a restart resumes
+ * after the last record whose events reached the broker. A lookup that keeps failing is sent to
+ * the dead letter topic instead of the dispatch events. A failed send restarts the receiver
+ * from the committed offsets.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "reactive")
+public class OrderCreatedReactiveHandler implements SmartLifecycle, DisposableBean {
+
+  private static final String ORDER_CREATED_TOPIC = "order.created";
+
+  private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+
+  private static final String DISPATCH_TRACKING_TOPIC = "dispatch.tracking";
+
+  private static final String GROUP_ID = "dispatch.order.created.consumer";
+
+  private static final Duration RESTART_BACKOFF = Duration.ofSeconds(1);
+
+  private static final Duration MAX_RESTART_BACKOFF = Duration.ofSeconds(30);
+
+  private final ReactiveStockServiceClient stockServiceClient;
+
+  private final DispatchService dispatchService;
+
+  private final DispatchDedupStore dispatchDedupStore;
+
+  private final DispatchLogSampler dispatchLogSampler;
+
+  private final DispatchMetrics dispatchMetrics;
+
+  private final ReceiverOptions<String, Object> receiverOptions;
+
+  private final KafkaSender<String, Object> sender;
+
+  private final int lookupConcurrency;
+
+  private final int maxInFlight;
+
+  private final Duration retryInterval;
+
+  private final long maxRetries;
+
+  private final Set<TopicPartition> assignedPartitions = ConcurrentHashMap.newKeySet();
+
+  private volatile Disposable subscription;
+
+  public OrderCreatedReactiveHandler(ConsumerFactory<String, Object> consumerFactory,
+                                     ProducerFactory<String, Object> producerFactory,
+                                     ReactiveStockServiceClient stockServiceClient,
+                                     DispatchService dispatchService,
+                                     DispatchDedupStore dispatchDedupStore,
+                                     DispatchLogSampler dispatchLogSampler,
+                                     DispatchMetrics dispatchMetrics,
+                                     @Value("${dispatch.reactive.lookup-concurrency:256}")
+                                     int lookupConcurrency,
+                                     @Value("${dispatch.reactive.max-in-flight:256}")
+                                     int maxInFlight,
+                                     @Value("${dispatch.reactive.commit-interval:1s}")
+                                     Duration commitInterval,
+                                     @Value("${dispatch.reactive.retry-interval:100ms}")
+                                     Duration retryInterval,
+                                     @Value("${dispatch.reactive.max-retries:3}")
+                                     long maxRetries) {
+    this.stockServiceClient = stockServiceClient;
+    this.dispatchService = dispatchService;
+    this.dispatchDedupStore = dispatchDedupStore;
+    this.dispatchLogSampler = dispatchLogSampler;
+    this.dispatchMetrics = dispatchMetrics;
+    this.lookupConcurrency = lookupConcurrency;
+    this.maxInFlight = maxInFlight;
+    this.retryInterval = retryInterval;
+    this.maxRetries = maxRetries;
+
+    // Same deserializers, fetch profile and isolation level as the listener engines
+    Map<String, Object> consumerConfig =
+        new HashMap<>(consumerFactory.getConfigurationProperties());
+    consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, GROUP_ID);
+    this.receiverOptions = ReceiverOptions.<String, Object>create(consumerConfig)
+                                          .subscription(List.of(ORDER_CREATED_TOPIC))
+                                          .commitInterval(commitInterval)
+                                          .addAssignListener(this::assigned)
+                                          .addRevokeListener(this::revoked);
+
+    // Same serializers and producer profile as the template, timed like the streams producers
+    Map<String, Object> producerConfig =
+        new HashMap<>(producerFactory.getConfigurationProperties());
+    producerConfig.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG,
+                       SendLatencyInterceptor.class.getName());
+    producerConfig.put(SendLatencyInterceptor.DISPATCH_METRICS_CONFIG, dispatchMetrics);
+    this.sender = KafkaSender.create(SenderOptions.<String, Object>create(producerConfig)
+                                                  .maxInFlight(maxInFlight));
+  }
+
+  @Override
+  public void start() {
+    subscription = Flux.defer(() -> KafkaReceiver.create(receiverOptions).receive())
+                       // Partitions are processed independently, so the groups are not bounded
+                       .groupBy(record -> record.receiverOffset().topicPartition())
+                       .flatMap(this::processPartition, Integer.MAX_VALUE)
+                       .retryWhen(Retry.backoff(Long.MAX_VALUE, RESTART_BACKOFF)
+                                       .maxBackoff(MAX_RESTART_BACKOFF)
+                                       .doBeforeRetry(signal -> log.error(
+                                           "Restarting receiver after failure",
+                                           signal.failure())))
+                       .subscribe();
+  }
+
+  @Override
+  public void stop() {
+    Disposable current = subscription;
+    if (current != null) {
+      current.dispose();
+      subscription = null;
+    }
+    assignedPartitions.clear();
+  }
+
+  @Override
+  public boolean isRunning() {
+    Disposable current = subscription;
+    return current != null && !current.isDisposed();
+  }
+
+  /**
+   * Partitions currently assigned to the receiver
+   */
+  public Set<TopicPartition> assignedPartitions() {
+    return Set.copyOf(assignedPartitions);
+  }
+
+  /**
+   * Close the sender once the receiver is stopped, so its pending sends are flushed
+   */
+  @Override
+  public void destroy() {
+    sender.close();
+  }
+
+  private Flux<ReceiverRecord<String, Object>> processPartition(
+      GroupedFlux<TopicPartition, ReceiverRecord<String, Object>> partition) {
+    return partition.flatMapSequential(this::outboundRecords, lookupConcurrency)
+                    // Subscribed in offset order, so the sends of a partition keep their order
+                    .flatMapSequential(this::send, maxInFlight)
+                    .doOnNext(record -> {
+                      record.receiverOffset().acknowledge();
+                      dispatchMetrics.recordListenerLatency(record.topic(), record.timestamp());
+                    })
+                    // Outcomes still queued when a failure or restart cancels the partition are
+                    // never sent, so their orders are redelivered rather than held in flight
+                    .doOnDiscard(Outcome.class, outcome -> outcome.complete(
+                        new CancellationException("Dispatch cancelled before sending")));
+  }
+
+  /**
+   * Records to send for the order created record: both dispatch events when the item is
+   * available, none when it is not or the order was already dispatched, or the record itself to
+   * the dead letter topic when the lookup failed
+   */
+  private Mono<Outcome> outboundRecords(ReceiverRecord<String, Object> record) {
+    if (dispatchLogSampler.sample()) {
+      log.info("Received message: partition={}, key={}, payload={}", record.partition(),
+               record.key(), record.value());
+    }
+    if (!(record.value() instanceof OrderCreated orderCreated)) {
+      return Mono.just(deadLetter(record, new NotRetryableException(
+          "Unable to deserialize record at offset " + record.offset())));
+    }
+    if (dispatchDedupStore.alreadyDispatched(orderCreated.getOrderId())) {
+      log.info("Skipping already dispatched order: key: {}, orderId: {}", record.key(),
+               orderCreated.getOrderId());
+      return Mono.just(new Outcome(record, List.of(), null));
+    }
+    DispatchTrace trace = DispatchTrace.of(record);
+    long lookupStart = System.nanoTime();
+    return stockServiceClient.checkAvailability(orderCreated.getItem())
+                             .defaultIfEmpty("false")
+                             .retryWhen(circuitOpenRetry(record))
+                             .retryWhen(lookupRetry(record))
+                             .map(available -> {
+                               // The lookup includes its retries, as redeliveries do elsewhere
+                               DispatchTrace checked =
+                                   trace.withStockLookup(System.nanoTime() - lookupStart);
+                               dispatchMetrics.recordLookupStages(checked,
+                                                                  DispatchService.APPLICATION_ID);
+                               return Boolean.parseBoolean(available)
+                                      ? dispatch(record, orderCreated, checked)
+                                      : unavailable(record, orderCreated);
+                             })
+                             .onErrorResume(Exception.class, e -> Mono.just(deadLetter(
+                                 record, e instanceof NotRetryableException notRetryable
+                                         ? notRetryable : new NotRetryableException(e))));
+  }
+
+  private Outcome dispatch(ReceiverRecord<String, Object> record, OrderCreated orderCreated,
+                           DispatchTrace trace) {
+    dispatchLogSampler.dispatched();
+    long sentTimestamp = System.currentTimeMillis();
+    CompletableFuture<Void> sent = new CompletableFuture<>();
+    dispatchDedupStore.markDispatched(orderCreated.getOrderId(), sent);
+    sent.thenRun(() -> dispatchMetrics.recordSendStages(trace, DispatchService.APPLICATION_ID,
+                                                        sentTimestamp));
+    OrderDispatched orderDispatched = dispatchService.orderDispatched(orderCreated);
+    if (!dispatchLogSampler.isSampled()) {
+      log.info("Sending message: key: {}, orderId: {}, processById: {}, notes: {}", record.key(),
+               orderDispatched.getOrderId(), orderDispatched.getProcessById(),
+               orderDispatched.getNotes());
+    }
+    return new Outcome(record, List.of(
+        new ProducerRecord<>(DISPATCH_TRACKING_TOPIC, null, record.key(),
+                             dispatchService.dispatchPreparing(orderCreated),
+                             trace.headers(DispatchService.APPLICATION_ID, sentTimestamp)),
+        new ProducerRecord<>(ORDER_DISPATCHED_TOPIC, null, record.key(), orderDispatched,
+                             trace.headers(DispatchService.APPLICATION_ID, sentTimestamp))),
+                       sent);
+  }
+
+  private Outcome unavailable(ReceiverRecord<String, Object> record, OrderCreated orderCreated) {
+    dispatchLogSampler.unavailable();
+    if (!dispatchLogSampler.isSampled()) {
+      log.info("Stock not available for item: {}", orderCreated.getItem());
+    }
+    return new Outcome(record, List.of(), null);
+  }
+
+  private Outcome deadLetter(ReceiverRecord<String, Object> record, Exception exception) {
+    log.error("Dead lettering record: partition={}, offset={}, key={}, payload={}",
+              record.partition(), record.offset(), record.key(), record.value(), exception);
+    CompletableFuture<Void> sent = new CompletableFuture<>();
+    sent.thenRun(() -> dispatchMetrics.recordDeadLetter(record.topic(), exception));
+    return new Outcome(record, List.of(new ProducerRecord<>(
+        record.topic() + ".DLT", null, record.key(), record.value(),
+        DeadLetterHeaders.of(record.headers(), record.topic(), record.partition(),
+                             record.offset(), exception))), sent);
+  }
+
+  /**
+   * Send the outbound records of a record, completing with it once they are all acked
+   */
+  private Mono<ReceiverRecord<String, Object>> send(Outcome outcome) {
+    if (outcome.records().isEmpty()) {
+      return Mono.just(outcome.record());
+    }
+    return sender.send(Flux.fromIterable(outcome.records())
+                           .map(record -> SenderRecord.create(record, (Void) null)))
+                 .doOnNext(result -> {
+                   if (result.exception() != null) {
+                     throw new RetryableException(result.exception());
+                   }
+                 })
+                 .then(Mono.just(outcome.record()))
+                 .doOnSuccess(record -> outcome.complete(null))
+                 .doOnError(outcome::complete)
+                 .doOnCancel(() -> outcome.complete(
+                     new CancellationException("Dispatch cancelled before its sends were acked")));
+  }
+
+  /**
+   * Waiting out an open circuit breaker does not use up the record's retries
+   */
+  private Retry circuitOpenRetry(ReceiverRecord<String, Object> record) {
+    return Retry.fixedDelay(Long.MAX_VALUE, OPEN_RETRY_INTERVAL)
+                .filter(CircuitBreakerOpenException.class::isInstance)
+                .doBeforeRetry(signal -> logRetry(record, signal.failure()));
+  }
+
+  private Retry lookupRetry(ReceiverRecord<String, Object> record) {
+    return Retry.fixedDelay(maxRetries, retryInterval)
+                .filter(RetryableException.class::isInstance)
+                .doBeforeRetry(signal -> logRetry(record, signal.failure()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+  }
+
+  private static void logRetry(ReceiverRecord<String, Object> record, Throwable failure) {
+    log.warn("Retryable exception: partition={}, offset={}, {}", record.partition(),
+             record.offset(), failure.getMessage());
+  }
+
+  private void assigned(Collection<ReceiverPartition> partitions) {
+    partitions.forEach(partition -> assignedPartitions.add(partition.topicPartition()));
+    log.info("Partitions assigned: {}", partitions);
+  }
+
+  private void revoked(Collection<ReceiverPartition> partitions) {
+    partitions.forEach(partition -> assignedPartitions.remove(partition.topicPartition()));
+    log.info("Partitions revoked: {}", partitions);
+  }
+
+  /**
+   * Records to send for a received record, and the completion of its sends if anything awaits it
+   */
+  private record Outcome(ReceiverRecord<String, Object> record,
+                         List<ProducerRecord<String, Object>> records,
+                         CompletableFuture<Void> sent) {
+
+    void complete(Throwable exception) {
+      if (sent == null) {
+        return;
+      }
+      if (exception == null) {
+        sent.complete(null);
+      } else {
+        sent.completeExceptionally(exception);
+      }
+    }
+  }
+}
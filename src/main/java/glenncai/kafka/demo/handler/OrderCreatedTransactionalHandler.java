@@ -0,0 +1,158 @@
+package glenncai.kafka.demo.handler;
+
+import static glenncai.kafka.demo.client.StockServiceCircuitBreaker.OPEN_RETRY_INTERVAL;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import glenncai.kafka.demo.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Order created handler dispatching each poll batch in one Kafka transaction
+ * <p>
+ * The sends of every record are pipelined inside the transaction the container opened, and the
+ * container commits them together with the batch offsets. A stock lookup failure is retried in
+ * place, since the record has sent nothing yet, and a record that keeps failing is dead lettered
+ * inside the same transaction. A failed send aborts the transaction, so the whole batch is rolled
+ * back and redelivered without any of its events becoming visible to read_committed consumers.
+ * <p>
+ * The container does not recover records of a rolled back batch, so the handler counts the
+ * failed sends of each record itself. Once a record has failed maxSendAttempts times, its next
+ * delivery dead letters it instead, and its offset is committed with the rest of the batch.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "transactional")
+public class OrderCreatedTransactionalHandler {
+
+  private final DispatchService dispatchService;
+
+  private final ConsumerRecordRecoverer deadLetterPublishingRecoverer;
+
+  private final BackOff backOff;
+
+  private final int maxSendAttempts;
+
+  /**
+   * Failed sends of each record since it last went through, by topic, partition and offset
+   */
+  private final Map<String, Integer> sendFailures = new ConcurrentHashMap<>();
+
+  public OrderCreatedTransactionalHandler(DispatchService dispatchService,
+                                          ConsumerRecordRecoverer deadLetterPublishingRecoverer,
+                                          @Value("${dispatch.transactional.retry-interval:100ms}")
+                                          Duration retryInterval,
+                                          @Value("${dispatch.transactional.max-retries:3}")
+                                          long maxRetries,
+                                          @Value("${dispatch.transactional.max-send-attempts:3}")
+                                          int maxSendAttempts) {
+    this.dispatchService = dispatchService;
+    this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+    this.backOff = new FixedBackOff(retryInterval.toMillis(), maxRetries);
+    this.maxSendAttempts = maxSendAttempts;
+  }
+
+  @KafkaListener(
+      id = "orderConsumerClient",
+      topics = "order.created",
+      groupId = "dispatch.order.created.consumer",
+      containerFactory = "transactionalKafkaListenerContainerFactory"
+  )
+  public void listen(List<ConsumerRecord<String, OrderCreated>> records)
+      throws InterruptedException {
+    log.info("Received batch: size={}", records.size());
+    CompletableFuture<?>[] sends = new CompletableFuture<?>[records.size()];
+    for (int index = 0; index < records.size(); index++) {
+      ConsumerRecord<String, OrderCreated> record = records.get(index);
+      Integer failures = sendFailures.get(attemptKey(record));
+      if (failures != null && failures >= maxSendAttempts) {
+        sendFailures.remove(attemptKey(record));
+        recover(record, new NotRetryableException(
+            "Send failed " + failures + " times for record at offset " + record.offset()));
+        sends[index] = CompletableFuture.completedFuture(null);
+      } else {
+        sends[index] = dispatch(record);
+      }
+    }
+    try {
+      // A failed send throws here and rolls the whole batch back
+      CompletableFuture.allOf(sends).join();
+    } catch (CompletionException e) {
+      for (int index = 0; index < records.size(); index++) {
+        if (sends[index].isCompletedExceptionally()) {
+          sendFailures.merge(attemptKey(records.get(index)), 1, Integer::sum);
+        }
+      }
+      throw e;
+    }
+    if (!sendFailures.isEmpty()) {
+      records.forEach(record -> sendFailures.remove(attemptKey(record)));
+    }
+  }
+
+  private static String attemptKey(ConsumerRecord<?, ?> record) {
+    return record.topic() + "-" + record.partition() + "@" + record.offset();
+  }
+
+  private CompletableFuture<Void> dispatch(ConsumerRecord<String, OrderCreated> record)
+      throws InterruptedException {
+    DispatchTrace trace = DispatchTrace.of(record);
+    BackOffExecution backOffExecution = backOff.start();
+    while (true) {
+      try {
+        if (record.value() == null) {
+          throw new NotRetryableException("Unable to deserialize record at offset "
+                                          + record.offset());
+        }
+        return dispatchService.processAsync(record.key(), record.value(), trace);
+      } catch (RetryableException e) {
+        // Waiting out an open circuit breaker does not use up the record's retries
+        long interval = e instanceof CircuitBreakerOpenException
+                        ? OPEN_RETRY_INTERVAL.toMillis() : backOffExecution.nextBackOff();
+        if (interval == BackOffExecution.STOP) {
+          recover(record, e);
+          return CompletableFuture.completedFuture(null);
+        }
+        log.warn("Retryable exception: partition={}, offset={}, {}", record.partition(),
+                 record.offset(), e.getMessage());
+        Thread.sleep(interval);
+      } catch (NotRetryableException e) {
+        recover(record, e);
+        return CompletableFuture.completedFuture(null);
+      } catch (RuntimeException e) {
+        recover(record, new NotRetryableException(e));
+        return CompletableFuture.completedFuture(null);
+      }
+    }
+  }
+
+  /**
+   * Dead letter the record, the publish joining the batch transaction
+   */
+  private void recover(ConsumerRecord<String, OrderCreated> record, Exception exception) {
+    log.error("Dead lettering record: partition={}, offset={}, key={}, payload={}",
+              record.partition(), record.offset(), record.key(), record.value(), exception);
+    deadLetterPublishingRecoverer.accept(record, exception);
+  }
+}
@@ -0,0 +1,436 @@
+package glenncai.kafka.demo.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.kafka.support.ProducerListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the dispatch pipeline, from the listener through the stock service to the sends
+ * <ul>
+ *   <li>dispatch.listener.latency: from the record timestamp until the listener returns and the
+ *   record is up for commit, per topic</li>
+ *   <li>dispatch.stock.check: stock availability checks, per outcome</li>
+ *   <li>dispatch.send.latency and dispatch.send.failures: template sends until acked, per
+ *   topic. The streams engine records its sends through the SendLatencyInterceptor.</li>
+ *   <li>dispatch.dead.letters: records published to a dead letter topic, counted once the
+ *   publish is acked, per topic and exception</li>
+ *   <li>dispatch.delivery.failures: failed deliveries seen by the error handler, per topic and
+ *   exception. Each is retried unless the record is dead lettered.</li>
+ *   <li>dispatch.duplicates: redelivered orders skipped as already dispatched</li>
+ *   <li>dispatch.stock.view.lag, staleness and items: records the local stock availability view
+ *   is behind its topic, seconds since it was last caught up and items it holds</li>
+ *   <li>dispatch.stage.latency: time an order spent in each stage of a DispatchTrace, per stage,
+ *   partition and instance. The instance tag is the APPLICATION_ID of the dispatching JVM, a new
+ *   series on every restart, unless instanceTag names it.</li>
+ *   <li>cache.gets, cache.puts, cache.evictions and cache.size of the stock availability cache,
+ *   tagged cache=stock.availability</li>
+ * </ul>
+ * Timers publish fixed bucket histograms bounded by MIN_EXPECTED and MAX_EXPECTED, which record
+ * without allocating and aggregate across instances, rather than client side percentiles. The
+ * meters of the hot paths are registered once per tag set and reused, so recording does not
+ * build tags either.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Component
+public class DispatchMetrics {
+
+  public static final String LISTENER_LATENCY = "dispatch.listener.latency";
+
+  public static final String STOCK_CHECK = "dispatch.stock.check";
+
+  public static final String SEND_LATENCY = "dispatch.send.latency";
+
+  public static final String SEND_FAILURES = "dispatch.send.failures";
+
+  public static final String DEAD_LETTERS = "dispatch.dead.letters";
+
+  public static final String DELIVERY_FAILURES = "dispatch.delivery.failures";
+
+  public static final String DUPLICATES = "dispatch.duplicates";
+
+  public static final String STOCK_VIEW_LAG = "dispatch.stock.view.lag";
+
+  public static final String STOCK_VIEW_STALENESS = "dispatch.stock.view.staleness";
+
+  public static final String STOCK_VIEW_ITEMS = "dispatch.stock.view.items";
+
+  public static final String STAGE_LATENCY = "dispatch.stage.latency";
+
+  public static final String OUTBOX_PENDING = "dispatch.outbox.pending";
+
+  public static final String OUTBOX_SIZE = "dispatch.outbox.size";
+
+  public static final String STOCK_CACHE = "stock.availability";
+
+  private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+
+  private static final Duration MAX_EXPECTED = Duration.ofSeconds(60);
+
+  public enum StockOutcome {
+    AVAILABLE, UNAVAILABLE, RETRYABLE, FATAL;
+
+    private final String tag = name().toLowerCase();
+  }
+
+  /**
+   * Stages of an order through an instance
+   * <ul>
+   *   <li>QUEUE: from the order created record timestamp until the listener took it</li>
+   *   <li>STOCK: checking stock for the order</li>
+   *   <li>SEND: from handing the outbound events to the producer until both are acked</li>
+   *   <li>TOTAL: from the order created record timestamp until both events are acked</li>
+   * </ul>
+   */
+  public enum Stage {
+    QUEUE, STOCK, SEND, TOTAL;
+
+    private final String tag = name().toLowerCase();
+  }
+
+  private record StageKey(Stage stage, int partition, UUID instance) {
+  }
+
+  private record FailureKey(String topic, String exception) {
+  }
+
+  private final MeterRegistry meterRegistry;
+
+  private final Timer[] stockCheckTimers = new Timer[StockOutcome.values().length];
+
+  private final Map<String, Timer> listenerLatencyTimers = new ConcurrentHashMap<>();
+
+  private final Map<String, Timer> sendLatencyTimers = new ConcurrentHashMap<>();
+
+  private final Map<StageKey, Timer> stageLatencyTimers = new ConcurrentHashMap<>();
+
+  private final Map<String, Counter> sendFailureCounters = new ConcurrentHashMap<>();
+
+  private final Map<FailureKey, Counter> deadLetterCounters = new ConcurrentHashMap<>();
+
+  private final Map<FailureKey, Counter> deliveryFailureCounters = new ConcurrentHashMap<>();
+
+  private final Function<String, Timer> listenerLatencyTimer;
+
+  private final Function<String, Timer> sendLatencyTimer;
+
+  private final Function<StageKey, Timer> stageLatencyTimer;
+
+  private final Function<String, Counter> sendFailureCounter;
+
+  private final Function<FailureKey, Counter> deadLetterCounter;
+
+  private final Function<FailureKey, Counter> deliveryFailureCounter;
+
+  private final Counter duplicates;
+
+  @Autowired
+  public DispatchMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                         @Value("${dispatch.metrics.instance-tag:}") String instanceTag) {
+    this(meterRegistry.getIfAvailable(CompositeMeterRegistry::new), instanceTag);
+  }
+
+  public DispatchMetrics(MeterRegistry meterRegistry) {
+    this(meterRegistry, "");
+  }
+
+  /**
+   * @param instanceTag instance tag of the stage meters, blank to tag them with the instance of
+   *                    each stage
+   */
+  public DispatchMetrics(MeterRegistry meterRegistry, String instanceTag) {
+    this.meterRegistry = meterRegistry;
+    for (StockOutcome outcome : StockOutcome.values()) {
+      stockCheckTimers[outcome.ordinal()] =
+          timer(STOCK_CHECK, "Stock availability checks").tag("outcome", outcome.tag)
+                                                         .register(meterRegistry);
+    }
+    this.listenerLatencyTimer =
+        topic -> timer(LISTENER_LATENCY, "Record timestamp to listener completion")
+            .tag("topic", topic).register(meterRegistry);
+    this.sendLatencyTimer =
+        topic -> timer(SEND_LATENCY, "Template send to broker ack").tag("topic", topic)
+                                                                  .register(meterRegistry);
+    this.stageLatencyTimer =
+        key -> timer(STAGE_LATENCY, "Time an order spent in a dispatch stage")
+            .tag("stage", key.stage().tag).tag("partition", String.valueOf(key.partition()))
+            .tag("instance", instanceTag.isBlank() ? key.instance().toString() : instanceTag.trim())
+            .register(meterRegistry);
+    this.sendFailureCounter =
+        topic -> Counter.builder(SEND_FAILURES).description("Template sends that failed")
+                        .tag("topic", topic).register(meterRegistry);
+    this.deadLetterCounter =
+        key -> Counter.builder(DEAD_LETTERS).description("Records published to a dead letter topic")
+                      .tag("topic", key.topic()).tag("exception", key.exception())
+                      .register(meterRegistry);
+    this.deliveryFailureCounter =
+        key -> Counter.builder(DELIVERY_FAILURES).description("Failed deliveries of records")
+                      .tag("topic", key.topic()).tag("exception", key.exception())
+                      .register(meterRegistry);
+    this.duplicates =
+        Counter.builder(DUPLICATES).description("Redelivered orders skipped as already dispatched")
+               .register(meterRegistry);
+  }
+
+  /**
+   * Metrics that record into a registry without children, so nothing is kept
+   */
+  public static DispatchMetrics disabled() {
+    return new DispatchMetrics(new CompositeMeterRegistry());
+  }
+
+  public void recordStockCheck(StockOutcome outcome, long latencyNanos) {
+    stockCheckTimers[outcome.ordinal()].record(latencyNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordDuplicate() {
+    duplicates.increment();
+  }
+
+  /**
+   * Register the gauges of the local stock availability view
+   *
+   * @param lag              records behind the topic, -1 until known
+   * @param stalenessSeconds seconds since the view was last caught up with the topic
+   * @param items            items held by the view
+   */
+  public void registerStockView(Supplier<Number> lag, Supplier<Number> stalenessSeconds,
+                                Supplier<Number> items) {
+    Gauge.builder(STOCK_VIEW_LAG, lag).description("Records the stock view is behind its topic")
+         .register(meterRegistry);
+    Gauge.builder(STOCK_VIEW_STALENESS, stalenessSeconds).baseUnit("seconds")
+         .description("Time since the stock view was last caught up").register(meterRegistry);
+    Gauge.builder(STOCK_VIEW_ITEMS, items).description("Items held by the stock view")
+         .register(meterRegistry);
+  }
+
+  /**
+   * Register the gauges of the dispatch outbox
+   *
+   * @param pending events staged and not yet relayed
+   * @param bytes   bytes of the outbox segments on disk
+   */
+  public void registerOutbox(Supplier<Number> pending, Supplier<Number> bytes) {
+    Gauge.builder(OUTBOX_PENDING, pending).description("Events staged in the outbox")
+         .register(meterRegistry);
+    Gauge.builder(OUTBOX_SIZE, bytes).baseUnit("bytes")
+         .description("Disk used by the outbox segments").register(meterRegistry);
+  }
+
+  /**
+   * Bind the hit, miss, eviction and size meters of the stock availability cache
+   */
+  public void registerStockCache(Cache<?, ?> cache) {
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, STOCK_CACHE);
+  }
+
+  /**
+   * Record how long the record has been around, from its timestamp until now
+   */
+  public void recordListenerLatency(ConsumerRecord<?, ?> record) {
+    recordListenerLatency(record.topic(), record.timestamp());
+  }
+
+  /**
+   * Record how long a record of the topic has been around, from its timestamp until now
+   */
+  public void recordListenerLatency(String topic, long timestamp) {
+    long latencyMillis = System.currentTimeMillis() - timestamp;
+    cached(listenerLatencyTimers, topic, listenerLatencyTimer)
+        .record(Math.max(latencyMillis, 0), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Record the ack latency of a send to the topic, from the create time stamped on the record
+   */
+  public void recordSend(String topic, long timestamp) {
+    cached(sendLatencyTimers, topic, sendLatencyTimer)
+        .record(Math.max(System.currentTimeMillis() - timestamp, 0), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Record the stages of the trace up to the stock check, once the order is checked
+   */
+  public void recordLookupStages(DispatchTrace trace, UUID instance) {
+    recordQueueStage(trace, instance);
+    recordStage(Stage.STOCK, trace.partition(), instance, trace.stockLookupNanos());
+  }
+
+  /**
+   * Record the queue stage of the trace alone, for an order whose stock was not looked up
+   */
+  public void recordQueueStage(DispatchTrace trace, UUID instance) {
+    recordStage(Stage.QUEUE, trace.partition(), instance,
+                TimeUnit.MILLISECONDS.toNanos(trace.consumedTimestamp() - trace.originTimestamp()));
+  }
+
+  /**
+   * Record the stages of the trace from the sends on, once the outbound events are acked
+   *
+   * @param sentTimestamp when the outbound events were handed to the producer
+   */
+  public void recordSendStages(DispatchTrace trace, UUID instance, long sentTimestamp) {
+    long now = System.currentTimeMillis();
+    recordStage(Stage.SEND, trace.partition(), instance,
+                TimeUnit.MILLISECONDS.toNanos(now - sentTimestamp));
+    recordStage(Stage.TOTAL, trace.partition(), instance,
+                TimeUnit.MILLISECONDS.toNanos(now - trace.originTimestamp()));
+  }
+
+  public void recordStage(Stage stage, int partition, UUID instance, long latencyNanos) {
+    cached(stageLatencyTimers, new StageKey(stage, partition, instance), stageLatencyTimer)
+        .record(Math.max(latencyNanos, 0), TimeUnit.NANOSECONDS);
+  }
+
+  public void recordSendFailure(String topic) {
+    cached(sendFailureCounters, topic, sendFailureCounter).increment();
+  }
+
+  /**
+   * Record a record of the topic published to its dead letter topic, once the publish succeeded
+   */
+  public void recordDeadLetter(String topic, Exception exception) {
+    cached(deadLetterCounters, new FailureKey(topic, exceptionTag(exception)), deadLetterCounter)
+        .increment();
+  }
+
+  /**
+   * Interceptor for record listener containers, recording the listener latency of each record
+   * the listener handled without throwing
+   */
+  public <K, V> RecordInterceptor<K, V> recordInterceptor() {
+    return new RecordInterceptor<>() {
+      @Override
+      public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record,
+                                            Consumer<K, V> consumer) {
+        return record;
+      }
+
+      @Override
+      public void success(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+        recordListenerLatency(record);
+      }
+    };
+  }
+
+  /**
+   * Interceptor for batch listener containers, recording the listener latency of each record of
+   * a batch the listener handled without throwing
+   */
+  public <K, V> BatchInterceptor<K, V> batchInterceptor() {
+    return new BatchInterceptor<>() {
+      @Override
+      public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records,
+                                             Consumer<K, V> consumer) {
+        return records;
+      }
+
+      @Override
+      public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        for (ConsumerRecord<K, V> record : records) {
+          recordListenerLatency(record);
+        }
+      }
+    };
+  }
+
+  /**
+   * Producer listener recording the ack latency of every send of the template, measured from
+   * the create time the producer stamps on the record
+   */
+  public <K, V> ProducerListener<K, V> producerListener() {
+    return new ProducerListener<>() {
+      @Override
+      public void onSuccess(ProducerRecord<K, V> record, RecordMetadata metadata) {
+        if (metadata.hasTimestamp()) {
+          recordSend(metadata.topic(), metadata.timestamp());
+        }
+      }
+
+      @Override
+      public void onError(ProducerRecord<K, V> record, RecordMetadata metadata,
+                          Exception exception) {
+        recordSendFailure(record.topic());
+      }
+    };
+  }
+
+  /**
+   * Error handler retry listener counting the failed deliveries of each record
+   */
+  public RetryListener retryListener() {
+    return (record, exception, deliveryAttempt) ->
+        cached(deliveryFailureCounters, new FailureKey(record.topic(), exceptionTag(exception)),
+               deliveryFailureCounter).increment();
+  }
+
+  /**
+   * Recoverer publishing records to the same partition of their topic suffixed with .DLT,
+   * counting each record once the dead letter topic acked it. A publish that fails throws and is
+   * not counted.
+   */
+  public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(
+      KafkaOperations<?, ?> kafkaOperations) {
+    return new DeadLetterPublishingRecoverer(kafkaOperations) {
+      @Override
+      public void accept(ConsumerRecord<?, ?> record, Consumer<?, ?> consumer,
+                         Exception exception) {
+        super.accept(record, consumer, exception);
+        recordDeadLetter(record.topic(), exception);
+      }
+    };
+  }
+
+  private static Timer.Builder timer(String name, String description) {
+    return Timer.builder(name).description(description).publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED).maximumExpectedValue(MAX_EXPECTED);
+  }
+
+  /**
+   * Meter of the key, looked up without building tags once registered
+   */
+  private static <K, M> M cached(Map<K, M> meters, K key, Function<K, M> register) {
+    M meter = meters.get(key);
+    return meter != null ? meter : meters.computeIfAbsent(key, register);
+  }
+
+  /**
+   * Simple name of the exception thrown by the listener, unwrapping the container exceptions
+   */
+  private static String exceptionTag(Exception exception) {
+    Throwable cause = exception;
+    while (cause instanceof KafkaException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause.getClass().getSimpleName();
+  }
+}
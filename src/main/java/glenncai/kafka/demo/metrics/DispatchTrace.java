@@ -0,0 +1,95 @@
+package glenncai.kafka.demo.metrics;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Timings of an order created record on its way through an instance, carried on the outbound
+ * events as headers
+ * <p>
+ * The origin is the timestamp of the order created record, so the time an order waited behind
+ * a slow one counts against it, however long the listener took to get to it. Timestamps are
+ * epoch millis and are encoded, like the stock lookup, as 8 byte big endian longs.
+ *
+ * @param partition         partition of the order created record, -1 when not known
+ * @param originTimestamp   timestamp of the order created record
+ * @param consumedTimestamp when the listener took the record
+ * @param stockLookupNanos  time spent checking stock for the order
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public record DispatchTrace(int partition, long originTimestamp, long consumedTimestamp,
+                            long stockLookupNanos) {
+
+  public static final String ORIGIN_TIMESTAMP = "dispatch_origin_timestamp";
+
+  public static final String CONSUMED_TIMESTAMP = "dispatch_consumed_timestamp";
+
+  public static final String STOCK_LOOKUP_NANOS = "dispatch_stock_lookup_nanos";
+
+  public static final String SENT_TIMESTAMP = "dispatch_sent_timestamp";
+
+  public static final String INSTANCE = "dispatch_instance";
+
+  /**
+   * Trace of a record taken by the listener now
+   */
+  public static DispatchTrace of(ConsumerRecord<?, ?> record) {
+    return received(record.partition(), record.timestamp());
+  }
+
+  /**
+   * Trace of a record of the partition and timestamp taken by the listener now
+   */
+  public static DispatchTrace received(int partition, long timestamp) {
+    return new DispatchTrace(partition, timestamp, System.currentTimeMillis(), 0L);
+  }
+
+  /**
+   * Trace of an order not read from a record, originating now
+   */
+  public static DispatchTrace untraced() {
+    return received(-1, System.currentTimeMillis());
+  }
+
+  public DispatchTrace withStockLookup(long stockLookupNanos) {
+    return new DispatchTrace(partition, originTimestamp, consumedTimestamp, stockLookupNanos);
+  }
+
+  /**
+   * Headers of an outbound event of the order
+   *
+   * @param instance      instance dispatching the order
+   * @param sentTimestamp when the event is handed to the producer
+   */
+  public Headers headers(UUID instance, long sentTimestamp) {
+    Headers headers = new RecordHeaders();
+    headers.add(ORIGIN_TIMESTAMP, encode(originTimestamp));
+    headers.add(CONSUMED_TIMESTAMP, encode(consumedTimestamp));
+    headers.add(STOCK_LOOKUP_NANOS, encode(stockLookupNanos));
+    headers.add(SENT_TIMESTAMP, encode(sentTimestamp));
+    headers.add(INSTANCE, instance.toString().getBytes(StandardCharsets.UTF_8));
+    return headers;
+  }
+
+  /**
+   * Long value of the last header of the name, -1 when absent or not a long
+   */
+  public static long longHeader(Headers headers, String name) {
+    Header header = headers.lastHeader(name);
+    if (header == null || header.value() == null || header.value().length != Long.BYTES) {
+      return -1L;
+    }
+    return ByteBuffer.wrap(header.value()).getLong();
+  }
+
+  private static byte[] encode(long value) {
+    return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+  }
+}
@@ -0,0 +1,52 @@
+package glenncai.kafka.demo.metrics;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.util.Map;
+
+/**
+ * Producer interceptor recording the send latency and failures of producers the application
+ * does not send through a template, such as those of Kafka Streams
+ * <p>
+ * Kafka instantiates the interceptor itself, so the metrics are handed over as the value of
+ * DISPATCH_METRICS_CONFIG in the producer config. Without it nothing is recorded.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class SendLatencyInterceptor implements ProducerInterceptor<Object, Object> {
+
+  public static final String DISPATCH_METRICS_CONFIG = "dispatch.metrics";
+
+  private DispatchMetrics dispatchMetrics;
+
+  @Override
+  public void configure(Map<String, ?> configs) {
+    if (configs.get(DISPATCH_METRICS_CONFIG) instanceof DispatchMetrics metrics) {
+      this.dispatchMetrics = metrics;
+    }
+  }
+
+  @Override
+  public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+    return record;
+  }
+
+  @Override
+  public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+    if (dispatchMetrics == null || metadata == null) {
+      return;
+    }
+    if (exception != null) {
+      dispatchMetrics.recordSendFailure(metadata.topic());
+    } else if (metadata.hasTimestamp()) {
+      dispatchMetrics.recordSend(metadata.topic(), metadata.timestamp());
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
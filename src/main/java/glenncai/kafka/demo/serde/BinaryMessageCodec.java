@@ -0,0 +1,190 @@
+package glenncai.kafka.demo.serde;
+
+import glenncai.kafka.demo.message.DispatchPreparing;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of the dispatch messages
+ * <p>
+ * Layout: magic byte, schema version byte, message type byte and a presence bitmap with one bit
+ * per nullable field, followed by the present fields in declaration order. UUIDs are written as
+ * 16 big-endian bytes and strings as an unsigned varint length followed by UTF-8 bytes. Each
+ * message type is encoded and decoded by hand, so no reflection or type headers are involved.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public final class BinaryMessageCodec {
+
+  /**
+   * First byte of every binary message, never the first byte of a JSON document
+   */
+  public static final byte MAGIC = (byte) 0xB1;
+
+  public static final byte VERSION = 1;
+
+  static final byte ORDER_CREATED = 1;
+
+  static final byte DISPATCH_PREPARING = 2;
+
+  static final byte ORDER_DISPATCHED = 3;
+
+  private static final int HEADER_SIZE = 4;
+
+  private static final int UUID_SIZE = 16;
+
+  private BinaryMessageCodec() {
+  }
+
+  /**
+   * Whether the payload starts with the binary magic byte
+   */
+  public static boolean isBinary(byte[] data) {
+    return data != null && data.length > 0 && data[0] == MAGIC;
+  }
+
+  public static byte[] encode(Object message) {
+    if (message instanceof OrderCreated orderCreated) {
+      byte[] item = utf8(orderCreated.getItem());
+      ByteBuffer buffer = allocate(ORDER_CREATED, uuidSize(orderCreated.getOrderId())
+                                                  + stringSize(item),
+                                   orderCreated.getOrderId() != null, item != null);
+      putUuid(buffer, orderCreated.getOrderId());
+      putString(buffer, item);
+      return buffer.array();
+    }
+    if (message instanceof DispatchPreparing dispatchPreparing) {
+      ByteBuffer buffer = allocate(DISPATCH_PREPARING, uuidSize(dispatchPreparing.getOrderId()),
+                                   dispatchPreparing.getOrderId() != null);
+      putUuid(buffer, dispatchPreparing.getOrderId());
+      return buffer.array();
+    }
+    if (message instanceof OrderDispatched orderDispatched) {
+      byte[] notes = utf8(orderDispatched.getNotes());
+      ByteBuffer buffer = allocate(ORDER_DISPATCHED, uuidSize(orderDispatched.getOrderId())
+                                                     + uuidSize(orderDispatched.getProcessById())
+                                                     + stringSize(notes),
+                                   orderDispatched.getOrderId() != null,
+                                   orderDispatched.getProcessById() != null, notes != null);
+      putUuid(buffer, orderDispatched.getOrderId());
+      putUuid(buffer, orderDispatched.getProcessById());
+      putString(buffer, notes);
+      return buffer.array();
+    }
+    throw new SerializationException("Unsupported message type: "
+                                     + (message == null ? null : message.getClass().getName()));
+  }
+
+  public static Object decode(byte[] data) {
+    if (data.length < HEADER_SIZE || data[0] != MAGIC) {
+      throw new SerializationException("Not a binary message");
+    }
+    if (data[1] != VERSION) {
+      throw new SerializationException("Unsupported schema version: " + data[1]);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(data, HEADER_SIZE, data.length - HEADER_SIZE);
+    int presence = data[3];
+    try {
+      return switch (data[2]) {
+        case ORDER_CREATED -> new OrderCreated(getUuid(buffer, presence, 0),
+                                               getString(buffer, presence, 1));
+        case DISPATCH_PREPARING -> new DispatchPreparing(getUuid(buffer, presence, 0));
+        case ORDER_DISPATCHED -> new OrderDispatched(getUuid(buffer, presence, 0),
+                                                     getUuid(buffer, presence, 1),
+                                                     getString(buffer, presence, 2));
+        default -> throw new SerializationException("Unsupported message type: " + data[2]);
+      };
+    } catch (RuntimeException e) {
+      if (e instanceof SerializationException) {
+        throw e;
+      }
+      throw new SerializationException("Malformed binary message", e);
+    }
+  }
+
+  private static ByteBuffer allocate(byte type, int bodySize, boolean... present) {
+    int presence = 0;
+    for (int field = 0; field < present.length; field++) {
+      if (present[field]) {
+        presence |= 1 << field;
+      }
+    }
+    return ByteBuffer.allocate(HEADER_SIZE + bodySize)
+                     .put(MAGIC)
+                     .put(VERSION)
+                     .put(type)
+                     .put((byte) presence);
+  }
+
+  private static byte[] utf8(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int uuidSize(UUID value) {
+    return value == null ? 0 : UUID_SIZE;
+  }
+
+  private static int stringSize(byte[] value) {
+    return value == null ? 0 : varintSize(value.length) + value.length;
+  }
+
+  private static int varintSize(int value) {
+    int size = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private static void putUuid(ByteBuffer buffer, UUID value) {
+    if (value != null) {
+      buffer.putLong(value.getMostSignificantBits()).putLong(value.getLeastSignificantBits());
+    }
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] value) {
+    if (value == null) {
+      return;
+    }
+    int length = value.length;
+    while ((length & ~0x7F) != 0) {
+      buffer.put((byte) ((length & 0x7F) | 0x80));
+      length >>>= 7;
+    }
+    buffer.put((byte) length).put(value);
+  }
+
+  private static UUID getUuid(ByteBuffer buffer, int presence, int field) {
+    if ((presence & 1 << field) == 0) {
+      return null;
+    }
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  private static String getString(ByteBuffer buffer, int presence, int field) {
+    if ((presence & 1 << field) == 0) {
+      return null;
+    }
+    int length = 0;
+    int shift = 0;
+    byte next;
+    do {
+      if (shift > 28) {
+        throw new SerializationException("Malformed string length");
+      }
+      next = buffer.get();
+      length |= (next & 0x7F) << shift;
+      shift += 7;
+    } while ((next & 0x80) != 0);
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+}
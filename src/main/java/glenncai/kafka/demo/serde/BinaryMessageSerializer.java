@@ -0,0 +1,17 @@
+package glenncai.kafka.demo.serde;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer writing the dispatch messages in the compact binary format
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class BinaryMessageSerializer implements Serializer<Object> {
+
+  @Override
+  public byte[] serialize(String topic, Object data) {
+    return data == null ? null : BinaryMessageCodec.encode(data);
+  }
+}
@@ -0,0 +1,48 @@
+package glenncai.kafka.demo.serde;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Kafka deserializer accepting both the compact binary format and JSON
+ * <p>
+ * Payloads starting with the binary magic byte are decoded directly, anything else goes to a
+ * JsonDeserializer configured from the same consumer properties, so a topic can move from JSON
+ * to binary while records of both formats are still in it.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class DualFormatDeserializer implements Deserializer<Object> {
+
+  private final JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+    jsonDeserializer.configure(configs, isKey);
+  }
+
+  @Override
+  public Object deserialize(String topic, byte[] data) {
+    if (BinaryMessageCodec.isBinary(data)) {
+      return BinaryMessageCodec.decode(data);
+    }
+    return jsonDeserializer.deserialize(topic, data);
+  }
+
+  @Override
+  public Object deserialize(String topic, Headers headers, byte[] data) {
+    if (BinaryMessageCodec.isBinary(data)) {
+      return BinaryMessageCodec.decode(data);
+    }
+    return jsonDeserializer.deserialize(topic, headers, data);
+  }
+
+  @Override
+  public void close() {
+    jsonDeserializer.close();
+  }
+}
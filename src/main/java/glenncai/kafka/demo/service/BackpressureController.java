@@ -0,0 +1,185 @@
+package glenncai.kafka.demo.service;
+
+import glenncai.kafka.demo.client.AdaptiveConcurrencyLimiter;
+import glenncai.kafka.demo.client.StockAvailabilityCoalescer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pauses the order listener containers while downstream pressure is high, used when
+ * dispatch.backpressure.enabled is true
+ * <p>
+ * Every checkInterval the controller samples the sends not yet acknowledged, the free share of
+ * the producer buffer, and the stock client queue depth, being the callers waiting on the
+ * concurrency limiter plus the items waiting on the coalescer. The containers are paused once
+ * any signal crosses its pause threshold, and only resumed once every signal is back within its
+ * resume threshold, so the gap between the two keeps them from flapping. Paused containers keep
+ * polling without receiving records, so a burst is held back in Kafka instead of in memory, and
+ * no consumer exceeds max.poll.interval.ms while it waits.
+ * <p>
+ * Transactional sends use their own producers, whose buffers are not sampled, so with the
+ * transactional engine only the in-flight sends and stock queue depth apply.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class BackpressureController implements DisposableBean {
+
+  static final String PAUSE_REASON = "backpressure";
+
+  private final InFlightSendTracker inFlightSendTracker;
+
+  private final KafkaTemplate<String, Object> kafkaTemplate;
+
+  private final AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter;
+
+  private final StockAvailabilityCoalescer stockAvailabilityCoalescer;
+
+  private final ListenerContainerPauser listenerContainerPauser;
+
+  private final Pressure pauseThreshold;
+
+  private final Pressure resumeThreshold;
+
+  private final ScheduledExecutorService scheduler;
+
+  private volatile boolean paused;
+
+  public BackpressureController(InFlightSendTracker inFlightSendTracker,
+                                KafkaTemplate<String, Object> kafkaTemplate,
+                                AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter,
+                                StockAvailabilityCoalescer stockAvailabilityCoalescer,
+                                ListenerContainerPauser listenerContainerPauser,
+                                @Value("${dispatch.backpressure.enabled:false}") boolean enabled,
+                                @Value("${dispatch.backpressure.check-interval:100ms}")
+                                Duration checkInterval,
+                                @Value("${dispatch.backpressure.max-in-flight-sends:10000}")
+                                int maxInFlightSends,
+                                @Value("${dispatch.backpressure.resume-in-flight-sends:5000}")
+                                int resumeInFlightSends,
+                                @Value("${dispatch.backpressure.min-buffer-available:0.2}")
+                                double minBufferAvailable,
+                                @Value("${dispatch.backpressure.resume-buffer-available:0.5}")
+                                double resumeBufferAvailable,
+                                @Value("${dispatch.backpressure.max-stock-queue-depth:100}")
+                                int maxStockQueueDepth,
+                                @Value("${dispatch.backpressure.resume-stock-queue-depth:20}")
+                                int resumeStockQueueDepth) {
+    this.inFlightSendTracker = inFlightSendTracker;
+    this.kafkaTemplate = kafkaTemplate;
+    this.adaptiveConcurrencyLimiter = adaptiveConcurrencyLimiter;
+    this.stockAvailabilityCoalescer = stockAvailabilityCoalescer;
+    this.listenerContainerPauser = listenerContainerPauser;
+    this.pauseThreshold = new Pressure(maxInFlightSends, minBufferAvailable, maxStockQueueDepth);
+    this.resumeThreshold =
+        new Pressure(resumeInFlightSends, resumeBufferAvailable, resumeStockQueueDepth);
+    this.scheduler = enabled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "dispatch-backpressure");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+    if (scheduler != null) {
+      scheduler.scheduleWithFixedDelay(this::check, checkInterval.toNanos(),
+                                       checkInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Pause or resume the containers for the sampled pressure
+   *
+   * @return true when the containers are paused for backpressure
+   */
+  synchronized boolean update(Pressure pressure) {
+    if (!paused && pressure.exceeds(pauseThreshold)) {
+      log.warn("Downstream pressure high, pausing intake: {}", pressure);
+      paused = true;
+      listenerContainerPauser.pause(PAUSE_REASON);
+    } else if (paused && pressure.within(resumeThreshold)) {
+      log.info("Downstream pressure relieved, resuming intake: {}", pressure);
+      paused = false;
+      listenerContainerPauser.resume(PAUSE_REASON);
+    }
+    return paused;
+  }
+
+  private void check() {
+    try {
+      update(sample());
+    } catch (RuntimeException e) {
+      log.warn("Failed to sample downstream pressure", e);
+    }
+  }
+
+  private Pressure sample() {
+    return new Pressure(inFlightSendTracker.inFlight(), bufferAvailable(),
+                        adaptiveConcurrencyLimiter.waiting()
+                        + stockAvailabilityCoalescer.pendingCount());
+  }
+
+  /**
+   * Free share of the producer buffer, 1 when the producer has not reported it yet
+   */
+  private double bufferAvailable() {
+    double available = -1;
+    double total = -1;
+    for (Map.Entry<MetricName, ? extends Metric> metric : kafkaTemplate.metrics().entrySet()) {
+      if (!"producer-metrics".equals(metric.getKey().group())
+          || !(metric.getValue().metricValue() instanceof Double value)) {
+        continue;
+      }
+      switch (metric.getKey().name()) {
+        case "buffer-available-bytes" -> available = value;
+        case "buffer-total-bytes" -> total = value;
+        default -> {
+        }
+      }
+    }
+    return available < 0 || total <= 0 ? 1.0 : available / total;
+  }
+
+  /**
+   * Sampled downstream pressure, also used for the pause and resume thresholds
+   *
+   * @param inFlightSends   sends not yet acknowledged
+   * @param bufferAvailable free share of the producer buffer, from 0 to 1
+   * @param stockQueueDepth stock lookups waiting to be made
+   */
+  record Pressure(int inFlightSends, double bufferAvailable, int stockQueueDepth) {
+
+    boolean exceeds(Pressure threshold) {
+      return inFlightSends >= threshold.inFlightSends
+             || bufferAvailable <= threshold.bufferAvailable
+             || stockQueueDepth >= threshold.stockQueueDepth;
+    }
+
+    boolean within(Pressure threshold) {
+      return inFlightSends <= threshold.inFlightSends
+             && bufferAvailable >= threshold.bufferAvailable
+             && stockQueueDepth <= threshold.stockQueueDepth;
+    }
+  }
+}
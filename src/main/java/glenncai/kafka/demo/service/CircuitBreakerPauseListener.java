@@ -0,0 +1,65 @@
+package glenncai.kafka.demo.service;
+
+import glenncai.kafka.demo.client.StockServiceCircuitBreaker;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pauses the order listener containers while the stock service circuit breaker is open
+ * <p>
+ * Records would only fail against an open breaker, so rather than retrying them the containers
+ * stop fetching. Nothing calls the stock service while they are paused, so once the open
+ * duration has passed a timer reads the breaker state, which half opens it and resumes the
+ * containers for the trial calls. The breaker then either closes or opens and pauses them again.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Component
+public class CircuitBreakerPauseListener implements DisposableBean {
+
+  static final String PAUSE_REASON = "stock-service-circuit-open";
+
+  private final StockServiceCircuitBreaker stockServiceCircuitBreaker;
+
+  private final ListenerContainerPauser listenerContainerPauser;
+
+  private final ScheduledExecutorService scheduler;
+
+  public CircuitBreakerPauseListener(StockServiceCircuitBreaker stockServiceCircuitBreaker,
+                                     ListenerContainerPauser listenerContainerPauser) {
+    this.stockServiceCircuitBreaker = stockServiceCircuitBreaker;
+    this.listenerContainerPauser = listenerContainerPauser;
+    this.scheduler = stockServiceCircuitBreaker.isEnabled()
+                     ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "stock-circuit-breaker");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+    if (scheduler != null) {
+      stockServiceCircuitBreaker.addListener(this::onStateChange);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  private void onStateChange(StockServiceCircuitBreaker.State state) {
+    if (state == StockServiceCircuitBreaker.State.OPEN) {
+      listenerContainerPauser.pause(PAUSE_REASON);
+      scheduler.schedule(stockServiceCircuitBreaker::state,
+                         stockServiceCircuitBreaker.openDuration().toNanos(),
+                         TimeUnit.NANOSECONDS);
+    } else {
+      listenerContainerPauser.resume(PAUSE_REASON);
+    }
+  }
+}
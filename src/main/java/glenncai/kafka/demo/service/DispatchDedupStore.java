@@ -0,0 +1,483 @@
+package glenncai.kafka.demo.service;
+
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ids of the orders already dispatched, used when dispatch.dedup.enabled is true
+ * <p>
+ * Redeliveries after error handler retries or rebalances are skipped instead of checking stock
+ * and sending the dispatch events again. Order ids are kept as pairs of longs in open addressing
+ * tables, one table per time bucket of ttl / buckets, so an id costs 32 to 64 bytes and expiry
+ * drops a whole bucket at once. An id is kept for at least ttl, and the oldest bucket is dropped
+ * early once maxEntries ids are held. When snapshotFile is set the ids are written to it every
+ * snapshotInterval and on shutdown, and read back on startup.
+ * <p>
+ * An order is only marked once its events are acked, or once the listener transaction commits,
+ * so a failed dispatch is never skipped on redelivery. Orders whose sends are still in flight are
+ * held apart until then.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class DispatchDedupStore implements DisposableBean {
+
+  private static final int SNAPSHOT_MAGIC = 0x44445550;
+
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private final boolean enabled;
+
+  private final long bucketMillis;
+
+  private final long maxEntries;
+
+  private final Path snapshotFile;
+
+  private final LongSupplier clock;
+
+  private final DispatchMetrics dispatchMetrics;
+
+  private final OrderIdSet[] buckets;
+
+  private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+  private final Object snapshotLock = new Object();
+
+  private final ScheduledExecutorService scheduler;
+
+  @Autowired
+  public DispatchDedupStore(@Value("${dispatch.dedup.enabled:false}") boolean enabled,
+                            @Value("${dispatch.dedup.ttl:1h}") Duration ttl,
+                            @Value("${dispatch.dedup.buckets:6}") int buckets,
+                            @Value("${dispatch.dedup.max-entries:1000000}") long maxEntries,
+                            @Value("${dispatch.dedup.snapshot-file:}") String snapshotFile,
+                            @Value("${dispatch.dedup.snapshot-interval:1m}")
+                            Duration snapshotInterval,
+                            DispatchMetrics dispatchMetrics) {
+    this(enabled, ttl, buckets, maxEntries, snapshotFile.isBlank() ? null : Path.of(snapshotFile),
+         System::currentTimeMillis, dispatchMetrics);
+    if (scheduler != null) {
+      scheduler.scheduleWithFixedDelay(this::writeSnapshotQuietly, snapshotInterval.toNanos(),
+                                       snapshotInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  DispatchDedupStore(boolean enabled, Duration ttl, int buckets, long maxEntries,
+                     Path snapshotFile, LongSupplier clock, DispatchMetrics dispatchMetrics) {
+    if (enabled && (buckets < 1 || ttl.toMillis() < buckets || maxEntries < 1)) {
+      throw new IllegalArgumentException("Dedup store needs at least one bucket of at least 1ms "
+                                         + "and one entry, was ttl=" + ttl + ", buckets="
+                                         + buckets + ", maxEntries=" + maxEntries);
+    }
+    this.enabled = enabled;
+    this.bucketMillis = enabled ? ttl.toMillis() / buckets : 1L;
+    this.maxEntries = maxEntries;
+    this.snapshotFile = enabled ? snapshotFile : null;
+    this.clock = clock;
+    this.dispatchMetrics = dispatchMetrics;
+    // One bucket more than needed, so the oldest still holds a full ttl while the newest fills
+    this.buckets = new OrderIdSet[enabled ? buckets + 1 : 0];
+    for (int index = 0; index < this.buckets.length; index++) {
+      this.buckets[index] = new OrderIdSet();
+    }
+    this.scheduler = this.snapshotFile != null ? Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+          Thread thread = new Thread(runnable, "dispatch-dedup-snapshot");
+          thread.setDaemon(true);
+          return thread;
+        }) : null;
+    if (this.snapshotFile != null) {
+      readSnapshot();
+    }
+  }
+
+  /**
+   * Store that is switched off and never skips an order
+   */
+  public static DispatchDedupStore disabled() {
+    return new DispatchDedupStore(false, Duration.ZERO, 0, 0L, null, System::currentTimeMillis,
+                                  DispatchMetrics.disabled());
+  }
+
+  /**
+   * Whether the order was dispatched within the ttl or its dispatch is in flight, counted as a
+   * duplicate when it was
+   *
+   * @param orderId order id, never a duplicate when null
+   */
+  public boolean alreadyDispatched(UUID orderId) {
+    if (!enabled || orderId == null) {
+      return false;
+    }
+    boolean dispatched = inFlight.contains(orderId)
+                         || contains(orderId.getMostSignificantBits(),
+                                     orderId.getLeastSignificantBits());
+    if (dispatched) {
+      dispatchMetrics.recordDuplicate();
+    }
+    return dispatched;
+  }
+
+  /**
+   * Mark the order as dispatched, its sends having completed
+   *
+   * @param orderId order id, ignored when null
+   */
+  public void markDispatched(UUID orderId) {
+    markDispatched(orderId, CompletableFuture.completedFuture(null));
+  }
+
+  /**
+   * Mark the order as dispatched once its sends complete
+   * <p>
+   * Until then the order is in flight, so a second delivery in the same batch is skipped too.
+   * Inside a listener transaction the order is marked after the commit instead, as the sends of
+   * an aborted transaction are discarded and the order redelivered.
+   *
+   * @param orderId order id, ignored when null
+   * @param sends   sends of the dispatch events, the order is not marked when they fail
+   */
+  public void markDispatched(UUID orderId, CompletableFuture<?> sends) {
+    if (!enabled || orderId == null) {
+      return;
+    }
+    inFlight.add(orderId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          completed(orderId, status == STATUS_COMMITTED);
+        }
+      });
+    } else {
+      sends.whenComplete((result, exception) -> completed(orderId, exception == null));
+    }
+  }
+
+  /**
+   * Number of order ids held, expired buckets included until they are reused
+   */
+  public synchronized long size() {
+    long size = 0L;
+    for (OrderIdSet bucket : buckets) {
+      size += bucket.size;
+    }
+    return size;
+  }
+
+  /**
+   * Write the live buckets to the snapshot file, replacing it atomically
+   *
+   * @throws IOException when the file cannot be written, the previous snapshot is left in place
+   */
+  public void writeSnapshot() throws IOException {
+    if (snapshotFile == null) {
+      return;
+    }
+    OrderIdSet[] live = liveBuckets();
+    synchronized (snapshotLock) {
+      Path parent = snapshotFile.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      Path temporary = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+      try {
+        try (DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+          output.writeInt(SNAPSHOT_MAGIC);
+          output.writeInt(SNAPSHOT_VERSION);
+          output.writeLong(bucketMillis);
+          output.writeInt(live.length);
+          for (OrderIdSet bucket : live) {
+            bucket.writeTo(output);
+          }
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    writeSnapshotQuietly();
+  }
+
+  private void writeSnapshotQuietly() {
+    try {
+      writeSnapshot();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to write dedup snapshot: file={}", snapshotFile, e);
+    }
+  }
+
+  /**
+   * Load the buckets of a previous snapshot that have not expired yet
+   * <p>
+   * A missing, unreadable or foreign file leaves the store empty, so a restart never fails on it.
+   */
+  private void readSnapshot() {
+    if (!Files.exists(snapshotFile)) {
+      return;
+    }
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+      if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_VERSION) {
+        log.warn("Ignoring dedup snapshot of unknown format: file={}", snapshotFile);
+        return;
+      }
+      long snapshotBucketMillis = input.readLong();
+      int bucketCount = input.readInt();
+      long loaded = 0L;
+      synchronized (this) {
+        for (int index = 0; index < bucketCount; index++) {
+          // Re-bucket by start time, in case the ttl or bucket count changed since
+          long epoch = Math.floorDiv(input.readLong() * snapshotBucketMillis, bucketMillis);
+          int size = input.readInt();
+          OrderIdSet bucket = isLive(epoch) ? bucket(epoch) : null;
+          for (int entry = 0; entry < size; entry++) {
+            long mostSigBits = input.readLong();
+            long leastSigBits = input.readLong();
+            if (bucket != null && bucket.add(mostSigBits, leastSigBits)) {
+              loaded++;
+            }
+          }
+        }
+      }
+      log.info("Loaded dedup snapshot: file={}, orders={}", snapshotFile, loaded);
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        for (OrderIdSet bucket : buckets) {
+          bucket.reset(Long.MIN_VALUE);
+        }
+      }
+      log.warn("Ignoring unreadable dedup snapshot: file={}", snapshotFile, e);
+    }
+  }
+
+  private void completed(UUID orderId, boolean dispatched) {
+    if (dispatched) {
+      add(orderId.getMostSignificantBits(), orderId.getLeastSignificantBits());
+    }
+    inFlight.remove(orderId);
+  }
+
+  private synchronized boolean contains(long mostSigBits, long leastSigBits) {
+    long now = currentEpoch();
+    for (OrderIdSet bucket : buckets) {
+      if (isLive(bucket.epoch, now) && bucket.contains(mostSigBits, leastSigBits)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private synchronized void add(long mostSigBits, long leastSigBits) {
+    if (contains(mostSigBits, leastSigBits)) {
+      return;
+    }
+    OrderIdSet current = bucket(currentEpoch());
+    if (size() >= maxEntries) {
+      evictOldest();
+    }
+    current.add(mostSigBits, leastSigBits);
+  }
+
+  /**
+   * Drop the oldest bucket, before its ttl is up when none has expired, to stay within maxEntries
+   */
+  private void evictOldest() {
+    OrderIdSet oldest = null;
+    for (OrderIdSet bucket : buckets) {
+      if (bucket.size > 0 && (oldest == null || bucket.epoch < oldest.epoch)) {
+        oldest = bucket;
+      }
+    }
+    if (oldest != null) {
+      if (isLive(oldest.epoch)) {
+        log.warn("Dedup store holds {} orders, dropping {} dispatched {}ms ago before their ttl",
+                 maxEntries, oldest.size, (currentEpoch() - oldest.epoch) * bucketMillis);
+      }
+      oldest.reset(oldest.epoch);
+    }
+  }
+
+  /**
+   * Bucket of the epoch, clearing the expired bucket it reuses
+   */
+  private OrderIdSet bucket(long epoch) {
+    OrderIdSet bucket = buckets[(int) Math.floorMod(epoch, (long) buckets.length)];
+    if (bucket.epoch != epoch) {
+      bucket.reset(epoch);
+    }
+    return bucket;
+  }
+
+  private synchronized OrderIdSet[] liveBuckets() {
+    long now = currentEpoch();
+    return Arrays.stream(buckets)
+                 .filter(bucket -> bucket.size > 0 && isLive(bucket.epoch, now))
+                 .map(OrderIdSet::copy)
+                 .toArray(OrderIdSet[]::new);
+  }
+
+  private long currentEpoch() {
+    return Math.floorDiv(clock.getAsLong(), bucketMillis);
+  }
+
+  private boolean isLive(long epoch) {
+    return isLive(epoch, currentEpoch());
+  }
+
+  private boolean isLive(long epoch, long now) {
+    return epoch <= now && epoch > now - buckets.length;
+  }
+
+  /**
+   * Open addressing set of order ids stored as most and least significant bit pairs
+   * <p>
+   * (0, 0) marks a free slot, so the nil UUID is tracked apart.
+   */
+  private static final class OrderIdSet {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long epoch = Long.MIN_VALUE;
+
+    private long[] slots = new long[INITIAL_CAPACITY * 2];
+
+    private int size;
+
+    private boolean containsNil;
+
+    boolean contains(long mostSigBits, long leastSigBits) {
+      if (mostSigBits == 0L && leastSigBits == 0L) {
+        return containsNil;
+      }
+      int mask = slots.length / 2 - 1;
+      for (int slot = index(mostSigBits, leastSigBits, mask); ; slot = (slot + 1) & mask) {
+        long slotMostSigBits = slots[slot * 2];
+        long slotLeastSigBits = slots[slot * 2 + 1];
+        if (slotMostSigBits == 0L && slotLeastSigBits == 0L) {
+          return false;
+        }
+        if (slotMostSigBits == mostSigBits && slotLeastSigBits == leastSigBits) {
+          return true;
+        }
+      }
+    }
+
+    boolean add(long mostSigBits, long leastSigBits) {
+      if (mostSigBits == 0L && leastSigBits == 0L) {
+        if (containsNil) {
+          return false;
+        }
+        containsNil = true;
+        size++;
+        return true;
+      }
+      // Keep the table at most half full, so probes stay short
+      if ((size + 1) * 2L > slots.length / 2) {
+        resize(slots.length * 2);
+      }
+      if (!insert(slots, mostSigBits, leastSigBits)) {
+        return false;
+      }
+      size++;
+      return true;
+    }
+
+    void reset(long epoch) {
+      this.epoch = epoch;
+      this.slots = new long[INITIAL_CAPACITY * 2];
+      this.size = 0;
+      this.containsNil = false;
+    }
+
+    OrderIdSet copy() {
+      OrderIdSet copy = new OrderIdSet();
+      copy.epoch = epoch;
+      copy.slots = slots.clone();
+      copy.size = size;
+      copy.containsNil = containsNil;
+      return copy;
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+      output.writeLong(epoch);
+      output.writeInt(size);
+      if (containsNil) {
+        output.writeLong(0L);
+        output.writeLong(0L);
+      }
+      for (int slot = 0; slot < slots.length; slot += 2) {
+        if (slots[slot] != 0L || slots[slot + 1] != 0L) {
+          output.writeLong(slots[slot]);
+          output.writeLong(slots[slot + 1]);
+        }
+      }
+    }
+
+    private void resize(int length) {
+      long[] resized = new long[length];
+      for (int slot = 0; slot < slots.length; slot += 2) {
+        if (slots[slot] != 0L || slots[slot + 1] != 0L) {
+          insert(resized, slots[slot], slots[slot + 1]);
+        }
+      }
+      slots = resized;
+    }
+
+    private static boolean insert(long[] slots, long mostSigBits, long leastSigBits) {
+      int mask = slots.length / 2 - 1;
+      for (int slot = index(mostSigBits, leastSigBits, mask); ; slot = (slot + 1) & mask) {
+        long slotMostSigBits = slots[slot * 2];
+        long slotLeastSigBits = slots[slot * 2 + 1];
+        if (slotMostSigBits == 0L && slotLeastSigBits == 0L) {
+          slots[slot * 2] = mostSigBits;
+          slots[slot * 2 + 1] = leastSigBits;
+          return true;
+        }
+        if (slotMostSigBits == mostSigBits && slotLeastSigBits == leastSigBits) {
+          return false;
+        }
+      }
+    }
+
+    private static int index(long mostSigBits, long leastSigBits, int mask) {
+      long hash = (mostSigBits ^ leastSigBits) * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+  }
+}
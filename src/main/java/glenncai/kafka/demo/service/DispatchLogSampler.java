@@ -0,0 +1,138 @@
+package glenncai.kafka.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sampling of the per record logs, used when dispatch.logging.sampled is true
+ * <p>
+ * Only one in sampleEvery records is logged in full, and the outcome of every record is counted
+ * instead, to be logged as one summary line each summaryInterval. Failures and dead lettered
+ * records are always logged in full by their handlers. When sampling is off every record is
+ * logged, as before, and nothing is counted.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class DispatchLogSampler implements DisposableBean {
+
+  private final boolean sampled;
+
+  private final long sampleEvery;
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final LongAdder available = new LongAdder();
+
+  private final LongAdder unavailable = new LongAdder();
+
+  private final ScheduledExecutorService scheduler;
+
+  private long lastSummaryNanos = System.nanoTime();
+
+  @Autowired
+  public DispatchLogSampler(@Value("${dispatch.logging.sampled:false}") boolean sampled,
+                            @Value("${dispatch.logging.sample-every:1000}") long sampleEvery,
+                            @Value("${dispatch.logging.summary-interval:10s}")
+                            Duration summaryInterval) {
+    this(sampled, sampleEvery);
+    if (scheduler != null) {
+      scheduler.scheduleAtFixedRate(this::logSummary, summaryInterval.toNanos(),
+                                    summaryInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  DispatchLogSampler(boolean sampled, long sampleEvery) {
+    this.sampled = sampled;
+    this.sampleEvery = Math.max(sampleEvery, 1);
+    this.scheduler = sampled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "dispatch-log-summary");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+  }
+
+  /**
+   * Sampler that is switched off and logs every record
+   */
+  public static DispatchLogSampler disabled() {
+    return new DispatchLogSampler(false, 1);
+  }
+
+  public boolean isSampled() {
+    return sampled;
+  }
+
+  /**
+   * Whether the current record should be logged in full
+   */
+  public boolean sample() {
+    return !sampled || sequence.getAndIncrement() % sampleEvery == 0;
+  }
+
+  /**
+   * Count a record whose stock was available and whose events were sent
+   */
+  public void dispatched() {
+    if (sampled) {
+      available.increment();
+    }
+  }
+
+  /**
+   * Count a record whose stock was not available
+   */
+  public void unavailable() {
+    if (sampled) {
+      unavailable.increment();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Take the counts since the previous summary
+   */
+  synchronized Summary summarize() {
+    long now = System.nanoTime();
+    long elapsedNanos = Math.max(now - lastSummaryNanos, 1);
+    lastSummaryNanos = now;
+    long availableCount = available.sumThenReset();
+    long unavailableCount = unavailable.sumThenReset();
+    long records = availableCount + unavailableCount;
+    return new Summary(records, records * TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                       availableCount, unavailableCount);
+  }
+
+  private void logSummary() {
+    Summary summary = summarize();
+    if (summary.records() > 0) {
+      log.info("Dispatch summary: records={}, recordsPerSec={}, available={}, unavailable={}",
+               summary.records(), summary.recordsPerSecond(), summary.available(),
+               summary.unavailable());
+    }
+  }
+
+  /**
+   * Record outcomes counted over one summary interval
+   */
+  record Summary(long records, long recordsPerSecond, long available, long unavailable) {
+  }
+}
@@ -0,0 +1,311 @@
+package glenncai.kafka.demo.service;
+
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.serde.BinaryMessageCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Local outbox for the dispatch events of orders the broker could not take, used when
+ * dispatch.outbox.enabled is true
+ * <p>
+ * When a send is not acked within sendTimeout, or fails with an error the producer counts as
+ * retriable, the events of the order are staged in an {@link OutboxLog} in directory instead, so
+ * the order is dispatched and its offset committed while the broker is out. Until the outbox is
+ * drained, later events are staged behind them, so events keep their order per key. A relay
+ * thread sends the staged events every relayInterval in batches of relayBatchSize, moving past
+ * a batch only once all of it is acked. A batch not acked within relaySendTimeout is not sent
+ * again while its sends are still with the producer: the next runs wait for them, and the batch
+ * is only resent once they failed. An event may be sent twice, when a send timed out but went
+ * through later or the relay fails partway through a batch, so delivery is at least once.
+ * <p>
+ * Events are written by the fsync policy: always before the order is acknowledged, every
+ * fsyncInterval on a flush thread of its own, or never. The outbox holds at most maxSize bytes
+ * in segments of segmentSize, and an order whose events do not fit fails with a
+ * {@link RetryableException}, to be retried by the error handler.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class DispatchOutbox implements DisposableBean {
+
+  private final boolean enabled;
+
+  private final Duration sendTimeout;
+
+  private final int relayBatchSize;
+
+  private final Duration relaySendTimeout;
+
+  private final KafkaTemplate<String, Object> kafkaTemplate;
+
+  private final OutboxLog outboxLog;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final ScheduledExecutorService flusher;
+
+  /**
+   * Batch whose sends are not acked yet, used by the relay thread only
+   */
+  private RelayedBatch relaying;
+
+  @Autowired
+  public DispatchOutbox(@Value("${dispatch.outbox.enabled:false}") boolean enabled,
+                        @Value("${dispatch.outbox.directory:dispatch-outbox}") String directory,
+                        @Value("${dispatch.outbox.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${dispatch.outbox.max-size:1GB}") DataSize maxSize,
+                        @Value("${dispatch.outbox.fsync:interval}") String fsync,
+                        @Value("${dispatch.outbox.fsync-interval:100ms}") Duration fsyncInterval,
+                        @Value("${dispatch.outbox.send-timeout:5s}") Duration sendTimeout,
+                        @Value("${dispatch.outbox.relay-batch-size:1000}") int relayBatchSize,
+                        @Value("${dispatch.outbox.relay-interval:1s}") Duration relayInterval,
+                        @Value("${dispatch.outbox.relay-send-timeout:30s}")
+                        Duration relaySendTimeout,
+                        KafkaTemplate<String, Object> kafkaTemplate,
+                        DispatchMetrics dispatchMetrics) {
+    this(enabled, Path.of(directory), Math.toIntExact(segmentSize.toBytes()),
+         (int) (maxSize.toBytes() / segmentSize.toBytes()), OutboxLog.Fsync.of(fsync),
+         sendTimeout, relayBatchSize, relaySendTimeout, kafkaTemplate);
+    if (scheduler != null) {
+      scheduler.scheduleWithFixedDelay(this::relayQuietly, relayInterval.toNanos(),
+                                       relayInterval.toNanos(), TimeUnit.NANOSECONDS);
+      // Its own thread, so a relay waiting for acks never holds back the fsync
+      flusher.scheduleWithFixedDelay(outboxLog::flush, fsyncInterval.toNanos(),
+                                     fsyncInterval.toNanos(), TimeUnit.NANOSECONDS);
+      dispatchMetrics.registerOutbox(outboxLog::pending, outboxLog::diskSize);
+    }
+  }
+
+  DispatchOutbox(boolean enabled, Path directory, int segmentSize, int maxSegments,
+                 OutboxLog.Fsync fsync, Duration sendTimeout, int relayBatchSize,
+                 Duration relaySendTimeout, KafkaTemplate<String, Object> kafkaTemplate) {
+    this.enabled = enabled;
+    this.sendTimeout = sendTimeout;
+    this.relayBatchSize = relayBatchSize;
+    this.relaySendTimeout = relaySendTimeout;
+    this.kafkaTemplate = kafkaTemplate;
+    try {
+      this.outboxLog = enabled ? new OutboxLog(directory, segmentSize, maxSegments, fsync) : null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to open outbox in " + directory, e);
+    }
+    this.scheduler = enabled ? daemonScheduler("dispatch-outbox-relay") : null;
+    this.flusher = enabled ? daemonScheduler("dispatch-outbox-flush") : null;
+  }
+
+  /**
+   * Outbox that is switched off, leaving every send to the broker
+   */
+  public static DispatchOutbox disabled() {
+    return new DispatchOutbox(false, null, 0, 0, OutboxLog.Fsync.NEVER, Duration.ZERO, 0,
+                              Duration.ZERO, null);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Whether events are staged and not yet relayed, so new events must be staged behind them
+   */
+  public boolean hasPending() {
+    return enabled && outboxLog.pending() > 0;
+  }
+
+  /**
+   * How long a send may wait for its ack before its events are staged instead
+   */
+  public Duration sendTimeout() {
+    return sendTimeout;
+  }
+
+  /**
+   * Whether the send failure means the broker is out of reach for now, so the events should be
+   * staged rather than the order failed
+   */
+  public static boolean isBrokerUnavailable(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof TimeoutException || cause instanceof RetriableException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Stage the events, to be relayed in order after the ones already staged
+   *
+   * @throws RetryableException when the outbox is full or cannot be written
+   */
+  public void stage(List<ProducerRecord<String, Object>> records) {
+    List<byte[]> encoded = new ArrayList<>(records.size());
+    for (ProducerRecord<String, Object> record : records) {
+      encoded.add(encode(record));
+    }
+    try {
+      if (!outboxLog.append(encoded)) {
+        throw new RetryableException("Outbox is full");
+      }
+    } catch (IOException e) {
+      throw new RetryableException(e);
+    }
+  }
+
+  /**
+   * Send the staged events in batches until the outbox is drained, first waiting for the sends
+   * of a batch left unacked by the previous run
+   *
+   * @return number of events relayed
+   * @throws ExecutionException when a send of a batch fails, the batch is relayed again
+   * @throws TimeoutException   when a batch is not acked within relaySendTimeout, its sends are
+   *                            waited for again by the next run
+   * @throws IOException        when the relayed position cannot be checkpointed
+   */
+  long relay() throws ExecutionException, TimeoutException, InterruptedException, IOException {
+    long relayed = 0L;
+    while (true) {
+      if (relaying == null) {
+        OutboxLog.Batch batch = outboxLog.read(relayBatchSize);
+        if (batch.records().isEmpty()) {
+          return relayed;
+        }
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.records().size());
+        for (byte[] record : batch.records()) {
+          sends.add(kafkaTemplate.send(decode(record)));
+        }
+        relaying = new RelayedBatch(batch, CompletableFuture.allOf(
+            sends.toArray(CompletableFuture[]::new)));
+      }
+      RelayedBatch batch = relaying;
+      try {
+        batch.sends().get(relaySendTimeout.toNanos(), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException e) {
+        // Every send of the batch is done, so it can be sent again without doubling up
+        relaying = null;
+        throw e;
+      }
+      relaying = null;
+      outboxLog.commit(batch.batch());
+      relayed += batch.batch().records().size();
+    }
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      flusher.shutdownNow();
+    }
+    if (outboxLog != null) {
+      outboxLog.close();
+    }
+  }
+
+  private void relayQuietly() {
+    try {
+      long relayed = relay();
+      if (relayed > 0) {
+        log.info("Relayed outbox events: count={}, pending={}", relayed, outboxLog.pending());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      // Left in the outbox, to be relayed again on the next run
+      log.warn("Failed to relay outbox events: pending={}, {}", outboxLog.pending(),
+               e.getMessage());
+    }
+  }
+
+  private static ScheduledExecutorService daemonScheduler(String name) {
+    return Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Topic, key, headers and value of the record, the value in the binary message format
+   */
+  private static byte[] encode(ProducerRecord<String, Object> record) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeUTF(record.topic());
+      output.writeBoolean(record.key() != null);
+      if (record.key() != null) {
+        output.writeUTF(record.key());
+      }
+      Header[] headers = record.headers().toArray();
+      output.writeShort(headers.length);
+      for (Header header : headers) {
+        output.writeUTF(header.key());
+        output.writeInt(header.value() == null ? -1 : header.value().length);
+        if (header.value() != null) {
+          output.write(header.value());
+        }
+      }
+      byte[] value = BinaryMessageCodec.encode(record.value());
+      output.writeInt(value.length);
+      output.write(value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ProducerRecord<String, Object> decode(byte[] data) {
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data))) {
+      String topic = input.readUTF();
+      String key = input.readBoolean() ? input.readUTF() : null;
+      Headers headers = new RecordHeaders();
+      for (int count = input.readUnsignedShort(); count > 0; count--) {
+        String name = input.readUTF();
+        int length = input.readInt();
+        byte[] value = length < 0 ? null : new byte[length];
+        if (value != null) {
+          input.readFully(value);
+        }
+        headers.add(name, value);
+      }
+      byte[] value = new byte[input.readInt()];
+      input.readFully(value);
+      return new ProducerRecord<>(topic, null, key, BinaryMessageCodec.decode(value), headers);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private record RelayedBatch(OutboxLog.Batch batch, CompletableFuture<Void> sends) {
+  }
+}
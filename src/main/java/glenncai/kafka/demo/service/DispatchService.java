@@ -1,17 +1,34 @@
 package glenncai.kafka.demo.service;
 
 import static java.util.UUID.randomUUID;
+import glenncai.kafka.demo.client.PartitionStockCache;
 import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
 import glenncai.kafka.demo.message.DispatchPreparing;
 import glenncai.kafka.demo.message.OrderCreated;
 import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.DispatchTrace;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Dispatch service
@@ -26,37 +43,394 @@ public class DispatchService {
 
   private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
   private static final String DISPATCH_TRACKING_TOPIC = "dispatch.tracking";
-  private static final UUID APPLICATION_ID = randomUUID();
+  /**
+   * Instance id, stamped on the dispatched orders and the dispatch trace
+   */
+  public static final UUID APPLICATION_ID = randomUUID();
   private final KafkaTemplate<String, Object> kafkaTemplate;
   private final StockServiceClient stockServiceClient;
+  private final DispatchLogSampler dispatchLogSampler;
+  private final DispatchDedupStore dispatchDedupStore;
+  private final DispatchMetrics dispatchMetrics;
+  private final PartitionStockCache partitionStockCache;
+  private final DispatchOutbox dispatchOutbox;
 
   public void process(String key, OrderCreated orderCreated)
       throws ExecutionException, InterruptedException {
+    process(key, orderCreated, DispatchTrace.untraced());
+  }
+
+  /**
+   * Process an order created event, carrying the trace on the outbound events
+   * <p>
+   * With the dispatch outbox enabled, outside a listener transaction, events the broker cannot
+   * take are staged in the outbox to be relayed later, and the order counts as dispatched.
+   *
+   * @param key          order key
+   * @param orderCreated order created event
+   * @param trace        trace of the order created record
+   */
+  public void process(String key, OrderCreated orderCreated, DispatchTrace trace)
+      throws ExecutionException, InterruptedException {
+
+    if (dispatchDedupStore.alreadyDispatched(orderCreated.getOrderId())) {
+      skipDuplicate(key, orderCreated);
+      return;
+    }
 
-    String stockAvailable = stockServiceClient.checkAvailability(orderCreated.getItem());
-
-    if (Boolean.parseBoolean(stockAvailable)) {
-      DispatchPreparing dispatchPreparing = DispatchPreparing.builder()
-                                                             .orderId(orderCreated.getOrderId())
-                                                             .build();
-      // The call to get() on it makes the send synchronous
-      kafkaTemplate.send(DISPATCH_TRACKING_TOPIC, key, dispatchPreparing).get();
-
-      OrderDispatched orderDispatched = OrderDispatched.builder()
-                                                       .orderId(orderCreated.getOrderId())
-                                                       .processById(APPLICATION_ID)
-                                                       .notes(
-                                                           "Dispatched: " + orderCreated.getItem())
-                                                       .build();
-      // The call to get() on it makes the send synchronous
-      kafkaTemplate.send(ORDER_DISPATCHED_TOPIC, key, orderDispatched).get();
-
-      log.info("Sent message: key: {}, orderId: {}, processById: {}, notes: {}",
-               key,
-               orderDispatched.getOrderId(),
-               orderDispatched.getProcessById(), orderDispatched.getNotes());
+    DispatchTrace checked = checkAvailability(orderCreated, trace);
+
+    if (checked != null) {
+      long sentTimestamp = System.currentTimeMillis();
+      DispatchPreparing dispatchPreparing = dispatchPreparing(orderCreated);
+      OrderDispatched orderDispatched = orderDispatched(orderCreated);
+      boolean staged = send(List.of(
+          record(DISPATCH_TRACKING_TOPIC, key, dispatchPreparing, checked, sentTimestamp),
+          record(ORDER_DISPATCHED_TOPIC, key, orderDispatched, checked, sentTimestamp)));
+      if (!staged) {
+        dispatchMetrics.recordSendStages(checked, APPLICATION_ID, sentTimestamp);
+      }
+
+      dispatchDedupStore.markDispatched(orderCreated.getOrderId());
+      dispatchLogSampler.dispatched();
+      if (!dispatchLogSampler.isSampled()) {
+        log.info("{} message: key: {}, orderId: {}, processById: {}, notes: {}",
+                 staged ? "Staged" : "Sent", key,
+                 orderDispatched.getOrderId(),
+                 orderDispatched.getProcessById(), orderDispatched.getNotes());
+      }
     } else {
+      stockUnavailable(orderCreated);
+    }
+  }
+
+  public CompletableFuture<Void> processAsync(String key, OrderCreated orderCreated) {
+    return processAsync(key, orderCreated, DispatchTrace.untraced());
+  }
+
+  /**
+   * Process an order created event without waiting for the broker
+   * <p>
+   * Stock is checked on the calling thread, then both outbound events are sent back to back.
+   * Both sends are issued from the calling thread in record order, so ordering per key holds.
+   *
+   * @param key          order key
+   * @param orderCreated order created event
+   * @param trace        trace of the order created record
+   * @return future completed once both sends are acked, or immediately when out of stock or
+   *     already dispatched
+   */
+  public CompletableFuture<Void> processAsync(String key, OrderCreated orderCreated,
+                                              DispatchTrace trace) {
+    if (dispatchDedupStore.alreadyDispatched(orderCreated.getOrderId())) {
+      skipDuplicate(key, orderCreated);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    DispatchTrace checked = checkAvailability(orderCreated, trace);
+
+    if (checked != null) {
+      dispatchLogSampler.dispatched();
+      CompletableFuture<Void> sends = dispatch(key, orderCreated, checked);
+      dispatchDedupStore.markDispatched(orderCreated.getOrderId(), sends);
+      return sends;
+    }
+    stockUnavailable(orderCreated);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Process a batch of order created records
+   * <p>
+   * Stock is looked up once per distinct item in the batch, so only the first order of an item
+   * carries the lookup in its trace, and the outbound events of every record are sent before any
+   * acknowledgement is awaited. When a record fails, the sends of the records before it are
+   * awaited first, so the error handler can safely commit them.
+   *
+   * @param records order created records in partition order
+   * @throws BatchListenerFailedException naming the index of the first failed record
+   */
+  public void processBatch(List<ConsumerRecord<String, OrderCreated>> records) {
+    Map<String, Boolean> stockAvailability = new HashMap<>();
+    List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+
+    for (int index = 0; index < records.size(); index++) {
+      ConsumerRecord<String, OrderCreated> record = records.get(index);
+      try {
+        OrderCreated orderCreated = record.value();
+        if (orderCreated == null) {
+          throw new NotRetryableException("Unable to deserialize record at offset "
+                                          + record.offset());
+        }
+        if (dispatchDedupStore.alreadyDispatched(orderCreated.getOrderId())) {
+          skipDuplicate(record.key(), orderCreated);
+          sends.add(CompletableFuture.completedFuture(null));
+          continue;
+        }
+        DispatchTrace trace = DispatchTrace.of(record);
+        Boolean stockAvailable = stockAvailability.get(orderCreated.getItem());
+        if (stockAvailable == null) {
+          long lookupStart = System.nanoTime();
+          stockAvailable = Boolean.parseBoolean(
+              partitionStockCache.get(record.partition(), orderCreated.getItem(),
+                                      stockServiceClient::checkAvailability));
+          trace = trace.withStockLookup(System.nanoTime() - lookupStart);
+          stockAvailability.put(orderCreated.getItem(), stockAvailable);
+          dispatchMetrics.recordLookupStages(trace, APPLICATION_ID);
+        } else {
+          // Looked up for an earlier order of the batch, so this one has no stock stage
+          dispatchMetrics.recordQueueStage(trace, APPLICATION_ID);
+        }
+        if (stockAvailable) {
+          dispatchLogSampler.dispatched();
+          CompletableFuture<Void> dispatched = dispatch(record.key(), orderCreated, trace);
+          dispatchDedupStore.markDispatched(orderCreated.getOrderId(), dispatched);
+          sends.add(dispatched);
+        } else {
+          stockUnavailable(orderCreated);
+          sends.add(CompletableFuture.completedFuture(null));
+        }
+      } catch (RuntimeException e) {
+        awaitSends(sends);
+        throw new BatchListenerFailedException("Failed to process record", e, index);
+      }
+    }
+    awaitSends(sends);
+
+    log.info("Processed batch: size: {}, distinct items: {}", records.size(),
+             stockAvailability.size());
+  }
+
+  /**
+   * Process a batch of order created records concurrently
+   * <p>
+   * The records of each key run one after another in offset order on one task, and the tasks of
+   * different keys run in parallel on the executor. A task stops at the first failed record of
+   * its key, so the later ones are redelivered after it. Every task is finished before returning,
+   * so the error handler only commits records below the lowest failed index. Tasks never submit
+   * to the executor themselves, so a concurrency limit on it only ever blocks the caller.
+   *
+   * @param records  order created records in poll order
+   * @param executor executor running the records
+   * @throws BatchListenerFailedException naming the lowest index of a failed record
+   */
+  public void processParallel(List<ConsumerRecord<String, OrderCreated>> records,
+                              Executor executor) {
+    Map<String, List<Integer>> indexesByKey = new HashMap<>();
+    List<List<Integer>> groups = new ArrayList<>();
+    for (int index = 0; index < records.size(); index++) {
+      String key = records.get(index).key();
+      List<Integer> group = key == null ? null : indexesByKey.get(key);
+      if (group == null) {
+        group = new ArrayList<>();
+        groups.add(group);
+        if (key != null) {
+          indexesByKey.put(key, group);
+        }
+      }
+      group.add(index);
+    }
+
+    List<CompletableFuture<Void>> tasks = new ArrayList<>(groups.size());
+    for (List<Integer> group : groups) {
+      tasks.add(CompletableFuture.runAsync(() -> processInOrder(records, group), executor));
+    }
+
+    BatchListenerFailedException failure = null;
+    for (CompletableFuture<Void> task : tasks) {
+      try {
+        task.join();
+      } catch (CompletionException e) {
+        BatchListenerFailedException taskFailure =
+            e.getCause() instanceof BatchListenerFailedException batchFailure
+            ? batchFailure
+            : new BatchListenerFailedException("Failed to process record", e.getCause(), 0);
+        if (failure == null || taskFailure.getIndex() < failure.getIndex()) {
+          failure = taskFailure;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+    log.info("Processed batch in parallel: size: {}, distinct keys: {}", records.size(),
+             indexesByKey.size());
+  }
+
+  /**
+   * Process the records at the indexes one after another, stopping at the first failure
+   *
+   * @throws BatchListenerFailedException naming the index of the failed record
+   */
+  private void processInOrder(List<ConsumerRecord<String, OrderCreated>> records,
+                              List<Integer> indexes) {
+    for (int index : indexes) {
+      try {
+        processRecord(records.get(index));
+      } catch (RuntimeException e) {
+        throw new BatchListenerFailedException("Failed to process record", e, index);
+      }
+    }
+  }
+
+  private void processRecord(ConsumerRecord<String, OrderCreated> record) {
+    if (record.value() == null) {
+      throw new NotRetryableException("Unable to deserialize record at offset " + record.offset());
+    }
+    try {
+      process(record.key(), record.value(), DispatchTrace.of(record));
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RetryableException(e);
+    }
+  }
+
+  /**
+   * Check stock for the order through the cache of its partition, recording the lookup on the
+   * trace
+   *
+   * @return the trace with the lookup, or null when out of stock
+   */
+  private DispatchTrace checkAvailability(OrderCreated orderCreated, DispatchTrace trace) {
+    long lookupStart = System.nanoTime();
+    String stockAvailable = partitionStockCache.get(trace.partition(), orderCreated.getItem(),
+                                                    stockServiceClient::checkAvailability);
+    DispatchTrace checked = trace.withStockLookup(System.nanoTime() - lookupStart);
+    dispatchMetrics.recordLookupStages(checked, APPLICATION_ID);
+    return Boolean.parseBoolean(stockAvailable) ? checked : null;
+  }
+
+  private void skipDuplicate(String key, OrderCreated orderCreated) {
+    log.info("Skipping already dispatched order: key: {}, orderId: {}", key,
+             orderCreated.getOrderId());
+  }
+
+  private void stockUnavailable(OrderCreated orderCreated) {
+    dispatchLogSampler.unavailable();
+    if (!dispatchLogSampler.isSampled()) {
       log.info("Stock not available for item: {}", orderCreated.getItem());
     }
   }
+
+  /**
+   * Tracking event announcing the order is being prepared for dispatch
+   */
+  public DispatchPreparing dispatchPreparing(OrderCreated orderCreated) {
+    return DispatchPreparing.builder().orderId(orderCreated.getOrderId()).build();
+  }
+
+  /**
+   * Event announcing the order was dispatched by this instance
+   */
+  public OrderDispatched orderDispatched(OrderCreated orderCreated) {
+    return OrderDispatched.builder()
+                          .orderId(orderCreated.getOrderId())
+                          .processById(APPLICATION_ID)
+                          .notes("Dispatched: " + orderCreated.getItem())
+                          .build();
+  }
+
+  /**
+   * Send the events one after another, staging the rest of them in the dispatch outbox once one
+   * cannot be sent or events are already staged
+   *
+   * @return whether the events were staged
+   */
+  private boolean send(List<ProducerRecord<String, Object>> records)
+      throws ExecutionException, InterruptedException {
+    for (int index = 0; index < records.size(); index++) {
+      if (!dispatchOutbox.isEnabled() || kafkaTemplate.inTransaction()) {
+        // The call to get() on it makes the send synchronous
+        kafkaTemplate.send(records.get(index)).get();
+      } else if (dispatchOutbox.hasPending() || !sendWithinTimeout(records.get(index))) {
+        // Staged behind the events already in the outbox, so they stay in order per key
+        dispatchOutbox.stage(records.subList(index, records.size()));
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Send the event, waiting for its ack up to the send timeout of the dispatch outbox
+   *
+   * @return false when the broker did not ack it in time or cannot be reached
+   */
+  private boolean sendWithinTimeout(ProducerRecord<String, Object> record)
+      throws ExecutionException, InterruptedException {
+    try {
+      kafkaTemplate.send(record).get(dispatchOutbox.sendTimeout().toNanos(),
+                                     TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      log.warn("Staging dispatch events in outbox, send timed out: topic: {}, key: {}",
+               record.topic(), record.key());
+      return false;
+    } catch (ExecutionException | RuntimeException e) {
+      if (!DispatchOutbox.isBrokerUnavailable(e)) {
+        throw e;
+      }
+      log.warn("Staging dispatch events in outbox, send failed: topic: {}, key: {}, {}",
+               record.topic(), record.key(), e.getMessage());
+      return false;
+    }
+  }
+
+  private CompletableFuture<Void> dispatch(String key, OrderCreated orderCreated,
+                                           DispatchTrace trace) {
+    long sentTimestamp = System.currentTimeMillis();
+    CompletableFuture<Void> sends = CompletableFuture.allOf(
+        kafkaTemplate.send(record(DISPATCH_TRACKING_TOPIC, key, dispatchPreparing(orderCreated),
+                                  trace, sentTimestamp)),
+        kafkaTemplate.send(record(ORDER_DISPATCHED_TOPIC, key, orderDispatched(orderCreated),
+                                  trace, sentTimestamp)));
+    sends.thenRun(() -> dispatchMetrics.recordSendStages(trace, APPLICATION_ID, sentTimestamp));
+    return sends;
+  }
+
+  private static ProducerRecord<String, Object> record(String topic, String key, Object value,
+                                                       DispatchTrace trace, long sentTimestamp) {
+    return new ProducerRecord<>(topic, null, key, value,
+                                trace.headers(APPLICATION_ID, sentTimestamp));
+  }
+
+  /**
+   * Failure of a batch for a batch listener to rethrow, logged at the index of the failed record
+   * <p>
+   * Retryable and not retryable failures are rethrown as they are, any other failure is marked
+   * not retryable so the error handler dead letters the record without retrying it.
+   *
+   * @param e failure thrown by {@link #processBatch} or {@link #processParallel}
+   * @return failure to rethrow
+   */
+  public static BatchListenerFailedException batchFailure(BatchListenerFailedException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RetryableException) {
+      log.warn("Retryable exception at index {}: {}", e.getIndex(), cause.getMessage());
+      return e;
+    }
+    log.error("NotRetryable exception at index {}: {}", e.getIndex(), e.getMessage());
+    if (cause instanceof NotRetryableException) {
+      return e;
+    }
+    return new BatchListenerFailedException(e.getMessage(), new NotRetryableException(
+        cause instanceof Exception exception ? exception : e), e.getIndex());
+  }
+
+  private void awaitSends(List<CompletableFuture<?>> sends) {
+    for (int index = 0; index < sends.size(); index++) {
+      try {
+        sends.get(index).get();
+      } catch (ExecutionException e) {
+        throw new BatchListenerFailedException("Failed to send dispatch events", e.getCause(),
+                                               index);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new BatchListenerFailedException("Interrupted awaiting dispatch events", e, index);
+      }
+    }
+  }
 }
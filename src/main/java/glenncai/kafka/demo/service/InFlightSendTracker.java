@@ -0,0 +1,56 @@
+package glenncai.kafka.demo.service;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Producer interceptor counting the sends that have not been acknowledged yet
+ * <p>
+ * Kafka instantiates the interceptor of each producer the factory creates, transactional ones
+ * included, and the bean is handed over as the value of IN_FLIGHT_SEND_TRACKER_CONFIG in the
+ * producer config, so those instances share its count. The producer acknowledges every record
+ * it passed to onSend exactly once, with its exception when the send failed, synchronous
+ * failures such as a SerializationException included, so a failed send leaves the count like
+ * a successful one.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Component
+public class InFlightSendTracker implements ProducerInterceptor<Object, Object> {
+
+  public static final String IN_FLIGHT_SEND_TRACKER_CONFIG = "dispatch.in-flight-send-tracker";
+
+  private AtomicInteger inFlight = new AtomicInteger();
+
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  @Override
+  public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+    inFlight.incrementAndGet();
+    return record;
+  }
+
+  @Override
+  public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+    inFlight.decrementAndGet();
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs) {
+    if (configs.get(IN_FLIGHT_SEND_TRACKER_CONFIG) instanceof InFlightSendTracker tracker) {
+      this.inFlight = tracker.inFlight;
+    }
+  }
+}
@@ -0,0 +1,286 @@
+package glenncai.kafka.demo.service;
+
+import static glenncai.kafka.demo.client.StockServiceCircuitBreaker.OPEN_RETRY_INTERVAL;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key ordered dispatcher, used when dispatch.engine is keyed
+ * <p>
+ * Records are sharded by key hash onto a fixed set of worker threads, each draining its own
+ * bounded queue, so records of a key run in offset order while different keys of the same
+ * partition run in parallel. A full queue blocks the listener thread, which holds back the next
+ * poll. Workers retry and dead letter records themselves, and per partition offset trackers give
+ * the watermark that is safe to commit. A record only completes once it is dispatched or dead
+ * lettered, so one interrupted, abandoned midway or failing to dead letter holds the watermark
+ * below it until its partition is reassigned and it is redelivered.
+ * <p>
+ * On revocation the in-flight records of the partition are drained for up to drainTimeout, the
+ * watermark is committed, and whatever is still queued is abandoned to the new owner.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "keyed")
+public class KeyOrderedDispatcher implements ConsumerAwareRebalanceListener, DisposableBean {
+
+  private final DispatchService dispatchService;
+
+  private final ConsumerRecordRecoverer deadLetterPublishingRecoverer;
+
+  private final BackOff backOff;
+
+  private final Duration drainTimeout;
+
+  private final List<BlockingQueue<Runnable>> queues;
+
+  private final List<Thread> workers;
+
+  private final Map<TopicPartition, PartitionOffsetTracker> trackers = new ConcurrentHashMap<>();
+
+  public KeyOrderedDispatcher(DispatchService dispatchService,
+                              ConsumerRecordRecoverer deadLetterPublishingRecoverer,
+                              @Value("${dispatch.keyed.workers:8}") int workerCount,
+                              @Value("${dispatch.keyed.queue-capacity:1000}") int queueCapacity,
+                              @Value("${dispatch.keyed.retry-interval:100ms}")
+                              Duration retryInterval,
+                              @Value("${dispatch.keyed.max-retries:3}") long maxRetries,
+                              @Value("${dispatch.keyed.drain-timeout:5s}") Duration drainTimeout) {
+    this.dispatchService = dispatchService;
+    this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+    this.backOff = new FixedBackOff(retryInterval.toMillis(), maxRetries);
+    this.drainTimeout = drainTimeout;
+    this.queues = new ArrayList<>(workerCount);
+    this.workers = new ArrayList<>(workerCount);
+    for (int index = 0; index < workerCount; index++) {
+      BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+      Thread worker = new Thread(() -> work(queue), "dispatch-keyed-" + index);
+      queues.add(queue);
+      workers.add(worker);
+      worker.start();
+    }
+  }
+
+  /**
+   * Queue the record on the worker owning its key, blocking while that worker's queue is full
+   */
+  public void submit(ConsumerRecord<String, OrderCreated> record) throws InterruptedException {
+    PartitionOffsetTracker tracker =
+        trackers.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                                 partition -> new PartitionOffsetTracker());
+    if (tracker.register(record.offset())) {
+      queues.get(shard(record)).put(() -> run(record, tracker));
+    }
+  }
+
+  /**
+   * Watermarks of the given partitions that moved since they were last returned
+   *
+   * @param assignment partitions assigned to the consumer committing the watermarks
+   */
+  public Map<TopicPartition, OffsetAndMetadata> committableOffsets(
+      Collection<TopicPartition> assignment) {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (TopicPartition partition : assignment) {
+      PartitionOffsetTracker tracker = trackers.get(partition);
+      long watermark = tracker == null ? -1 : tracker.advanceCommit();
+      if (watermark >= 0) {
+        offsets.put(partition, new OffsetAndMetadata(watermark));
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * Number of records queued or running on the workers
+   */
+  public int inFlightCount() {
+    return trackers.values().stream().mapToInt(PartitionOffsetTracker::inFlightCount).sum();
+  }
+
+  @Override
+  public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                              Collection<TopicPartition> partitions) {
+    long deadline = System.nanoTime() + drainTimeout.toNanos();
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (TopicPartition partition : partitions) {
+      PartitionOffsetTracker tracker = trackers.remove(partition);
+      if (tracker == null) {
+        continue;
+      }
+      try {
+        if (!tracker.awaitIdle(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          log.warn("Abandoning in-flight records of revoked partition: partition={}, count={}",
+                   partition, tracker.inFlightCount());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      tracker.revoke();
+      long watermark = tracker.advanceCommit();
+      if (watermark >= 0) {
+        offsets.put(partition, new OffsetAndMetadata(watermark));
+      }
+    }
+    if (!offsets.isEmpty()) {
+      log.info("Committing watermarks of revoked partitions: {}", offsets);
+      consumer.commitSync(offsets);
+    }
+  }
+
+  @Override
+  public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    partitions.forEach(partition -> {
+      PartitionOffsetTracker tracker = trackers.remove(partition);
+      if (tracker != null) {
+        log.warn("Abandoning in-flight records of lost partition: partition={}, count={}",
+                 partition, tracker.inFlightCount());
+        tracker.revoke();
+      }
+    });
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    workers.forEach(Thread::interrupt);
+    for (Thread worker : workers) {
+      worker.join(drainTimeout.toMillis());
+    }
+  }
+
+  private int shard(ConsumerRecord<String, OrderCreated> record) {
+    int hash = record.key() == null ? Long.hashCode(record.offset()) : record.key().hashCode();
+    return Math.floorMod(hash, queues.size());
+  }
+
+  private void work(BlockingQueue<Runnable> queue) {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        queue.take().run();
+      }
+    } catch (InterruptedException e) {
+      log.debug("Worker stopped: {}", Thread.currentThread().getName());
+    }
+  }
+
+  private void run(ConsumerRecord<String, OrderCreated> record, PartitionOffsetTracker tracker) {
+    if (tracker.isRevoked()) {
+      log.debug("Skipping record of revoked partition: partition={}, offset={}",
+                record.partition(), record.offset());
+      return;
+    }
+    try {
+      if (dispatch(record, tracker)) {
+        tracker.complete(record.offset());
+      }
+    } catch (InterruptedException e) {
+      // Left in flight, so the watermark stays below the record and it is redelivered
+      log.warn("Interrupted dispatching record: partition={}, offset={}", record.partition(),
+               record.offset());
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Dispatch the record, retrying it and dead lettering it once out of retries
+   *
+   * @return true when the record was dispatched or dead lettered, false when it was abandoned to
+   * the new owner of its revoked partition or could not be dead lettered
+   */
+  private boolean dispatch(ConsumerRecord<String, OrderCreated> record,
+                           PartitionOffsetTracker tracker) throws InterruptedException {
+    DispatchTrace trace = DispatchTrace.of(record);
+    BackOffExecution backOffExecution = backOff.start();
+    while (true) {
+      try {
+        if (record.value() == null) {
+          throw new NotRetryableException("Unable to deserialize record at offset "
+                                          + record.offset());
+        }
+        dispatchService.process(record.key(), record.value(), trace);
+        return true;
+      } catch (RetryableException e) {
+        // Waiting out an open circuit breaker does not use up the record's retries
+        long interval = e instanceof CircuitBreakerOpenException
+                        ? OPEN_RETRY_INTERVAL.toMillis() : backOffExecution.nextBackOff();
+        if (tracker.isRevoked()) {
+          return false;
+        }
+        if (interval == BackOffExecution.STOP) {
+          return recover(record, e, tracker);
+        }
+        log.warn("Retryable exception: partition={}, offset={}, {}", record.partition(),
+                 record.offset(), e.getMessage());
+        Thread.sleep(interval);
+      } catch (NotRetryableException e) {
+        return recover(record, e, tracker);
+      } catch (ExecutionException | RuntimeException e) {
+        return recover(record, new NotRetryableException(e), tracker);
+      }
+    }
+  }
+
+  /**
+   * Dead letter the record, retrying a failed publish under the back off
+   *
+   * @return true when the record was dead lettered, false when it was abandoned to the new owner
+   * of its revoked partition or the publish is out of retries
+   */
+  private boolean recover(ConsumerRecord<String, OrderCreated> record, Exception exception,
+                          PartitionOffsetTracker tracker) throws InterruptedException {
+    log.error("Dead lettering record: partition={}, offset={}, key={}, payload={}",
+              record.partition(), record.offset(), record.key(), record.value(), exception);
+    BackOffExecution backOffExecution = backOff.start();
+    while (true) {
+      try {
+        deadLetterPublishingRecoverer.accept(record, exception);
+        return true;
+      } catch (RuntimeException e) {
+        long interval = backOffExecution.nextBackOff();
+        if (tracker.isRevoked()) {
+          return false;
+        }
+        if (interval == BackOffExecution.STOP) {
+          // Left in flight, so the watermark stays below the record and it is redelivered
+          log.error("Failed to dead letter record, holding back its partition: partition={}, "
+                    + "offset={}, key={}", record.partition(), record.offset(), record.key(), e);
+          return false;
+        }
+        log.warn("Failed to dead letter record: partition={}, offset={}, {}", record.partition(),
+                 record.offset(), e.getMessage());
+        Thread.sleep(interval);
+      }
+    }
+  }
+}
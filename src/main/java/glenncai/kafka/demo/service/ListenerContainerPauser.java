@@ -0,0 +1,82 @@
+package glenncai.kafka.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Pauses and resumes the order listener containers on behalf of several independent reasons
+ * <p>
+ * The containers are those whose listener id starts with listenerId, so the retry topic
+ * containers of the order listener are included. They stay paused while any reason is active
+ * and resume once the last one is cleared, so one condition clearing cannot resume the
+ * containers while another still holds them. A paused container keeps polling, which keeps the
+ * consumer in its group, but receives no records.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+@Component
+public class ListenerContainerPauser {
+
+  private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+  private final String listenerId;
+
+  private final Set<String> reasons = new LinkedHashSet<>();
+
+  public ListenerContainerPauser(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+                                 @Value("${dispatch.pause.listener-id:orderConsumerClient}")
+                                 String listenerId) {
+    this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+    this.listenerId = listenerId;
+  }
+
+  /**
+   * Pause the containers for the reason, a no-op when the reason is already active
+   */
+  public synchronized void pause(String reason) {
+    if (!reasons.add(reason)) {
+      return;
+    }
+    log.warn("Pausing listener containers: reason={}, reasons={}", reason, reasons);
+    if (reasons.size() == 1) {
+      containers().forEach(MessageListenerContainer::pause);
+    }
+  }
+
+  /**
+   * Clear the reason, resuming the containers when no other reason is active
+   */
+  public synchronized void resume(String reason) {
+    if (!reasons.remove(reason)) {
+      return;
+    }
+    log.info("Clearing listener container pause: reason={}, reasons={}", reason, reasons);
+    if (reasons.isEmpty()) {
+      containers().forEach(MessageListenerContainer::resume);
+    }
+  }
+
+  public synchronized boolean isPaused() {
+    return !reasons.isEmpty();
+  }
+
+  public synchronized Set<String> reasons() {
+    return Set.copyOf(reasons);
+  }
+
+  private Iterable<MessageListenerContainer> containers() {
+    return kafkaListenerEndpointRegistry.getListenerContainers().stream()
+                                        .filter(container -> container.getListenerId() != null
+                                                             && container.getListenerId()
+                                                                         .startsWith(listenerId))
+                                        .toList();
+  }
+}
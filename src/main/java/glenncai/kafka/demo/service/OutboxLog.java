@@ -0,0 +1,425 @@
+package glenncai.kafka.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of byte records in memory mapped segment files
+ * <p>
+ * Segments are preallocated files of segmentSize bytes named by their base position, holding a
+ * magic and version followed by frames of a length, a CRC32C and the record. A zero length ends
+ * the records of a segment, and an append that does not fit rolls to a new segment. Positions
+ * are the base of a segment plus the offset in it, so they only grow. The last byte of a segment
+ * is never written, so a position always falls within the segment it was taken in.
+ * <p>
+ * The reader commits the position up to which records were handled to a checkpoint file, and
+ * segments wholly below it are deleted. On open, the records from the checkpoint on are scanned
+ * and the log is cut at the first torn or corrupt frame. Appends that would need more than
+ * maxSegments segments are refused, which bounds the disk used.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+final class OutboxLog implements Closeable {
+
+  static final String SEGMENT_SUFFIX = ".outbox";
+
+  static final String CHECKPOINT_FILE = "relay.checkpoint";
+
+  private static final int SEGMENT_MAGIC = 0x4f424f58;
+
+  private static final int CHECKPOINT_MAGIC = 0x4f42434b;
+
+  private static final int VERSION = 1;
+
+  private static final int SEGMENT_HEADER_SIZE = 8;
+
+  private static final int FRAME_HEADER_SIZE = 8;
+
+  /**
+   * When appended records are forced to disk
+   * <ul>
+   *   <li>ALWAYS: before append returns</li>
+   *   <li>INTERVAL: on each call to flush</li>
+   *   <li>NEVER: whenever the operating system writes the pages back</li>
+   * </ul>
+   */
+  enum Fsync {
+    ALWAYS, INTERVAL, NEVER;
+
+    static Fsync of(String name) {
+      return Arrays.stream(values())
+                   .filter(fsync -> fsync.name().equalsIgnoreCase(name.trim()))
+                   .findFirst()
+                   .orElseThrow(() -> new IllegalArgumentException(
+                       "Unknown outbox fsync policy '" + name + "', expected one of "
+                       + Arrays.stream(values()).map(fsync -> fsync.name().toLowerCase())
+                               .collect(Collectors.joining(", "))));
+    }
+  }
+
+  /**
+   * Records read from the log, and the position following the last of them
+   */
+  record Batch(List<byte[]> records, long nextPosition) {
+  }
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  private final int maxSegments;
+
+  private final Fsync fsync;
+
+  private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+  private final AtomicLong pending = new AtomicLong();
+
+  private Segment active;
+
+  private volatile long writePosition;
+
+  private volatile long readPosition;
+
+  /**
+   * Open the log in the directory, recovering the records a previous run left unread
+   *
+   * @throws IOException when the directory or its segments cannot be read or created
+   */
+  OutboxLog(Path directory, int segmentSize, int maxSegments, Fsync fsync) throws IOException {
+    if (segmentSize <= SEGMENT_HEADER_SIZE + FRAME_HEADER_SIZE || maxSegments < 1) {
+      throw new IllegalArgumentException("Outbox needs at least one segment larger than "
+                                         + (SEGMENT_HEADER_SIZE + FRAME_HEADER_SIZE)
+                                         + " bytes, was segmentSize=" + segmentSize
+                                         + ", maxSegments=" + maxSegments);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+    this.fsync = fsync;
+    Files.createDirectories(directory);
+    recover();
+  }
+
+  /**
+   * Append the records as one write, forcing them to disk first with the ALWAYS policy
+   *
+   * @return false when the records do not fit in maxSegments segments, nothing being appended
+   * @throws IOException when a segment cannot be created or forced
+   */
+  synchronized boolean append(List<byte[]> records) throws IOException {
+    int size = 0;
+    for (byte[] record : records) {
+      if (FRAME_HEADER_SIZE + record.length >= segmentSize - SEGMENT_HEADER_SIZE) {
+        throw new IllegalArgumentException("Outbox record of " + record.length
+                                           + " bytes does not fit a segment of "
+                                           + segmentSize + " bytes");
+      }
+      size += FRAME_HEADER_SIZE + record.length;
+    }
+    // Written to one segment, so a torn write at the end of a segment never splits the records
+    if (size >= segmentSize - SEGMENT_HEADER_SIZE) {
+      throw new IllegalArgumentException("Outbox records of " + size + " bytes do not fit a "
+                                         + "segment of " + segmentSize + " bytes");
+    }
+    int offset = offset(writePosition);
+    if (offset + size >= segmentSize) {
+      if (segments.size() >= maxSegments) {
+        return false;
+      }
+      roll();
+      offset = SEGMENT_HEADER_SIZE;
+    }
+    int start = offset;
+    CRC32C crc = new CRC32C();
+    for (byte[] record : records) {
+      crc.reset();
+      crc.update(record);
+      active.buffer.put(offset + FRAME_HEADER_SIZE, record);
+      active.buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+      // The length goes last, so a reader or a recovery never sees a frame before its record
+      active.buffer.putInt(offset, record.length);
+      offset += FRAME_HEADER_SIZE + record.length;
+    }
+    if (fsync == Fsync.ALWAYS) {
+      active.buffer.force(start, offset - start);
+    }
+    writePosition = active.base + offset;
+    pending.addAndGet(records.size());
+    return true;
+  }
+
+  /**
+   * Force the records appended so far to disk, with the INTERVAL policy
+   */
+  synchronized void flush() {
+    if (fsync == Fsync.INTERVAL && active != null) {
+      active.buffer.force();
+    }
+  }
+
+  /**
+   * Read up to maxRecords records from the read position, from the reader thread only
+   * <p>
+   * A corrupt frame, which recovery cuts off at the end of the log but is left in place in an
+   * earlier segment, skips the rest of its segment.
+   */
+  Batch read(int maxRecords) {
+    List<byte[]> records = new ArrayList<>();
+    long position = readPosition;
+    long end = writePosition;
+    while (records.size() < maxRecords && position < end) {
+      Segment segment = segments.get(base(position));
+      if (segment == null) {
+        Long next = segments.ceilingKey(base(position));
+        position = next == null ? end : next + SEGMENT_HEADER_SIZE;
+        continue;
+      }
+      int offset = offset(position);
+      int length = offset + FRAME_HEADER_SIZE <= segmentSize
+                   ? segment.buffer.getInt(offset) : 0;
+      if (length <= 0) {
+        position = Math.min(segment.base + segmentSize + SEGMENT_HEADER_SIZE, end);
+        continue;
+      }
+      byte[] record = readFrame(segment.buffer, offset, length);
+      if (record == null) {
+        log.error("Skipping corrupt outbox segment: segment={}, offset={}", segment.path, offset);
+        position = Math.min(segment.base + segmentSize + SEGMENT_HEADER_SIZE, end);
+        continue;
+      }
+      records.add(record);
+      position += FRAME_HEADER_SIZE + length;
+    }
+    return new Batch(records, position);
+  }
+
+  /**
+   * Move the read position past the batch, checkpointing it and deleting the segments wholly
+   * below it
+   *
+   * @throws IOException when the checkpoint cannot be written, the read position is moved anyway
+   */
+  void commit(Batch batch) throws IOException {
+    long position = batch.nextPosition();
+    readPosition = position;
+    pending.addAndGet(-batch.records().size());
+    try {
+      writeCheckpoint(position);
+    } finally {
+      deleteSegmentsBelow(base(position));
+    }
+  }
+
+  boolean isEmpty() {
+    return readPosition == writePosition;
+  }
+
+  /**
+   * Records appended and not yet committed
+   */
+  long pending() {
+    return pending.get();
+  }
+
+  /**
+   * Bytes of the segment files on disk
+   */
+  long diskSize() {
+    return (long) segments.size() * segmentSize;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (fsync != Fsync.NEVER && active != null) {
+      active.buffer.force();
+    }
+    for (Segment segment : segments.values()) {
+      segment.channel.close();
+    }
+  }
+
+  /**
+   * Map the segments from the checkpoint on, and find the write position by scanning the last
+   */
+  private void recover() throws IOException {
+    long checkpoint = readCheckpoint();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                                                                "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        long base = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        if (checkpoint >= 0 && base + segmentSize <= checkpoint) {
+          Files.delete(file);
+          continue;
+        }
+        segments.put(base, Segment.open(file, base, segmentSize, false));
+      }
+    }
+    if (segments.isEmpty()) {
+      long base = checkpoint >= 0 ? base(checkpoint) + segmentSize : 0L;
+      active = Segment.open(segmentPath(base), base, segmentSize, true);
+      segments.put(base, active);
+      readPosition = base + SEGMENT_HEADER_SIZE;
+      writePosition = readPosition;
+      return;
+    }
+    long first = segments.firstKey();
+    readPosition = checkpoint >= 0 && base(checkpoint) == first
+                   ? checkpoint : first + SEGMENT_HEADER_SIZE;
+    int offset = 0;
+    for (Segment segment : segments.values()) {
+      offset = scan(segment, segment.base == first ? offset(readPosition) : SEGMENT_HEADER_SIZE);
+    }
+    active = segments.lastEntry().getValue();
+    // Zero a torn frame, so it is not mistaken for one once records are appended past it
+    for (int index = offset; index < segmentSize; index++) {
+      if (active.buffer.get(index) != 0) {
+        active.buffer.put(index, (byte) 0);
+      }
+    }
+    writePosition = active.base + offset;
+    log.info("Recovered outbox: directory={}, segments={}, pending={}", directory,
+             segments.size(), pending.get());
+  }
+
+  /**
+   * Offset following the last intact frame of the segment from the offset on, counting the
+   * frames as pending
+   */
+  private int scan(Segment segment, int offset) {
+    while (offset + FRAME_HEADER_SIZE < segmentSize) {
+      int length = segment.buffer.getInt(offset);
+      if (length <= 0 || readFrame(segment.buffer, offset, length) == null) {
+        break;
+      }
+      offset += FRAME_HEADER_SIZE + length;
+      pending.incrementAndGet();
+    }
+    return offset;
+  }
+
+  private byte[] readFrame(MappedByteBuffer buffer, int offset, int length) {
+    if (length > segmentSize - offset - FRAME_HEADER_SIZE) {
+      return null;
+    }
+    byte[] record = new byte[length];
+    buffer.get(offset + FRAME_HEADER_SIZE, record);
+    CRC32C crc = new CRC32C();
+    crc.update(record);
+    return (int) crc.getValue() == buffer.getInt(offset + Integer.BYTES) ? record : null;
+  }
+
+  private void roll() throws IOException {
+    if (fsync != Fsync.NEVER) {
+      active.buffer.force();
+    }
+    long base = active.base + segmentSize;
+    active = Segment.open(segmentPath(base), base, segmentSize, true);
+    segments.put(base, active);
+    writePosition = base + SEGMENT_HEADER_SIZE;
+  }
+
+  private void deleteSegmentsBelow(long base) throws IOException {
+    for (Long segmentBase : List.copyOf(segments.headMap(base).keySet())) {
+      Segment segment = segments.remove(segmentBase);
+      segment.channel.close();
+      Files.deleteIfExists(segment.path);
+    }
+  }
+
+  private long readCheckpoint() {
+    Path file = directory.resolve(CHECKPOINT_FILE);
+    if (!Files.exists(file)) {
+      return -1L;
+    }
+    try (DataInputStream input = new DataInputStream(Files.newInputStream(file))) {
+      if (input.readInt() != CHECKPOINT_MAGIC || input.readInt() != VERSION) {
+        log.warn("Ignoring outbox checkpoint of unknown format: file={}", file);
+        return -1L;
+      }
+      return input.readLong();
+    } catch (IOException e) {
+      // Relaying from the first segment again only sends duplicates
+      log.warn("Ignoring unreadable outbox checkpoint: file={}", file, e);
+      return -1L;
+    }
+  }
+
+  private void writeCheckpoint(long position) throws IOException {
+    Path file = directory.resolve(CHECKPOINT_FILE);
+    Path temporary = Files.createTempFile(directory, CHECKPOINT_FILE, ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(temporary))) {
+        output.writeInt(CHECKPOINT_MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(position);
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private Path segmentPath(long base) {
+    return directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+  }
+
+  private long base(long position) {
+    return position - Math.floorMod(position, (long) segmentSize);
+  }
+
+  private int offset(long position) {
+    return (int) Math.floorMod(position, (long) segmentSize);
+  }
+
+  /**
+   * Segment file mapped in full
+   */
+  private record Segment(Path path, long base, FileChannel channel, MappedByteBuffer buffer) {
+
+    static Segment open(Path path, long base, int segmentSize, boolean create)
+        throws IOException {
+      FileChannel channel = create
+                            ? FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                                               StandardOpenOption.READ, StandardOpenOption.WRITE)
+                            : FileChannel.open(path, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+      try {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        if (create) {
+          buffer.putInt(0, SEGMENT_MAGIC);
+          buffer.putInt(Integer.BYTES, VERSION);
+        } else if (channel.size() != segmentSize || buffer.getInt(0) != SEGMENT_MAGIC
+                   || buffer.getInt(Integer.BYTES) != VERSION) {
+          throw new IOException("Not an outbox segment of " + segmentSize + " bytes: " + path);
+        }
+        return new Segment(path, base, channel, buffer);
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package glenncai.kafka.demo.service;
+
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offset tracker for one partition whose records complete out of order
+ * <p>
+ * Only the offsets still in flight are kept, so the structure stays as small as the work in
+ * progress however far completions run ahead. The commit watermark is the lowest in-flight
+ * offset, or one past the highest offset seen once nothing is in flight. Tracking in-flight
+ * rather than completed offsets also copes with the gaps left by compaction and transaction
+ * markers, which a contiguous run of completed offsets would never bridge.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class PartitionOffsetTracker {
+
+  private final TreeSet<Long> inFlight = new TreeSet<>();
+
+  private long nextOffset = -1L;
+
+  private long committedOffset = -1L;
+
+  private boolean revoked;
+
+  /**
+   * Record that the offset has been handed to a worker
+   *
+   * @return false when the partition has been revoked and the record must not be processed
+   */
+  public synchronized boolean register(long offset) {
+    if (revoked) {
+      return false;
+    }
+    inFlight.add(offset);
+    nextOffset = Math.max(nextOffset, offset + 1);
+    return true;
+  }
+
+  /**
+   * Record that the offset has been processed
+   */
+  public synchronized void complete(long offset) {
+    if (inFlight.remove(offset) && inFlight.isEmpty()) {
+      notifyAll();
+    }
+  }
+
+  /**
+   * Offset to commit, or -1 when nothing has been registered
+   */
+  public synchronized long watermark() {
+    return inFlight.isEmpty() ? nextOffset : inFlight.first();
+  }
+
+  /**
+   * Watermark to commit when it has moved since the last call, otherwise -1
+   */
+  public synchronized long advanceCommit() {
+    long watermark = watermark();
+    if (watermark <= committedOffset) {
+      return -1L;
+    }
+    committedOffset = watermark;
+    return watermark;
+  }
+
+  public synchronized int inFlightCount() {
+    return inFlight.size();
+  }
+
+  public synchronized boolean isRevoked() {
+    return revoked;
+  }
+
+  /**
+   * Wait for the in-flight records to complete
+   *
+   * @return true when nothing is left in flight
+   */
+  public synchronized boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!inFlight.isEmpty()) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return true;
+  }
+
+  /**
+   * Stop accepting records, so queued records of the partition are abandoned by the workers
+   */
+  public synchronized void revoke() {
+    revoked = true;
+  }
+}
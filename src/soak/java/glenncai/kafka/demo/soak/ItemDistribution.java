@@ -0,0 +1,58 @@
+package glenncai.kafka.demo.soak;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * How the items of the generated orders are drawn from the catalogue
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public enum ItemDistribution {
+
+  /**
+   * Every item equally likely
+   */
+  UNIFORM {
+    @Override
+    IntSupplier sampler(int items, double exponent, SplittableRandom random) {
+      return () -> random.nextInt(items);
+    }
+  },
+
+  /**
+   * Item k drawn with a probability proportional to 1 / k^exponent, so a few hot SKUs take
+   * most of the orders
+   */
+  ZIPFIAN {
+    @Override
+    IntSupplier sampler(int items, double exponent, SplittableRandom random) {
+      double[] cumulative = new double[items];
+      double sum = 0;
+      for (int rank = 0; rank < items; rank++) {
+        sum += 1.0 / Math.pow(rank + 1, exponent);
+        cumulative[rank] = sum;
+      }
+      double total = sum;
+      return () -> {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+        return Math.min(index < 0 ? -index - 1 : index, items - 1);
+      };
+    }
+  };
+
+  /**
+   * Sampler of item indexes in [0, items)
+   */
+  abstract IntSupplier sampler(int items, double exponent, SplittableRandom random);
+
+  static ItemDistribution of(String name) {
+    return Arrays.stream(values())
+                 .filter(distribution -> distribution.name().equalsIgnoreCase(name.trim()))
+                 .findFirst()
+                 .orElseThrow(() -> new IllegalArgumentException(
+                     "Unknown item distribution '" + name + "', expected uniform or zipfian"));
+  }
+}
@@ -0,0 +1,100 @@
+package glenncai.kafka.demo.soak;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End to end latency of the generated orders, correlated by order id
+ * <p>
+ * Latency runs from the time an order was due to be sent, not the time it was sent, so a
+ * generator held up by a slow producer still charges the wait to the system under test. Values
+ * are recorded in microseconds.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class LatencyTracker {
+
+  private final Map<UUID, Long> outstanding = new ConcurrentHashMap<>();
+
+  private final Recorder recorder = new Recorder(3);
+
+  private final LongAdder sent = new LongAdder();
+
+  private final LongAdder sendFailures = new LongAdder();
+
+  private final LongAdder dispatched = new LongAdder();
+
+  private final LongAdder deadLettered = new LongAdder();
+
+  private final LongAdder unmatched = new LongAdder();
+
+  /**
+   * @param intendedNanos System.nanoTime() the order was due to be sent at
+   */
+  public void sent(UUID orderId, long intendedNanos) {
+    outstanding.put(orderId, intendedNanos);
+    sent.increment();
+  }
+
+  public void sendFailed(UUID orderId) {
+    outstanding.remove(orderId);
+    sendFailures.increment();
+  }
+
+  public void dispatched(UUID orderId) {
+    Long intendedNanos = outstanding.remove(orderId);
+    if (intendedNanos == null) {
+      // Redelivered, or sent before the tracker
+      unmatched.increment();
+      return;
+    }
+    recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos));
+    dispatched.increment();
+  }
+
+  public void deadLettered(UUID orderId) {
+    if (outstanding.remove(orderId) != null) {
+      deadLettered.increment();
+    } else {
+      unmatched.increment();
+    }
+  }
+
+  /**
+   * Latencies recorded since the previous call
+   */
+  public Histogram intervalHistogram() {
+    return recorder.getIntervalHistogram();
+  }
+
+  public long sent() {
+    return sent.sum();
+  }
+
+  public long sendFailures() {
+    return sendFailures.sum();
+  }
+
+  public long dispatched() {
+    return dispatched.sum();
+  }
+
+  public long deadLettered() {
+    return deadLettered.sum();
+  }
+
+  public long unmatched() {
+    return unmatched.sum();
+  }
+
+  public int outstanding() {
+    return outstanding.size();
+  }
+}
@@ -0,0 +1,84 @@
+package glenncai.kafka.demo.soak;
+
+import glenncai.kafka.demo.message.OrderCreated;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+
+/**
+ * Sends order created events to order.created at a fixed rate
+ * <p>
+ * Orders are due at evenly spaced times from the start. A generator that falls behind sends the
+ * overdue orders at once rather than skipping them, and their latency is measured from when they
+ * were due.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@Slf4j
+public class LoadGenerator implements Runnable {
+
+  private static final String ORDER_CREATED_TOPIC = "order.created";
+
+  private final KafkaTemplate<String, Object> kafkaTemplate;
+
+  private final LatencyTracker latencyTracker;
+
+  private final SoakSettings settings;
+
+  private final IntSupplier items;
+
+  private volatile boolean running = true;
+
+  public LoadGenerator(KafkaTemplate<String, Object> kafkaTemplate, LatencyTracker latencyTracker,
+                       SoakSettings settings) {
+    this.kafkaTemplate = kafkaTemplate;
+    this.latencyTracker = latencyTracker;
+    this.settings = settings;
+    this.items = settings.distribution().sampler(settings.items(), settings.zipfExponent(),
+                                                 new SplittableRandom(settings.seed()));
+  }
+
+  @Override
+  public void run() {
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+    long start = System.nanoTime();
+    long end = start + settings.duration().toNanos();
+    for (long index = 0; running; index++) {
+      long due = start + index * intervalNanos;
+      if (due - end >= 0) {
+        break;
+      }
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      send(due);
+    }
+    kafkaTemplate.flush();
+  }
+
+  public void stop() {
+    running = false;
+  }
+
+  private void send(long due) {
+    UUID orderId = UUID.randomUUID();
+    String item = "item-" + items.getAsInt();
+    String key = settings.keyByItem() ? item : UUID.randomUUID().toString();
+    latencyTracker.sent(orderId, due);
+    kafkaTemplate.send(ORDER_CREATED_TOPIC, key,
+                       OrderCreated.builder().orderId(orderId).item(item).build())
+                 .whenComplete((result, exception) -> {
+                   if (exception != null) {
+                     log.warn("Failed to send order {}", orderId, exception);
+                     latencyTracker.sendFailed(orderId);
+                   }
+                 });
+  }
+}
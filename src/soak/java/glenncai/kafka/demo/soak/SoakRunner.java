@@ -0,0 +1,285 @@
+package glenncai.kafka.demo.soak;
+
+import ch.qos.logback.classic.Logger;
+import glenncai.kafka.demo.config.KafkaConfig;
+import glenncai.kafka.demo.handler.OrderCreatedReactiveHandler;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.serde.DualFormatDeserializer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Load and soak harness of the order flow, run with: mvn -Psoak -DskipTests verify
+ * <p>
+ * Starts an in-JVM broker, a WireMock stock service and the application with the selected
+ * engine, then sends orders at a fixed rate for the duration of the run. Orders are matched on
+ * order.dispatched and order.created.DLT by order id. Interval percentiles are printed as the
+ * run goes. The interval histograms go to latency.hlog and the distribution after warmup to
+ * latency.hgrm in the output directory. The run exits non-zero when orders are lost or the p99
+ * is above max-p99.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public final class SoakRunner {
+
+  private static final String ORDER_CREATED_TOPIC = "order.created";
+
+  private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+
+  private static final String ORDER_CREATED_DLT_TOPIC = "order.created.DLT";
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+  private static final double MICROS_PER_MILLI = 1000.0;
+
+  private final SoakSettings settings;
+
+  private final LatencyTracker latencyTracker = new LatencyTracker();
+
+  private volatile boolean matching = true;
+
+  private SoakRunner(SoakSettings settings) {
+    this.settings = settings;
+  }
+
+  public static void main(String[] args) throws Exception {
+    ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(
+        ch.qos.logback.classic.Level.WARN);
+    boolean passed = new SoakRunner(SoakSettings.parse(args)).run();
+    System.exit(passed ? 0 : 1);
+  }
+
+  private boolean run() throws Exception {
+    Files.createDirectories(settings.output());
+    Path stateDir = Files.createTempDirectory("dispatch-soak");
+    EmbeddedKafkaBroker broker =
+        new EmbeddedKafkaBroker(1, true, settings.partitions(), ORDER_CREATED_TOPIC,
+                                ORDER_DISPATCHED_TOPIC, "dispatch.tracking",
+                                ORDER_CREATED_DLT_TOPIC, "stock.availability")
+            .brokerProperties(Map.of("transaction.state.log.replication.factor", "1",
+                                     "transaction.state.log.min.isr", "1"));
+    broker.afterPropertiesSet();
+    try (StockServiceStub stockService = new StockServiceStub(settings)) {
+      List<String> args = new ArrayList<>(List.of(
+          "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+          "--spring.kafka.consumer.auto-offset-reset=earliest",
+          "--dispatch.stockServiceEndpoint=" + stockService.endpoint(),
+          "--dispatch.engine=" + settings.engine(),
+          "--dispatch.streams.state-dir=" + stateDir,
+          "--logging.level.root=WARN"));
+      args.addAll(settings.applicationArgs());
+      try (ConfigurableApplicationContext context =
+               new SpringApplicationBuilder(KafkaConfig.class)
+                   .web(WebApplicationType.NONE)
+                   .run(args.toArray(String[]::new))) {
+        awaitStarted(context);
+        Thread matcher = new Thread(() -> match(broker), "soak-matcher");
+        matcher.start();
+        try {
+          return drive(context.getBean("kafkaTemplate", KafkaTemplate.class));
+        } finally {
+          matching = false;
+          matcher.join();
+        }
+      }
+    } finally {
+      broker.destroy();
+      FileSystemUtils.deleteRecursively(stateDir);
+    }
+  }
+
+  /**
+   * Send for the duration of the run and wait for the outstanding orders, printing interval
+   * percentiles, then write the logs and check the results
+   */
+  @SuppressWarnings("unchecked")
+  private boolean drive(KafkaTemplate<?, ?> kafkaTemplate) throws IOException,
+                                                                  InterruptedException {
+    LoadGenerator generator = new LoadGenerator((KafkaTemplate<String, Object>) kafkaTemplate,
+                                                latencyTracker, settings);
+    Thread generatorThread = new Thread(generator, "soak-generator");
+    Histogram total = null;
+    Path logFile = settings.output().resolve("latency.hlog");
+    try (PrintStream log = new PrintStream(Files.newOutputStream(logFile))) {
+      HistogramLogWriter logWriter = new HistogramLogWriter(log);
+      long startMillis = System.currentTimeMillis();
+      logWriter.outputStartTime(startMillis);
+      logWriter.outputLegend();
+      long start = System.nanoTime();
+      long warmupEnd = start + settings.warmup().toNanos();
+      long drainEnd = start + settings.duration().toNanos() + settings.drainTimeout().toNanos();
+      long reportIntervalNanos = settings.reportInterval().toNanos();
+      long previousSent = 0L;
+      long previousDispatched = 0L;
+      generatorThread.start();
+      System.out.printf("%-9s %10s %10s %9s %9s %9s %9s %11s%n", "elapsed", "sent/s", "done/s",
+                        "p50 ms", "p99 ms", "p99.9 ms", "max ms", "outstanding");
+      for (long next = start + reportIntervalNanos; ; next += reportIntervalNanos) {
+        BooleanSupplier drained =
+            () -> !generatorThread.isAlive() && latencyTracker.outstanding() == 0;
+        sleepUntil(next, drained);
+        long now = Math.min(System.nanoTime(), next);
+        Histogram interval = latencyTracker.intervalHistogram();
+        interval.setStartTimeStamp(startMillis + TimeUnit.NANOSECONDS.toMillis(
+            next - reportIntervalNanos - start));
+        interval.setEndTimeStamp(startMillis + TimeUnit.NANOSECONDS.toMillis(now - start));
+        logWriter.outputIntervalHistogram(interval);
+        if (next - reportIntervalNanos - warmupEnd >= 0) {
+          if (total == null) {
+            total = interval.copy();
+          } else {
+            total.add(interval);
+          }
+        }
+        long sent = latencyTracker.sent();
+        long dispatched = latencyTracker.dispatched() + latencyTracker.deadLettered();
+        double seconds = (now - (next - reportIntervalNanos)) / 1_000_000_000.0;
+        System.out.printf(Locale.ROOT, "%-9s %10.0f %10.0f %9.2f %9.2f %9.2f %9.2f %11d%n",
+                          Duration.ofNanos(now - start).toSeconds() + "s",
+                          (sent - previousSent) / seconds,
+                          (dispatched - previousDispatched) / seconds,
+                          millis(interval, 50.0), millis(interval, 99.0),
+                          millis(interval, 99.9), interval.getMaxValue() / MICROS_PER_MILLI,
+                          latencyTracker.outstanding());
+        previousSent = sent;
+        previousDispatched = dispatched;
+        if (drained.getAsBoolean() || System.nanoTime() - drainEnd > 0) {
+          break;
+        }
+      }
+    } finally {
+      generator.stop();
+      generatorThread.join();
+    }
+    return report(total == null ? new Histogram(3) : total);
+  }
+
+  private boolean report(Histogram total) throws IOException {
+    try (PrintStream distribution = new PrintStream(
+        Files.newOutputStream(settings.output().resolve("latency.hgrm")))) {
+      total.outputPercentileDistribution(distribution, MICROS_PER_MILLI);
+    }
+    long lost = latencyTracker.outstanding();
+    double p99 = millis(total, 99.0);
+    System.out.printf(Locale.ROOT,
+                      "%nengine=%s rate=%d/s duration=%s: sent=%d dispatched=%d dead-lettered=%d "
+                      + "send-failures=%d unmatched=%d lost=%d%n"
+                      + "after warmup: p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n"
+                      + "latency logs in %s%n",
+                      settings.engine(), settings.rate(), settings.duration(),
+                      latencyTracker.sent(), latencyTracker.dispatched(),
+                      latencyTracker.deadLettered(), latencyTracker.sendFailures(),
+                      latencyTracker.unmatched(), lost, millis(total, 50.0), millis(total, 90.0),
+                      p99, millis(total, 99.9), total.getMaxValue() / MICROS_PER_MILLI,
+                      settings.output().toAbsolutePath());
+    boolean passed = lost == 0;
+    if (settings.maxP99() != null && p99 > settings.maxP99().toNanos() / 1_000_000.0) {
+      System.out.printf("FAILED: p99 %.2fms above max-p99 %s%n", p99, settings.maxP99());
+      passed = false;
+    }
+    if (lost > 0) {
+      System.out.printf("FAILED: %d orders neither dispatched nor dead lettered%n", lost);
+    }
+    return passed;
+  }
+
+  /**
+   * Match the dispatched and dead lettered orders to the sent ones
+   */
+  private void match(EmbeddedKafkaBroker broker) {
+    try (KafkaConsumer<String, Object> consumer = new KafkaConsumer<>(Map.of(
+        ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+        ConsumerConfig.GROUP_ID_CONFIG, "soak-" + UUID.randomUUID(),
+        ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+        ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed",
+        ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+        ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, DualFormatDeserializer.class,
+        JsonDeserializer.TRUSTED_PACKAGES, OrderCreated.class.getPackageName()))) {
+      consumer.subscribe(List.of(ORDER_DISPATCHED_TOPIC, ORDER_CREATED_DLT_TOPIC));
+      while (matching) {
+        for (ConsumerRecord<String, Object> record : consumer.poll(Duration.ofMillis(100))) {
+          if (record.value() instanceof OrderDispatched orderDispatched) {
+            latencyTracker.dispatched(orderDispatched.getOrderId());
+          } else if (record.value() instanceof OrderCreated orderCreated) {
+            latencyTracker.deadLettered(orderCreated.getOrderId());
+          }
+        }
+      }
+    }
+  }
+
+  private void awaitStarted(ConfigurableApplicationContext context) {
+    switch (settings.engine()) {
+      case "streams" -> {
+        KafkaStreams kafkaStreams =
+            context.getBean(StreamsBuilderFactoryBean.class).getKafkaStreams();
+        await(() -> kafkaStreams.state() == KafkaStreams.State.RUNNING, "streams running");
+      }
+      case "reactive" -> {
+        OrderCreatedReactiveHandler handler = context.getBean(OrderCreatedReactiveHandler.class);
+        await(() -> handler.assignedPartitions().size() == settings.partitions(),
+              "receiver assigned");
+      }
+      default -> ContainerTestUtils.waitForAssignment(
+          context.getBean(KafkaListenerEndpointRegistry.class)
+                 .getListenerContainer("orderConsumerClient"), settings.partitions());
+    }
+  }
+
+  private static void await(BooleanSupplier condition, String description) {
+    long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Timed out after " + STARTUP_TIMEOUT + " awaiting "
+                                        + description);
+      }
+      LockSupport.parkNanos(10_000_000L);
+    }
+  }
+
+  /**
+   * Park until the deadline, waking early once the condition holds
+   */
+  private static void sleepUntil(long deadline, BooleanSupplier condition) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0 && !condition.getAsBoolean()) {
+      LockSupport.parkNanos(Math.min(remaining, 10_000_000L));
+    }
+  }
+
+  private static double millis(Histogram histogram, double percentile) {
+    return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+  }
+}
@@ -0,0 +1,110 @@
+package glenncai.kafka.demo.soak;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of a soak run, parsed from --name=value arguments
+ * <p>
+ * Durations take the same forms as the application properties, e.g. 500ms, 30s or 10m.
+ * Arguments after -- are passed to the application as they are, e.g.
+ * {@code --rate=2000 -- --dispatch.stock.cache.enabled=true}.
+ *
+ * @param engine           dispatch.engine under test
+ * @param rate             orders per second sent to order.created
+ * @param duration         how long orders are sent, warmup included
+ * @param warmup           leading part of the run left out of the summary
+ * @param reportInterval   how often a line of interval percentiles is printed
+ * @param drainTimeout     how long outstanding orders are awaited once sending stops
+ * @param partitions       partitions of every topic
+ * @param items            distinct items in the catalogue
+ * @param distribution     how items are drawn
+ * @param zipfExponent     skew of the zipfian distribution, 1.0 being classic Zipf
+ * @param keyByItem        key orders by item so hot SKUs land on hot partitions, rather than by a
+ *                         random key
+ * @param seed             seed of the item and error draws, so runs are repeatable
+ * @param stockLatency     minimum stock service latency
+ * @param stockJitter      extra stock service latency, drawn uniformly up to this
+ * @param stockErrorRate   fraction of stock calls answered with a 503
+ * @param maxP99           run fails when the p99 latency after warmup is above this, null to not
+ *                         check
+ * @param output           directory of the latency logs
+ * @param applicationArgs  extra arguments of the application
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public record SoakSettings(String engine, int rate, Duration duration, Duration warmup,
+                           Duration reportInterval, Duration drainTimeout, int partitions,
+                           int items, ItemDistribution distribution, double zipfExponent,
+                           boolean keyByItem, long seed, Duration stockLatency,
+                           Duration stockJitter, double stockErrorRate, Duration maxP99,
+                           Path output, List<String> applicationArgs) {
+
+  private static final Set<String> NAMES =
+      Set.of("engine", "rate", "duration", "warmup", "report-interval", "drain-timeout",
+             "partitions", "items", "distribution", "zipf-exponent", "keys", "seed",
+             "stock-latency", "stock-jitter", "stock-error-rate", "max-p99", "output");
+
+  /**
+   * Parse the arguments, each argument possibly holding several whitespace separated ones
+   *
+   * @throws IllegalArgumentException on an unknown or malformed setting
+   */
+  public static SoakSettings parse(String... args) {
+    List<String> tokens = Arrays.stream(args)
+                                .flatMap(arg -> Arrays.stream(arg.trim().split("\\s+")))
+                                .filter(token -> !token.isEmpty())
+                                .toList();
+    Map<String, String> values = new HashMap<>();
+    int index = 0;
+    for (; index < tokens.size() && !"--".equals(tokens.get(index)); index++) {
+      String token = tokens.get(index);
+      int separator = token.indexOf('=');
+      if (!token.startsWith("--") || separator < 0
+          || !NAMES.contains(token.substring(2, separator))) {
+        throw new IllegalArgumentException("Unknown soak setting '" + token + "', expected --"
+                                           + String.join("=, --", NAMES.stream().sorted()
+                                                                       .toList()) + "=");
+      }
+      values.put(token.substring(2, separator), token.substring(separator + 1));
+    }
+    List<String> applicationArgs =
+        index < tokens.size() ? tokens.subList(index + 1, tokens.size()) : List.of();
+
+    String keys = values.getOrDefault("keys", "order");
+    if (!"order".equals(keys) && !"item".equals(keys)) {
+      throw new IllegalArgumentException("Unknown soak keys '" + keys + "', expected order or item");
+    }
+    String maxP99 = values.get("max-p99");
+    return new SoakSettings(
+        values.getOrDefault("engine", "record"),
+        Integer.parseInt(values.getOrDefault("rate", "500")),
+        duration(values.getOrDefault("duration", "60s")),
+        duration(values.getOrDefault("warmup", "10s")),
+        duration(values.getOrDefault("report-interval", "5s")),
+        duration(values.getOrDefault("drain-timeout", "60s")),
+        Integer.parseInt(values.getOrDefault("partitions", "3")),
+        Integer.parseInt(values.getOrDefault("items", "1000")),
+        ItemDistribution.of(values.getOrDefault("distribution", "uniform")),
+        Double.parseDouble(values.getOrDefault("zipf-exponent", "1.0")),
+        "item".equals(keys),
+        Long.parseLong(values.getOrDefault("seed", "42")),
+        duration(values.getOrDefault("stock-latency", "5ms")),
+        duration(values.getOrDefault("stock-jitter", "0ms")),
+        Double.parseDouble(values.getOrDefault("stock-error-rate", "0")),
+        maxP99 == null ? null : duration(maxP99),
+        Path.of(values.getOrDefault("output", "target/soak")),
+        applicationArgs);
+  }
+
+  private static Duration duration(String value) {
+    return DurationStyle.detectAndParse(value.trim());
+  }
+}
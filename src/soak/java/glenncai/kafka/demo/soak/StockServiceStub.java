@@ -0,0 +1,89 @@
+package glenncai.kafka.demo.soak;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.http.UniformDistribution;
+
+import java.util.SplittableRandom;
+
+/**
+ * WireMock stock service answering every item as available, after a latency drawn uniformly
+ * between stockLatency and stockLatency + stockJitter, and with a 503 for a stockErrorRate
+ * fraction of the calls
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+public class StockServiceStub implements AutoCloseable {
+
+  private final WireMockServer wireMockServer;
+
+  public StockServiceStub(SoakSettings settings) {
+    // Delayed responses are scheduled rather than holding a container thread
+    wireMockServer = new WireMockServer(
+        options().dynamicPort()
+                 .disableRequestJournal()
+                 .containerThreads(200)
+                 .asynchronousResponseEnabled(true)
+                 .asynchronousResponseThreads(50)
+                 .extensions(new ErrorInjection(settings.stockErrorRate(), settings.seed())));
+    wireMockServer.start();
+    int latency = (int) settings.stockLatency().toMillis();
+    wireMockServer.stubFor(
+        get(urlPathEqualTo("/api/stock"))
+            .willReturn(aResponse().withStatus(200).withBody("true")
+                                   .withRandomDelay(new UniformDistribution(
+                                       latency,
+                                       latency + (int) settings.stockJitter().toMillis()))));
+  }
+
+  public String endpoint() {
+    return "http://localhost:" + wireMockServer.port() + "/api/stock";
+  }
+
+  @Override
+  public void close() {
+    wireMockServer.stop();
+  }
+
+  private static final class ErrorInjection extends ResponseDefinitionTransformer {
+
+    private final double errorRate;
+
+    private final SplittableRandom random;
+
+    private ErrorInjection(double errorRate, long seed) {
+      this.errorRate = errorRate;
+      this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition,
+                                        FileSource files, Parameters parameters) {
+      boolean fail;
+      synchronized (random) {
+        fail = random.nextDouble() < errorRate;
+      }
+      if (!fail) {
+        return responseDefinition;
+      }
+      return new ResponseDefinitionBuilder().withStatus(503)
+                                            .withBody("Service unavailable")
+                                            .build();
+    }
+
+    @Override
+    public String getName() {
+      return "error-injection";
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package glenncai.kafka.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import glenncai.kafka.demo.exception.RetryableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive concurrency limiter test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+  private final AdaptiveConcurrencyLimiter limiter =
+      new AdaptiveConcurrencyLimiter(true, 4, 1, 6, Duration.ofMillis(500), 0.5,
+                                     Duration.ofMillis(50));
+
+  @Test
+  void test_limit_grows_once_per_limit_fast_calls_while_in_use() {
+    limiter.acquire();
+    limiter.acquire();
+    for (int i = 0; i < 3; i++) {
+      limiter.release(FAST, false);
+      limiter.acquire();
+    }
+    assertThat(limiter.limit()).isEqualTo(4);
+
+    limiter.release(FAST, false);
+    assertThat(limiter.limit()).isEqualTo(5);
+
+    limiter.release(FAST, false);
+    assertThat(limiter.limit()).isEqualTo(5);
+    assertThat(limiter.inFlight()).isZero();
+  }
+
+  @Test
+  void test_limit_is_bounded_by_max_limit() {
+    for (int i = 0; i < 10; i++) {
+      limiter.acquire();
+      limiter.acquire();
+      limiter.acquire();
+      limiter.release(FAST, false);
+      limiter.release(FAST, false);
+      limiter.release(FAST, false);
+    }
+    assertThat(limiter.limit()).isEqualTo(6);
+  }
+
+  @Test
+  void test_limit_shrinks_on_slow_or_failed_calls() {
+    limiter.acquire();
+    limiter.release(SLOW, false);
+    assertThat(limiter.limit()).isEqualTo(2);
+
+    limiter.acquire();
+    limiter.release(FAST, true);
+    assertThat(limiter.limit()).isEqualTo(1);
+
+    limiter.acquire();
+    limiter.release(FAST, true);
+    assertThat(limiter.limit()).isEqualTo(1);
+  }
+
+  @Test
+  void test_acquire_times_out_at_limit() {
+    for (int i = 0; i < 4; i++) {
+      limiter.acquire();
+    }
+    assertThrows(RetryableException.class, limiter::acquire);
+
+    limiter.release();
+    limiter.acquire();
+    assertThat(limiter.inFlight()).isEqualTo(4);
+  }
+}
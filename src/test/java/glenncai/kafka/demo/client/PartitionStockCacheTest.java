@@ -0,0 +1,192 @@
+package glenncai.kafka.demo.client;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import glenncai.kafka.demo.exception.RetryableException;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Partition stock cache test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class PartitionStockCacheTest {
+
+  private static final List<TopicPartition> PARTITION_0 =
+      List.of(new TopicPartition("order.created", 0));
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final StockServiceClient stockServiceClientMock = mock(StockServiceClient.class);
+  private final Consumer<?, ?> consumerMock = mock(Consumer.class);
+  private PartitionStockCache partitionStockCache;
+
+  @BeforeEach
+  public void setUp() {
+    partitionStockCache = new PartitionStockCache(true, 2, Duration.ofSeconds(30),
+                                                  Duration.ofSeconds(5), 10,
+                                                  stockServiceClientMock, nanoTime::get,
+                                                  Runnable::run);
+  }
+
+  @Test
+  void test_get_caches_per_assigned_partition() {
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+
+    assertThat(partitionStockCache.get(0, "my-item", this::load), equalTo("true"));
+    assertThat(partitionStockCache.get(0, "my-item", this::load), equalTo("true"));
+    assertThat(partitionStockCache.get(1, "my-item", this::load), equalTo("true"));
+
+    assertThat(loads.get(), equalTo(2));
+    assertThat(partitionStockCache.size(0), equalTo(1));
+    assertThat(partitionStockCache.size(1), equalTo(0));
+  }
+
+  @Test
+  void test_get_expires_unavailable_before_available() {
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    partitionStockCache.get(0, "available", item -> "true");
+    partitionStockCache.get(0, "unavailable", item -> "false");
+
+    nanoTime.addAndGet(Duration.ofSeconds(10).toNanos());
+
+    assertThat(partitionStockCache.get(0, "available", this::load), equalTo("true"));
+    assertThat(partitionStockCache.get(0, "unavailable", this::load), equalTo("true"));
+    assertThat(loads.get(), equalTo(1));
+  }
+
+  @Test
+  void test_get_evicts_least_recently_used() {
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    partitionStockCache.get(0, "item-1", this::load);
+    partitionStockCache.get(0, "item-2", this::load);
+    partitionStockCache.get(0, "item-1", this::load);
+    partitionStockCache.get(0, "item-3", this::load);
+
+    partitionStockCache.get(0, "item-1", this::load);
+    partitionStockCache.get(0, "item-2", this::load);
+
+    assertThat(loads.get(), equalTo(4));
+  }
+
+  @Test
+  void test_get_from_other_thread_bypasses_cache() {
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    partitionStockCache.get(0, "my-item", this::load);
+
+    CompletableFuture.runAsync(() -> partitionStockCache.get(0, "my-item", this::load)).join();
+
+    assertThat(loads.get(), equalTo(2));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_revoked_partition_is_dropped_and_warmed_when_assigned_again() {
+    when(stockServiceClientMock.checkAvailability(anyCollection()))
+        .thenReturn(Map.of("item-1", "true", "item-2", "false"));
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    partitionStockCache.get(0, "item-1", this::load);
+    partitionStockCache.get(0, "item-2", this::load);
+
+    partitionStockCache.onPartitionsRevokedBeforeCommit(consumerMock, PARTITION_0);
+    assertThat(partitionStockCache.size(0), equalTo(0));
+    assertThat(partitionStockCache.get(0, "item-1", this::load), equalTo("true"));
+    assertThat(loads.get(), equalTo(3));
+
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+
+    ArgumentCaptor<Collection<String>> items = ArgumentCaptor.forClass(Collection.class);
+    verify(stockServiceClientMock).checkAvailability(items.capture());
+    assertThat(items.getValue(), contains("item-1", "item-2"));
+    assertThat(partitionStockCache.get(0, "item-2", this::load), equalTo("false"));
+    assertThat(loads.get(), equalTo(3));
+  }
+
+  @Test
+  void test_assignment_does_not_wait_for_warm() {
+    List<Runnable> warmTasks = new ArrayList<>();
+    partitionStockCache = new PartitionStockCache(true, 2, Duration.ofSeconds(30),
+                                                  Duration.ofSeconds(5), 10,
+                                                  stockServiceClientMock, nanoTime::get,
+                                                  warmTasks::add);
+    when(stockServiceClientMock.checkAvailability(anyCollection()))
+        .thenReturn(Map.of("item-1", "false"));
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    partitionStockCache.get(0, "item-1", this::load);
+    partitionStockCache.onPartitionsRevokedBeforeCommit(consumerMock, PARTITION_0);
+
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    verify(stockServiceClientMock, never()).checkAvailability(anyCollection());
+    assertThat(partitionStockCache.get(0, "item-2", this::load), equalTo("true"));
+
+    warmTasks.forEach(Runnable::run);
+    assertThat(partitionStockCache.get(0, "item-1", this::load), equalTo("false"));
+    assertThat(loads.get(), equalTo(2));
+  }
+
+  @Test
+  void test_partitions_of_other_topics_get_no_cache() {
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    partitionStockCache.get(0, "my-item", this::load);
+
+    partitionStockCache.onPartitionsAssigned(
+        consumerMock, List.of(new TopicPartition("order.created-retry-0", 0)));
+    partitionStockCache.onPartitionsRevokedBeforeCommit(
+        consumerMock, List.of(new TopicPartition("order.created.DLT", 0)));
+
+    assertThat(partitionStockCache.get(0, "my-item", this::load), equalTo("true"));
+    assertThat(loads.get(), equalTo(1));
+    assertThat(partitionStockCache.size(0), equalTo(1));
+  }
+
+  @Test
+  void test_failed_warm_leaves_cache_cold() {
+    when(stockServiceClientMock.checkAvailability(anyCollection()))
+        .thenThrow(new RetryableException("Stock service failure"));
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+    partitionStockCache.get(0, "my-item", this::load);
+    partitionStockCache.onPartitionsLost(consumerMock, PARTITION_0);
+
+    partitionStockCache.onPartitionsAssigned(consumerMock, PARTITION_0);
+
+    assertThat(partitionStockCache.get(0, "my-item", this::load), equalTo("true"));
+    assertThat(loads.get(), equalTo(2));
+  }
+
+  @Test
+  void test_disabled_always_loads() {
+    PartitionStockCache disabled = PartitionStockCache.disabled();
+    disabled.onPartitionsAssigned(consumerMock, PARTITION_0);
+
+    disabled.get(0, "my-item", this::load);
+    disabled.get(0, "my-item", this::load);
+
+    assertThat(loads.get(), equalTo(2));
+    verify(stockServiceClientMock, never()).checkAvailability(anyCollection());
+  }
+
+  private String load(String item) {
+    loads.incrementAndGet();
+    return "true";
+  }
+}
@@ -0,0 +1,150 @@
+package glenncai.kafka.demo.client;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reactive stock service client test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class ReactiveStockServiceClientTest {
+
+  private static final String STOCK_SERVICE_ENDPOINT = "http://localhost/api/stock";
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  @Test
+  void test_checkAvailability_success() {
+    ReactiveStockServiceClient client = client(HttpStatus.OK, "true",
+                                               StockAvailabilityCache.disabled(),
+                                               StockServiceCircuitBreaker.disabled(),
+                                               DispatchMetrics.disabled());
+
+    assertThat(client.checkAvailability("my-item").block(), equalTo("true"));
+    assertThat(requests.get(), equalTo(1));
+  }
+
+  @Test
+  void test_checkAvailability_server_error() {
+    ReactiveStockServiceClient client = client(HttpStatus.SERVICE_UNAVAILABLE, "",
+                                               StockAvailabilityCache.disabled(),
+                                               StockServiceCircuitBreaker.disabled(),
+                                               DispatchMetrics.disabled());
+
+    assertThrows(RetryableException.class, () -> client.checkAvailability("my-item").block());
+  }
+
+  @Test
+  void test_checkAvailability_client_error() {
+    ReactiveStockServiceClient client = client(HttpStatus.BAD_REQUEST, "Bad request",
+                                               StockAvailabilityCache.disabled(),
+                                               StockServiceCircuitBreaker.disabled(),
+                                               DispatchMetrics.disabled());
+
+    assertThrows(WebClientResponseException.class,
+                 () -> client.checkAvailability("my-item").block());
+  }
+
+  @Test
+  void test_checkAvailability_cached() {
+    ReactiveStockServiceClient client =
+        client(HttpStatus.OK, "false",
+               new StockAvailabilityCache(true, 100L, Duration.ofSeconds(30),
+                                          Duration.ofSeconds(5), DispatchMetrics.disabled()),
+               StockServiceCircuitBreaker.disabled(), DispatchMetrics.disabled());
+
+    assertThat(client.checkAvailability("my-item").block(), equalTo("false"));
+    assertThat(client.checkAvailability("my-item").block(), equalTo("false"));
+    assertThat(requests.get(), equalTo(1));
+  }
+
+  @Test
+  void test_checkAvailability_circuit_breaker_open() {
+    ReactiveStockServiceClient client =
+        client(HttpStatus.SERVICE_UNAVAILABLE, "", StockAvailabilityCache.disabled(),
+               new StockServiceCircuitBreaker(true, 2, 2, 100, Duration.ofSeconds(10), 1),
+               DispatchMetrics.disabled());
+
+    assertThrows(RetryableException.class, () -> client.checkAvailability("my-item").block());
+    assertThrows(RetryableException.class, () -> client.checkAvailability("my-item").block());
+    assertThrows(CircuitBreakerOpenException.class,
+                 () -> client.checkAvailability("my-item").block());
+    assertThat(requests.get(), equalTo(2));
+  }
+
+  @Test
+  void test_checkAvailability_cancelled_is_not_a_failure() {
+    StockServiceCircuitBreaker circuitBreaker =
+        new StockServiceCircuitBreaker(true, 2, 2, 100, Duration.ofSeconds(10), 1);
+    WebClient webClient = WebClient.builder().exchangeFunction(request -> Mono.never()).build();
+    ReactiveStockServiceClient client =
+        new ReactiveStockServiceClient(webClient, STOCK_SERVICE_ENDPOINT,
+                                       StockAvailabilityCache.disabled(), circuitBreaker,
+                                       StockAvailabilityView.disabled(),
+                                       DispatchMetrics.disabled());
+
+    client.checkAvailability("my-item").subscribe().dispose();
+    client.checkAvailability("my-item").subscribe().dispose();
+
+    assertThat(circuitBreaker.state(), equalTo(StockServiceCircuitBreaker.State.CLOSED));
+  }
+
+  @Test
+  void test_checkAvailability_outcome_metrics() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReactiveStockServiceClient available =
+        client(HttpStatus.OK, "true", StockAvailabilityCache.disabled(),
+               StockServiceCircuitBreaker.disabled(), new DispatchMetrics(meterRegistry));
+    ReactiveStockServiceClient unavailable =
+        client(HttpStatus.OK, "false", StockAvailabilityCache.disabled(),
+               StockServiceCircuitBreaker.disabled(), new DispatchMetrics(meterRegistry));
+    ReactiveStockServiceClient failing =
+        client(HttpStatus.SERVICE_UNAVAILABLE, "", StockAvailabilityCache.disabled(),
+               StockServiceCircuitBreaker.disabled(), new DispatchMetrics(meterRegistry));
+    ReactiveStockServiceClient rejected =
+        client(HttpStatus.BAD_REQUEST, "", StockAvailabilityCache.disabled(),
+               StockServiceCircuitBreaker.disabled(), new DispatchMetrics(meterRegistry));
+
+    available.checkAvailability("my-item").block();
+    unavailable.checkAvailability("my-item").block();
+    assertThrows(RetryableException.class, () -> failing.checkAvailability("my-item").block());
+    assertThrows(WebClientResponseException.class,
+                 () -> rejected.checkAvailability("my-item").block());
+
+    for (String outcome : List.of("available", "unavailable", "retryable", "fatal")) {
+      assertThat(meterRegistry.get(DispatchMetrics.STOCK_CHECK).tag("outcome", outcome)
+                              .timer().count(), equalTo(1L));
+    }
+  }
+
+  private ReactiveStockServiceClient client(HttpStatus status, String body,
+                                            StockAvailabilityCache stockAvailabilityCache,
+                                            StockServiceCircuitBreaker stockServiceCircuitBreaker,
+                                            DispatchMetrics dispatchMetrics) {
+    WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+      requests.incrementAndGet();
+      assertThat(request.url().toString(), equalTo(STOCK_SERVICE_ENDPOINT + "?item=my-item"));
+      return Mono.just(ClientResponse.create(status).body(body).build());
+    }).build();
+    return new ReactiveStockServiceClient(webClient, STOCK_SERVICE_ENDPOINT,
+                                          stockAvailabilityCache, stockServiceCircuitBreaker,
+                                          StockAvailabilityView.disabled(), dispatchMetrics);
+  }
+}
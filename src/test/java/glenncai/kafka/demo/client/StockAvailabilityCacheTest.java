@@ -0,0 +1,132 @@
+package glenncai.kafka.demo.client;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock availability cache test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class StockAvailabilityCacheTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+  private StockAvailabilityCache stockAvailabilityCache;
+
+  @BeforeEach
+  public void setUp() {
+    stockAvailabilityCache = new StockAvailabilityCache(true, 100L, Duration.ofSeconds(30),
+                                                        Duration.ofSeconds(5), nanoTime::get);
+  }
+
+  @Test
+  void test_get_caches_result() {
+    assertThat(stockAvailabilityCache.get("my-item", this::load), equalTo("true"));
+    assertThat(stockAvailabilityCache.get("my-item", this::load), equalTo("true"));
+
+    assertThat(loads.get(), equalTo(1));
+    assertThat(stockAvailabilityCache.stats().hitCount(), equalTo(1L));
+    assertThat(stockAvailabilityCache.stats().missCount(), equalTo(1L));
+  }
+
+  @Test
+  void test_stats_published_as_cache_meters() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    StockAvailabilityCache monitored =
+        new StockAvailabilityCache(true, 100L, Duration.ofSeconds(30), Duration.ofSeconds(5),
+                                   new DispatchMetrics(meterRegistry));
+
+    monitored.get("my-item", this::load);
+    monitored.get("my-item", this::load);
+
+    assertThat(meterRegistry.get("cache.gets").tag("cache", DispatchMetrics.STOCK_CACHE)
+                            .tag("result", "hit").functionCounter().count(), equalTo(1.0));
+    assertThat(meterRegistry.get("cache.gets").tag("cache", DispatchMetrics.STOCK_CACHE)
+                            .tag("result", "miss").functionCounter().count(), equalTo(1.0));
+  }
+
+  @Test
+  void test_get_expires_unavailable_before_available() {
+    stockAvailabilityCache.get("available", item -> "true");
+    stockAvailabilityCache.get("unavailable", item -> "false");
+
+    nanoTime.addAndGet(Duration.ofSeconds(10).toNanos());
+
+    assertThat(stockAvailabilityCache.get("available", this::load), equalTo("true"));
+    assertThat(stockAvailabilityCache.get("unavailable", this::load), equalTo("true"));
+    assertThat(loads.get(), equalTo(1));
+  }
+
+  @Test
+  void test_get_does_not_cache_failures() {
+    assertThrows(RetryableException.class, () -> stockAvailabilityCache.get("my-item", item -> {
+      throw new RetryableException("Stock service failure");
+    }));
+
+    assertThat(stockAvailabilityCache.get("my-item", this::load), equalTo("true"));
+    assertThat(loads.get(), equalTo(1));
+  }
+
+  @Test
+  void test_get_coalesces_concurrent_misses() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<CompletableFuture<String>> lookups = new ArrayList<>();
+    lookups.add(CompletableFuture.supplyAsync(() -> stockAvailabilityCache.get("my-item", item -> {
+      loading.countDown();
+      awaitQuietly(release);
+      return load(item);
+    })));
+    assertThat(loading.await(1, TimeUnit.SECONDS), equalTo(true));
+    for (int i = 0; i < 3; i++) {
+      lookups.add(CompletableFuture.supplyAsync(
+          () -> stockAvailabilityCache.get("my-item", this::load)));
+    }
+
+    release.countDown();
+    for (CompletableFuture<String> lookup : lookups) {
+      assertThat(lookup.get(1, TimeUnit.SECONDS), equalTo("true"));
+    }
+    assertThat(loads.get(), equalTo(1));
+  }
+
+  @Test
+  void test_disabled_always_loads() {
+    StockAvailabilityCache disabled = StockAvailabilityCache.disabled();
+
+    disabled.get("my-item", this::load);
+    disabled.get("my-item", this::load);
+
+    assertThat(loads.get(), equalTo(2));
+  }
+
+  private String load(String item) {
+    loads.incrementAndGet();
+    return "true";
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package glenncai.kafka.demo.client;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import glenncai.kafka.demo.exception.RetryableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Stock availability coalescer test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class StockAvailabilityCoalescerTest {
+
+  private final List<Collection<String>> bulkRequests = new CopyOnWriteArrayList<>();
+  private StockAvailabilityCoalescer stockAvailabilityCoalescer;
+
+  @AfterEach
+  public void tearDown() {
+    stockAvailabilityCoalescer.destroy();
+  }
+
+  @Test
+  void test_get_flushes_after_max_wait() throws Exception {
+    stockAvailabilityCoalescer =
+        new StockAvailabilityCoalescer(true, 100, Duration.ofMillis(100));
+
+    List<CompletableFuture<String>> lookups = new ArrayList<>();
+    for (String item : List.of("item-1", "item-2", "item-1", "item-3")) {
+      lookups.add(CompletableFuture.supplyAsync(
+          () -> stockAvailabilityCoalescer.get(item, this::bulkLookup)));
+    }
+
+    for (CompletableFuture<String> lookup : lookups) {
+      assertThat(lookup.get(1, TimeUnit.SECONDS), equalTo("true"));
+    }
+    assertThat(bulkRequests.size(), equalTo(1));
+    assertThat(bulkRequests.get(0), containsInAnyOrder("item-1", "item-2", "item-3"));
+  }
+
+  @Test
+  void test_get_flushes_full_batch_immediately() {
+    stockAvailabilityCoalescer = new StockAvailabilityCoalescer(true, 1, Duration.ofMinutes(1));
+
+    assertThat(stockAvailabilityCoalescer.get("item-1", this::bulkLookup), equalTo("true"));
+    assertThat(bulkRequests.size(), equalTo(1));
+  }
+
+  @Test
+  void test_get_propagates_bulk_failure() {
+    stockAvailabilityCoalescer = new StockAvailabilityCoalescer(true, 1, Duration.ofMinutes(1));
+
+    assertThrows(RetryableException.class, () -> stockAvailabilityCoalescer.get("item-1", items -> {
+      throw new RetryableException("Stock service failure");
+    }));
+  }
+
+  @Test
+  void test_get_fails_item_missing_from_response() {
+    stockAvailabilityCoalescer = new StockAvailabilityCoalescer(true, 1, Duration.ofMinutes(1));
+
+    assertThrows(RetryableException.class,
+                 () -> stockAvailabilityCoalescer.get("item-1", items -> Map.of()));
+  }
+
+  private Map<String, String> bulkLookup(Collection<String> items) {
+    bulkRequests.add(List.copyOf(items));
+    return items.stream().collect(Collectors.toMap(item -> item, item -> "true"));
+  }
+}
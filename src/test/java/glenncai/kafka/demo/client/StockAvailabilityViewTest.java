@@ -0,0 +1,156 @@
+package glenncai.kafka.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock availability view test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class StockAvailabilityViewTest {
+
+  private static final String TOPIC = "stock.availability";
+
+  private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @TempDir
+  private Path tempDir;
+
+  @Test
+  void test_lookups_answered_once_restored() throws Exception {
+    MockConsumer<String, String> consumer = consumer(4L);
+    StockAvailabilityView view = view(consumer, null, DispatchMetrics.disabled());
+
+    consumer.schedulePollTask(() -> {
+      consumer.addRecord(record(0L, "item-1", "true"));
+      consumer.addRecord(record(1L, "item-2", "false"));
+    });
+    view.pollOnce();
+    assertThat(view.isReady()).isFalse();
+    assertThat(view.get("item-1")).isNull();
+
+    consumer.schedulePollTask(() -> {
+      consumer.addRecord(record(2L, "item-3", "true"));
+      consumer.addRecord(record(3L, "item-4", "not-a-boolean"));
+    });
+    view.pollOnce();
+    assertThat(view.isReady()).isTrue();
+    assertThat(view.get("item-1")).isEqualTo("true");
+    assertThat(view.get("item-2")).isEqualTo("false");
+    assertThat(view.get("item-4")).isNull();
+    assertThat(view.get("unknown-item")).isNull();
+
+    consumer.updateEndOffsets(Map.of(PARTITION, 6L));
+    consumer.schedulePollTask(() -> {
+      consumer.addRecord(record(4L, "item-1", null));
+      consumer.addRecord(record(5L, "item-2", "true"));
+    });
+    view.pollOnce();
+    assertThat(view.get("item-1")).isNull();
+    assertThat(view.get("item-2")).isEqualTo("true");
+  }
+
+  @Test
+  void test_stale_view_falls_back_and_reports_lag() throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    MockConsumer<String, String> consumer = consumer(1L);
+    StockAvailabilityView view = view(consumer, null, new DispatchMetrics(meterRegistry));
+    consumer.schedulePollTask(() -> consumer.addRecord(record(0L, "item-1", "true")));
+    view.pollOnce();
+    assertThat(view.get("item-1")).isEqualTo("true");
+    assertThat(meterRegistry.get(DispatchMetrics.STOCK_VIEW_LAG).gauge().value()).isZero();
+
+    consumer.updateEndOffsets(Map.of(PARTITION, 8L));
+    view.pollOnce();
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+    assertThat(view.get("item-1")).isNull();
+    assertThat(meterRegistry.get(DispatchMetrics.STOCK_VIEW_LAG).gauge().value()).isEqualTo(7.0);
+    assertThat(meterRegistry.get(DispatchMetrics.STOCK_VIEW_STALENESS).gauge().value())
+        .isEqualTo(31.0);
+    assertThat(meterRegistry.get(DispatchMetrics.STOCK_VIEW_ITEMS).gauge().value()).isEqualTo(1.0);
+  }
+
+  @Test
+  void test_restart_resumes_from_checkpoint() throws Exception {
+    Path checkpointFile = tempDir.resolve("view").resolve("stock.bin");
+    MockConsumer<String, String> consumer = consumer(2L);
+    StockAvailabilityView view = view(consumer, checkpointFile, DispatchMetrics.disabled());
+    consumer.schedulePollTask(() -> {
+      consumer.addRecord(record(0L, "item-1", "true"));
+      consumer.addRecord(record(1L, "item-2", "false"));
+    });
+    view.pollOnce();
+    view.close();
+
+    MockConsumer<String, String> restarted = consumer(3L);
+    StockAvailabilityView resumed = view(restarted, checkpointFile, DispatchMetrics.disabled());
+    restarted.schedulePollTask(() -> restarted.addRecord(record(2L, "item-2", "true")));
+    resumed.pollOnce();
+
+    assertThat(resumed.isReady()).isTrue();
+    assertThat(resumed.get("item-1")).isEqualTo("true");
+    assertThat(resumed.get("item-2")).isEqualTo("true");
+  }
+
+  @Test
+  void test_checkpoint_ahead_of_topic_discarded() throws Exception {
+    Path checkpointFile = tempDir.resolve("stock.bin");
+    MockConsumer<String, String> consumer = consumer(2L);
+    StockAvailabilityView view = view(consumer, checkpointFile, DispatchMetrics.disabled());
+    consumer.schedulePollTask(() -> {
+      consumer.addRecord(record(0L, "item-1", "true"));
+      consumer.addRecord(record(1L, "item-2", "false"));
+    });
+    view.pollOnce();
+    view.close();
+
+    // The topic was recreated with fewer records than the checkpoint has read
+    MockConsumer<String, String> recreated = consumer(1L);
+    StockAvailabilityView restored = view(recreated, checkpointFile, DispatchMetrics.disabled());
+    recreated.schedulePollTask(() -> recreated.addRecord(record(0L, "item-3", "true")));
+    restored.pollOnce();
+
+    assertThat(restored.isReady()).isTrue();
+    assertThat(restored.get("item-1")).isNull();
+    assertThat(restored.get("item-3")).isEqualTo("true");
+  }
+
+  private StockAvailabilityView view(MockConsumer<String, String> consumer, Path checkpointFile,
+                                     DispatchMetrics dispatchMetrics) {
+    return new StockAvailabilityView(true, TOPIC, consumer, Duration.ofMillis(10),
+                                     Duration.ofSeconds(30), checkpointFile, Duration.ofMinutes(1),
+                                     clock::get, dispatchMetrics);
+  }
+
+  private static MockConsumer<String, String> consumer(long endOffset) {
+    MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+    consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+    consumer.updateEndOffsets(Map.of(PARTITION, endOffset));
+    return consumer;
+  }
+
+  private static ConsumerRecord<String, String> record(long offset, String item, String value) {
+    return new ConsumerRecord<>(TOPIC, 0, offset, item, value);
+  }
+}
@@ -0,0 +1,156 @@
+package glenncai.kafka.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import glenncai.kafka.demo.client.StockServiceCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock service circuit breaker test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class StockServiceCircuitBreakerTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private final StockServiceCircuitBreaker circuitBreaker =
+      new StockServiceCircuitBreaker(true, 10, 4, 50, Duration.ofSeconds(10), 2, nanos::get);
+
+  @Test
+  void test_opens_once_failure_rate_reaches_threshold() {
+    List<State> transitions = new ArrayList<>();
+    circuitBreaker.addListener(transitions::add);
+
+    call(false);
+    call(true);
+    call(false);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+
+    call(true);
+    assertThat(circuitBreaker.state()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    assertThat(transitions).containsExactly(State.OPEN);
+  }
+
+  @Test
+  void test_stays_closed_below_minimum_calls() {
+    call(true);
+    call(true);
+    call(true);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void test_sliding_window_forgets_old_failures() {
+    call(true);
+    call(false);
+    call(false);
+    call(false);
+    for (int i = 0; i < 10; i++) {
+      call(false);
+    }
+    call(true);
+    call(true);
+    call(true);
+    call(true);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void test_half_opens_after_open_duration_and_closes_on_successful_trials() {
+    openBreaker();
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    assertThat(circuitBreaker.state()).isEqualTo(State.HALF_OPEN);
+
+    circuitBreaker.onSuccess();
+    circuitBreaker.onSuccess();
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void test_reopens_on_failed_trial() {
+    openBreaker();
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    circuitBreaker.onFailure();
+    assertThat(circuitBreaker.state()).isEqualTo(State.OPEN);
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void test_released_trial_is_neither_success_nor_failure() {
+    openBreaker();
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    circuitBreaker.release();
+    assertThat(circuitBreaker.state()).isEqualTo(State.HALF_OPEN);
+
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onSuccess();
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void test_disabled_permits_every_call() {
+    StockServiceCircuitBreaker disabled = StockServiceCircuitBreaker.disabled();
+    for (int i = 0; i < 20; i++) {
+      assertThat(disabled.tryAcquire()).isTrue();
+      disabled.onFailure();
+    }
+    assertThat(disabled.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void test_listeners_are_called_outside_the_lock() throws Exception {
+    List<Boolean> lockHeld = new ArrayList<>();
+    circuitBreaker.addListener(state -> lockHeld.add(Thread.holdsLock(circuitBreaker)));
+    // A listener reading the breaker from another thread would block on a held lock
+    circuitBreaker.addListener(state -> CompletableFuture.supplyAsync(circuitBreaker::state)
+                                                         .orTimeout(1, TimeUnit.SECONDS)
+                                                         .join());
+
+    openBreaker();
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    call(false);
+    call(false);
+
+    assertThat(lockHeld).containsExactly(false, false, false);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  private void openBreaker() {
+    for (int i = 0; i < 4; i++) {
+      call(true);
+    }
+    assertThat(circuitBreaker.state()).isEqualTo(State.OPEN);
+  }
+
+  private void call(boolean failure) {
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    if (failure) {
+      circuitBreaker.onFailure();
+    } else {
+      circuitBreaker.onSuccess();
+    }
+  }
+}
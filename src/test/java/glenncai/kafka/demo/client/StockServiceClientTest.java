@@ -3,21 +3,35 @@ package glenncai.kafka.demo.client;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
 import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Stock service client test
  *
@@ -29,6 +43,7 @@ class StockServiceClientTest {
 
   private static final String STOCK_SERVICE_ENDPOINT = "endpoint";
   private static final String STOCK_SERVICE_QUERY = STOCK_SERVICE_ENDPOINT + "?item=my-item";
+  private static final String STOCK_SERVICE_BULK_ENDPOINT = STOCK_SERVICE_ENDPOINT + "/bulk";
   private RestTemplate restTemplateMock;
   private StockServiceClient stockServiceClientMock;
 
@@ -72,4 +87,132 @@ class StockServiceClientTest {
                  () -> stockServiceClientMock.checkAvailability("my-item"));
     verify(restTemplateMock, times(1)).getForEntity(STOCK_SERVICE_QUERY, String.class);
   }
-}
\ No newline at end of file
+
+  @Test
+  void test_checkAvailability_cached() {
+    StockServiceClient cachingClient = new StockServiceClient(
+        restTemplateMock, STOCK_SERVICE_ENDPOINT, STOCK_SERVICE_BULK_ENDPOINT,
+        new StockAvailabilityCache(true, 100L, Duration.ofSeconds(30), Duration.ofSeconds(5),
+                                   DispatchMetrics.disabled()),
+        StockAvailabilityCoalescer.disabled(), StockServiceCircuitBreaker.disabled(),
+        AdaptiveConcurrencyLimiter.disabled(), StockAvailabilityView.disabled(),
+        DispatchMetrics.disabled());
+    ResponseEntity<String> response = new ResponseEntity<>("true", HttpStatusCode.valueOf(200));
+    when(restTemplateMock.getForEntity(STOCK_SERVICE_QUERY, String.class)).thenReturn(response);
+
+    assertThat(cachingClient.checkAvailability("my-item"), equalTo("true"));
+    assertThat(cachingClient.checkAvailability("my-item"), equalTo("true"));
+    verify(restTemplateMock, times(1)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+  }
+
+  @Test
+  void test_checkAvailability_from_view_falls_back_for_unknown_items() {
+    StockAvailabilityView stockAvailabilityView = mock(StockAvailabilityView.class);
+    when(stockAvailabilityView.get("my-item")).thenReturn("false");
+    StockServiceClient viewClient = new StockServiceClient(
+        restTemplateMock, STOCK_SERVICE_ENDPOINT, STOCK_SERVICE_BULK_ENDPOINT,
+        StockAvailabilityCache.disabled(), StockAvailabilityCoalescer.disabled(),
+        StockServiceCircuitBreaker.disabled(), AdaptiveConcurrencyLimiter.disabled(),
+        stockAvailabilityView, DispatchMetrics.disabled());
+    when(restTemplateMock.getForEntity(STOCK_SERVICE_ENDPOINT + "?item=other-item", String.class))
+        .thenReturn(new ResponseEntity<>("true", HttpStatusCode.valueOf(200)));
+
+    assertThat(viewClient.checkAvailability("my-item"), equalTo("false"));
+    assertThat(viewClient.checkAvailability("other-item"), equalTo("true"));
+    verify(restTemplateMock, never()).getForEntity(STOCK_SERVICE_QUERY, String.class);
+  }
+
+  @Test
+  void test_checkAvailability_cached_server_error() {
+    StockServiceClient cachingClient = new StockServiceClient(
+        restTemplateMock, STOCK_SERVICE_ENDPOINT, STOCK_SERVICE_BULK_ENDPOINT,
+        new StockAvailabilityCache(true, 100L, Duration.ofSeconds(30), Duration.ofSeconds(5),
+                                   DispatchMetrics.disabled()),
+        StockAvailabilityCoalescer.disabled(), StockServiceCircuitBreaker.disabled(),
+        AdaptiveConcurrencyLimiter.disabled(), StockAvailabilityView.disabled(),
+        DispatchMetrics.disabled());
+    doThrow(new HttpServerErrorException(HttpStatusCode.valueOf(500)))
+        .when(restTemplateMock).getForEntity(STOCK_SERVICE_QUERY, String.class);
+
+    assertThrows(RetryableException.class, () -> cachingClient.checkAvailability("my-item"));
+    assertThrows(RetryableException.class, () -> cachingClient.checkAvailability("my-item"));
+    verify(restTemplateMock, times(2)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+  }
+
+  @Test
+  void test_checkAvailability_outcome_metrics() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    StockServiceClient meteredClient = new StockServiceClient(
+        restTemplateMock, STOCK_SERVICE_ENDPOINT, STOCK_SERVICE_BULK_ENDPOINT,
+        StockAvailabilityCache.disabled(), StockAvailabilityCoalescer.disabled(),
+        StockServiceCircuitBreaker.disabled(), AdaptiveConcurrencyLimiter.disabled(),
+        StockAvailabilityView.disabled(), new DispatchMetrics(meterRegistry));
+    when(restTemplateMock.getForEntity(STOCK_SERVICE_QUERY, String.class))
+        .thenReturn(new ResponseEntity<>("true", HttpStatusCode.valueOf(200)))
+        .thenReturn(new ResponseEntity<>("false", HttpStatusCode.valueOf(200)))
+        .thenThrow(new HttpServerErrorException(HttpStatusCode.valueOf(503)))
+        .thenThrow(new RuntimeException("General exception"));
+
+    meteredClient.checkAvailability("my-item");
+    meteredClient.checkAvailability("my-item");
+    assertThrows(RetryableException.class, () -> meteredClient.checkAvailability("my-item"));
+    assertThrows(RuntimeException.class, () -> meteredClient.checkAvailability("my-item"));
+
+    for (String outcome : List.of("available", "unavailable", "retryable", "fatal")) {
+      assertThat(meterRegistry.get(DispatchMetrics.STOCK_CHECK).tag("outcome", outcome)
+                              .timer().count(), equalTo(1L));
+    }
+  }
+
+  @Test
+  void test_checkAvailability_bulk_success() {
+    ResponseEntity<Map<String, Boolean>> response =
+        new ResponseEntity<>(Map.of("item-1", true, "item-2", false), HttpStatusCode.valueOf(200));
+    when(restTemplateMock.exchange(eq(STOCK_SERVICE_BULK_ENDPOINT), eq(HttpMethod.POST),
+                                   any(HttpEntity.class),
+                                   bulkResponseType())).thenReturn(response);
+
+    assertThat(stockServiceClientMock.checkAvailability(List.of("item-1", "item-2")),
+               equalTo(Map.of("item-1", "true", "item-2", "false")));
+  }
+
+  @Test
+  void test_checkAvailability_bulk_server_error() {
+    when(restTemplateMock.exchange(eq(STOCK_SERVICE_BULK_ENDPOINT), eq(HttpMethod.POST),
+                                   any(HttpEntity.class), bulkResponseType()))
+        .thenThrow(new HttpServerErrorException(HttpStatusCode.valueOf(503)));
+
+    assertThrows(RetryableException.class,
+                 () -> stockServiceClientMock.checkAvailability(List.of("item-1")));
+  }
+
+  @Test
+  void test_checkAvailability_circuit_breaker_open() {
+    StockServiceClient guardedClient = new StockServiceClient(
+        restTemplateMock, STOCK_SERVICE_ENDPOINT, STOCK_SERVICE_BULK_ENDPOINT,
+        StockAvailabilityCache.disabled(), StockAvailabilityCoalescer.disabled(),
+        new StockServiceCircuitBreaker(true, 2, 2, 100, Duration.ofSeconds(10), 1),
+        AdaptiveConcurrencyLimiter.disabled(), StockAvailabilityView.disabled(),
+        DispatchMetrics.disabled());
+    doThrow(new HttpServerErrorException(HttpStatusCode.valueOf(503)))
+        .when(restTemplateMock).getForEntity(STOCK_SERVICE_QUERY, String.class);
+
+    assertThrows(RetryableException.class, () -> guardedClient.checkAvailability("my-item"));
+    assertThrows(RetryableException.class, () -> guardedClient.checkAvailability("my-item"));
+    assertThrows(CircuitBreakerOpenException.class,
+                 () -> guardedClient.checkAvailability("my-item"));
+    assertThrows(CircuitBreakerOpenException.class,
+                 () -> guardedClient.checkAvailability(List.of("item-1")));
+    verify(restTemplateMock, times(2)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    verify(restTemplateMock, never()).exchange(eq(STOCK_SERVICE_BULK_ENDPOINT),
+                                               eq(HttpMethod.POST), any(HttpEntity.class),
+                                               bulkResponseType());
+  }
+
+  /**
+   * Matcher of the response type of the bulk endpoint
+   */
+  private static ParameterizedTypeReference<Map<String, Boolean>> bulkResponseType() {
+    return ArgumentMatchers.any();
+  }
+}
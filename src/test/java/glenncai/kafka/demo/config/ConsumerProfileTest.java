@@ -0,0 +1,60 @@
+package glenncai.kafka.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Consumer profile test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class ConsumerProfileTest {
+
+  @Test
+  void test_profiles_prefer_cooperative_sticky_assignor_over_range() {
+    for (ConsumerProfile profile : ConsumerProfile.values()) {
+      assertThat(profile.consumerConfig())
+          .containsEntry(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG,
+                         CooperativeStickyAssignor.class.getName() + ","
+                         + RangeAssignor.class.getName());
+    }
+    assertThat(ConsumerProfile.of("high-throughput").consumerConfig())
+        .containsEntry(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, "262144")
+        .containsEntry(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "500")
+        .containsEntry(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "2000")
+        .containsEntry(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, "4194304");
+  }
+
+  @Test
+  void test_unknown_profile_names_the_known_ones() {
+    assertThatThrownBy(() -> ConsumerProfile.of("fast"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("low-latency, balanced, high-throughput");
+  }
+
+  @Test
+  void test_overrides_applied_on_top_of_profile() {
+    assertThat(ConsumerProfile.BALANCED.consumerConfig("max.poll.records=50"))
+        .containsEntry(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "50")
+        .containsEntry(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "100");
+  }
+
+  @Test
+  void test_inconsistent_overrides_rejected() {
+    assertThatThrownBy(() -> ConsumerProfile.BALANCED.consumerConfig("max.poll.records=0"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("max.poll.records");
+    assertThatThrownBy(() -> ConsumerProfile.BALANCED.consumerConfig("fetch.max.wait.ms=40000"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("request.timeout.ms");
+    assertThat(ConsumerProfile.BALANCED.consumerConfig("fetch.max.wait.ms=40000",
+                                                       "request.timeout.ms=60000"))
+        .containsEntry(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "40000");
+    assertThatThrownBy(() -> ConsumerProfile.BALANCED.consumerConfig("fetch.min.bytes=lots"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("must be a number");
+  }
+}
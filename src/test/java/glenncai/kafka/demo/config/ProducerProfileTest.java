@@ -0,0 +1,66 @@
+package glenncai.kafka.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+/**
+ * Producer profile test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class ProducerProfileTest {
+
+  @Test
+  void test_profiles_are_idempotent_and_differ_in_batching() {
+    for (ProducerProfile profile : ProducerProfile.values()) {
+      Map<String, Object> config = profile.producerConfig();
+      assertThat(config).containsEntry(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true")
+                        .containsEntry(ProducerConfig.ACKS_CONFIG, "all")
+                        .containsEntry(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, "5");
+    }
+    assertThat(ProducerProfile.of("low-latency").producerConfig())
+        .containsEntry(ProducerConfig.LINGER_MS_CONFIG, "0")
+        .containsEntry(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none");
+    assertThat(ProducerProfile.of("high-throughput").producerConfig())
+        .containsEntry(ProducerConfig.LINGER_MS_CONFIG, "20")
+        .containsEntry(ProducerConfig.BATCH_SIZE_CONFIG, "262144")
+        .containsEntry(ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd");
+  }
+
+  @Test
+  void test_unknown_profile_names_the_known_ones() {
+    assertThatThrownBy(() -> ProducerProfile.of("fast"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("low-latency, balanced, high-throughput");
+  }
+
+  @Test
+  void test_overrides_applied_on_top_of_profile() {
+    assertThat(ProducerProfile.BALANCED.producerConfig("linger.ms=10", "compression.type=zstd"))
+        .containsEntry(ProducerConfig.LINGER_MS_CONFIG, "10")
+        .containsEntry(ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd")
+        .containsEntry(ProducerConfig.BATCH_SIZE_CONFIG, "65536");
+  }
+
+  @Test
+  void test_inconsistent_overrides_rejected() {
+    assertThatThrownBy(() -> ProducerProfile.BALANCED.producerConfig("acks=1"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("acks=all");
+    assertThatThrownBy(
+        () -> ProducerProfile.BALANCED.producerConfig("max.in.flight.requests.per.connection=10"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("at most 5");
+    assertThatThrownBy(() -> ProducerProfile.BALANCED.producerConfig("compression.type=brotli"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("compression.type");
+    assertThatThrownBy(() -> ProducerProfile.BALANCED.producerConfig("linger.ms"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("key=value");
+    assertThat(ProducerProfile.BALANCED.producerConfig("enable.idempotence=false", "acks=1",
+                                                       "max.in.flight.requests.per.connection=10"))
+        .containsEntry(ProducerConfig.ACKS_CONFIG, "1");
+  }
+}
@@ -0,0 +1,73 @@
+package glenncai.kafka.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Retry topic jitter test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class RetryTopicJitterTest {
+
+  private static final long NOW = 1_000_000L;
+
+  private final RetryTopicJitter retryTopicJitter =
+      new RetryTopicJitter(Duration.ofSeconds(1), 10, Duration.ofSeconds(60), 4, 0.5,
+                           Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+  @Test
+  void test_delays_grow_exponentially_up_to_max_interval() {
+    assertThat(retryTopicJitter.delays()).containsExactly(1_000L, 10_000L, 60_000L);
+  }
+
+  @Test
+  void test_first_failure_is_due_after_first_delay_plus_jitter() {
+    ConsumerRecord<String, String> record = new ConsumerRecord<>("order.created", 0, 0L, "k", "v");
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(backOffTimestamp(retryTopicJitter.apply(record, new RuntimeException())))
+          .isBetween(NOW + 1_000L, NOW + 1_500L);
+    }
+  }
+
+  @Test
+  void test_retry_failure_is_due_after_delay_of_next_topic() {
+    ConsumerRecord<String, String> record =
+        new ConsumerRecord<>("order.created.retry-1000", 0, 0L, "k", "v");
+    record.headers().add(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS,
+                         ByteBuffer.allocate(Integer.BYTES).putInt(2).array());
+
+    assertThat(backOffTimestamp(retryTopicJitter.apply(record, new RuntimeException())))
+        .isBetween(NOW + 10_000L, NOW + 15_000L);
+  }
+
+  @Test
+  void test_no_timestamp_once_retries_are_used_up() {
+    ConsumerRecord<String, String> record =
+        new ConsumerRecord<>("order.created.retry-60000", 0, 0L, "k", "v");
+    record.headers().add(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS,
+                         ByteBuffer.allocate(Integer.BYTES).putInt(4).array());
+
+    Headers headers = retryTopicJitter.apply(record, new RuntimeException());
+    assertThat(headers.lastHeader(RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP)).isNull();
+  }
+
+  private static long backOffTimestamp(Headers headers) {
+    Header header = headers.lastHeader(RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP);
+    return new BigInteger(header.value()).longValue();
+  }
+}
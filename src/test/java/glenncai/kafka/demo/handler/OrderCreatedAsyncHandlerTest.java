@@ -0,0 +1,209 @@
+package glenncai.kafka.demo.handler;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import glenncai.kafka.demo.client.PartitionStockCache;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.service.DispatchLogSampler;
+import glenncai.kafka.demo.service.DispatchService;
+import glenncai.kafka.demo.utils.TestEventData;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Order created async handler test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@SpringBootTest
+class OrderCreatedAsyncHandlerTest {
+
+  private DispatchService dispatchServiceMock;
+  private ConsumerRecordRecoverer recovererMock;
+  private Acknowledgment acknowledgmentMock;
+  private Consumer<?, ?> consumerMock;
+  private OrderCreatedAsyncHandler orderCreatedAsyncHandler;
+
+  @BeforeEach
+  public void setUp() {
+    dispatchServiceMock = mock(DispatchService.class);
+    recovererMock = mock(ConsumerRecordRecoverer.class);
+    acknowledgmentMock = mock(Acknowledgment.class);
+    consumerMock = mock(Consumer.class);
+    orderCreatedAsyncHandler = new OrderCreatedAsyncHandler(dispatchServiceMock,
+                                                            DispatchLogSampler.disabled(),
+                                                            recovererMock,
+                                                            PartitionStockCache.disabled(),
+                                                            Runnable::run, 2);
+  }
+
+  @Test
+  void test_listen_acknowledges_after_sends_complete() {
+    ConsumerRecord<String, OrderCreated> record = buildRecord();
+    CompletableFuture<Void> sends = new CompletableFuture<>();
+    when(dispatchServiceMock.processAsync(eq(record.key()), eq(record.value()), any()))
+        .thenReturn(sends);
+
+    orderCreatedAsyncHandler.listen(record, acknowledgmentMock, consumerMock);
+    verify(acknowledgmentMock, never()).acknowledge();
+
+    sends.complete(null);
+    verify(acknowledgmentMock, times(1)).acknowledge();
+    verify(recovererMock, never()).accept(any(), any());
+  }
+
+  @Test
+  void test_listen_acknowledges_in_offset_order() {
+    ConsumerRecord<String, OrderCreated> first = buildRecord();
+    ConsumerRecord<String, OrderCreated> second = buildRecord();
+    Acknowledgment firstAcknowledgment = mock(Acknowledgment.class);
+    CompletableFuture<Void> firstSends = new CompletableFuture<>();
+    CompletableFuture<Void> secondSends = new CompletableFuture<>();
+    when(dispatchServiceMock.processAsync(eq(first.key()), eq(first.value()), any()))
+        .thenReturn(firstSends);
+    when(dispatchServiceMock.processAsync(eq(second.key()), eq(second.value()), any()))
+        .thenReturn(secondSends);
+
+    orderCreatedAsyncHandler.listen(first, firstAcknowledgment, consumerMock);
+    orderCreatedAsyncHandler.listen(second, acknowledgmentMock, consumerMock);
+
+    secondSends.complete(null);
+    verify(acknowledgmentMock, never()).acknowledge();
+
+    firstSends.complete(null);
+    verify(firstAcknowledgment, times(1)).acknowledge();
+    verify(acknowledgmentMock, times(1)).acknowledge();
+  }
+
+  @Test
+  void test_listen_send_failure_dead_letters_then_acknowledges() {
+    ConsumerRecord<String, OrderCreated> record = buildRecord();
+    when(dispatchServiceMock.processAsync(eq(record.key()), eq(record.value()), any())).thenReturn(
+        CompletableFuture.failedFuture(new RuntimeException("Producer failure")));
+
+    orderCreatedAsyncHandler.listen(record, acknowledgmentMock, consumerMock);
+
+    verify(recovererMock, timeout(1000).times(1)).accept(eq(record),
+                                                         any(NotRetryableException.class));
+    verify(acknowledgmentMock, timeout(1000).times(1)).acknowledge();
+  }
+
+  @Test
+  void test_listen_failed_dead_letter_seeks_back_to_record() {
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2"),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-3"));
+    ConsumerRecord<String, OrderCreated> failed = records.get(0);
+    when(dispatchServiceMock.processAsync(any(), any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Producer failure")))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    doThrow(new RuntimeException("Dead letter failure")).when(recovererMock)
+                                                        .accept(eq(failed), any());
+    Acknowledgment failedAcknowledgment = mock(Acknowledgment.class);
+
+    orderCreatedAsyncHandler.listen(failed, failedAcknowledgment, consumerMock);
+    orderCreatedAsyncHandler.listen(records.get(1), acknowledgmentMock, consumerMock);
+    orderCreatedAsyncHandler.listen(records.get(2), acknowledgmentMock, consumerMock);
+
+    verify(failedAcknowledgment, never()).acknowledge();
+    verify(consumerMock, times(1)).seek(
+        new TopicPartition(failed.topic(), failed.partition()), failed.offset());
+    verify(dispatchServiceMock, times(1)).processAsync(any(), any(), any());
+    verify(acknowledgmentMock, never()).acknowledge();
+
+    orderCreatedAsyncHandler.listen(failed, failedAcknowledgment, consumerMock);
+    verify(failedAcknowledgment, times(1)).acknowledge();
+  }
+
+  @Test
+  void test_listen_retryable_failure() {
+    ConsumerRecord<String, OrderCreated> record = buildRecord();
+    when(dispatchServiceMock.processAsync(eq(record.key()), eq(record.value()), any())).thenThrow(
+        new RetryableException("Stock service failure"));
+
+    assertThrows(RetryableException.class,
+                 () -> orderCreatedAsyncHandler.listen(record, acknowledgmentMock, consumerMock));
+    verify(acknowledgmentMock, never()).acknowledge();
+  }
+
+  @Test
+  void test_listen_service_failure() {
+    ConsumerRecord<String, OrderCreated> record = buildRecord();
+    when(dispatchServiceMock.processAsync(eq(record.key()), eq(record.value()), any())).thenThrow(
+        new RuntimeException("Service failure"));
+
+    Exception exception = assertThrows(NotRetryableException.class,
+                                       () -> orderCreatedAsyncHandler.listen(record,
+                                                                             acknowledgmentMock,
+                                                                             consumerMock));
+
+    assertThat(exception.getMessage(), equalTo("java.lang.RuntimeException: Service failure"));
+  }
+
+  @Test
+  void test_revoke_awaits_records_in_flight_of_revoked_partition_only() {
+    ConsumerRecord<String, OrderCreated> record = buildRecord();
+    ConsumerRecord<String, OrderCreated> retryRecord =
+        new ConsumerRecord<>("order.created-retry", record.partition(), 0L, record.key(),
+                             record.value());
+    CompletableFuture<Void> sends = new CompletableFuture<>();
+    CompletableFuture<Void> retrySends = new CompletableFuture<>();
+    when(dispatchServiceMock.processAsync(eq(record.key()), eq(record.value()), any()))
+        .thenReturn(sends).thenReturn(retrySends);
+    orderCreatedAsyncHandler.listen(record, acknowledgmentMock, consumerMock);
+    orderCreatedAsyncHandler.listen(retryRecord, mock(Acknowledgment.class), consumerMock);
+
+    CompletableFuture<Void> revoked = CompletableFuture.runAsync(
+        () -> orderCreatedAsyncHandler.onPartitionsRevokedBeforeCommit(
+            null, List.of(new TopicPartition(record.topic(), record.partition()))));
+    assertThat(revoked.isDone(), equalTo(false));
+
+    sends.complete(null);
+    revoked.join();
+    verify(acknowledgmentMock, times(1)).acknowledge();
+  }
+
+  @Test
+  void test_lost_partition_forgets_records_in_flight() {
+    ConsumerRecord<String, OrderCreated> record = buildRecord();
+    when(dispatchServiceMock.processAsync(eq(record.key()), eq(record.value()), any()))
+        .thenReturn(new CompletableFuture<>());
+    orderCreatedAsyncHandler.listen(record, acknowledgmentMock, consumerMock);
+
+    orderCreatedAsyncHandler.onPartitionsLost(
+        null, List.of(new TopicPartition(record.topic(), record.partition())));
+    orderCreatedAsyncHandler.onPartitionsRevokedBeforeCommit(
+        null, List.of(new TopicPartition(record.topic(), record.partition())));
+
+    verify(acknowledgmentMock, never()).acknowledge();
+  }
+
+  private ConsumerRecord<String, OrderCreated> buildRecord() {
+    return TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString())).get(0);
+  }
+}
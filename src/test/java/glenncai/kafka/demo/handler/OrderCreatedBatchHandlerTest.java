@@ -0,0 +1,82 @@
+package glenncai.kafka.demo.handler;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.service.DispatchService;
+import glenncai.kafka.demo.utils.TestEventData;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.List;
+
+/**
+ * Order created batch handler test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@SpringBootTest
+class OrderCreatedBatchHandlerTest {
+
+  @Mock
+  private DispatchService dispatchServiceMock;
+
+  @InjectMocks
+  private OrderCreatedBatchHandler orderCreatedBatchHandlerMock;
+
+  @Test
+  void test_listen_success() {
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+
+    orderCreatedBatchHandlerMock.listen(records);
+    verify(dispatchServiceMock, times(1)).processBatch(records);
+  }
+
+  @Test
+  void test_listen_retryable_failure() {
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+    BatchListenerFailedException failure =
+        new BatchListenerFailedException("Failed", new RetryableException("Retry"), 0);
+    doThrow(failure).when(dispatchServiceMock).processBatch(records);
+
+    Exception exception = assertThrows(BatchListenerFailedException.class,
+                                       () -> orderCreatedBatchHandlerMock.listen(records));
+
+    assertThat(exception, sameInstance(failure));
+  }
+
+  @Test
+  void test_listen_service_failure() {
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+    doThrow(new BatchListenerFailedException("Failed", new RuntimeException("Service failure"), 1))
+        .when(dispatchServiceMock).processBatch(records);
+
+    BatchListenerFailedException exception =
+        assertThrows(BatchListenerFailedException.class,
+                     () -> orderCreatedBatchHandlerMock.listen(records));
+
+    assertThat(exception.getIndex(), equalTo(1));
+    assertThat(exception.getCause(), instanceOf(NotRetryableException.class));
+    assertThat(exception.getCause().getMessage(),
+               equalTo("java.lang.RuntimeException: Service failure"));
+  }
+}
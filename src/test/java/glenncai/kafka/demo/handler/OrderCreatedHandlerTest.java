@@ -4,16 +4,22 @@ import static java.util.UUID.randomUUID;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import glenncai.kafka.demo.exception.NotRetryableException;
 import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import glenncai.kafka.demo.service.DispatchLogSampler;
 import glenncai.kafka.demo.service.DispatchService;
 import glenncai.kafka.demo.utils.TestEventData;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 
 /**
@@ -28,6 +34,9 @@ class OrderCreatedHandlerTest {
   @Mock
   private DispatchService dispatchServiceMock;
 
+  @Spy
+  private DispatchLogSampler dispatchLogSampler = DispatchLogSampler.disabled();
+
   @InjectMocks
   private OrderCreatedHandler orderCreatedHandlerMock;
 
@@ -37,8 +46,10 @@ class OrderCreatedHandlerTest {
     OrderCreated testEvent =
         TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
 
-    orderCreatedHandlerMock.listen(0, key, testEvent);
-    verify(dispatchServiceMock, times(1)).process(key, testEvent);
+    orderCreatedHandlerMock.listen(1, key, 1000L, testEvent);
+    verify(dispatchServiceMock, times(1)).process(
+        eq(key), eq(testEvent),
+        argThat(trace -> trace.partition() == 1 && trace.originTimestamp() == 1000L));
   }
 
   @Test
@@ -48,12 +59,14 @@ class OrderCreatedHandlerTest {
         TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
 
     doThrow(new RuntimeException("Service failure")).when(dispatchServiceMock)
-                                                    .process(key, testEvent);
+                                                    .process(eq(key), eq(testEvent),
+                                                             any(DispatchTrace.class));
 
     Exception exception = assertThrows(NotRetryableException.class,
-                                       () -> orderCreatedHandlerMock.listen(0, key, testEvent));
+                                       () -> orderCreatedHandlerMock.listen(0, key, 0L, testEvent));
 
     assertThat(exception.getMessage(), equalTo("java.lang.RuntimeException: Service failure"));
-    verify(dispatchServiceMock, times(1)).process(key, testEvent);
+    verify(dispatchServiceMock, times(1)).process(eq(key), eq(testEvent),
+                                                  any(DispatchTrace.class));
   }
 }
\ No newline at end of file
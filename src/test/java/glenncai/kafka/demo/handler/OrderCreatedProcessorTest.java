@@ -0,0 +1,209 @@
+package glenncai.kafka.demo.handler;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import glenncai.kafka.demo.client.PartitionStockCache;
+import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.exception.CircuitBreakerOpenException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.DispatchPreparing;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.DispatchTrace;
+import glenncai.kafka.demo.service.DispatchDedupStore;
+import glenncai.kafka.demo.service.DispatchLogSampler;
+import glenncai.kafka.demo.service.DispatchOutbox;
+import glenncai.kafka.demo.service.DispatchService;
+import glenncai.kafka.demo.utils.TestEventData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.processor.api.MockProcessorContext.CapturedForward;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Order created processor test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class OrderCreatedProcessorTest {
+
+  private static final String STOCK_STORE = "stock";
+
+  private static final String DISPATCHED_STORE = "dispatched";
+
+  private static final Duration TTL = Duration.ofMinutes(10);
+
+  private static final Duration MAX_CIRCUIT_OPEN_WAIT = Duration.ofMillis(50);
+
+  private final StockServiceClient stockServiceClientMock = mock(StockServiceClient.class);
+
+  @SuppressWarnings("unchecked")
+  private final DispatchService dispatchService =
+      new DispatchService(mock(KafkaTemplate.class), stockServiceClientMock,
+                          DispatchLogSampler.disabled(), DispatchDedupStore.disabled(),
+                          DispatchMetrics.disabled(), PartitionStockCache.disabled(),
+                          DispatchOutbox.disabled());
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final MockProcessorContext<String, Object> context = new MockProcessorContext<>();
+
+  private TimestampedKeyValueStore<String, String> stockStore;
+
+  @BeforeEach
+  void setUp() {
+    stockStore = Stores.timestampedKeyValueStoreBuilder(Stores.inMemoryKeyValueStore(STOCK_STORE),
+                                                        Serdes.String(), Serdes.String())
+                       .withLoggingDisabled().build();
+    stockStore.init(context.getStateStoreContext(), stockStore);
+    context.addStateStore(stockStore);
+    context.setRecordMetadata("order.created", 1, 42L);
+  }
+
+  @Test
+  void test_stock_from_global_table_dispatches_both_events() {
+    stockStore.put("my-item", ValueAndTimestamp.make("true", 0L));
+    OrderCreatedProcessor processor = processor(null);
+
+    processor.process(record(TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item")));
+
+    List<CapturedForward<?, ?>> forwarded = List.copyOf(context.forwarded());
+    assertThat(forwarded, hasSize(2));
+    assertThat(forwarded.get(0).record().value(), instanceOf(DispatchPreparing.class));
+    assertThat(forwarded.get(1).record().value(), instanceOf(OrderDispatched.class));
+    assertThat(forwarded.get(1).record().key(), equalTo("key"));
+    assertThat(DispatchTrace.longHeader(forwarded.get(1).record().headers(),
+                                        DispatchTrace.ORIGIN_TIMESTAMP),
+               equalTo(forwarded.get(1).record().timestamp()));
+    verify(stockServiceClientMock, never()).checkAvailability(anyString());
+    assertThat(meterRegistry.get(DispatchMetrics.LISTENER_LATENCY).timer().count(), equalTo(1L));
+    assertThat(meterRegistry.get(DispatchMetrics.STAGE_LATENCY).tag("stage", "queue")
+                            .tag("partition", "1").timer().count(), equalTo(1L));
+  }
+
+  @Test
+  void test_unknown_item_checked_with_stock_service() {
+    stockStore.put("my-item", ValueAndTimestamp.make("not-a-boolean", 0L));
+    when(stockServiceClientMock.checkAvailability("my-item")).thenReturn("false");
+    OrderCreatedProcessor processor = processor(null);
+
+    processor.process(record(TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item")));
+
+    assertThat(context.forwarded(), empty());
+    verify(stockServiceClientMock, times(1)).checkAvailability("my-item");
+  }
+
+  @Test
+  void test_retryable_failure_is_retried_then_dead_lettered() {
+    when(stockServiceClientMock.checkAvailability("my-item"))
+        .thenThrow(new RetryableException("Stock service failure"));
+    OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+    OrderCreatedProcessor processor = processor(null);
+
+    processor.process(record(orderCreated));
+
+    verify(stockServiceClientMock, times(3)).checkAvailability("my-item");
+    List<CapturedForward<?, ?>> forwarded = List.copyOf(context.forwarded());
+    assertThat(forwarded, hasSize(1));
+    Record<?, ?> deadLetter = forwarded.get(0).record();
+    assertThat(deadLetter.value(), sameInstance(orderCreated));
+    assertThat(new String(deadLetter.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC)
+                                    .value()), equalTo("order.created"));
+    assertThat(deadLetter.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN),
+               notNullValue());
+    assertThat(meterRegistry.get(DispatchMetrics.DEAD_LETTERS).counter().count(), equalTo(1.0));
+  }
+
+  @Test
+  void test_open_circuit_breaker_fails_task_after_bounded_wait() {
+    when(stockServiceClientMock.checkAvailability("my-item"))
+        .thenThrow(new CircuitBreakerOpenException("Circuit breaker open"));
+    OrderCreatedProcessor processor = processor(null);
+    Record<String, Object> record =
+        record(TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item"));
+
+    assertThrows(CircuitBreakerOpenException.class, () -> processor.process(record));
+
+    verify(stockServiceClientMock, atLeast(2)).checkAvailability("my-item");
+    assertThat(context.forwarded(), empty());
+  }
+
+  @Test
+  void test_service_failure_is_dead_lettered_at_once() {
+    when(stockServiceClientMock.checkAvailability("my-item"))
+        .thenThrow(new IllegalStateException("Bad request"));
+    OrderCreatedProcessor processor = processor(null);
+
+    processor.process(record(TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item")));
+
+    verify(stockServiceClientMock, times(1)).checkAvailability("my-item");
+    assertThat(context.forwarded(), hasSize(1));
+    assertThat(context.forwarded().get(0).record().value(), instanceOf(OrderCreated.class));
+  }
+
+  @Test
+  void test_dispatched_orders_skipped_until_expired() {
+    KeyValueStore<String, Long> dispatchedStore =
+        Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(DISPATCHED_STORE),
+                                    Serdes.String(), Serdes.Long())
+              .withLoggingDisabled().build();
+    dispatchedStore.init(context.getStateStoreContext(), dispatchedStore);
+    context.addStateStore(dispatchedStore);
+    stockStore.put("my-item", ValueAndTimestamp.make("true", 0L));
+    OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+    OrderCreatedProcessor processor = processor(DISPATCHED_STORE);
+    context.setCurrentSystemTimeMs(0L);
+
+    processor.process(record(orderCreated));
+    processor.process(record(orderCreated));
+    assertThat(context.forwarded(), hasSize(2));
+    assertThat(meterRegistry.get(DispatchMetrics.DUPLICATES).counter().count(), equalTo(1.0));
+
+    context.scheduledPunctuators().get(0).getPunctuator().punctuate(TTL.toMillis() + 1);
+    processor.process(record(orderCreated));
+    assertThat(context.forwarded(), hasSize(4));
+  }
+
+  private OrderCreatedProcessor processor(String dispatchedStoreName) {
+    OrderCreatedProcessor processor =
+        new OrderCreatedProcessor(dispatchService, stockServiceClientMock,
+                                  DispatchLogSampler.disabled(), new DispatchMetrics(meterRegistry),
+                                  new FixedBackOff(1L, 2L), STOCK_STORE, dispatchedStoreName, TTL,
+                                  MAX_CIRCUIT_OPEN_WAIT);
+    processor.init(context);
+    return processor;
+  }
+
+  private static Record<String, Object> record(OrderCreated orderCreated) {
+    return new Record<>("key", orderCreated, System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,126 @@
+package glenncai.kafka.demo.handler;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.service.DispatchService;
+import glenncai.kafka.demo.utils.TestEventData;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Order created transactional handler test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class OrderCreatedTransactionalHandlerTest {
+
+  private final DispatchService dispatchServiceMock = mock(DispatchService.class);
+
+  private final ConsumerRecordRecoverer recovererMock = mock(ConsumerRecordRecoverer.class);
+
+  private final OrderCreatedTransactionalHandler orderCreatedTransactionalHandler =
+      new OrderCreatedTransactionalHandler(dispatchServiceMock, recovererMock,
+                                           Duration.ofMillis(1), 2L, 2);
+
+  @Test
+  void test_listen_success() throws Exception {
+    when(dispatchServiceMock.processAsync(anyString(), any(), any())).thenReturn(
+        CompletableFuture.completedFuture(null));
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+
+    orderCreatedTransactionalHandler.listen(records);
+
+    verify(dispatchServiceMock, times(2)).processAsync(anyString(), any(), any());
+    verify(recovererMock, never()).accept(any(), any());
+  }
+
+  @Test
+  void test_listen_retryable_failure_is_retried_then_dead_lettered() throws Exception {
+    RetryableException failure = new RetryableException("Stock service failure");
+    when(dispatchServiceMock.processAsync(anyString(), any(), any())).thenThrow(failure);
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+
+    orderCreatedTransactionalHandler.listen(records);
+
+    verify(dispatchServiceMock, times(3)).processAsync(anyString(), any(), any());
+    verify(recovererMock, times(1)).accept(same(records.get(0)), same(failure));
+  }
+
+  @Test
+  void test_listen_service_failure_is_dead_lettered() throws Exception {
+    when(dispatchServiceMock.processAsync(anyString(), any(), any())).thenThrow(
+        new IllegalStateException("Service failure"));
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+
+    orderCreatedTransactionalHandler.listen(records);
+
+    verify(dispatchServiceMock, times(1)).processAsync(anyString(), any(), any());
+    verify(recovererMock, times(1)).accept(same(records.get(0)),
+                                           any(NotRetryableException.class));
+  }
+
+  @Test
+  void test_listen_send_failure_rolls_back_batch() {
+    RuntimeException failure = new RuntimeException("Producer fenced");
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+    when(dispatchServiceMock.processAsync(eq(records.get(0).key()), any(), any())).thenReturn(
+        CompletableFuture.completedFuture(null));
+    when(dispatchServiceMock.processAsync(eq(records.get(1).key()), any(), any())).thenReturn(
+        CompletableFuture.failedFuture(failure));
+
+    CompletionException exception =
+        assertThrows(CompletionException.class,
+                     () -> orderCreatedTransactionalHandler.listen(records));
+
+    assertThat(exception.getCause(), sameInstance(failure));
+    verify(recovererMock, never()).accept(any(), any());
+  }
+
+  @Test
+  void test_listen_dead_letters_record_whose_sends_keep_failing() throws Exception {
+    RuntimeException failure = new RuntimeException("Record too large");
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+    when(dispatchServiceMock.processAsync(eq(records.get(0).key()), any(), any())).thenReturn(
+        CompletableFuture.completedFuture(null));
+    when(dispatchServiceMock.processAsync(eq(records.get(1).key()), any(), any())).thenReturn(
+        CompletableFuture.failedFuture(failure));
+
+    assertThrows(CompletionException.class, () -> orderCreatedTransactionalHandler.listen(records));
+    assertThrows(CompletionException.class, () -> orderCreatedTransactionalHandler.listen(records));
+    orderCreatedTransactionalHandler.listen(records);
+
+    verify(dispatchServiceMock, times(3)).processAsync(eq(records.get(0).key()), any(), any());
+    verify(dispatchServiceMock, times(2)).processAsync(eq(records.get(1).key()), any(), any());
+    verify(recovererMock, times(1)).accept(same(records.get(1)),
+                                           any(NotRetryableException.class));
+  }
+}
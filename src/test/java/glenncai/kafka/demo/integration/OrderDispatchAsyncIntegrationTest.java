@@ -0,0 +1,13 @@
+package glenncai.kafka.demo.integration;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Order dispatch integration test running the async send engine
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@TestPropertySource(properties = "dispatch.engine=async")
+class OrderDispatchAsyncIntegrationTest extends OrderDispatchIntegrationTest {
+}
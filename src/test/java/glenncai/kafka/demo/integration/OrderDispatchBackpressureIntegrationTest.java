@@ -0,0 +1,87 @@
+package glenncai.kafka.demo.integration;
+
+import static glenncai.kafka.demo.integration.WiremockUtils.stubWiremock;
+import static java.util.UUID.randomUUID;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import glenncai.kafka.demo.integration.OrderDispatchIntegrationTest.KafkaTestConsumer;
+import glenncai.kafka.demo.service.InFlightSendTracker;
+import glenncai.kafka.demo.utils.TestEventData;
+import jakarta.annotation.Resource;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order dispatch integration test with the backpressure controller sampling downstream pressure
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@TestPropertySource(properties = {
+    "dispatch.backpressure.enabled=true",
+    "dispatch.backpressure.max-in-flight-sends=100",
+    "dispatch.backpressure.resume-in-flight-sends=50"
+})
+class OrderDispatchBackpressureIntegrationTest extends OrderDispatchIntegrationTest {
+
+  @Resource
+  private KafkaTemplate<String, Object> kafkaTemplate;
+
+  @Resource
+  private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+  @Resource
+  private KafkaTestConsumer kafkaTestConsumer;
+
+  @Resource
+  private InFlightSendTracker inFlightSendTracker;
+
+  @Test
+  void test_saturated_in_flight_sends_pause_intake_until_acknowledged() throws Exception {
+    stubWiremock("/api/stock?item=my-item", 200, "true");
+    MessageListenerContainer orderContainer =
+        kafkaListenerEndpointRegistry.getListenerContainer("orderConsumerClient");
+
+    // Sends that are never acknowledged, as when the broker stops acking
+    for (int send = 0; send < 100; send++) {
+      inFlightSendTracker.onSend(null);
+    }
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(orderContainer::isContainerPaused);
+
+    kafkaTemplate.send("order.created", randomUUID().toString(),
+                       TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item")).get();
+    TimeUnit.SECONDS.sleep(1);
+    assertThat(kafkaTestConsumer.orderDispatchedCounter.get(), equalTo(0));
+
+    for (int send = 0; send < 100; send++) {
+      inFlightSendTracker.onAcknowledgement(null, null);
+    }
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(() -> !orderContainer.isPauseRequested() && !orderContainer.isContainerPaused());
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(kafkaTestConsumer.orderDispatchedCounter::get, equalTo(1));
+  }
+
+  @Test
+  void test_synchronous_send_failure_leaves_in_flight_count() throws Exception {
+    // Sends the tracker has seen acknowledged, once the test consumer is idle
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(inFlightSendTracker::inFlight, equalTo(0));
+
+    // Jackson has no serializer for a bare Object, so the send fails before reaching the broker
+    assertThrows(SerializationException.class,
+                 () -> kafkaTemplate.send("order.dispatched", randomUUID().toString(),
+                                          new Object()));
+
+    assertThat(inFlightSendTracker.inFlight(), equalTo(0));
+  }
+}
@@ -0,0 +1,14 @@
+package glenncai.kafka.demo.integration;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Order dispatch integration test with the compact binary format on every dispatch topic
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@TestPropertySource(properties =
+    "dispatch.serde.binary-topics=order.created,dispatch.tracking,order.dispatched")
+class OrderDispatchBinaryIntegrationTest extends OrderDispatchIntegrationTest {
+}
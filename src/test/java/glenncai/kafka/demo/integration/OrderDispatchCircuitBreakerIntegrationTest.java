@@ -0,0 +1,93 @@
+package glenncai.kafka.demo.integration;
+
+import static glenncai.kafka.demo.integration.WiremockUtils.stubWiremock;
+import static java.util.UUID.randomUUID;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import glenncai.kafka.demo.config.KafkaConfig;
+import glenncai.kafka.demo.integration.OrderDispatchIntegrationTest.KafkaTestConsumer;
+import glenncai.kafka.demo.service.ListenerContainerPauser;
+import glenncai.kafka.demo.utils.TestEventData;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order dispatch integration test with the stock service circuit breaker tripping
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@SpringBootTest(
+    classes = {KafkaConfig.class},
+    properties = {
+        "dispatch.stock.circuit-breaker.enabled=true",
+        "dispatch.stock.circuit-breaker.window-size=2",
+        "dispatch.stock.circuit-breaker.minimum-calls=2",
+        "dispatch.stock.circuit-breaker.open-duration=2s",
+        "dispatch.stock.circuit-breaker.half-open-calls=1"
+    })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 0)
+@EmbeddedKafka(controlledShutdown = true)
+class OrderDispatchCircuitBreakerIntegrationTest {
+
+  @Resource
+  private KafkaTemplate<String, Object> kafkaTemplate;
+
+  @Resource
+  private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+  @Resource
+  private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+  @Resource
+  private KafkaTestConsumer kafkaTestConsumer;
+
+  @Resource
+  private ListenerContainerPauser listenerContainerPauser;
+
+  @BeforeEach
+  public void setUp() {
+    WiremockUtils.reset();
+    kafkaListenerEndpointRegistry.getListenerContainers()
+                                 .forEach(container -> ContainerTestUtils.waitForAssignment(
+                                     container,
+                                     Objects.requireNonNull(
+                                         container.getContainerProperties().getTopics()).length
+                                     * embeddedKafkaBroker.getPartitionsPerTopic()));
+  }
+
+  @Test
+  void test_open_breaker_pauses_consumption_until_stock_service_recovers() throws Exception {
+    stubWiremock("/api/stock?item=my-item", 503, "Service unavailable");
+
+    kafkaTemplate.send("order.created", randomUUID().toString(),
+                       TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item")).get();
+
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(listenerContainerPauser::isPaused);
+
+    WiremockUtils.reset();
+    stubWiremock("/api/stock?item=my-item", 200, "true");
+
+    await().atMost(10, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(kafkaTestConsumer.orderDispatchedCounter::get, equalTo(1));
+    assertThat(listenerContainerPauser.isPaused(), equalTo(false));
+    assertThat(kafkaTestConsumer.orderCreatedDLTCounter.get(), equalTo(0));
+  }
+}
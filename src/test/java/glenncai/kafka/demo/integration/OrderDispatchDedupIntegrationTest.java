@@ -0,0 +1,103 @@
+package glenncai.kafka.demo.integration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static glenncai.kafka.demo.integration.WiremockUtils.stubWiremock;
+import static java.util.UUID.randomUUID;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import glenncai.kafka.demo.config.KafkaConfig;
+import glenncai.kafka.demo.integration.OrderDispatchIntegrationTest.KafkaTestConsumer;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.utils.TestEventData;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order dispatch integration test with redelivered orders skipped by the dedup store
+ * <p>
+ * Runs the transactional engine, where orders are only marked once their batch commits.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@SpringBootTest(
+    classes = {KafkaConfig.class},
+    properties = {
+        "dispatch.engine=transactional",
+        "dispatch.dedup.enabled=true"
+    })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 0)
+@EmbeddedKafka(controlledShutdown = true, brokerProperties = {
+    "transaction.state.log.replication.factor=1",
+    "transaction.state.log.min.isr=1"
+})
+class OrderDispatchDedupIntegrationTest {
+
+  @Resource
+  private KafkaTemplate<String, Object> kafkaTemplate;
+
+  @Resource
+  private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+  @Resource
+  private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+  @Resource
+  private KafkaTestConsumer kafkaTestConsumer;
+
+  @Resource
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void setUp() {
+    WiremockUtils.reset();
+    kafkaListenerEndpointRegistry.getListenerContainers()
+                                 .forEach(container -> ContainerTestUtils.waitForAssignment(
+                                     container,
+                                     Objects.requireNonNull(
+                                         container.getContainerProperties().getTopics()).length
+                                     * embeddedKafkaBroker.getPartitionsPerTopic()));
+  }
+
+  @Test
+  void test_redelivered_order_dispatched_once() throws Exception {
+    stubWiremock("/api/stock?item=my-item", 200, "true");
+    String key = randomUUID().toString();
+    OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+
+    kafkaTemplate.send("order.created", key, orderCreated).get();
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(kafkaTestConsumer.orderDispatchedCounter::get, equalTo(1));
+
+    kafkaTemplate.send("order.created", key, orderCreated).get();
+    kafkaTemplate.send("order.created", key, orderCreated).get();
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(() -> meterRegistry.get(DispatchMetrics.DUPLICATES).counter().count(),
+                  equalTo(2.0));
+
+    assertThat(kafkaTestConsumer.orderDispatchedCounter.get(), equalTo(1));
+    assertThat(kafkaTestConsumer.dispatchPreparingCounter.get(), equalTo(1));
+    verify(exactly(1), getRequestedFor(urlEqualTo("/api/stock?item=my-item")));
+  }
+}
@@ -5,13 +5,17 @@ import static java.util.UUID.randomUUID;
 import static org.awaitility.Awaitility.await;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.notNullValue;
 import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import glenncai.kafka.demo.config.KafkaConfig;
 import glenncai.kafka.demo.message.DispatchPreparing;
 import glenncai.kafka.demo.message.OrderCreated;
 import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
 import glenncai.kafka.demo.utils.TestEventData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
@@ -69,6 +73,9 @@ class OrderDispatchIntegrationTest {
   @Resource
   private KafkaTestConsumer kafkaTestConsumer;
 
+  @Resource
+  private MeterRegistry meterRegistry;
+
   @BeforeEach
   public void setUp() {
     kafkaTestConsumer.dispatchPreparingCounter.set(0);
@@ -110,6 +117,13 @@ class OrderDispatchIntegrationTest {
     await().atMost(1, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
            .until(kafkaTestConsumer.orderDispatchedCounter::get, equalTo(1));
     assertThat(kafkaTestConsumer.orderCreatedDLTCounter.get(), equalTo(0));
+
+    await().atMost(1, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(() -> timerCount(DispatchMetrics.LISTENER_LATENCY, "topic", ORDER_CREATED_TOPIC),
+                  greaterThan(0L));
+    assertThat(timerCount(DispatchMetrics.SEND_LATENCY, "topic", ORDER_DISPATCHED_TOPIC),
+               greaterThan(0L));
+    assertThat(timerCount(DispatchMetrics.STOCK_CHECK, "outcome", "available"), greaterThan(0L));
   }
 
   @Test
@@ -158,6 +172,11 @@ class OrderDispatchIntegrationTest {
     assertThat(kafkaTestConsumer.orderDispatchedCounter.get(), equalTo(0));
   }
 
+  private long timerCount(String name, String tagKey, String tagValue) {
+    return meterRegistry.find(name).tag(tagKey, tagValue).timers().stream()
+                        .mapToLong(Timer::count).sum();
+  }
+
   @Configuration
   static class TestConfig {
     @Bean
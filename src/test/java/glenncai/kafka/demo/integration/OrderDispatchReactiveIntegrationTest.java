@@ -0,0 +1,36 @@
+package glenncai.kafka.demo.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.equalTo;
+import glenncai.kafka.demo.handler.OrderCreatedReactiveHandler;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order dispatch integration test running the reactive engine
+ * <p>
+ * The receiver is not a listener container, so its partitions are awaited separately.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@TestPropertySource(properties = "dispatch.engine=reactive")
+class OrderDispatchReactiveIntegrationTest extends OrderDispatchIntegrationTest {
+
+  @Resource
+  private OrderCreatedReactiveHandler orderCreatedReactiveHandler;
+
+  @Resource
+  private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+  @BeforeEach
+  public void awaitReceiverAssignment() {
+    await().atMost(30, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(() -> orderCreatedReactiveHandler.assignedPartitions().size(),
+                  equalTo(embeddedKafkaBroker.getPartitionsPerTopic()));
+  }
+}
@@ -0,0 +1,20 @@
+package glenncai.kafka.demo.integration;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Order dispatch integration test retrying through non-blocking retry topics
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@TestPropertySource(properties = {
+    "dispatch.retry-topics.enabled=true",
+    "dispatch.retry-topics.initial-interval=100ms",
+    "dispatch.retry-topics.multiplier=2",
+    "dispatch.retry-topics.max-interval=1s",
+    "dispatch.retry-topics.partitions=2",
+    "dispatch.retry-topics.replication-factor=1"
+})
+class OrderDispatchRetryTopicIntegrationTest extends OrderDispatchIntegrationTest {
+}
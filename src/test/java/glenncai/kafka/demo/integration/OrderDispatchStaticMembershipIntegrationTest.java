@@ -0,0 +1,106 @@
+package glenncai.kafka.demo.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import jakarta.annotation.Resource;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Order dispatch integration test with static group membership and the high throughput fetch
+ * profile
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@TestPropertySource(properties = {
+    "dispatch.consumer.profile=high-throughput",
+    "dispatch.consumer.group-instance-id=dispatch-integration-test"
+})
+class OrderDispatchStaticMembershipIntegrationTest extends OrderDispatchIntegrationTest {
+
+  @Resource
+  private ConsumerFactory<String, Object> consumerFactory;
+
+  @Resource
+  private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+  @Resource
+  private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+  @Test
+  void test_restart_within_session_timeout_keeps_assignment() {
+    MessageListenerContainer orderContainer =
+        kafkaListenerEndpointRegistry.getListenerContainer("orderConsumerClient");
+    // A dynamic member of the same group, told of every rebalance
+    AtomicInteger rebalances = new AtomicInteger();
+    KafkaMessageListenerContainer<String, Object> witness = witness(rebalances);
+    witness.start();
+    try {
+      int partitions = embeddedKafkaBroker.getPartitionsPerTopic();
+      await().atMost(10, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+             .until(() -> !assigned(witness).isEmpty() && !assigned(orderContainer).isEmpty()
+                          && assigned(witness).size() + assigned(orderContainer).size()
+                             == partitions);
+      Set<TopicPartition> orderAssignment = assigned(orderContainer);
+      Set<TopicPartition> witnessAssignment = assigned(witness);
+      int rebalancesBeforeRestart = rebalances.get();
+
+      orderContainer.stop();
+      orderContainer.start();
+
+      await().atMost(10, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+             .until(() -> assigned(orderContainer), equalTo(orderAssignment));
+      assertThat(rebalances.get(), equalTo(rebalancesBeforeRestart));
+      assertThat(assigned(witness), equalTo(witnessAssignment));
+    } finally {
+      // Leaving the group hands the witness's partitions back to the order container
+      witness.stop();
+    }
+  }
+
+  private KafkaMessageListenerContainer<String, Object> witness(AtomicInteger rebalances) {
+    Map<String, Object> config = new HashMap<>(consumerFactory.getConfigurationProperties());
+    config.remove(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG);
+    ContainerProperties containerProperties = new ContainerProperties("order.created");
+    containerProperties.setGroupId("dispatch.order.created.consumer");
+    containerProperties.setMessageListener((MessageListener<String, Object>) record -> {
+    });
+    containerProperties.setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+      @Override
+      public void onPartitionsAssigned(Consumer<?, ?> consumer,
+                                       Collection<TopicPartition> partitions) {
+        rebalances.incrementAndGet();
+      }
+    });
+    return new KafkaMessageListenerContainer<>(new DefaultKafkaConsumerFactory<>(config),
+                                               containerProperties);
+  }
+
+  private static Set<TopicPartition> assigned(MessageListenerContainer container) {
+    return new HashSet<>(Objects.requireNonNullElse(container.getAssignedPartitions(),
+                                                    Set.of()));
+  }
+}
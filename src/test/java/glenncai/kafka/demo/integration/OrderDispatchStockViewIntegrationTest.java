@@ -0,0 +1,95 @@
+package glenncai.kafka.demo.integration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static glenncai.kafka.demo.integration.WiremockUtils.stubWiremock;
+import static java.util.UUID.randomUUID;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.equalTo;
+import glenncai.kafka.demo.client.StockAvailabilityView;
+import glenncai.kafka.demo.config.KafkaConfig;
+import glenncai.kafka.demo.integration.OrderDispatchIntegrationTest.KafkaTestConsumer;
+import glenncai.kafka.demo.utils.TestEventData;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order dispatch integration test with stock availability read from the local view of the
+ * compacted stock topic
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@SpringBootTest(
+    classes = {KafkaConfig.class},
+    properties = {
+        "dispatch.stock.view.enabled=true",
+        "dispatch.stock.view.poll-timeout=100ms"
+    })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 0)
+@EmbeddedKafka(controlledShutdown = true)
+class OrderDispatchStockViewIntegrationTest {
+
+  private static final String STOCK_AVAILABILITY_TOPIC = "stock.availability";
+
+  @Resource
+  private KafkaTemplate<String, Object> kafkaTemplate;
+
+  @Resource
+  private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+  @Resource
+  private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+  @Resource
+  private KafkaTestConsumer kafkaTestConsumer;
+
+  @Resource
+  private StockAvailabilityView stockAvailabilityView;
+
+  @BeforeEach
+  public void setUp() {
+    WiremockUtils.reset();
+    kafkaListenerEndpointRegistry.getListenerContainers()
+                                 .forEach(container -> ContainerTestUtils.waitForAssignment(
+                                     container,
+                                     Objects.requireNonNull(
+                                         container.getContainerProperties().getTopics()).length
+                                     * embeddedKafkaBroker.getPartitionsPerTopic()));
+  }
+
+  @Test
+  void test_known_items_read_locally_and_unknown_items_over_http() throws Exception {
+    stubWiremock("/api/stock?item=other-item", 200, "true");
+    kafkaTemplate.send(STOCK_AVAILABILITY_TOPIC, "my-item", true).get();
+    await().atMost(10, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(() -> stockAvailabilityView.get("my-item"), equalTo("true"));
+
+    kafkaTemplate.send("order.created", randomUUID().toString(),
+                       TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item")).get();
+    kafkaTemplate.send("order.created", randomUUID().toString(),
+                       TestEventData.buildOrderCreatedEvent(randomUUID(), "other-item")).get();
+
+    await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(kafkaTestConsumer.orderDispatchedCounter::get, equalTo(2));
+    verify(exactly(0), getRequestedFor(urlEqualTo("/api/stock?item=my-item")));
+    verify(exactly(1), getRequestedFor(urlEqualTo("/api/stock?item=other-item")));
+  }
+}
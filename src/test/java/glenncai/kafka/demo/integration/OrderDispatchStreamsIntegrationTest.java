@@ -0,0 +1,43 @@
+package glenncai.kafka.demo.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.equalTo;
+import jakarta.annotation.Resource;
+import org.apache.kafka.streams.KafkaStreams;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order dispatch integration test running the streams engine
+ * <p>
+ * The single embedded broker has to host the transaction state log on its own, and the topics
+ * the topology reads from have to exist before it starts.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@EmbeddedKafka(controlledShutdown = true, topics = {"order.created", "stock.availability"},
+    brokerProperties = {
+        "transaction.state.log.replication.factor=1",
+        "transaction.state.log.min.isr=1"
+    })
+@TestPropertySource(properties = {
+    "dispatch.engine=streams",
+    "dispatch.streams.state-dir=${java.io.tmpdir}/dispatch-streams-${random.uuid}"
+})
+class OrderDispatchStreamsIntegrationTest extends OrderDispatchIntegrationTest {
+
+  @Resource
+  private StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+
+  @BeforeEach
+  public void awaitStreamsRunning() {
+    await().atMost(30, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+           .until(() -> streamsBuilderFactoryBean.getKafkaStreams().state(),
+                  equalTo(KafkaStreams.State.RUNNING));
+  }
+}
@@ -0,0 +1,20 @@
+package glenncai.kafka.demo.integration;
+
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Order dispatch integration test running the transactional engine
+ * <p>
+ * The single embedded broker has to host the transaction state log on its own.
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@EmbeddedKafka(controlledShutdown = true, brokerProperties = {
+    "transaction.state.log.replication.factor=1",
+    "transaction.state.log.min.isr=1"
+})
+@TestPropertySource(properties = "dispatch.engine=transactional")
+class OrderDispatchTransactionalIntegrationTest extends OrderDispatchIntegrationTest {
+}
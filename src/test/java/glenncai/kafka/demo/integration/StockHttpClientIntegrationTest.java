@@ -0,0 +1,93 @@
+package glenncai.kafka.demo.integration;
+
+import static glenncai.kafka.demo.integration.WiremockUtils.stubDelayedWiremock;
+import static glenncai.kafka.demo.integration.WiremockUtils.stubWiremock;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import glenncai.kafka.demo.client.AdaptiveConcurrencyLimiter;
+import glenncai.kafka.demo.client.StockAvailabilityCache;
+import glenncai.kafka.demo.client.StockAvailabilityCoalescer;
+import glenncai.kafka.demo.client.StockServiceCircuitBreaker;
+import glenncai.kafka.demo.client.StockAvailabilityView;
+import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.config.StockHttpClientConfig;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Stock HTTP client integration test against WireMock
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@SpringBootTest(
+    classes = {StockHttpClientConfig.class, StockServiceClient.class, StockAvailabilityCache.class,
+        StockAvailabilityCoalescer.class, StockServiceCircuitBreaker.class,
+        AdaptiveConcurrencyLimiter.class, StockAvailabilityView.class, DispatchMetrics.class,
+        StockHttpClientIntegrationTest.TestConfig.class},
+    properties = {
+        "dispatch.stockServiceEndpoint=http://localhost:${wiremock.server.port}/api/stock",
+        "dispatch.stock.http.read-timeout=200ms",
+        "dispatch.stock.http.response-timeout=200ms",
+        "dispatch.stock.http.max-connections-per-route=5"
+    })
+@AutoConfigureWireMock(port = 0)
+class StockHttpClientIntegrationTest {
+
+  @Resource
+  private StockServiceClient stockServiceClient;
+
+  @Resource
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void setUp() {
+    WiremockUtils.reset();
+  }
+
+  @Test
+  void test_checkAvailability_success() {
+    stubWiremock("/api/stock?item=my-item", 200, "true");
+
+    assertThat(stockServiceClient.checkAvailability("my-item"), equalTo("true"));
+  }
+
+  @Test
+  void test_checkAvailability_read_timeout_is_retryable() {
+    stubDelayedWiremock("/api/stock?item=my-item", 200, "true", 1000);
+
+    assertThrows(RetryableException.class,
+                 () -> stockServiceClient.checkAvailability("my-item"));
+  }
+
+  @Test
+  void test_pool_metrics_exported() {
+    stubWiremock("/api/stock?item=my-item", 200, "true");
+    stockServiceClient.checkAvailability("my-item");
+
+    assertThat(meterRegistry.get("httpcomponents.httpclient.pool.route.max.default")
+                            .tag("httpclient", "stock-service").gauge().value(), equalTo(5.0));
+    assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                            .tag("httpclient", "stock-service").tag("state", "available")
+                            .gauge().value(), equalTo(1.0));
+  }
+
+  /**
+   * Registered through the test classes only, so component scans of other tests skip it
+   */
+  static class TestConfig {
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package glenncai.kafka.demo.integration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static glenncai.kafka.demo.integration.WiremockUtils.stubBulkWiremock;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import glenncai.kafka.demo.client.AdaptiveConcurrencyLimiter;
+import glenncai.kafka.demo.client.StockAvailabilityCache;
+import glenncai.kafka.demo.client.StockAvailabilityCoalescer;
+import glenncai.kafka.demo.client.StockServiceCircuitBreaker;
+import glenncai.kafka.demo.client.StockAvailabilityView;
+import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock service coalescer integration test against the WireMock bulk stub
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+@SpringBootTest(
+    classes = {StockServiceClient.class, StockAvailabilityCache.class,
+        StockAvailabilityCoalescer.class, StockServiceCircuitBreaker.class,
+        AdaptiveConcurrencyLimiter.class, StockAvailabilityView.class, DispatchMetrics.class,
+        StockServiceCoalescerIntegrationTest.TestConfig.class},
+    properties = {
+        "dispatch.stockServiceEndpoint=http://localhost:${wiremock.server.port}/api/stock",
+        "dispatch.stock.coalescer.enabled=true",
+        "dispatch.stock.coalescer.max-wait=200ms"
+    })
+@AutoConfigureWireMock(port = 0)
+class StockServiceCoalescerIntegrationTest {
+
+  @Resource
+  private StockServiceClient stockServiceClient;
+
+  @BeforeEach
+  public void setUp() {
+    WiremockUtils.reset();
+  }
+
+  @Test
+  void test_concurrent_lookups_share_one_bulk_request() throws Exception {
+    stubBulkWiremock("/api/stock/bulk", 200,
+                     "{\"item-1\": true, \"item-2\": false, \"item-3\": true}");
+
+    List<String> items = List.of("item-1", "item-2", "item-3", "item-1", "item-2", "item-3");
+    List<CompletableFuture<String>> lookups = new ArrayList<>();
+    for (String item : items) {
+      lookups.add(CompletableFuture.supplyAsync(() -> stockServiceClient.checkAvailability(item)));
+    }
+
+    for (int i = 0; i < items.size(); i++) {
+      assertThat(lookups.get(i).get(3, TimeUnit.SECONDS),
+                 equalTo(items.get(i).equals("item-2") ? "false" : "true"));
+    }
+    verify(1, postRequestedFor(urlEqualTo("/api/stock/bulk")));
+    verify(0, getRequestedFor(urlPathEqualTo("/api/stock")));
+  }
+
+  /**
+   * Registered through the test classes only, so component scans of other tests skip it
+   */
+  static class TestConfig {
+    @Bean
+    public RestTemplate restTemplate() {
+      return new RestTemplate();
+    }
+  }
+}
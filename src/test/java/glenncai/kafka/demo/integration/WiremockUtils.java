@@ -2,6 +2,7 @@ package glenncai.kafka.demo.integration;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import com.github.tomakehurst.wiremock.client.WireMock;
@@ -40,4 +41,19 @@ public class WiremockUtils {
                                          .withHeader("Content-Type", "text/plain").withBody(body)));
     }
   }
+
+  public static void stubBulkWiremock(String url, int httpStatusResponse, String body) {
+    stubFor(post(urlEqualTo(url))
+                .willReturn(aResponse().withStatus(httpStatusResponse)
+                                       .withHeader("Content-Type", "application/json")
+                                       .withBody(body)));
+  }
+
+  public static void stubDelayedWiremock(String url, int httpStatusResponse, String body,
+                                         int delayMillis) {
+    stubFor(get(urlEqualTo(url))
+                .willReturn(aResponse().withStatus(httpStatusResponse)
+                                       .withHeader("Content-Type", "text/plain").withBody(body)
+                                       .withFixedDelay(delayMillis)));
+  }
 }
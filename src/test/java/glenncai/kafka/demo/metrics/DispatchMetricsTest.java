@@ -0,0 +1,147 @@
+package glenncai.kafka.demo.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import glenncai.kafka.demo.exception.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch metrics test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class DispatchMetricsTest {
+
+  private static final String TOPIC = "order.created";
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private DispatchMetrics dispatchMetrics;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    dispatchMetrics = new DispatchMetrics(meterRegistry);
+  }
+
+  @Test
+  void test_listener_latency_from_record_timestamp() {
+    ConsumerRecord<String, Object> record = record(System.currentTimeMillis() - 2000L);
+
+    dispatchMetrics.<String, Object>recordInterceptor().success(record, null);
+    dispatchMetrics.<String, Object>batchInterceptor()
+                   .success(new ConsumerRecords<>(Map.of(new TopicPartition(TOPIC, 0),
+                                                         List.of(record))), null);
+
+    assertThat(meterRegistry.get(DispatchMetrics.LISTENER_LATENCY).tag("topic", TOPIC).timer()
+                            .count()).isEqualTo(2);
+    assertThat(meterRegistry.get(DispatchMetrics.LISTENER_LATENCY).timer()
+                            .max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(2000.0);
+  }
+
+  @Test
+  void test_send_latency_and_failures_per_topic() {
+    ProducerRecord<String, Object> record = new ProducerRecord<>("order.dispatched", "value");
+    RecordMetadata metadata = new RecordMetadata(new TopicPartition("order.dispatched", 0), 0L,
+                                                 0, System.currentTimeMillis() - 50L, 0, 0);
+
+    dispatchMetrics.<String, Object>producerListener().onSuccess(record, metadata);
+    dispatchMetrics.<String, Object>producerListener()
+                   .onError(record, null, new RuntimeException("Send failed"));
+
+    assertThat(meterRegistry.get(DispatchMetrics.SEND_LATENCY).tag("topic", "order.dispatched")
+                            .timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get(DispatchMetrics.SEND_FAILURES).tag("topic", "order.dispatched")
+                            .counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void test_dead_letters_and_delivery_failures_tagged_by_listener_exception() {
+    ConsumerRecord<String, Object> record = record(System.currentTimeMillis());
+    Exception exception =
+        new ListenerExecutionFailedException("Listener failed", new RetryableException("Down"));
+
+    dispatchMetrics.retryListener().failedDelivery(record, exception, 1);
+    dispatchMetrics.retryListener().failedDelivery(record, exception, 2);
+    dispatchMetrics.recordDeadLetter(TOPIC, exception);
+
+    assertThat(meterRegistry.get(DispatchMetrics.DELIVERY_FAILURES)
+                            .tag("exception", "RetryableException").counter().count())
+        .isEqualTo(2.0);
+    assertThat(meterRegistry.get(DispatchMetrics.DEAD_LETTERS).tag("topic", TOPIC)
+                            .tag("exception", "RetryableException").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void test_dead_letter_counted_once_published() {
+    KafkaOperations<Object, Object> kafkaOperationsMock = mock();
+    when(kafkaOperationsMock.send(ArgumentMatchers.<ProducerRecord<Object, Object>>any()))
+        .thenReturn(CompletableFuture.completedFuture(null))
+        .thenReturn(CompletableFuture.failedFuture(new KafkaException("DLT unavailable")));
+    DeadLetterPublishingRecoverer recoverer =
+        dispatchMetrics.deadLetterPublishingRecoverer(kafkaOperationsMock);
+    ConsumerRecord<String, Object> record = record(System.currentTimeMillis());
+    Exception exception = new RetryableException("Down");
+
+    recoverer.accept(record, exception);
+    assertThrows(KafkaException.class, () -> recoverer.accept(record, exception));
+
+    verify(kafkaOperationsMock, times(2)).send(argThat(
+        (ProducerRecord<Object, Object> sent) -> sent.topic().equals(TOPIC + ".DLT")
+                                                 && sent.partition() == 1));
+    assertThat(meterRegistry.get(DispatchMetrics.DEAD_LETTERS).tag("topic", TOPIC)
+                            .tag("exception", "RetryableException").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void test_stock_check_exported_as_bounded_prometheus_histogram() {
+    PrometheusMeterRegistry prometheusRegistry =
+        new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    new DispatchMetrics(prometheusRegistry)
+        .recordStockCheck(DispatchMetrics.StockOutcome.AVAILABLE, TimeUnit.MILLISECONDS.toNanos(5));
+
+    List<String> buckets =
+        prometheusRegistry.scrape().lines()
+                          .filter(line -> line.startsWith("dispatch_stock_check_seconds_bucket{")
+                                          && line.contains("outcome=\"available\""))
+                          .toList();
+    assertThat(buckets).isNotEmpty().hasSizeLessThan(100);
+    assertThat(buckets.get(buckets.size() - 1)).contains("le=\"+Inf\"").endsWith(" 1.0");
+  }
+
+  private static ConsumerRecord<String, Object> record(long timestamp) {
+    return new ConsumerRecord<>(TOPIC, 1, 0L, timestamp, TimestampType.CREATE_TIME, 0, 0, "key",
+                                "value", new RecordHeaders(), Optional.empty());
+  }
+}
@@ -0,0 +1,82 @@
+package glenncai.kafka.demo.serde;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import glenncai.kafka.demo.message.DispatchPreparing;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Arrays;
+
+/**
+ * Binary message codec test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class BinaryMessageCodecTest {
+
+  @Test
+  void test_round_trip_all_message_types() {
+    OrderCreated orderCreated = new OrderCreated(randomUUID(), "item-ü-" + "x".repeat(200));
+    DispatchPreparing dispatchPreparing = new DispatchPreparing(randomUUID());
+    OrderDispatched orderDispatched =
+        new OrderDispatched(randomUUID(), randomUUID(), "Dispatched: item");
+
+    assertThat(BinaryMessageCodec.decode(BinaryMessageCodec.encode(orderCreated)))
+        .isEqualTo(orderCreated);
+    assertThat(BinaryMessageCodec.decode(BinaryMessageCodec.encode(dispatchPreparing)))
+        .isEqualTo(dispatchPreparing);
+    assertThat(BinaryMessageCodec.decode(BinaryMessageCodec.encode(orderDispatched)))
+        .isEqualTo(orderDispatched);
+  }
+
+  @Test
+  void test_round_trip_null_fields() {
+    OrderDispatched orderDispatched = new OrderDispatched(null, randomUUID(), null);
+
+    byte[] data = BinaryMessageCodec.encode(orderDispatched);
+
+    assertThat(data).hasSize(4 + 16);
+    assertThat(BinaryMessageCodec.decode(data)).isEqualTo(orderDispatched);
+  }
+
+  @Test
+  void test_encoding_is_smaller_than_json() {
+    OrderCreated orderCreated = new OrderCreated(randomUUID(), "item-200");
+
+    byte[] binary = BinaryMessageCodec.encode(orderCreated);
+    byte[] json;
+    try (JsonSerializer<Object> jsonSerializer = new JsonSerializer<>()) {
+      json = jsonSerializer.serialize("order.created", new RecordHeaders(), orderCreated);
+    }
+
+    assertThat(binary).hasSize(4 + 16 + 1 + "item-200".length());
+    assertThat(binary.length * 2).isLessThan(json.length);
+  }
+
+  @Test
+  void test_decode_rejects_unknown_version_and_type() {
+    byte[] data = BinaryMessageCodec.encode(new DispatchPreparing(randomUUID()));
+
+    byte[] newerVersion = Arrays.copyOf(data, data.length);
+    newerVersion[1] = 2;
+    byte[] unknownType = Arrays.copyOf(data, data.length);
+    unknownType[2] = 99;
+
+    assertThrows(SerializationException.class, () -> BinaryMessageCodec.decode(newerVersion));
+    assertThrows(SerializationException.class, () -> BinaryMessageCodec.decode(unknownType));
+    assertThrows(SerializationException.class,
+                 () -> BinaryMessageCodec.decode(Arrays.copyOf(data, data.length - 1)));
+  }
+
+  @Test
+  void test_encode_rejects_unknown_message() {
+    assertThrows(SerializationException.class, () -> BinaryMessageCodec.encode("order"));
+  }
+}
@@ -0,0 +1,69 @@
+package glenncai.kafka.demo.serde;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.message.OrderDispatched;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Dual format deserializer test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class DualFormatDeserializerTest {
+
+  private final DualFormatDeserializer deserializer = new DualFormatDeserializer();
+
+  @AfterEach
+  void tearDown() {
+    deserializer.close();
+  }
+
+  @Test
+  void test_deserialize_json_with_default_type() {
+    deserializer.configure(
+        Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class.getCanonicalName()), false);
+    OrderCreated orderCreated = new OrderCreated(randomUUID(), "item-200");
+    byte[] json = ("{\"orderId\":\"" + orderCreated.getOrderId() + "\",\"item\":\"item-200\"}")
+        .getBytes(StandardCharsets.UTF_8);
+
+    assertThat(deserializer.deserialize("order.created", new RecordHeaders(), json))
+        .isEqualTo(orderCreated);
+  }
+
+  @Test
+  void test_deserialize_json_with_type_headers() {
+    deserializer.configure(
+        Map.of(JsonDeserializer.TRUSTED_PACKAGES, OrderDispatched.class.getPackageName()), false);
+    OrderDispatched orderDispatched = new OrderDispatched(randomUUID(), randomUUID(), "notes");
+    Headers headers = new RecordHeaders();
+    byte[] json;
+    try (JsonSerializer<Object> jsonSerializer = new JsonSerializer<>()) {
+      json = jsonSerializer.serialize("order.dispatched", headers, orderDispatched);
+    }
+
+    assertThat(deserializer.deserialize("order.dispatched", headers, json))
+        .isEqualTo(orderDispatched);
+  }
+
+  @Test
+  void test_deserialize_binary() {
+    deserializer.configure(
+        Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class.getCanonicalName()), false);
+    OrderDispatched orderDispatched = new OrderDispatched(randomUUID(), randomUUID(), "notes");
+
+    assertThat(deserializer.deserialize("order.dispatched", new RecordHeaders(),
+                                        BinaryMessageCodec.encode(orderDispatched)))
+        .isEqualTo(orderDispatched);
+  }
+}
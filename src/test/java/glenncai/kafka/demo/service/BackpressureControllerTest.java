@@ -0,0 +1,73 @@
+package glenncai.kafka.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import glenncai.kafka.demo.client.AdaptiveConcurrencyLimiter;
+import glenncai.kafka.demo.client.StockAvailabilityCoalescer;
+import glenncai.kafka.demo.service.BackpressureController.Pressure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+
+/**
+ * Backpressure controller test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class BackpressureControllerTest {
+
+  private ListenerContainerPauser listenerContainerPauser;
+
+  private BackpressureController backpressureController;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    listenerContainerPauser = mock(ListenerContainerPauser.class);
+    backpressureController =
+        new BackpressureController(new InFlightSendTracker(), mock(KafkaTemplate.class),
+                                   AdaptiveConcurrencyLimiter.disabled(),
+                                   StockAvailabilityCoalescer.disabled(), listenerContainerPauser,
+                                   false, Duration.ofMillis(100), 100, 50, 0.2, 0.5, 10, 2);
+  }
+
+  @Test
+  void test_pauses_when_any_signal_crosses_its_threshold() {
+    assertThat(backpressureController.update(new Pressure(99, 0.9, 0))).isFalse();
+    assertThat(backpressureController.update(new Pressure(0, 0.2, 0))).isTrue();
+
+    verify(listenerContainerPauser).pause(BackpressureController.PAUSE_REASON);
+  }
+
+  @Test
+  void test_stays_paused_until_every_signal_is_within_resume_threshold() {
+    backpressureController.update(new Pressure(100, 0.9, 0));
+
+    assertThat(backpressureController.update(new Pressure(60, 0.9, 0))).isTrue();
+    assertThat(backpressureController.update(new Pressure(50, 0.4, 0))).isTrue();
+    assertThat(backpressureController.update(new Pressure(50, 0.5, 5))).isTrue();
+    verify(listenerContainerPauser, never()).resume(BackpressureController.PAUSE_REASON);
+
+    assertThat(backpressureController.update(new Pressure(50, 0.5, 2))).isFalse();
+    verify(listenerContainerPauser, times(1)).pause(BackpressureController.PAUSE_REASON);
+    verify(listenerContainerPauser, times(1)).resume(BackpressureController.PAUSE_REASON);
+  }
+
+  @Test
+  void test_in_flight_sends_are_counted_until_acknowledged() {
+    InFlightSendTracker inFlightSendTracker = new InFlightSendTracker();
+
+    inFlightSendTracker.onSend(null);
+    inFlightSendTracker.onSend(null);
+    inFlightSendTracker.onAcknowledgement(null, new RuntimeException());
+
+    assertThat(inFlightSendTracker.inFlight()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,163 @@
+package glenncai.kafka.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatch dedup store test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class DispatchDedupStoreTest {
+
+  private static final Duration TTL = Duration.ofMinutes(60);
+
+  private final AtomicLong clock = new AtomicLong(TTL.toMillis() * 100);
+
+  @TempDir
+  private Path tempDir;
+
+  @Test
+  void test_dispatched_orders_kept_for_ttl() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DispatchDedupStore store = store(1000L, null, new DispatchMetrics(meterRegistry));
+    UUID orderId = UUID.randomUUID();
+
+    assertThat(store.alreadyDispatched(orderId)).isFalse();
+    store.markDispatched(orderId);
+    clock.addAndGet(TTL.toMillis() - 1);
+    assertThat(store.alreadyDispatched(orderId)).isTrue();
+    assertThat(store.alreadyDispatched(UUID.randomUUID())).isFalse();
+
+    clock.addAndGet(TTL.toMillis() / 6 + 1);
+    assertThat(store.alreadyDispatched(orderId)).isFalse();
+    assertThat(meterRegistry.get(DispatchMetrics.DUPLICATES).counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void test_many_orders_and_nil_order_id() {
+    DispatchDedupStore store = store(100_000L, null, DispatchMetrics.disabled());
+    List<UUID> orderIds = new ArrayList<>();
+    for (int index = 0; index < 10_000; index++) {
+      orderIds.add(UUID.randomUUID());
+    }
+    orderIds.add(new UUID(0L, 0L));
+    orderIds.forEach(store::markDispatched);
+    orderIds.forEach(store::markDispatched);
+
+    assertThat(store.size()).isEqualTo(orderIds.size());
+    assertThat(orderIds).allMatch(store::alreadyDispatched);
+    assertThat(store.alreadyDispatched(UUID.randomUUID())).isFalse();
+  }
+
+  @Test
+  void test_oldest_bucket_dropped_at_max_entries() {
+    DispatchDedupStore store = store(3L, null, DispatchMetrics.disabled());
+    UUID oldest = UUID.randomUUID();
+    store.markDispatched(oldest);
+    clock.addAndGet(TTL.toMillis() / 6);
+    List<UUID> newer = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+    newer.forEach(store::markDispatched);
+
+    assertThat(store.size()).isEqualTo(3);
+    assertThat(store.alreadyDispatched(oldest)).isFalse();
+    assertThat(newer).allMatch(store::alreadyDispatched);
+  }
+
+  @Test
+  void test_in_flight_until_sent_or_committed() {
+    DispatchDedupStore store = store(1000L, null, DispatchMetrics.disabled());
+    UUID failed = UUID.randomUUID();
+    UUID sending = UUID.randomUUID();
+    CompletableFuture<Void> sends = new CompletableFuture<>();
+    UUID aborted = UUID.randomUUID();
+    UUID committed = UUID.randomUUID();
+
+    store.markDispatched(failed, CompletableFuture.failedFuture(new RuntimeException("Down")));
+    store.markDispatched(sending, sends);
+    assertThat(store.alreadyDispatched(sending)).isTrue();
+    sends.complete(null);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      store.markDispatched(aborted, CompletableFuture.completedFuture(null));
+      TransactionSynchronizationManager.getSynchronizations().forEach(
+          synchronization -> synchronization.afterCompletion(
+              TransactionSynchronization.STATUS_ROLLED_BACK));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      store.markDispatched(committed, CompletableFuture.completedFuture(null));
+      assertThat(store.alreadyDispatched(committed)).isTrue();
+      TransactionSynchronizationManager.getSynchronizations().forEach(
+          synchronization -> synchronization.afterCompletion(
+              TransactionSynchronization.STATUS_COMMITTED));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertThat(store.alreadyDispatched(failed)).isFalse();
+    assertThat(store.alreadyDispatched(aborted)).isFalse();
+    assertThat(store.alreadyDispatched(sending)).isTrue();
+    assertThat(store.alreadyDispatched(committed)).isTrue();
+    assertThat(store.size()).isEqualTo(2);
+  }
+
+  @Test
+  void test_snapshot_restores_unexpired_orders() throws Exception {
+    Path snapshotFile = tempDir.resolve("dedup").resolve("dispatched.bin");
+    DispatchDedupStore store = store(1000L, snapshotFile, DispatchMetrics.disabled());
+    UUID expiring = UUID.randomUUID();
+    store.markDispatched(expiring);
+    clock.addAndGet(TTL.toMillis() / 2);
+    UUID kept = UUID.randomUUID();
+    store.markDispatched(kept);
+    store.destroy();
+
+    clock.addAndGet(TTL.toMillis() / 2 + TTL.toMillis() / 6);
+    DispatchDedupStore restarted = store(1000L, snapshotFile, DispatchMetrics.disabled());
+
+    assertThat(restarted.alreadyDispatched(kept)).isTrue();
+    assertThat(restarted.alreadyDispatched(expiring)).isFalse();
+    assertThat(restarted.size()).isEqualTo(1);
+  }
+
+  @Test
+  void test_unreadable_snapshot_ignored() throws Exception {
+    Path snapshotFile = tempDir.resolve("dispatched.bin");
+    Files.write(snapshotFile, new byte[] {1, 2, 3});
+
+    DispatchDedupStore store = store(1000L, snapshotFile, DispatchMetrics.disabled());
+
+    assertThat(store.size()).isZero();
+    UUID orderId = UUID.randomUUID();
+    store.markDispatched(orderId);
+    store.writeSnapshot();
+    assertThat(store(1000L, snapshotFile, DispatchMetrics.disabled())
+                   .alreadyDispatched(orderId)).isTrue();
+  }
+
+  private DispatchDedupStore store(long maxEntries, Path snapshotFile,
+                                   DispatchMetrics dispatchMetrics) {
+    return new DispatchDedupStore(true, TTL, 6, maxEntries, snapshotFile, clock::get,
+                                  dispatchMetrics);
+  }
+}
@@ -0,0 +1,56 @@
+package glenncai.kafka.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+/**
+ * Dispatch log sampler test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class DispatchLogSamplerTest {
+
+  @Test
+  void test_disabled_logs_every_record_and_counts_nothing() {
+    DispatchLogSampler dispatchLogSampler = DispatchLogSampler.disabled();
+
+    assertThat(IntStream.range(0, 10).filter(i -> dispatchLogSampler.sample()).count())
+        .isEqualTo(10);
+    dispatchLogSampler.dispatched();
+    dispatchLogSampler.unavailable();
+    assertThat(dispatchLogSampler.summarize().records()).isZero();
+  }
+
+  @Test
+  void test_sampled_logs_one_in_sample_every() {
+    DispatchLogSampler dispatchLogSampler = new DispatchLogSampler(true, 100);
+    try {
+      assertThat(IntStream.range(0, 1000).filter(i -> dispatchLogSampler.sample()).count())
+          .isEqualTo(10);
+    } finally {
+      dispatchLogSampler.destroy();
+    }
+  }
+
+  @Test
+  void test_summary_counts_outcomes_since_previous_summary() {
+    DispatchLogSampler dispatchLogSampler = new DispatchLogSampler(true, 100);
+    try {
+      IntStream.range(0, 3).forEach(i -> dispatchLogSampler.dispatched());
+      dispatchLogSampler.unavailable();
+
+      DispatchLogSampler.Summary summary = dispatchLogSampler.summarize();
+      assertThat(summary.records()).isEqualTo(4);
+      assertThat(summary.available()).isEqualTo(3);
+      assertThat(summary.unavailable()).isEqualTo(1);
+      assertThat(summary.recordsPerSecond()).isPositive();
+      assertThat(dispatchLogSampler.summarize().records()).isZero();
+    } finally {
+      dispatchLogSampler.destroy();
+    }
+  }
+}
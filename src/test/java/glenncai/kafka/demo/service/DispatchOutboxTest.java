@@ -0,0 +1,157 @@
+package glenncai.kafka.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.DispatchPreparing;
+import glenncai.kafka.demo.message.OrderDispatched;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.NetworkException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Dispatch outbox test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class DispatchOutboxTest {
+
+  @SuppressWarnings("unchecked")
+  private final KafkaTemplate<String, Object> kafkaTemplateMock = mock(KafkaTemplate.class);
+
+  @TempDir
+  private Path tempDir;
+
+  private DispatchOutbox dispatchOutbox;
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (dispatchOutbox != null) {
+      dispatchOutbox.destroy();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_relay_sends_staged_events_in_order() throws Exception {
+    when(kafkaTemplateMock.send(any(ProducerRecord.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    dispatchOutbox = outbox(1024, 4);
+    UUID orderId = UUID.randomUUID();
+    RecordHeaders headers = new RecordHeaders();
+    headers.add("dispatch_instance", "instance".getBytes(StandardCharsets.UTF_8));
+
+    dispatchOutbox.stage(List.of(
+        new ProducerRecord<>("dispatch.tracking", null, "key", new DispatchPreparing(orderId),
+                             headers),
+        new ProducerRecord<>("order.dispatched", null, null,
+                             new OrderDispatched(orderId, orderId, "Dispatched: item"))));
+    assertThat(dispatchOutbox.hasPending()).isTrue();
+
+    assertThat(dispatchOutbox.relay()).isEqualTo(2L);
+
+    ArgumentCaptor<ProducerRecord<String, Object>> sent =
+        ArgumentCaptor.forClass(ProducerRecord.class);
+    verify(kafkaTemplateMock, times(2)).send(sent.capture());
+    assertThat(sent.getAllValues()).extracting(ProducerRecord::topic)
+                                   .containsExactly("dispatch.tracking", "order.dispatched");
+    assertThat(sent.getAllValues().get(0).key()).isEqualTo("key");
+    assertThat(sent.getAllValues().get(0).value()).isEqualTo(new DispatchPreparing(orderId));
+    assertThat(sent.getAllValues().get(0).headers().lastHeader("dispatch_instance").value())
+        .isEqualTo("instance".getBytes(StandardCharsets.UTF_8));
+    assertThat(sent.getAllValues().get(1).key()).isNull();
+    assertThat(sent.getAllValues().get(1).value())
+        .isEqualTo(new OrderDispatched(orderId, orderId, "Dispatched: item"));
+    assertThat(dispatchOutbox.hasPending()).isFalse();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_failed_relay_keeps_events_for_next_run() throws Exception {
+    when(kafkaTemplateMock.send(any(ProducerRecord.class)))
+        .thenAnswer(invocation -> CompletableFuture.failedFuture(new NetworkException("down")))
+        .thenAnswer(invocation -> CompletableFuture.completedFuture(null));
+    dispatchOutbox = outbox(1024, 4);
+    dispatchOutbox.stage(List.of(new ProducerRecord<>("dispatch.tracking", "key",
+                                                      new DispatchPreparing(UUID.randomUUID()))));
+
+    assertThrows(ExecutionException.class, () -> dispatchOutbox.relay());
+    assertThat(dispatchOutbox.hasPending()).isTrue();
+
+    assertThat(dispatchOutbox.relay()).isEqualTo(1L);
+    verify(kafkaTemplateMock, times(2)).send(any(ProducerRecord.class));
+    assertThat(dispatchOutbox.hasPending()).isFalse();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_unacked_relay_is_waited_for_instead_of_sent_again() throws Exception {
+    CompletableFuture<Object> ack = new CompletableFuture<>();
+    when(kafkaTemplateMock.send(any(ProducerRecord.class))).thenAnswer(invocation -> ack);
+    dispatchOutbox = outbox(1024, 4);
+    dispatchOutbox.stage(List.of(new ProducerRecord<>("dispatch.tracking", "key",
+                                                      new DispatchPreparing(UUID.randomUUID()))));
+
+    assertThrows(TimeoutException.class, () -> dispatchOutbox.relay());
+    assertThrows(TimeoutException.class, () -> dispatchOutbox.relay());
+    verify(kafkaTemplateMock, times(1)).send(any(ProducerRecord.class));
+    assertThat(dispatchOutbox.hasPending()).isTrue();
+
+    ack.complete(null);
+    assertThat(dispatchOutbox.relay()).isEqualTo(1L);
+    verify(kafkaTemplateMock, times(1)).send(any(ProducerRecord.class));
+    assertThat(dispatchOutbox.hasPending()).isFalse();
+  }
+
+  @Test
+  void test_stage_fails_retryably_when_full() {
+    dispatchOutbox = outbox(160, 1);
+    ProducerRecord<String, Object> record = new ProducerRecord<>(
+        "dispatch.tracking", "key", new DispatchPreparing(UUID.randomUUID()));
+
+    dispatchOutbox.stage(List.of(record));
+    dispatchOutbox.stage(List.of(record));
+
+    assertThrows(RetryableException.class, () -> dispatchOutbox.stage(List.of(record)));
+  }
+
+  @Test
+  void test_broker_unavailable_only_for_retriable_failures() {
+    assertThat(DispatchOutbox.isBrokerUnavailable(
+        new ExecutionException(new org.apache.kafka.common.errors.TimeoutException("metadata"))))
+        .isTrue();
+    assertThat(DispatchOutbox.isBrokerUnavailable(new NetworkException("down"))).isTrue();
+    assertThat(DispatchOutbox.isBrokerUnavailable(
+        new ExecutionException(new RecordTooLargeException("too large")))).isFalse();
+    assertThat(DispatchOutbox.isBrokerUnavailable(new RuntimeException("failure"))).isFalse();
+    assertThat(DispatchOutbox.disabled().hasPending()).isFalse();
+  }
+
+  private DispatchOutbox outbox(int segmentSize, int maxSegments) {
+    return new DispatchOutbox(true, tempDir, segmentSize, maxSegments, OutboxLog.Fsync.ALWAYS,
+                              Duration.ofMillis(100), 100, Duration.ofSeconds(1),
+                              kafkaTemplateMock);
+  }
+}
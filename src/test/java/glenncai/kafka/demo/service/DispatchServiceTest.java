@@ -3,26 +3,54 @@ package glenncai.kafka.demo.service;
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import glenncai.kafka.demo.client.PartitionStockCache;
 import glenncai.kafka.demo.client.StockServiceClient;
+import glenncai.kafka.demo.exception.RetryableException;
 import glenncai.kafka.demo.message.DispatchPreparing;
 import glenncai.kafka.demo.message.OrderCreated;
 import glenncai.kafka.demo.message.OrderDispatched;
+import glenncai.kafka.demo.metrics.DispatchMetrics;
+import glenncai.kafka.demo.metrics.DispatchTrace;
 import glenncai.kafka.demo.utils.TestEventData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Dispatch service test
@@ -39,14 +67,36 @@ class DispatchServiceTest {
   @Mock
   private StockServiceClient stockServiceClient;
 
+  @Spy
+  private DispatchLogSampler dispatchLogSampler = DispatchLogSampler.disabled();
+
+  @Spy
+  private DispatchDedupStore dispatchDedupStore = DispatchDedupStore.disabled();
+
+  @Spy
+  private DispatchMetrics dispatchMetrics = DispatchMetrics.disabled();
+
+  @Spy
+  private PartitionStockCache partitionStockCache = PartitionStockCache.disabled();
+
+  @Spy
+  private DispatchOutbox dispatchOutbox = DispatchOutbox.disabled();
+
   @InjectMocks
   private DispatchService dispatchServiceMock;
 
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
   @Test
   void test_process_producer_success() throws Exception {
-    when(kafkaTemplateMock.send(anyString(), anyString(), any(DispatchPreparing.class))).thenAnswer(
+    when(kafkaTemplateMock.send(sent(null, null, DispatchPreparing.class))).thenAnswer(
         invocation -> CompletableFuture.completedFuture(null));
-    when(kafkaTemplateMock.send(anyString(), anyString(), any(OrderDispatched.class))).thenAnswer(
+    when(kafkaTemplateMock.send(sent(null, null, OrderDispatched.class))).thenAnswer(
         invocation -> CompletableFuture.completedFuture(null));
     when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
 
@@ -56,10 +106,9 @@ class DispatchServiceTest {
 
     dispatchServiceMock.process(key, testEvent);
 
-    verify(kafkaTemplateMock, times(1)).send(eq("dispatch.tracking"), eq(key),
-                                             any(DispatchPreparing.class));
-    verify(kafkaTemplateMock, times(1)).send(eq("order.dispatched"), eq(key),
-                                             any(OrderDispatched.class));
+    verify(kafkaTemplateMock, times(1)).send(
+        sent("dispatch.tracking", key, DispatchPreparing.class));
+    verify(kafkaTemplateMock, times(1)).send(sent("order.dispatched", key, OrderDispatched.class));
     verify(stockServiceClient, times(1)).checkAvailability(testEvent.getItem());
   }
 
@@ -70,16 +119,13 @@ class DispatchServiceTest {
         TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
 
     when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
-    doThrow(new RuntimeException("Dispatch tracking producer failure")).when(kafkaTemplateMock)
-                                                                       .send(
-                                                                           eq("dispatch.tracking"),
-                                                                           eq(key),
-                                                                           any(DispatchPreparing.class));
+    doThrow(new RuntimeException("Dispatch tracking producer failure"))
+        .when(kafkaTemplateMock).send(sent("dispatch.tracking", key, DispatchPreparing.class));
     Exception exception =
         assertThrows(RuntimeException.class, () -> dispatchServiceMock.process(key, testEvent));
 
-    verify(kafkaTemplateMock, times(1)).send(eq("dispatch.tracking"), eq(key),
-                                             any(DispatchPreparing.class));
+    verify(kafkaTemplateMock, times(1)).send(
+        sent("dispatch.tracking", key, DispatchPreparing.class));
     verify(stockServiceClient, times(1)).checkAvailability(testEvent.getItem());
     verifyNoMoreInteractions(kafkaTemplateMock);
     assertThat(exception.getMessage()).isEqualTo("Dispatch tracking producer failure");
@@ -87,7 +133,7 @@ class DispatchServiceTest {
 
   @Test
   void test_process_order_dispatched_failure() {
-    when(kafkaTemplateMock.send(anyString(), anyString(), any(DispatchPreparing.class))).thenAnswer(
+    when(kafkaTemplateMock.send(sent(null, null, DispatchPreparing.class))).thenAnswer(
         invocation -> CompletableFuture.completedFuture(null));
     when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
 
@@ -95,19 +141,437 @@ class DispatchServiceTest {
     OrderCreated testEvent =
         TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
 
-    doThrow(new RuntimeException("Order dispatched producer failure")).when(kafkaTemplateMock)
-                                                                      .send(
-                                                                          eq("order.dispatched"),
-                                                                          eq(key),
-                                                                          any(OrderDispatched.class));
+    doThrow(new RuntimeException("Order dispatched producer failure"))
+        .when(kafkaTemplateMock).send(sent("order.dispatched", key, OrderDispatched.class));
     Exception exception =
         assertThrows(RuntimeException.class, () -> dispatchServiceMock.process(key, testEvent));
 
-    verify(kafkaTemplateMock, times(1)).send(eq("dispatch.tracking"), eq(key), any(DispatchPreparing
-                                                                                       .class));
-    verify(kafkaTemplateMock, times(1)).send(eq("order.dispatched"), eq(key),
-                                             any(OrderDispatched.class));
+    verify(kafkaTemplateMock, times(1)).send(
+        sent("dispatch.tracking", key, DispatchPreparing.class));
+    verify(kafkaTemplateMock, times(1)).send(sent("order.dispatched", key, OrderDispatched.class));
     verify(stockServiceClient, times(1)).checkAvailability(testEvent.getItem());
     assertThat(exception.getMessage()).isEqualTo("Order dispatched producer failure");
   }
-}
\ No newline at end of file
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_process_carries_trace_headers_and_records_stages() throws Exception {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DispatchService tracedDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            dispatchDedupStore, new DispatchMetrics(meterRegistry),
+                            PartitionStockCache.disabled(), DispatchOutbox.disabled());
+
+    long origin = System.currentTimeMillis() - 50L;
+    String key = randomUUID().toString();
+    tracedDispatchService.process(
+        key, TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()),
+        DispatchTrace.received(2, origin));
+
+    ArgumentCaptor<ProducerRecord<String, Object>> captor =
+        ArgumentCaptor.forClass(ProducerRecord.class);
+    verify(kafkaTemplateMock, times(2)).send(captor.capture());
+    for (ProducerRecord<String, Object> record : captor.getAllValues()) {
+      Headers headers = record.headers();
+      assertThat(DispatchTrace.longHeader(headers, DispatchTrace.ORIGIN_TIMESTAMP))
+          .isEqualTo(origin);
+      assertThat(DispatchTrace.longHeader(headers, DispatchTrace.CONSUMED_TIMESTAMP))
+          .isGreaterThanOrEqualTo(origin + 50L);
+      assertThat(DispatchTrace.longHeader(headers, DispatchTrace.STOCK_LOOKUP_NANOS))
+          .isGreaterThanOrEqualTo(0L);
+      assertThat(DispatchTrace.longHeader(headers, DispatchTrace.SENT_TIMESTAMP))
+          .isGreaterThanOrEqualTo(DispatchTrace.longHeader(headers,
+                                                           DispatchTrace.CONSUMED_TIMESTAMP));
+      assertThat(new String(headers.lastHeader(DispatchTrace.INSTANCE).value(),
+                            StandardCharsets.UTF_8))
+          .isEqualTo(DispatchService.APPLICATION_ID.toString());
+    }
+    for (String stage : List.of("queue", "stock", "send", "total")) {
+      assertThat(meterRegistry.get(DispatchMetrics.STAGE_LATENCY).tag("stage", stage)
+                              .tag("partition", "2")
+                              .tag("instance", DispatchService.APPLICATION_ID.toString())
+                              .timer().count()).isEqualTo(1L);
+    }
+    assertThat(meterRegistry.get(DispatchMetrics.STAGE_LATENCY).tag("stage", "total").timer()
+                            .totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50.0);
+  }
+
+  @Test
+  void test_processAsync_records_send_stages_once_acked() {
+    CompletableFuture<Object> dispatchedSend = new CompletableFuture<>();
+    when(kafkaTemplateMock.send(sent(null, null, DispatchPreparing.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(kafkaTemplateMock.send(sent(null, null, OrderDispatched.class))).thenAnswer(
+        invocation -> dispatchedSend);
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DispatchService tracedDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            dispatchDedupStore, new DispatchMetrics(meterRegistry),
+                            PartitionStockCache.disabled(), DispatchOutbox.disabled());
+
+    tracedDispatchService.processAsync(
+        randomUUID().toString(),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()),
+        DispatchTrace.received(0, System.currentTimeMillis()));
+
+    assertThat(meterRegistry.get(DispatchMetrics.STAGE_LATENCY).tag("stage", "stock").timer()
+                            .count()).isEqualTo(1L);
+    assertThat(meterRegistry.find(DispatchMetrics.STAGE_LATENCY).tag("stage", "send").timer())
+        .isNull();
+    dispatchedSend.complete(null);
+    assertThat(meterRegistry.get(DispatchMetrics.STAGE_LATENCY).tag("stage", "send").timer()
+                            .count()).isEqualTo(1L);
+  }
+
+  @Test
+  void test_process_checks_stock_through_partition_cache() throws Exception {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    PartitionStockCache partitionCache =
+        new PartitionStockCache(true, 100, Duration.ofSeconds(30), Duration.ofSeconds(5), 10,
+                                stockServiceClient);
+    partitionCache.onPartitionsAssigned(null, List.of(new TopicPartition("order.created", 0)));
+    DispatchService cachedDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            dispatchDedupStore, DispatchMetrics.disabled(), partitionCache,
+                            DispatchOutbox.disabled());
+
+    for (int partition : new int[] {0, 0, 1}) {
+      cachedDispatchService.process(
+          randomUUID().toString(), TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"),
+          DispatchTrace.received(partition, System.currentTimeMillis()));
+    }
+
+    verify(stockServiceClient, times(2)).checkAvailability("item-1");
+  }
+
+  @Test
+  void test_process_stages_events_in_outbox_when_broker_unavailable(@TempDir Path outboxDir)
+      throws Exception {
+    when(kafkaTemplateMock.send(sent(null, null, DispatchPreparing.class))).thenAnswer(
+        invocation -> CompletableFuture.failedFuture(new TimeoutException("No metadata")));
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    DispatchOutbox outbox =
+        new DispatchOutbox(true, outboxDir, 4096, 2, OutboxLog.Fsync.NEVER,
+                           Duration.ofSeconds(1), 100, Duration.ofSeconds(1), kafkaTemplateMock);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DispatchService outboxDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            dispatchDedupStore, new DispatchMetrics(meterRegistry),
+                            PartitionStockCache.disabled(), outbox);
+
+    try {
+      String key = randomUUID().toString();
+      outboxDispatchService.process(
+          key, TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+      outboxDispatchService.process(
+          key, TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString()));
+
+      verify(kafkaTemplateMock, times(1)).send(
+          sent("dispatch.tracking", key, DispatchPreparing.class));
+      verify(kafkaTemplateMock, never()).send(sent(null, null, OrderDispatched.class));
+      assertThat(outbox.hasPending()).isTrue();
+      assertThat(meterRegistry.find(DispatchMetrics.STAGE_LATENCY).tag("stage", "send").timer())
+          .isNull();
+
+      when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+          invocation -> CompletableFuture.completedFuture(null));
+      assertThat(outbox.relay()).isEqualTo(4L);
+      verify(kafkaTemplateMock, times(3)).send(
+          sent("dispatch.tracking", key, DispatchPreparing.class));
+      verify(kafkaTemplateMock, times(2)).send(sent("order.dispatched", key,
+                                                    OrderDispatched.class));
+    } finally {
+      outbox.destroy();
+    }
+  }
+
+  @Test
+  void test_process_does_not_stage_non_retriable_failure(@TempDir Path outboxDir) {
+    when(kafkaTemplateMock.send(sent(null, null, DispatchPreparing.class))).thenAnswer(
+        invocation -> CompletableFuture.failedFuture(new RecordTooLargeException("Too large")));
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    DispatchOutbox outbox =
+        new DispatchOutbox(true, outboxDir, 4096, 2, OutboxLog.Fsync.NEVER,
+                           Duration.ofSeconds(1), 100, Duration.ofSeconds(1), kafkaTemplateMock);
+    DispatchService outboxDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            dispatchDedupStore, DispatchMetrics.disabled(),
+                            PartitionStockCache.disabled(), outbox);
+
+    assertThrows(ExecutionException.class, () -> outboxDispatchService.process(
+        randomUUID().toString(),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString())));
+    assertThat(outbox.hasPending()).isFalse();
+  }
+
+  @Test
+  void test_processBatch_looks_up_each_item_once() {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability("item-1")).thenReturn("true");
+    when(stockServiceClient.checkAvailability("item-2")).thenReturn("false");
+
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2"),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"));
+
+    dispatchServiceMock.processBatch(records);
+
+    verify(stockServiceClient, times(1)).checkAvailability("item-1");
+    verify(stockServiceClient, times(1)).checkAvailability("item-2");
+    verify(kafkaTemplateMock, times(2)).send(
+        sent("dispatch.tracking", null, DispatchPreparing.class));
+    verify(kafkaTemplateMock, times(2)).send(sent("order.dispatched", null, OrderDispatched.class));
+  }
+
+  @Test
+  void test_processBatch_records_stock_stage_only_for_lookups() {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability("item-1")).thenReturn("true");
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DispatchService tracedDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            dispatchDedupStore, new DispatchMetrics(meterRegistry, "dispatch-1"),
+                            PartitionStockCache.disabled(), DispatchOutbox.disabled());
+
+    tracedDispatchService.processBatch(TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1")));
+
+    assertThat(meterRegistry.get(DispatchMetrics.STAGE_LATENCY).tag("stage", "queue")
+                            .tag("instance", "dispatch-1").timer().count()).isEqualTo(2L);
+    assertThat(meterRegistry.get(DispatchMetrics.STAGE_LATENCY).tag("stage", "stock")
+                            .tag("instance", "dispatch-1").timer().count()).isEqualTo(1L);
+  }
+
+  @Test
+  void test_processBatch_stock_failure_names_index() {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability("item-1")).thenReturn("true");
+    RetryableException failure = new RetryableException("Stock service failure");
+    when(stockServiceClient.checkAvailability("item-2")).thenThrow(failure);
+
+    List<ConsumerRecord<String, OrderCreated>> records = TestEventData.buildOrderCreatedRecords(
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2"),
+        TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"));
+
+    BatchListenerFailedException exception =
+        assertThrows(BatchListenerFailedException.class,
+                     () -> dispatchServiceMock.processBatch(records));
+
+    assertThat(exception.getIndex()).isEqualTo(1);
+    assertThat(exception.getCause()).isSameAs(failure);
+    verify(kafkaTemplateMock, times(1)).send(
+        sent("dispatch.tracking", null, DispatchPreparing.class));
+    verify(kafkaTemplateMock, times(1)).send(sent("order.dispatched", null, OrderDispatched.class));
+  }
+
+  @Test
+  void test_processBatch_send_failure_names_index() {
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    RuntimeException failure = new RuntimeException("Order dispatched producer failure");
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(kafkaTemplateMock.send(sent("order.dispatched", "failing-key", Object.class)))
+        .thenAnswer(invocation -> CompletableFuture.failedFuture(failure));
+
+    List<ConsumerRecord<String, OrderCreated>> records = List.of(
+        new ConsumerRecord<>("order.created", 0, 0L, "key",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1")),
+        new ConsumerRecord<>("order.created", 0, 1L, "failing-key",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1")));
+
+    BatchListenerFailedException exception =
+        assertThrows(BatchListenerFailedException.class,
+                     () -> dispatchServiceMock.processBatch(records));
+
+    assertThat(exception.getIndex()).isEqualTo(1);
+    assertThat(exception.getCause()).isSameAs(failure);
+    verify(stockServiceClient, times(1)).checkAvailability("item-1");
+  }
+
+  @Test
+  void test_processAsync_completes_when_both_sends_complete() {
+    CompletableFuture<Object> trackingSend = new CompletableFuture<>();
+    CompletableFuture<Object> dispatchedSend = new CompletableFuture<>();
+    when(kafkaTemplateMock.send(sent(null, null, DispatchPreparing.class))).thenAnswer(
+        invocation -> trackingSend);
+    when(kafkaTemplateMock.send(sent(null, null, OrderDispatched.class))).thenAnswer(
+        invocation -> dispatchedSend);
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+
+    String key = randomUUID().toString();
+    OrderCreated testEvent =
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+    CompletableFuture<Void> result = dispatchServiceMock.processAsync(key, testEvent);
+
+    verify(kafkaTemplateMock, times(1)).send(
+        sent("dispatch.tracking", key, DispatchPreparing.class));
+    verify(kafkaTemplateMock, times(1)).send(sent("order.dispatched", key, OrderDispatched.class));
+    trackingSend.complete(null);
+    assertThat(result).isNotDone();
+    dispatchedSend.complete(null);
+    assertThat(result).isCompleted();
+  }
+
+  @Test
+  void test_processAsync_stock_unavailable() {
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("false");
+
+    String key = randomUUID().toString();
+    OrderCreated testEvent =
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+    assertThat(dispatchServiceMock.processAsync(key, testEvent)).isCompleted();
+    verifyNoMoreInteractions(kafkaTemplateMock);
+  }
+
+  @Test
+  void test_process_skips_already_dispatched_order() throws Exception {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    DispatchService dedupDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            new DispatchDedupStore(true, Duration.ofHours(1), 6, 1000L, null,
+                                                   System::currentTimeMillis,
+                                                   DispatchMetrics.disabled()),
+                            DispatchMetrics.disabled(), PartitionStockCache.disabled(),
+                            DispatchOutbox.disabled());
+
+    String key = randomUUID().toString();
+    OrderCreated testEvent =
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+    dedupDispatchService.process(key, testEvent);
+    dedupDispatchService.process(key, testEvent);
+    assertThat(dedupDispatchService.processAsync(key, testEvent)).isCompleted();
+    dedupDispatchService.processBatch(List.of(new ConsumerRecord<>("order.created", 0, 0L, key,
+                                                                   testEvent)));
+
+    verify(stockServiceClient, times(1)).checkAvailability(testEvent.getItem());
+    verify(kafkaTemplateMock, times(1)).send(sent("order.dispatched", key, OrderDispatched.class));
+  }
+
+  @Test
+  void test_processAsync_failed_send_not_marked_dispatched() {
+    CompletableFuture<Object> failedSend = CompletableFuture.failedFuture(
+        new RuntimeException("Order dispatched producer failure"));
+    when(kafkaTemplateMock.send(sent(null, null, DispatchPreparing.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(kafkaTemplateMock.send(sent(null, null, OrderDispatched.class)))
+        .thenAnswer(invocation -> failedSend)
+        .thenAnswer(invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    DispatchService dedupDispatchService =
+        new DispatchService(kafkaTemplateMock, stockServiceClient, dispatchLogSampler,
+                            new DispatchDedupStore(true, Duration.ofHours(1), 6, 1000L, null,
+                                                   System::currentTimeMillis,
+                                                   DispatchMetrics.disabled()),
+                            DispatchMetrics.disabled(), PartitionStockCache.disabled(),
+                            DispatchOutbox.disabled());
+
+    String key = randomUUID().toString();
+    OrderCreated testEvent =
+        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+    assertThat(dedupDispatchService.processAsync(key, testEvent)).isCompletedExceptionally();
+    assertThat(dedupDispatchService.processAsync(key, testEvent)).isCompleted();
+
+    verify(kafkaTemplateMock, times(2)).send(sent("order.dispatched", key, OrderDispatched.class));
+  }
+
+  @Test
+  void test_processParallel_runs_different_keys_concurrently() {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    // Each lookup waits for the other, so this only completes when both run at once
+    CountDownLatch lookups = new CountDownLatch(2);
+    when(stockServiceClient.checkAvailability(anyString())).thenAnswer(invocation -> {
+      lookups.countDown();
+      return String.valueOf(lookups.await(5, TimeUnit.SECONDS));
+    });
+
+    List<ConsumerRecord<String, OrderCreated>> records = List.of(
+        new ConsumerRecord<>("order.created", 0, 0L, "key-1",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1")),
+        new ConsumerRecord<>("order.created", 0, 1L, "key-2",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2")));
+
+    dispatchServiceMock.processParallel(records, executor);
+
+    verify(kafkaTemplateMock, times(2)).send(sent("order.dispatched", null, OrderDispatched.class));
+  }
+
+  @Test
+  void test_processParallel_skips_later_records_of_failed_key() {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    RetryableException failure = new RetryableException("Stock service failure");
+    when(stockServiceClient.checkAvailability("item-1")).thenReturn("true");
+    when(stockServiceClient.checkAvailability("item-2")).thenThrow(failure);
+
+    List<ConsumerRecord<String, OrderCreated>> records = List.of(
+        new ConsumerRecord<>("order.created", 0, 0L, "key-1",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1")),
+        new ConsumerRecord<>("order.created", 0, 1L, "key-2",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2")),
+        new ConsumerRecord<>("order.created", 0, 2L, "key-2",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-3")),
+        new ConsumerRecord<>("order.created", 0, 3L, "key-3",
+                             TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1")));
+
+    BatchListenerFailedException exception =
+        assertThrows(BatchListenerFailedException.class,
+                     () -> dispatchServiceMock.processParallel(records, executor));
+
+    assertThat(exception.getIndex()).isEqualTo(1);
+    assertThat(exception.getCause()).isSameAs(failure);
+    verify(stockServiceClient, times(0)).checkAvailability("item-3");
+    verify(kafkaTemplateMock, times(2)).send(sent("order.dispatched", null, OrderDispatched.class));
+  }
+
+  @Test
+  void test_processParallel_completes_with_more_keys_than_concurrency_limit() {
+    when(kafkaTemplateMock.send(sent(null, null, Object.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(null));
+    when(stockServiceClient.checkAvailability(anyString())).thenReturn("true");
+    SimpleAsyncTaskExecutor limitedExecutor = new SimpleAsyncTaskExecutor("dispatch-");
+    limitedExecutor.setConcurrencyLimit(2);
+
+    List<ConsumerRecord<String, OrderCreated>> records = new ArrayList<>();
+    for (int key = 0; key < 4; key++) {
+      for (int record = 0; record < 2; record++) {
+        records.add(new ConsumerRecord<>("order.created", 0, records.size(), "key-" + key,
+                                         TestEventData.buildOrderCreatedEvent(randomUUID(),
+                                                                              "item-" + key)));
+      }
+    }
+
+    assertTimeoutPreemptively(Duration.ofSeconds(10),
+                              () -> dispatchServiceMock.processParallel(records, limitedExecutor));
+
+    verify(kafkaTemplateMock, times(8)).send(sent("order.dispatched", null, OrderDispatched.class));
+  }
+
+  /**
+   * Matches a record of the type sent to the topic under the key, any topic or key when null
+   */
+  private static ProducerRecord<String, Object> sent(String topic, String key, Class<?> type) {
+    return argThat(record -> record != null
+                             && (topic == null || topic.equals(record.topic()))
+                             && (key == null || key.equals(record.key()))
+                             && type.isInstance(record.value()));
+  }
+}
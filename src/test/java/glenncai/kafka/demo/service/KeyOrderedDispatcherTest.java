@@ -0,0 +1,173 @@
+package glenncai.kafka.demo.service;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import glenncai.kafka.demo.exception.NotRetryableException;
+import glenncai.kafka.demo.exception.RetryableException;
+import glenncai.kafka.demo.message.OrderCreated;
+import glenncai.kafka.demo.utils.TestEventData;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key ordered dispatcher test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class KeyOrderedDispatcherTest {
+
+  private static final TopicPartition PARTITION = new TopicPartition("order.created", 0);
+
+  private final DispatchService dispatchServiceMock = mock(DispatchService.class);
+
+  private final ConsumerRecordRecoverer recovererMock = mock(ConsumerRecordRecoverer.class);
+
+  private final KeyOrderedDispatcher dispatcher =
+      new KeyOrderedDispatcher(dispatchServiceMock, recovererMock, 4, 10, Duration.ofMillis(10),
+                               2L, Duration.ofMillis(200));
+
+  @AfterEach
+  void tearDown() throws Exception {
+    dispatcher.destroy();
+  }
+
+  @Test
+  void test_submit_keeps_key_order_and_commits_watermark() throws Exception {
+    List<String> processed = new CopyOnWriteArrayList<>();
+    doAnswer(invocation -> processed.add(((OrderCreated) invocation.getArgument(1)).getItem()))
+        .when(dispatchServiceMock).process(any(), any(), any());
+
+    for (int offset = 0; offset < 20; offset++) {
+      dispatcher.submit(record(offset, "key-" + offset % 2, "item-" + offset));
+    }
+
+    await().atMost(2, TimeUnit.SECONDS).until(() -> dispatcher.inFlightCount() == 0);
+    List<String> evenKey = processed.stream().filter(item -> item.matches("item-\\d*[02468]"))
+                                    .toList();
+    assertThat(evenKey).containsExactly("item-0", "item-2", "item-4", "item-6", "item-8",
+                                        "item-10", "item-12", "item-14", "item-16", "item-18");
+    assertThat(dispatcher.committableOffsets(Set.of(PARTITION))).isEqualTo(
+        Map.of(PARTITION, new OffsetAndMetadata(20L)));
+    assertThat(dispatcher.committableOffsets(Set.of(PARTITION))).isEmpty();
+  }
+
+  @Test
+  void test_retryable_failure_is_retried_then_dead_lettered() throws Exception {
+    RetryableException failure = new RetryableException("Stock service failure");
+    doThrow(failure).when(dispatchServiceMock).process(any(), any(), any());
+    ConsumerRecord<String, OrderCreated> record = record(0, "key", "item");
+
+    dispatcher.submit(record);
+
+    verify(recovererMock, timeout(1000)).accept(same(record), same(failure));
+    verify(dispatchServiceMock, times(3)).process(any(), any(), any());
+  }
+
+  @Test
+  void test_other_failure_is_dead_lettered_without_retry() throws Exception {
+    doThrow(new IllegalStateException("Bad order")).when(dispatchServiceMock)
+                                                    .process(any(), any(), any());
+    ConsumerRecord<String, OrderCreated> record = record(0, "key", "item");
+
+    dispatcher.submit(record);
+
+    verify(recovererMock, timeout(1000)).accept(same(record), any(NotRetryableException.class));
+    verify(dispatchServiceMock, times(1)).process(any(), any(), any());
+  }
+
+  @Test
+  void test_revoke_commits_watermark_and_abandons_queued_records() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> release.await(5, TimeUnit.SECONDS))
+        .when(dispatchServiceMock).process(any(), any(), any());
+    Consumer<?, ?> consumerMock = mock(Consumer.class);
+
+    dispatcher.submit(record(0, "key", "item-0"));
+    dispatcher.submit(record(1, "key", "item-1"));
+    dispatcher.onPartitionsRevokedBeforeCommit(consumerMock, List.of(PARTITION));
+
+    verify(consumerMock, times(1)).commitSync(Map.of(PARTITION, new OffsetAndMetadata(0L)));
+    release.countDown();
+    verify(dispatchServiceMock, timeout(1000).times(1)).process(eq("key"), any(), any());
+    assertThat(dispatcher.inFlightCount()).isZero();
+  }
+
+  @Test
+  void test_interrupted_record_holds_back_watermark() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      started.countDown();
+      return new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+    }).when(dispatchServiceMock).process(any(), any(), any());
+
+    dispatcher.submit(record(0, "key", "item"));
+    assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+    dispatcher.destroy();
+
+    assertThat(dispatcher.inFlightCount()).isEqualTo(1);
+    assertThat(dispatcher.committableOffsets(Set.of(PARTITION))).isEqualTo(
+        Map.of(PARTITION, new OffsetAndMetadata(0L)));
+  }
+
+  @Test
+  void test_committable_offsets_scoped_to_assignment() throws Exception {
+    TopicPartition otherPartition = new TopicPartition(PARTITION.topic(), 1);
+
+    dispatcher.submit(record(0, "key", "item"));
+    dispatcher.submit(new ConsumerRecord<>(otherPartition.topic(), otherPartition.partition(), 0L,
+                                           "key", TestEventData.buildOrderCreatedEvent(
+                                               randomUUID(), "item")));
+
+    await().atMost(2, TimeUnit.SECONDS).until(() -> dispatcher.inFlightCount() == 0);
+    assertThat(dispatcher.committableOffsets(Set.of(PARTITION))).isEqualTo(
+        Map.of(PARTITION, new OffsetAndMetadata(1L)));
+    assertThat(dispatcher.committableOffsets(Set.of(otherPartition))).isEqualTo(
+        Map.of(otherPartition, new OffsetAndMetadata(1L)));
+  }
+
+  @Test
+  void test_failed_dead_letter_is_retried_then_holds_back_watermark() throws Exception {
+    doThrow(new IllegalStateException("Bad order")).when(dispatchServiceMock)
+                                                    .process(any(), any(), any());
+    doThrow(new KafkaException("Dead letter topic unavailable")).when(recovererMock)
+                                                                .accept(any(), any());
+
+    dispatcher.submit(record(0, "key", "item"));
+
+    verify(recovererMock, timeout(1000).times(3)).accept(any(), any());
+    assertThat(dispatcher.inFlightCount()).isEqualTo(1);
+    assertThat(dispatcher.committableOffsets(Set.of(PARTITION))).isEqualTo(
+        Map.of(PARTITION, new OffsetAndMetadata(0L)));
+  }
+
+  private static ConsumerRecord<String, OrderCreated> record(long offset, String key,
+                                                             String item) {
+    return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, key,
+                                TestEventData.buildOrderCreatedEvent(randomUUID(), item));
+  }
+}
@@ -0,0 +1,83 @@
+package glenncai.kafka.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.List;
+
+/**
+ * Listener container pauser test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class ListenerContainerPauserTest {
+
+  private MessageListenerContainer orderContainer;
+
+  private MessageListenerContainer retryContainer;
+
+  private MessageListenerContainer otherContainer;
+
+  private ListenerContainerPauser pauser;
+
+  @BeforeEach
+  void setUp() {
+    orderContainer = container("orderConsumerClient");
+    retryContainer = container("orderConsumerClient-retry-1000");
+    otherContainer = container("otherClient");
+    KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+    when(registry.getListenerContainers())
+        .thenReturn(List.of(orderContainer, retryContainer, otherContainer));
+    pauser = new ListenerContainerPauser(registry, "orderConsumerClient");
+  }
+
+  @Test
+  void test_pauses_order_containers_only() {
+    pauser.pause("reason");
+
+    verify(orderContainer).pause();
+    verify(retryContainer).pause();
+    verify(otherContainer, never()).pause();
+    assertThat(pauser.isPaused()).isTrue();
+  }
+
+  @Test
+  void test_resumes_once_every_reason_is_cleared() {
+    pauser.pause("first");
+    pauser.pause("second");
+    pauser.pause("second");
+    verify(orderContainer, times(1)).pause();
+
+    pauser.resume("first");
+    verify(orderContainer, never()).resume();
+    assertThat(pauser.reasons()).containsExactly("second");
+
+    pauser.resume("second");
+    verify(orderContainer).resume();
+    verify(retryContainer).resume();
+    assertThat(pauser.isPaused()).isFalse();
+  }
+
+  @Test
+  void test_resume_without_pause_is_ignored() {
+    pauser.resume("reason");
+
+    verify(orderContainer, never()).resume();
+  }
+
+  private static MessageListenerContainer container(String listenerId) {
+    MessageListenerContainer container = mock(MessageListenerContainer.class);
+    when(container.getListenerId()).thenReturn(listenerId);
+    return container;
+  }
+}
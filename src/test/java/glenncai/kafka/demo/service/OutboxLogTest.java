@@ -0,0 +1,131 @@
+package glenncai.kafka.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Outbox log test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class OutboxLogTest {
+
+  /**
+   * Room for three records of 8 bytes after the segment header
+   */
+  private static final int SEGMENT_SIZE = 64;
+
+  @TempDir
+  private Path tempDir;
+
+  @Test
+  void test_read_returns_appended_records_until_committed() throws IOException {
+    try (OutboxLog outboxLog = open(3, OutboxLog.Fsync.ALWAYS)) {
+      assertThat(outboxLog.append(records(0, 3))).isTrue();
+
+      OutboxLog.Batch first = outboxLog.read(2);
+      assertThat(strings(first)).containsExactly("record-0", "record-1");
+      assertThat(strings(outboxLog.read(10))).containsExactly("record-0", "record-1", "record-2");
+      outboxLog.commit(first);
+
+      OutboxLog.Batch rest = outboxLog.read(10);
+      assertThat(strings(rest)).containsExactly("record-2");
+      outboxLog.commit(rest);
+      assertThat(outboxLog.isEmpty()).isTrue();
+      assertThat(outboxLog.pending()).isZero();
+      assertThat(outboxLog.read(10).records()).isEmpty();
+    }
+  }
+
+  @Test
+  void test_append_rolls_segments_and_refuses_when_full() throws IOException {
+    try (OutboxLog outboxLog = open(3, OutboxLog.Fsync.INTERVAL)) {
+      for (int index = 0; index < 9; index++) {
+        assertThat(outboxLog.append(records(index, 1))).isTrue();
+      }
+      assertThat(outboxLog.append(records(9, 1))).isFalse();
+      assertThat(outboxLog.diskSize()).isEqualTo(3L * SEGMENT_SIZE);
+      assertThat(outboxLog.pending()).isEqualTo(9L);
+
+      OutboxLog.Batch batch = outboxLog.read(100);
+      assertThat(strings(batch)).hasSize(9).startsWith("record-0").endsWith("record-8");
+      outboxLog.commit(batch);
+      assertThat(outboxLog.diskSize()).isEqualTo(SEGMENT_SIZE);
+      assertThat(segmentFiles()).hasSize(1);
+
+      assertThat(outboxLog.append(records(9, 1))).isTrue();
+      assertThat(strings(outboxLog.read(100))).containsExactly("record-9");
+    }
+  }
+
+  @Test
+  void test_reopen_recovers_unread_records_and_cuts_torn_tail() throws IOException {
+    try (OutboxLog outboxLog = open(3, OutboxLog.Fsync.NEVER)) {
+      outboxLog.append(records(0, 3));
+      outboxLog.append(records(3, 2));
+      outboxLog.commit(outboxLog.read(2));
+    }
+    // A frame whose record never made it to disk, after the last record of the second segment
+    Path lastSegment = segmentFiles().get(1);
+    try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(12).putInt(8).putInt(0x7eadbeef).putInt(42).flip(), 40L);
+    }
+
+    try (OutboxLog outboxLog = open(3, OutboxLog.Fsync.NEVER)) {
+      assertThat(outboxLog.pending()).isEqualTo(3L);
+      assertThat(strings(outboxLog.read(10))).containsExactly("record-2", "record-3",
+                                                             "record-4");
+      outboxLog.append(List.of("short".getBytes(StandardCharsets.UTF_8)));
+      assertThat(strings(outboxLog.read(10))).containsExactly("record-2", "record-3",
+                                                             "record-4", "short");
+    }
+  }
+
+  @Test
+  void test_oversized_records_and_unknown_fsync_policy_rejected() throws IOException {
+    try (OutboxLog outboxLog = open(3, OutboxLog.Fsync.ALWAYS)) {
+      assertThrows(IllegalArgumentException.class,
+                   () -> outboxLog.append(List.of(new byte[SEGMENT_SIZE])));
+      assertThrows(IllegalArgumentException.class, () -> outboxLog.append(records(0, 4)));
+      assertThat(outboxLog.isEmpty()).isTrue();
+    }
+    assertThat(OutboxLog.Fsync.of(" Always ")).isEqualTo(OutboxLog.Fsync.ALWAYS);
+    assertThrows(IllegalArgumentException.class, () -> OutboxLog.Fsync.of("sometimes"));
+  }
+
+  private OutboxLog open(int maxSegments, OutboxLog.Fsync fsync) throws IOException {
+    return new OutboxLog(tempDir.resolve("outbox"), SEGMENT_SIZE, maxSegments, fsync);
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir.resolve("outbox"))) {
+      return files.filter(file -> file.toString().endsWith(OutboxLog.SEGMENT_SUFFIX)).sorted()
+                  .toList();
+    }
+  }
+
+  private static List<byte[]> records(int from, int count) {
+    return IntStream.range(from, from + count)
+                    .mapToObj(index -> ("record-" + index).getBytes(StandardCharsets.UTF_8))
+                    .toList();
+  }
+
+  private static List<String> strings(OutboxLog.Batch batch) {
+    return batch.records().stream().map(record -> new String(record, StandardCharsets.UTF_8))
+                .toList();
+  }
+}
@@ -0,0 +1,60 @@
+package glenncai.kafka.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partition offset tracker test
+ *
+ * @author Glenn Cai
+ * @version 1.0 18/10/2026
+ */
+class PartitionOffsetTrackerTest {
+
+  private final PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+
+  @Test
+  void test_watermark_stops_at_lowest_in_flight_offset() {
+    tracker.register(10L);
+    tracker.register(11L);
+    tracker.register(14L);
+
+    tracker.complete(11L);
+    tracker.complete(14L);
+    assertThat(tracker.watermark()).isEqualTo(10L);
+
+    tracker.complete(10L);
+    assertThat(tracker.watermark()).isEqualTo(15L);
+    assertThat(tracker.inFlightCount()).isZero();
+  }
+
+  @Test
+  void test_advanceCommit_only_returns_new_watermarks() {
+    assertThat(tracker.advanceCommit()).isEqualTo(-1L);
+
+    tracker.register(0L);
+    tracker.register(1L);
+    assertThat(tracker.advanceCommit()).isEqualTo(0L);
+    assertThat(tracker.advanceCommit()).isEqualTo(-1L);
+
+    tracker.complete(0L);
+    assertThat(tracker.advanceCommit()).isEqualTo(1L);
+  }
+
+  @Test
+  void test_revoke_rejects_new_records() throws Exception {
+    tracker.register(0L);
+    tracker.revoke();
+
+    assertThat(tracker.register(1L)).isFalse();
+    assertThat(tracker.isRevoked()).isTrue();
+    assertThat(tracker.awaitIdle(10, TimeUnit.MILLISECONDS)).isFalse();
+
+    tracker.complete(0L);
+    assertThat(tracker.awaitIdle(10, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(tracker.watermark()).isEqualTo(1L);
+  }
+}
@@ -1,7 +1,10 @@
 package glenncai.kafka.demo.utils;
 
 import glenncai.kafka.demo.message.OrderCreated;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -18,4 +21,14 @@ public class TestEventData {
                        .item(item)
                        .build();
   }
+
+  public static List<ConsumerRecord<String, OrderCreated>> buildOrderCreatedRecords(
+      OrderCreated... events) {
+    List<ConsumerRecord<String, OrderCreated>> records = new ArrayList<>(events.length);
+    for (int offset = 0; offset < events.length; offset++) {
+      records.add(new ConsumerRecord<>("order.created", 0, offset, UUID.randomUUID().toString(),
+                                       events[offset]));
+    }
+    return records;
+  }
 }